@@ -49,11 +49,23 @@ CREATE TABLE `xxl_job_log` (
   `handle_code` int(11) NOT NULL COMMENT '执行-状态',
   `handle_msg` text COMMENT '执行-日志',
   `alarm_status` tinyint(4) NOT NULL DEFAULT '0' COMMENT '告警状态：0-默认、1-无需告警、2-告警成功、3-告警失败',
+  `workflow_node_id` bigint(20) NOT NULL DEFAULT '0' COMMENT '工作流节点ID，非工作流触发时为0',
   PRIMARY KEY (`id`),
   KEY `I_trigger_time` (`trigger_time`),
-  KEY `I_handle_code` (`handle_code`)
+  KEY `I_trigger_code_handle_code_id` (`trigger_code`,`handle_code`,`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
+# 日志分区模式（选填，"xxl.job.log.partition=DAY/MONTH"）：日志表按 trigger_time 分区，过期日志整分区删除；
+# 首个分区保存存量日志，"pmax" 分区必须保留，后续分区由调度中心自动从 "pmax" 拆分预建；
+# ALTER TABLE `xxl_job_log`
+#   MODIFY `trigger_time` datetime NOT NULL COMMENT '调度-时间',
+#   DROP PRIMARY KEY,
+#   ADD PRIMARY KEY (`id`, `trigger_time`)
+#   PARTITION BY RANGE COLUMNS(`trigger_time`) (
+#     PARTITION p_init VALUES LESS THAN ('2020-01-02 00:00:00'),
+#     PARTITION pmax VALUES LESS THAN (MAXVALUE)
+#   );
+
 CREATE TABLE `xxl_job_log_report` (
   `id` int(11) NOT NULL AUTO_INCREMENT,
   `trigger_day` datetime DEFAULT NULL COMMENT '调度-时间',
@@ -64,6 +76,74 @@ CREATE TABLE `xxl_job_log_report` (
   UNIQUE KEY `i_trigger_day` (`trigger_day`) USING BTREE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
+CREATE TABLE `xxl_job_log_stat` (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT,
+  `stat_period` tinyint(4) NOT NULL COMMENT '统计粒度：1-分钟、2-小时、3-天',
+  `stat_time` datetime NOT NULL COMMENT '统计-时间',
+  `job_group` int(11) NOT NULL COMMENT '执行器主键ID',
+  `job_id` int(11) NOT NULL COMMENT '任务，主键ID',
+  `trigger_count` int(11) NOT NULL DEFAULT '0' COMMENT '调度-次数',
+  `suc_count` int(11) NOT NULL DEFAULT '0' COMMENT '执行成功-次数',
+  `fail_count` int(11) NOT NULL DEFAULT '0' COMMENT '执行失败-次数',
+  `duration_sum` bigint(20) NOT NULL DEFAULT '0' COMMENT '执行耗时-合计，毫秒',
+  `duration_max` bigint(20) NOT NULL DEFAULT '0' COMMENT '执行耗时-最大，毫秒',
+  `duration_b0` int(11) NOT NULL DEFAULT '0' COMMENT '执行耗时分布：<100ms',
+  `duration_b1` int(11) NOT NULL DEFAULT '0' COMMENT '执行耗时分布：<500ms',
+  `duration_b2` int(11) NOT NULL DEFAULT '0' COMMENT '执行耗时分布：<1s',
+  `duration_b3` int(11) NOT NULL DEFAULT '0' COMMENT '执行耗时分布：<5s',
+  `duration_b4` int(11) NOT NULL DEFAULT '0' COMMENT '执行耗时分布：<10s',
+  `duration_b5` int(11) NOT NULL DEFAULT '0' COMMENT '执行耗时分布：<1min',
+  `duration_b6` int(11) NOT NULL DEFAULT '0' COMMENT '执行耗时分布：<5min',
+  `duration_b7` int(11) NOT NULL DEFAULT '0' COMMENT '执行耗时分布：>=5min',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `i_p_t_j` (`stat_period`,`stat_time`,`job_id`) USING BTREE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE `xxl_job_workflow` (
+  `id` int(11) NOT NULL AUTO_INCREMENT,
+  `job_group` int(11) NOT NULL COMMENT '执行器主键ID',
+  `workflow_desc` varchar(255) NOT NULL COMMENT '工作流描述',
+  `author` varchar(64) DEFAULT NULL COMMENT '负责人',
+  `graph` text NOT NULL COMMENT 'DAG定义，JSON',
+  `add_time` datetime DEFAULT NULL,
+  `update_time` datetime DEFAULT NULL,
+  PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE `xxl_job_workflow_run` (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT,
+  `workflow_id` int(11) NOT NULL COMMENT '工作流ID',
+  `graph` text NOT NULL COMMENT '触发时的DAG定义快照',
+  `run_status` tinyint(4) NOT NULL DEFAULT '0' COMMENT '运行状态：0-运行中、1-成功、2-失败',
+  `trigger_time` datetime NOT NULL COMMENT '触发-时间',
+  `finish_time` datetime DEFAULT NULL COMMENT '结束-时间',
+  PRIMARY KEY (`id`),
+  KEY `i_workflow_id` (`workflow_id`),
+  KEY `i_trigger_time` (`trigger_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE `xxl_job_workflow_node` (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT,
+  `run_id` bigint(20) NOT NULL COMMENT '工作流运行记录ID',
+  `job_id` int(11) NOT NULL COMMENT '任务，主键ID',
+  `node_status` tinyint(4) NOT NULL DEFAULT '0' COMMENT '节点状态：0-等待、1-运行中、2-成功、3-失败、4-跳过',
+  `log_count` int(11) NOT NULL DEFAULT '0' COMMENT '调度日志数量，分片广播时为分片数',
+  `finish_count` int(11) NOT NULL DEFAULT '0' COMMENT '结束日志数量',
+  `fail_count` int(11) NOT NULL DEFAULT '0' COMMENT '失败日志数量',
+  `update_time` datetime DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `i_run_job` (`run_id`,`job_id`),
+  KEY `i_status_time` (`node_status`,`update_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE `xxl_job_workflow_node_log` (
+  `log_id` bigint(20) NOT NULL COMMENT '调度日志ID',
+  `node_id` bigint(20) NOT NULL COMMENT '工作流节点ID',
+  `run_id` bigint(20) NOT NULL COMMENT '工作流运行记录ID',
+  PRIMARY KEY (`log_id`),
+  KEY `i_run_id` (`run_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 CREATE TABLE `xxl_job_logglue` (
   `id` int(11) NOT NULL AUTO_INCREMENT,
   `job_id` int(11) NOT NULL COMMENT '任务，主键ID',
@@ -80,9 +160,16 @@ CREATE TABLE `xxl_job_registry` (
   `registry_group` varchar(50) NOT NULL,
   `registry_key` varchar(255) NOT NULL,
   `registry_value` varchar(255) NOT NULL,
+  `weight` int(11) NOT NULL DEFAULT '1' COMMENT '路由权重',
   `update_time` datetime DEFAULT NULL,
   PRIMARY KEY (`id`),
-  KEY `i_g_k_v` (`registry_group`,`registry_key`,`registry_value`)
+  UNIQUE KEY `i_g_k_v` (`registry_group`,`registry_key`,`registry_value`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE `xxl_job_registry_version` (
+  `id` int(11) NOT NULL,
+  `version` bigint(20) NOT NULL DEFAULT '0' COMMENT '注册信息变更版本，注册节点新增/摘除时递增',
+  PRIMARY KEY (`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 CREATE TABLE `xxl_job_group` (
@@ -114,6 +201,8 @@ INSERT INTO `xxl_job_group`(`id`, `app_name`, `title`, `address_type`, `address_
 INSERT INTO `xxl_job_info`(`id`, `job_group`, `job_cron`, `job_desc`, `add_time`, `update_time`, `author`, `alarm_email`, `executor_route_strategy`, `executor_handler`, `executor_param`, `executor_block_strategy`, `executor_timeout`, `executor_fail_retry_count`, `glue_type`, `glue_source`, `glue_remark`, `glue_updatetime`, `child_jobid`) VALUES (1, 1, '0 0 0 * * ? *', '测试任务1', '2018-11-03 22:21:31', '2018-11-03 22:21:31', 'XXL', '', 'FIRST', 'demoJobHandler', '', 'SERIAL_EXECUTION', 0, 0, 'BEAN', '', 'GLUE代码初始化', '2018-11-03 22:21:31', '');
 INSERT INTO `xxl_job_user`(`id`, `username`, `password`, `role`, `permission`) VALUES (1, 'admin', 'e10adc3949ba59abbe56e057f20f883e', 1, NULL);
 INSERT INTO `xxl_job_lock` ( `lock_name`) VALUES ( 'schedule_lock');
+INSERT INTO `xxl_job_lock` ( `lock_name`) VALUES ( 'archive_lock');
+INSERT INTO `xxl_job_registry_version` ( `id`, `version`) VALUES ( 1, 0);
 
 commit;
 
@@ -0,0 +1,109 @@
+package com.xxl.job.admin.benchmark;
+
+import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
+import com.xxl.job.admin.core.scheduler.XxlJobScheduler;
+import com.xxl.job.core.biz.ExecutorBiz;
+import com.xxl.job.core.biz.model.*;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * benchmark support, run admin components without spring context and db
+ *
+ *      a、admin config：only "i18n" and "accessToken" filled, for I18nUtil / XxlJobScheduler;
+ *      b、executor biz：in-process stub registered into XxlJobScheduler, no network;
+ */
+public class BenchmarkSupport {
+
+    /**
+     * init admin config, without spring context
+     */
+    public static synchronized void initAdminConfig() throws Exception {
+        if (XxlJobAdminConfig.getAdminConfig() != null) {
+            return;
+        }
+        XxlJobAdminConfig adminConfig = new XxlJobAdminConfig();
+        setField(adminConfig, "i18n", "en");
+        setField(adminConfig, "accessToken", "");
+        setField(null, XxlJobAdminConfig.class.getDeclaredField("adminConfig"), adminConfig);
+    }
+
+    /**
+     * register stub executor biz for address
+     */
+    public static void registerExecutorBiz(String address, ExecutorBiz executorBiz) throws Exception {
+        Field field = XxlJobScheduler.class.getDeclaredField("executorBizRepository");
+        field.setAccessible(true);
+        ConcurrentMap<String, ExecutorBiz> executorBizRepository = (ConcurrentMap<String, ExecutorBiz>) field.get(null);
+        executorBizRepository.put(address, executorBiz);
+    }
+
+    /**
+     * address list, "http://127.0.0.1:{port}/"
+     */
+    public static List<String> buildAddressList(int addressCount) {
+        List<String> addressList = new ArrayList<String>();
+        for (int i = 0; i < addressCount; i++) {
+            addressList.add("http://127.0.0." + (i/50000+1) + ":" + (10000 + i%50000) + "/");
+        }
+        return addressList;
+    }
+
+    private static void setField(Object target, String name, Object value) throws Exception {
+        setField(target, target.getClass().getDeclaredField(name), value);
+    }
+
+    private static void setField(Object target, Field field, Object value) throws Exception {
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    /**
+     * stub executor biz, beat/idleBeat result fixed, other method success
+     */
+    public static class StubExecutorBiz implements ExecutorBiz {
+        private final ReturnT<String> beatResult;
+
+        public StubExecutorBiz(boolean alive) {
+            this.beatResult = alive?ReturnT.SUCCESS:new ReturnT<String>(ReturnT.FAIL_CODE, "stub fail");
+        }
+
+        @Override
+        public ReturnT<String> beat() {
+            return new ReturnT<String>(beatResult.getCode(), beatResult.getMsg());
+        }
+
+        @Override
+        public ReturnT<String> idleBeat(IdleBeatParam idleBeatParam) {
+            return new ReturnT<String>(beatResult.getCode(), beatResult.getMsg());
+        }
+
+        @Override
+        public ReturnT<String> run(TriggerParam triggerParam) {
+            return ReturnT.SUCCESS;
+        }
+
+        @Override
+        public ReturnT<List<ReturnT<String>>> runBatch(List<TriggerParam> triggerParamList) {
+            List<ReturnT<String>> resultList = new ArrayList<ReturnT<String>>(triggerParamList.size());
+            for (TriggerParam triggerParam: triggerParamList) {
+                resultList.add(run(triggerParam));
+            }
+            return new ReturnT<List<ReturnT<String>>>(resultList);
+        }
+
+        @Override
+        public ReturnT<String> kill(KillParam killParam) {
+            return ReturnT.SUCCESS;
+        }
+
+        @Override
+        public ReturnT<LogResult> log(LogParam logParam) {
+            return new ReturnT<LogResult>(new LogResult(logParam.getFromLineNum(), logParam.getFromLineNum(), null, true));
+        }
+    }
+
+}
@@ -0,0 +1,134 @@
+package com.xxl.job.admin.benchmark;
+
+import com.xxl.job.core.biz.model.HandleCallbackParam;
+import com.xxl.job.core.biz.model.ReturnT;
+import com.xxl.job.core.biz.model.TriggerParam;
+import com.xxl.job.core.util.BinaryCodecTool;
+import com.xxl.job.core.util.GsonTool;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * rpc codec benchmark, json (GsonTool) vs binary (BinaryCodecTool), encode + decode to/from bytes
+ *
+ *      a、trigger：TriggerParam, request of "run", hot path of executor；
+ *      b、callback：List<HandleCallbackParam> of "callbackSize", request of "api/callback"；
+ *      c、returnT：ReturnT<String>, response of all call；
+ *
+ * run：mvn -Pbenchmark test-compile exec:exec -Dbenchmark=CodecBenchmark ("-prof gc" for allocation rate by default)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CodecBenchmark {
+
+    @Param({"1", "100"})
+    private int callbackSize;
+
+    private TriggerParam triggerParam;
+    private List<HandleCallbackParam> callbackParamList;
+    private ReturnT<String> returnT;
+
+    private byte[] triggerParamJson;
+    private byte[] triggerParamBinary;
+    private byte[] callbackParamListJson;
+    private byte[] callbackParamListBinary;
+    private byte[] returnTJson;
+    private byte[] returnTBinary;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        triggerParam = new TriggerParam();
+        triggerParam.setJobId(1);
+        triggerParam.setExecutorHandler("demoJobHandler");
+        triggerParam.setExecutorParams("param");
+        triggerParam.setExecutorBlockStrategy("SERIAL_EXECUTION");
+        triggerParam.setExecutorTimeout(0);
+        triggerParam.setLogId(123456789L);
+        triggerParam.setLogDateTime(System.currentTimeMillis());
+        triggerParam.setGlueType("BEAN");
+        triggerParam.setGlueUpdatetime(System.currentTimeMillis());
+
+        callbackParamList = new ArrayList<HandleCallbackParam>();
+        for (int i = 0; i < callbackSize; i++) {
+            callbackParamList.add(new HandleCallbackParam(i + 1, System.currentTimeMillis(), new ReturnT<String>(ReturnT.SUCCESS_CODE, "benchmark callback msg " + i)));
+        }
+        returnT = new ReturnT<String>(ReturnT.FAIL_CODE, "job thread is running or has trigger queue.");
+
+        triggerParamJson = GsonTool.toJson(triggerParam).getBytes(StandardCharsets.UTF_8);
+        triggerParamBinary = BinaryCodecTool.encode(triggerParam);
+        callbackParamListJson = GsonTool.toJson(callbackParamList).getBytes(StandardCharsets.UTF_8);
+        callbackParamListBinary = BinaryCodecTool.encode(callbackParamList);
+        returnTJson = GsonTool.toJson(returnT).getBytes(StandardCharsets.UTF_8);
+        returnTBinary = BinaryCodecTool.encode(returnT);
+    }
+
+    @Benchmark
+    public byte[] triggerEncode_json() {
+        return GsonTool.toJson(triggerParam).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] triggerEncode_binary() {
+        return BinaryCodecTool.encode(triggerParam);
+    }
+
+    @Benchmark
+    public TriggerParam triggerDecode_json() {
+        return GsonTool.fromJson(new String(triggerParamJson, StandardCharsets.UTF_8), TriggerParam.class);
+    }
+
+    @Benchmark
+    public TriggerParam triggerDecode_binary() {
+        return BinaryCodecTool.decode(triggerParamBinary, TriggerParam.class);
+    }
+
+    @Benchmark
+    public byte[] callbackEncode_json() {
+        return GsonTool.toJson(callbackParamList).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] callbackEncode_binary() {
+        return BinaryCodecTool.encode(callbackParamList);
+    }
+
+    @Benchmark
+    public List<HandleCallbackParam> callbackDecode_json() {
+        return GsonTool.fromJson(new String(callbackParamListJson, StandardCharsets.UTF_8), List.class, HandleCallbackParam.class);
+    }
+
+    @Benchmark
+    public List callbackDecode_binary() {
+        return BinaryCodecTool.decode(callbackParamListBinary, List.class);
+    }
+
+    @Benchmark
+    public ReturnT returnTDecode_json() {
+        return GsonTool.fromJson(new String(returnTJson, StandardCharsets.UTF_8), ReturnT.class, String.class);
+    }
+
+    @Benchmark
+    public ReturnT returnTDecode_binary() {
+        return BinaryCodecTool.decode(returnTBinary, ReturnT.class);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(CodecBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,166 @@
+package com.xxl.job.admin.benchmark;
+
+import com.xxl.job.core.biz.client.ExecutorBizClient;
+import com.xxl.job.core.biz.model.IdleBeatParam;
+import com.xxl.job.core.biz.model.ReturnT;
+import com.xxl.job.core.biz.model.TriggerParam;
+import com.xxl.job.core.server.EmbedServer;
+import com.xxl.job.core.util.BinaryCodecTool;
+import com.xxl.job.core.util.GsonTool;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.*;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * embed server benchmark, request handling of "EmbedHttpServerHandler" with stub executor biz (no job run)
+ *
+ *      a、handler：in-process "EmbeddedChannel", decode + route + encode only, json or binary; with "-prof gc" as allocation profile；
+ *      b、loopback："ExecutorBizClient" to netty server with same pipeline as "EmbedServer", "/run" throughput under 8 threads；
+ *
+ * run：mvn -Pbenchmark test-compile exec:exec -Dbenchmark=EmbedServerBenchmark ("-prof gc" for allocation rate by default)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EmbedServerBenchmark {
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private TriggerParam triggerParam;
+    private byte[] triggerParamJson;
+    private byte[] triggerParamBinary;
+    private byte[] idleBeatParamJson;
+
+    private EmbeddedChannel handlerChannel;
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private ExecutorService bizThreadPool;
+    private ExecutorBizClient executorBizClient;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        triggerParam = new TriggerParam();
+        triggerParam.setJobId(1);
+        triggerParam.setExecutorHandler("demoJobHandler");
+        triggerParam.setExecutorParams("param");
+        triggerParam.setExecutorBlockStrategy("SERIAL_EXECUTION");
+        triggerParam.setLogId(123456789L);
+        triggerParam.setLogDateTime(System.currentTimeMillis());
+        triggerParam.setGlueType("BEAN");
+        triggerParam.setGlueUpdatetime(System.currentTimeMillis());
+
+        triggerParamJson = GsonTool.toJson(triggerParam).getBytes(CharsetUtil.UTF_8);
+        triggerParamBinary = BinaryCodecTool.encode(triggerParam);
+        idleBeatParamJson = GsonTool.toJson(new IdleBeatParam(1)).getBytes(CharsetUtil.UTF_8);
+
+        // in-process handler, biz invoke in caller thread
+        handlerChannel = new EmbeddedChannel(new EmbedServer.EmbedHttpServerHandler(new BenchmarkSupport.StubExecutorBiz(true), null, DIRECT_EXECUTOR));
+
+        // loopback server, same pipeline as EmbedServer
+        bossGroup = new NioEventLoopGroup(1);
+        workerGroup = new NioEventLoopGroup();
+        bizThreadPool = Executors.newFixedThreadPool(16);
+        Channel serverChannel = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    public void initChannel(SocketChannel channel) throws Exception {
+                        channel.pipeline()
+                                .addLast(new HttpServerCodec())
+                                .addLast(new HttpObjectAggregator(5 * 1024 * 1024))
+                                .addLast(new EmbedServer.EmbedHttpServerHandler(new BenchmarkSupport.StubExecutorBiz(true), null, bizThreadPool));
+                    }
+                })
+                .bind("127.0.0.1", 0).sync().channel();
+        executorBizClient = new ExecutorBizClient("http://127.0.0.1:" + ((InetSocketAddress) serverChannel.localAddress()).getPort() + "/", null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        handlerChannel.finishAndReleaseAll();
+        bossGroup.shutdownGracefully();
+        workerGroup.shutdownGracefully();
+        bizThreadPool.shutdownNow();
+    }
+
+    @Benchmark
+    public Object handlerBeat() {
+        return handle("/beat", new byte[0], null);
+    }
+
+    @Benchmark
+    public Object handlerIdleBeat_json() {
+        return handle("/idleBeat", idleBeatParamJson, null);
+    }
+
+    @Benchmark
+    public Object handlerRun_json() {
+        return handle("/run", triggerParamJson, null);
+    }
+
+    @Benchmark
+    public Object handlerRun_binary() {
+        return handle("/run", triggerParamBinary, BinaryCodecTool.CONTENT_TYPE);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ReturnT<String> loopbackRun_8threads() {
+        return executorBizClient.run(triggerParam);
+    }
+
+    /**
+     * one request through handler, pooled request buffer like HttpObjectAggregator
+     */
+    private int handle(String uri, byte[] body, String contentType) {
+        ByteBuf content = PooledByteBufAllocator.DEFAULT.directBuffer(body.length).writeBytes(body);
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, uri, content);
+        if (contentType != null) {
+            request.headers().set(HttpHeaderNames.CONTENT_TYPE, contentType);
+        }
+        handlerChannel.writeInbound(request);
+
+        FullHttpResponse response = handlerChannel.readOutbound();
+        int length = response.content().readableBytes();
+        ReferenceCountUtil.release(response);
+        return length;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(EmbedServerBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.xxl.job.admin.benchmark;
+
+import com.xxl.job.admin.core.route.ExecutorRouteStrategyEnum;
+import com.xxl.job.admin.core.route.ExecutorRouter;
+import com.xxl.job.core.biz.model.ReturnT;
+import com.xxl.job.core.biz.model.TriggerParam;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * route strategy benchmark, "ExecutorRouter.route(TriggerParam, List<String>)" of each strategy
+ *
+ *      a、address count：executor address of one group；
+ *      b、job count：job id cardinality, for strategy with per-job state (ROUND/LFU/LRU/WEIGHT_ROUND)；
+ *      c、threads："route_1thread"、"route_8threads" for contention, or "-t" of jmh；
+ *      d、probe：FAILOVER/BUSYOVER use in-process stub executor, all alive；failed address see "ExecutorRouteProbeBenchmark"；
+ *
+ * run：mvn -Pbenchmark test-compile exec:exec -Dbenchmark=ExecutorRouteBenchmark ("-prof gc" for allocation rate by default)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutorRouteBenchmark {
+
+    @Param({"FIRST", "LAST", "ROUND", "RANDOM", "CONSISTENT_HASH", "LEAST_FREQUENTLY_USED", "LEAST_RECENTLY_USED", "FAILOVER", "BUSYOVER", "WEIGHT_ROUND"})
+    private String strategy;
+
+    @Param({"1", "10", "100"})
+    private int addressCount;
+
+    @Param({"1", "1000", "100000"})
+    private int jobCount;
+
+    private ExecutorRouter router;
+    private List<String> addressList;
+    private TriggerParam[] triggerParams;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchmarkSupport.initAdminConfig();
+
+        router = ExecutorRouteStrategyEnum.match(strategy, null).getRouter();
+        addressList = BenchmarkSupport.buildAddressList(addressCount);
+
+        // stub executor, for FAILOVER/BUSYOVER
+        for (String address: addressList) {
+            BenchmarkSupport.registerExecutorBiz(address, new BenchmarkSupport.StubExecutorBiz(true));
+        }
+
+        triggerParams = new TriggerParam[jobCount];
+        for (int i = 0; i < jobCount; i++) {
+            TriggerParam triggerParam = new TriggerParam();
+            triggerParam.setJobId(i + 1);
+            triggerParam.setExecutorHandler("demoJobHandler");
+            triggerParams[i] = triggerParam;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ReturnT<String> route_1thread() {
+        return route();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ReturnT<String> route_8threads() {
+        return route();
+    }
+
+    private ReturnT<String> route() {
+        TriggerParam triggerParam = triggerParams[ThreadLocalRandom.current().nextInt(triggerParams.length)];
+        return router.route(triggerParam, addressList);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(ExecutorRouteBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.xxl.job.admin.benchmark;
+
+import com.xxl.job.admin.core.route.ExecutorRouteStrategyEnum;
+import com.xxl.job.admin.core.route.ExecutorRouter;
+import com.xxl.job.core.biz.model.ReturnT;
+import com.xxl.job.core.biz.model.TriggerParam;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * probe route strategy benchmark, FAILOVER/BUSYOVER with part of executor address failed
+ *
+ *      a、address count：executor address of one group；
+ *      b、probe："ALL_SUCCESS" as baseline, "HALF_FAIL" makes the first half of address fail, probed before an alive one；
+ *      c、threads："route_1thread"、"route_8threads" for contention, or "-t" of jmh；
+ *
+ * run：mvn -Pbenchmark test-compile exec:exec -Dbenchmark=ExecutorRouteProbeBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutorRouteProbeBenchmark {
+
+    @Param({"FAILOVER", "BUSYOVER"})
+    private String strategy;
+
+    @Param({"1", "10", "100"})
+    private int addressCount;
+
+    @Param({"ALL_SUCCESS", "HALF_FAIL"})
+    private String probe;
+
+    private ExecutorRouter router;
+    private List<String> addressList;
+    private TriggerParam triggerParam;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchmarkSupport.initAdminConfig();
+
+        router = ExecutorRouteStrategyEnum.match(strategy, null).getRouter();
+        addressList = BenchmarkSupport.buildAddressList(addressCount);
+
+        // stub executor, first half fail
+        for (int i = 0; i < addressList.size(); i++) {
+            boolean alive = "ALL_SUCCESS".equals(probe) || i >= addressList.size()/2;
+            BenchmarkSupport.registerExecutorBiz(addressList.get(i), new BenchmarkSupport.StubExecutorBiz(alive));
+        }
+
+        // probe strategy keeps no per-job state, one job is enough
+        triggerParam = new TriggerParam();
+        triggerParam.setJobId(1);
+        triggerParam.setExecutorHandler("demoJobHandler");
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ReturnT<String> route_1thread() {
+        return router.route(triggerParam, addressList);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ReturnT<String> route_8threads() {
+        return router.route(triggerParam, addressList);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(ExecutorRouteProbeBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+
+}
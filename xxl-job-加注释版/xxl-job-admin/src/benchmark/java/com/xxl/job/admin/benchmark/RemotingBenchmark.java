@@ -0,0 +1,179 @@
+package com.xxl.job.admin.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.xxl.job.core.biz.client.AdminBizClient;
+import com.xxl.job.core.biz.client.ExecutorBizClient;
+import com.xxl.job.core.biz.model.HandleCallbackParam;
+import com.xxl.job.core.biz.model.IdleBeatParam;
+import com.xxl.job.core.biz.model.RegistryParam;
+import com.xxl.job.core.biz.model.ReturnT;
+import com.xxl.job.core.enums.RegistryConfig;
+import com.xxl.job.core.server.EmbedServer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * remoting benchmark, requests/sec between in-process admin and executor over loopback http
+ *
+ *      a、admin -> executor："ExecutorBizClient" to real "EmbedServer"（netty），beat / idleBeat；
+ *      b、executor -> admin："AdminBizClient" to stub admin api（jdk http server, answer like "JobApiController"），registry / callback；
+ *      c、threads："_1thread"、"_8threads" for connection reuse under concurrency, or "-t" of jmh；
+ *      d、keep-alive："-jvmArgsAppend -Dhttp.keepAlive=false" to compare with connection per request；
+ *
+ * run：mvn -Pbenchmark test-compile exec:exec -Dbenchmark=RemotingBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RemotingBenchmark {
+
+    @Param({"1", "100"})
+    private int callbackSize;
+
+    private EmbedServer embedServer;
+    private HttpServer adminServer;
+    private ExecutorService adminServerPool;
+
+    private ExecutorBizClient executorBizClient;
+    private AdminBizClient adminBizClient;
+    private IdleBeatParam idleBeatParam;
+    private RegistryParam registryParam;
+    private List<HandleCallbackParam> callbackParamList;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+
+        // executor, real embed server
+        int executorPort = freePort();
+        embedServer = new EmbedServer();
+        embedServer.start(null, executorPort, null, null, 1);
+        executorBizClient = new ExecutorBizClient("http://127.0.0.1:" + executorPort + "/", null);
+
+        // admin, stub api
+        int adminPort = freePort();
+        adminServer = HttpServer.create(new InetSocketAddress("127.0.0.1", adminPort), 0);
+        adminServer.createContext("/api/", new StubAdminApiHandler());
+        adminServerPool = Executors.newFixedThreadPool(16);
+        adminServer.setExecutor(adminServerPool);
+        adminServer.start();
+        adminBizClient = new AdminBizClient("http://127.0.0.1:" + adminPort + "/", null);
+
+        // param
+        idleBeatParam = new IdleBeatParam(1);
+        registryParam = new RegistryParam(RegistryConfig.RegistType.EXECUTOR.name(), "xxl-job-executor-benchmark", "http://127.0.0.1:" + executorPort + "/");
+        callbackParamList = new ArrayList<HandleCallbackParam>();
+        for (int i = 0; i < callbackSize; i++) {
+            callbackParamList.add(new HandleCallbackParam(i + 1, System.currentTimeMillis(), new ReturnT<String>(ReturnT.SUCCESS_CODE, "benchmark callback msg " + i)));
+        }
+
+        // wait executor ready
+        for (int i = 0; i < 50; i++) {
+            if (executorBizClient.beat().getCode() == ReturnT.SUCCESS_CODE) {
+                return;
+            }
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        throw new IllegalStateException("embed server start fail");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        embedServer.stop();
+        adminServer.stop(0);
+        adminServerPool.shutdownNow();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ReturnT<String> executorBeat_1thread() {
+        return executorBizClient.beat();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ReturnT<String> executorBeat_8threads() {
+        return executorBizClient.beat();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ReturnT<String> executorIdleBeat_8threads() {
+        return executorBizClient.idleBeat(idleBeatParam);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ReturnT<String> adminRegistry_1thread() {
+        return adminBizClient.registry(registryParam);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ReturnT<String> adminRegistry_8threads() {
+        return adminBizClient.registry(registryParam);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ReturnT<String> adminCallback_8threads() {
+        return adminBizClient.callback(callbackParamList);
+    }
+
+    private static int freePort() throws IOException {
+        ServerSocket serverSocket = new ServerSocket(0);
+        try {
+            return serverSocket.getLocalPort();
+        } finally {
+            serverSocket.close();
+        }
+    }
+
+    /**
+     * stub admin api, read body fully and success, declare gzip like "JobApiController"
+     */
+    private static class StubAdminApiHandler implements HttpHandler {
+        private static final byte[] SUCCESS = "{\"code\":200}".getBytes();
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            InputStream inputStream = exchange.getRequestBody();
+            byte[] buffer = new byte[4096];
+            while (inputStream.read(buffer) != -1) {
+            }
+            inputStream.close();
+
+            exchange.getResponseHeaders().set("Accept-Encoding", "gzip");
+            exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+            exchange.sendResponseHeaders(200, SUCCESS.length);
+            OutputStream outputStream = exchange.getResponseBody();
+            outputStream.write(SUCCESS);
+            outputStream.close();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(RemotingBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -11,6 +11,7 @@ import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.InitBinder;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.view.RedirectView;
@@ -50,6 +51,17 @@ public class IndexController {
         ReturnT<Map<String, Object>> chartInfo = xxlJobService.chartInfo(startDate, endDate);
         return chartInfo;
     }
+
+    @RequestMapping("/chartStat")
+	@ResponseBody
+	public ReturnT<Map<String, Object>> chartStat(HttpServletRequest request, Date startDate, Date endDate,
+												  @RequestParam(required = false, defaultValue = "0") int jobGroup,
+												  @RequestParam(required = false, defaultValue = "0") int jobId) {
+		if (jobGroup > 0) {
+			JobInfoController.validPermission(request, jobGroup);
+		}
+        return xxlJobService.chartStat(startDate, endDate, jobGroup, jobId);
+    }
 	
 	@RequestMapping("/toLogin")
 	@PermissionLimit(limit=false)
@@ -2,21 +2,30 @@ package com.xxl.job.admin.controller;
 
 import com.xxl.job.admin.controller.annotation.PermissionLimit;
 import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
+import com.xxl.job.admin.core.thread.JobRegistryWatchHelper;
 import com.xxl.job.core.biz.AdminBiz;
 import com.xxl.job.core.biz.model.HandleCallbackParam;
 import com.xxl.job.core.biz.model.RegistryParam;
 import com.xxl.job.core.biz.model.ReturnT;
+import com.xxl.job.core.util.BinaryCodecTool;
 import com.xxl.job.core.util.GsonTool;
 import com.xxl.job.core.util.XxlJobRemotingUtil;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Created by xuxueli on 17/5/10.
@@ -25,6 +34,11 @@ import java.util.List;
 @RequestMapping("/api")
 public class JobApiController {
 
+    /**
+     * max request body (after gzip decompress), same as executor "HttpObjectAggregator"
+     */
+    private static final int MAX_BODY_SIZE = 5 * 1024 * 1024;
+
     @Resource
     private AdminBiz adminBiz;
 
@@ -32,13 +46,33 @@ public class JobApiController {
      * api
      *
      * @param uri
-     * @param data
      * @return
      */
     @RequestMapping("/{uri}")
     @ResponseBody
     @PermissionLimit(limit=false)
-    public ReturnT<String> api(HttpServletRequest request, @PathVariable("uri") String uri, @RequestBody(required = false) String data) {
+    public ReturnT<String> api(HttpServletRequest request, HttpServletResponse response, @PathVariable("uri") String uri) throws IOException {
+
+        // declare gzip request body (RFC 7694) and binary codec support, executor switch after seen
+        response.setHeader("Accept-Encoding", XxlJobRemotingUtil.GZIP);
+        response.setHeader(BinaryCodecTool.CODEC_HEADER, BinaryCodecTool.CODEC_BINARY);
+
+        // request body, gzip or plain; binary or json
+        boolean binary = request.getContentType()!=null && request.getContentType().startsWith(BinaryCodecTool.CONTENT_TYPE);
+        ReturnT<String> result = invoke(request, uri, binary);
+
+        // binary response, write directly
+        if (binary) {
+            byte[] responseBytes = BinaryCodecTool.encode(result);
+            response.setContentType(BinaryCodecTool.CONTENT_TYPE);
+            response.setContentLength(responseBytes.length);
+            response.getOutputStream().write(responseBytes);
+            return null;
+        }
+        return result;
+    }
+
+    private ReturnT<String> invoke(HttpServletRequest request, String uri, boolean binary) throws IOException {
 
         // valid
         if (!"POST".equalsIgnoreCase(request.getMethod())) {
@@ -47,21 +81,31 @@ public class JobApiController {
         if (uri==null || uri.trim().length()==0) {
             return new ReturnT<String>(ReturnT.FAIL_CODE, "invalid request, uri-mapping empty.");
         }
-        if (XxlJobAdminConfig.getAdminConfig().getAccessToken()!=null
-                && XxlJobAdminConfig.getAdminConfig().getAccessToken().trim().length()>0
-                && !XxlJobAdminConfig.getAdminConfig().getAccessToken().equals(request.getHeader(XxlJobRemotingUtil.XXL_JOB_ACCESS_TOKEN))) {
+        if (!validAccessToken(request)) {
             return new ReturnT<String>(ReturnT.FAIL_CODE, "The access token is wrong.");
         }
 
+        // request body
+        byte[] data = readBody(request);
+        if (data == null) {
+            return new ReturnT<String>(ReturnT.FAIL_CODE, "invalid request, body too large, max " + MAX_BODY_SIZE + " bytes.");
+        }
+
         // services mapping
         if ("callback".equals(uri)) {
-            List<HandleCallbackParam> callbackParamList = GsonTool.fromJson(data, List.class, HandleCallbackParam.class);
+            List<HandleCallbackParam> callbackParamList = binary
+                    ?BinaryCodecTool.decode(data, List.class)
+                    :GsonTool.fromJson(toString(data), List.class, HandleCallbackParam.class);
             return adminBiz.callback(callbackParamList);
         } else if ("registry".equals(uri)) {
-            RegistryParam registryParam = GsonTool.fromJson(data, RegistryParam.class);
+            RegistryParam registryParam = binary
+                    ?BinaryCodecTool.decode(data, RegistryParam.class)
+                    :GsonTool.fromJson(toString(data), RegistryParam.class);
             return adminBiz.registry(registryParam);
         } else if ("registryRemove".equals(uri)) {
-            RegistryParam registryParam = GsonTool.fromJson(data, RegistryParam.class);
+            RegistryParam registryParam = binary
+                    ?BinaryCodecTool.decode(data, RegistryParam.class)
+                    :GsonTool.fromJson(toString(data), RegistryParam.class);
             return adminBiz.registryRemove(registryParam);
         } else {
             return new ReturnT<String>(ReturnT.FAIL_CODE, "invalid request, uri-mapping("+ uri +") not found.");
@@ -69,4 +113,81 @@ public class JobApiController {
 
     }
 
+    /**
+     * watch executor address change, long polling
+     *
+     *      result: epoch, version, full (true if whole address returned in "added"), added/removed (appname -> address list)
+     *
+     * @param epoch         epoch from last result, 0 for first watch
+     * @param version       version from last result
+     * @param appname       appname to watch, multiple allowed; empty for all
+     * @param timeout       wait timeout, by second
+     * @return
+     */
+    @RequestMapping("/watch")
+    @ResponseBody
+    @PermissionLimit(limit=false)
+    public DeferredResult<ReturnT<Map<String, Object>>> watch(HttpServletRequest request,
+                                                              @RequestParam(required = false, defaultValue = "0") long epoch,
+                                                              @RequestParam(required = false, defaultValue = "0") long version,
+                                                              @RequestParam(required = false) List<String> appname,
+                                                              @RequestParam(required = false, defaultValue = "0") int timeout) {
+
+        // valid
+        if (!"POST".equalsIgnoreCase(request.getMethod())) {
+            DeferredResult<ReturnT<Map<String, Object>>> deferredResult = new DeferredResult<ReturnT<Map<String, Object>>>();
+            deferredResult.setResult(new ReturnT<Map<String, Object>>(ReturnT.FAIL_CODE, "invalid request, HttpMethod not support."));
+            return deferredResult;
+        }
+        if (!validAccessToken(request)) {
+            DeferredResult<ReturnT<Map<String, Object>>> deferredResult = new DeferredResult<ReturnT<Map<String, Object>>>();
+            deferredResult.setResult(new ReturnT<Map<String, Object>>(ReturnT.FAIL_CODE, "The access token is wrong."));
+            return deferredResult;
+        }
+
+        return JobRegistryWatchHelper.getInstance().watch(epoch, version, appname, timeout);
+    }
+
+    /**
+     * read body, gzip decompressed
+     *
+     * @return null if larger than MAX_BODY_SIZE (plain or decompressed)
+     */
+    private byte[] readBody(HttpServletRequest request) throws IOException {
+        if (request.getContentLength() > MAX_BODY_SIZE) {
+            return null;
+        }
+        InputStream inputStream = request.getInputStream();
+        if (XxlJobRemotingUtil.GZIP.equalsIgnoreCase(request.getHeader("Content-Encoding"))) {
+            inputStream = new GZIPInputStream(inputStream);
+        }
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int len;
+            while ((len = inputStream.read(buffer)) != -1) {
+                if (body.size() + len > MAX_BODY_SIZE) {
+                    return null;        // stop decompress, avoid gzip bomb
+                }
+                body.write(buffer, 0, len);
+            }
+            return body.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private String toString(byte[] data) throws IOException {
+        return data.length>0?new String(data, "UTF-8"):null;
+    }
+
+    private boolean validAccessToken(HttpServletRequest request) {
+        if (XxlJobAdminConfig.getAdminConfig().getAccessToken()!=null
+                && XxlJobAdminConfig.getAdminConfig().getAccessToken().trim().length()>0
+                && !XxlJobAdminConfig.getAdminConfig().getAccessToken().equals(request.getHeader(XxlJobRemotingUtil.XXL_JOB_ACCESS_TOKEN))) {
+            return false;
+        }
+        return true;
+    }
+
 }
@@ -1,10 +1,15 @@
 package com.xxl.job.admin.controller;
 
+import com.xxl.job.admin.core.archive.LogArchiveStore;
 import com.xxl.job.admin.core.exception.XxlJobException;
 import com.xxl.job.admin.core.model.XxlJobGroup;
 import com.xxl.job.admin.core.model.XxlJobInfo;
 import com.xxl.job.admin.core.model.XxlJobLog;
 import com.xxl.job.admin.core.scheduler.XxlJobScheduler;
+import com.xxl.job.admin.core.thread.JobLogArchiveHelper;
+import com.xxl.job.admin.core.thread.JobLogPartitionHelper;
+import com.xxl.job.admin.core.thread.JobLogReportHelper;
+import com.xxl.job.admin.core.thread.JobWorkflowHelper;
 import com.xxl.job.admin.core.util.I18nUtil;
 import com.xxl.job.admin.dao.XxlJobGroupDao;
 import com.xxl.job.admin.dao.XxlJobInfoDao;
@@ -25,6 +30,7 @@ import org.springframework.web.bind.annotation.ResponseBody;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -107,6 +113,23 @@ public class JobLogController {
 		// page query
 		List<XxlJobLog> list = xxlJobLogDao.pageList(start, length, jobGroup, jobId, triggerTimeStart, triggerTimeEnd, logStatus);
 		int list_count = xxlJobLogDao.pageListCount(start, length, jobGroup, jobId, triggerTimeStart, triggerTimeEnd, logStatus);
+
+		// archived log, when query reach into archive range
+		LogArchiveStore archiveStore = JobLogArchiveHelper.getInstance().getArchiveStore();
+		Date archiveEndTime = archiveStore!=null?archiveStore.getArchiveEndTime():null;
+		if (archiveEndTime!=null && (triggerTimeStart==null || triggerTimeStart.before(archiveEndTime))) {
+			try {
+				int archiveCount = archiveStore.pageListCount(jobGroup, jobId, triggerTimeStart, triggerTimeEnd, logStatus);
+				if (archiveCount>0 && list.size()<length) {
+					List<XxlJobLog> archiveList = archiveStore.pageList(Math.max(0, start-list_count), length-list.size(), jobGroup, jobId, triggerTimeStart, triggerTimeEnd, logStatus);
+					list = new ArrayList<XxlJobLog>(list);
+					list.addAll(archiveList);
+				}
+				list_count += archiveCount;
+			} catch (Exception e) {
+				logger.error(">>>>>>>>>>> xxl-job, log archive query error.", e);
+			}
+		}
 		
 		// package result
 		Map<String, Object> maps = new HashMap<String, Object>();
@@ -122,6 +145,9 @@ public class JobLogController {
 		// base check
 		ReturnT<String> logStatue = ReturnT.SUCCESS;
 		XxlJobLog jobLog = xxlJobLogDao.load(id);
+		if (jobLog == null) {
+			jobLog = JobLogArchiveHelper.getInstance().load(id);
+		}
 		if (jobLog == null) {
             throw new RuntimeException(I18nUtil.getString("joblog_logid_unvalid"));
 		}
@@ -144,7 +170,10 @@ public class JobLogController {
 			// is end
             if (logResult.getContent()!=null && logResult.getContent().getFromLineNum() > logResult.getContent().getToLineNum()) {
                 XxlJobLog jobLog = xxlJobLogDao.load(logId);
-                if (jobLog.getHandleCode() > 0) {
+                if (jobLog == null) {
+                    jobLog = JobLogArchiveHelper.getInstance().load(logId);
+                }
+                if (jobLog==null || jobLog.getHandleCode() > 0) {
                     logResult.getContent().setEnd(true);
                 }
             }
@@ -180,10 +209,13 @@ public class JobLogController {
 		}
 
 		if (ReturnT.SUCCESS_CODE == runResult.getCode()) {
+			int fromHandleCode = log.getHandleCode();
 			log.setHandleCode(ReturnT.FAIL_CODE);
 			log.setHandleMsg( I18nUtil.getString("joblog_kill_log_byman")+":" + (runResult.getMsg()!=null?runResult.getMsg():""));
 			log.setHandleTime(new Date());
 			xxlJobLogDao.updateHandleInfo(log);
+			JobLogReportHelper.getInstance().logChange(log, log.getTriggerCode(), fromHandleCode);
+			JobWorkflowHelper.getInstance().logFinish(log);
 			return new ReturnT<String>(runResult.getMsg());
 		} else {
 			return new ReturnT<String>(500, runResult.getMsg());
@@ -218,6 +250,11 @@ public class JobLogController {
 			return new ReturnT<String>(ReturnT.FAIL_CODE, I18nUtil.getString("joblog_clean_type_unvalid"));
 		}
 
+		// clear all job log by time, drop partition first
+		if (jobGroup==0 && jobId==0 && (clearBeforeTime!=null || type==9)) {
+			JobLogPartitionHelper.getInstance().dropBefore(clearBeforeTime!=null?clearBeforeTime:new Date());
+		}
+
 		List<Long> logIds = null;
 		do {
 			logIds = xxlJobLogDao.findClearLogIds(jobGroup, jobId, clearBeforeTime, clearBeforeNum, 1000);
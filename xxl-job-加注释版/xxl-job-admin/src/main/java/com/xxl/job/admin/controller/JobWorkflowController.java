@@ -0,0 +1,236 @@
+package com.xxl.job.admin.controller;
+
+import com.xxl.job.admin.core.exception.XxlJobException;
+import com.xxl.job.admin.core.model.XxlJobGroup;
+import com.xxl.job.admin.core.model.XxlJobInfo;
+import com.xxl.job.admin.core.model.XxlJobWorkflow;
+import com.xxl.job.admin.core.model.XxlJobWorkflowNode;
+import com.xxl.job.admin.core.model.XxlJobWorkflowRun;
+import com.xxl.job.admin.core.thread.JobWorkflowHelper;
+import com.xxl.job.admin.core.util.I18nUtil;
+import com.xxl.job.admin.core.workflow.WorkflowGraph;
+import com.xxl.job.admin.dao.XxlJobGroupDao;
+import com.xxl.job.admin.dao.XxlJobInfoDao;
+import com.xxl.job.admin.dao.XxlJobWorkflowDao;
+import com.xxl.job.admin.dao.XxlJobWorkflowNodeDao;
+import com.xxl.job.admin.dao.XxlJobWorkflowRunDao;
+import com.xxl.job.core.biz.model.ReturnT;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import java.util.*;
+
+/**
+ * job workflow controller
+ */
+@Controller
+@RequestMapping("/jobworkflow")
+public class JobWorkflowController {
+
+	@Resource
+	private XxlJobGroupDao xxlJobGroupDao;
+	@Resource
+	private XxlJobInfoDao xxlJobInfoDao;
+	@Resource
+	private XxlJobWorkflowDao xxlJobWorkflowDao;
+	@Resource
+	private XxlJobWorkflowRunDao xxlJobWorkflowRunDao;
+	@Resource
+	private XxlJobWorkflowNodeDao xxlJobWorkflowNodeDao;
+
+	@RequestMapping
+	public String index(HttpServletRequest request, Model model) {
+
+		// filter group
+		List<XxlJobGroup> jobGroupList = JobInfoController.filterJobGroupByRole(request, xxlJobGroupDao.findAll());
+		if (jobGroupList==null || jobGroupList.size()==0) {
+			throw new XxlJobException(I18nUtil.getString("jobgroup_empty"));
+		}
+
+		model.addAttribute("JobGroupList", jobGroupList);
+		return "jobworkflow/jobworkflow.index";
+	}
+
+	@RequestMapping("/pageList")
+	@ResponseBody
+	public Map<String, Object> pageList(HttpServletRequest request,
+										@RequestParam(required = false, defaultValue = "0") int start,
+										@RequestParam(required = false, defaultValue = "10") int length,
+										int jobGroup, String workflowDesc) {
+
+		JobInfoController.validPermission(request, jobGroup);
+
+		// page query
+		List<XxlJobWorkflow> list = xxlJobWorkflowDao.pageList(start, length, jobGroup, workflowDesc);
+		int list_count = xxlJobWorkflowDao.pageListCount(start, length, jobGroup, workflowDesc);
+
+		// package result
+		Map<String, Object> maps = new HashMap<String, Object>();
+		maps.put("recordsTotal", list_count);		// 总记录数
+		maps.put("recordsFiltered", list_count);	// 过滤后的总记录数
+		maps.put("data", list);  					// 分页列表
+		return maps;
+	}
+
+	private ReturnT<String> valid(XxlJobWorkflow workflow) {
+		if (workflow.getWorkflowDesc()==null || workflow.getWorkflowDesc().trim().length()==0) {
+			return new ReturnT<String>(ReturnT.FAIL_CODE, (I18nUtil.getString("system_please_input")+I18nUtil.getString("workflow_field_desc")) );
+		}
+		if (workflow.getAuthor()==null || workflow.getAuthor().trim().length()==0) {
+			return new ReturnT<String>(ReturnT.FAIL_CODE, (I18nUtil.getString("system_please_input")+I18nUtil.getString("jobinfo_field_author")) );
+		}
+
+		// graph
+		WorkflowGraph graph = WorkflowGraph.parse(workflow.getGraph());
+		String validMsg = graph!=null?graph.valid():"json invalid";
+		if (validMsg != null) {
+			return new ReturnT<String>(ReturnT.FAIL_CODE, I18nUtil.getString("workflow_field_graph_unvalid") + "：" + validMsg);
+		}
+
+		// node job, exist and in same job group
+		Set<Integer> foundJobIds = new HashSet<Integer>();
+		for (XxlJobInfo jobInfo: xxlJobInfoDao.loadByIds(graph.getNodes())) {
+			if (jobInfo.getJobGroup() == workflow.getJobGroup()) {
+				foundJobIds.add(jobInfo.getId());
+			}
+		}
+		for (Integer jobId: graph.getNodes()) {
+			if (!foundJobIds.contains(jobId)) {
+				return new ReturnT<String>(ReturnT.FAIL_CODE, I18nUtil.getString("workflow_field_graph_job_unvalid") + "：" + jobId);
+			}
+		}
+		return ReturnT.SUCCESS;
+	}
+
+	@RequestMapping("/add")
+	@ResponseBody
+	public ReturnT<String> add(HttpServletRequest request, XxlJobWorkflow workflow) {
+		JobInfoController.validPermission(request, workflow.getJobGroup());
+
+		ReturnT<String> validResult = valid(workflow);
+		if (validResult.getCode() != ReturnT.SUCCESS_CODE) {
+			return validResult;
+		}
+
+		workflow.setAddTime(new Date());
+		workflow.setUpdateTime(new Date());
+		xxlJobWorkflowDao.save(workflow);
+		return (workflow.getId()>0)?new ReturnT<String>(String.valueOf(workflow.getId())):ReturnT.FAIL;
+	}
+
+	@RequestMapping("/update")
+	@ResponseBody
+	public ReturnT<String> update(HttpServletRequest request, XxlJobWorkflow workflow) {
+		XxlJobWorkflow existsWorkflow = xxlJobWorkflowDao.load(workflow.getId());
+		if (existsWorkflow == null) {
+			return new ReturnT<String>(ReturnT.FAIL_CODE, I18nUtil.getString("workflow_unvalid"));
+		}
+		JobInfoController.validPermission(request, existsWorkflow.getJobGroup());
+		JobInfoController.validPermission(request, workflow.getJobGroup());
+
+		ReturnT<String> validResult = valid(workflow);
+		if (validResult.getCode() != ReturnT.SUCCESS_CODE) {
+			return validResult;
+		}
+
+		// graph of running run not changed, snapshot saved in run
+		workflow.setUpdateTime(new Date());
+		int ret = xxlJobWorkflowDao.update(workflow);
+		return (ret>0)?ReturnT.SUCCESS:ReturnT.FAIL;
+	}
+
+	@RequestMapping("/remove")
+	@ResponseBody
+	public ReturnT<String> remove(HttpServletRequest request, int id) {
+		XxlJobWorkflow existsWorkflow = xxlJobWorkflowDao.load(id);
+		if (existsWorkflow == null) {
+			return ReturnT.SUCCESS;
+		}
+		JobInfoController.validPermission(request, existsWorkflow.getJobGroup());
+
+		xxlJobWorkflowDao.delete(id);
+		JobWorkflowHelper.getInstance().removeRun(id);
+		return ReturnT.SUCCESS;
+	}
+
+	@RequestMapping("/trigger")
+	@ResponseBody
+	public ReturnT<String> trigger(HttpServletRequest request, int id) {
+		XxlJobWorkflow existsWorkflow = xxlJobWorkflowDao.load(id);
+		if (existsWorkflow == null) {
+			return new ReturnT<String>(ReturnT.FAIL_CODE, I18nUtil.getString("workflow_unvalid"));
+		}
+		JobInfoController.validPermission(request, existsWorkflow.getJobGroup());
+
+		return JobWorkflowHelper.getInstance().trigger(id);
+	}
+
+	@RequestMapping("/runPageList")
+	@ResponseBody
+	public Map<String, Object> runPageList(HttpServletRequest request,
+										   @RequestParam(required = false, defaultValue = "0") int start,
+										   @RequestParam(required = false, defaultValue = "10") int length,
+										   int workflowId) {
+		XxlJobWorkflow existsWorkflow = xxlJobWorkflowDao.load(workflowId);
+		if (existsWorkflow != null) {
+			JobInfoController.validPermission(request, existsWorkflow.getJobGroup());
+		}
+
+		// page query
+		List<XxlJobWorkflowRun> list = xxlJobWorkflowRunDao.pageList(start, length, workflowId);
+		int list_count = xxlJobWorkflowRunDao.pageListCount(start, length, workflowId);
+
+		// package result
+		Map<String, Object> maps = new HashMap<String, Object>();
+		maps.put("recordsTotal", list_count);		// 总记录数
+		maps.put("recordsFiltered", list_count);	// 过滤后的总记录数
+		maps.put("data", list);  					// 分页列表
+		return maps;
+	}
+
+	@RequestMapping("/runNodes")
+	@ResponseBody
+	public ReturnT<List<Map<String, Object>>> runNodes(HttpServletRequest request, long runId) {
+		XxlJobWorkflowRun run = xxlJobWorkflowRunDao.load(runId);
+		if (run == null) {
+			return new ReturnT<List<Map<String, Object>>>(ReturnT.FAIL_CODE, I18nUtil.getString("system_unvalid"));
+		}
+		XxlJobWorkflow existsWorkflow = xxlJobWorkflowDao.load(run.getWorkflowId());
+		if (existsWorkflow != null) {
+			JobInfoController.validPermission(request, existsWorkflow.getJobGroup());
+		}
+
+		// node, with job desc
+		List<XxlJobWorkflowNode> nodeList = xxlJobWorkflowNodeDao.findByRunId(runId);
+		Set<Integer> jobIds = new HashSet<Integer>();
+		for (XxlJobWorkflowNode node: nodeList) {
+			jobIds.add(node.getJobId());
+		}
+		Map<Integer, String> jobDescMap = new HashMap<Integer, String>();
+		if (!jobIds.isEmpty()) {
+			for (XxlJobInfo jobInfo: xxlJobInfoDao.loadByIds(jobIds)) {
+				jobDescMap.put(jobInfo.getId(), jobInfo.getJobDesc());
+			}
+		}
+
+		List<Map<String, Object>> result = new ArrayList<Map<String, Object>>();
+		for (XxlJobWorkflowNode node: nodeList) {
+			Map<String, Object> item = new HashMap<String, Object>();
+			item.put("jobId", node.getJobId());
+			item.put("jobDesc", jobDescMap.get(node.getJobId()));
+			item.put("nodeStatus", node.getNodeStatus());
+			item.put("logCount", node.getLogCount());
+			item.put("finishCount", node.getFinishCount());
+			item.put("failCount", node.getFailCount());
+			item.put("updateTime", node.getUpdateTime());
+			result.add(item);
+		}
+		return new ReturnT<List<Map<String, Object>>>(result);
+	}
+
+}
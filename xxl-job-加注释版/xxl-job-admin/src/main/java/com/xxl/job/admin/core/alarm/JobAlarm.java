@@ -3,6 +3,8 @@ package com.xxl.job.admin.core.alarm;
 import com.xxl.job.admin.core.model.XxlJobInfo;
 import com.xxl.job.admin.core.model.XxlJobLog;
 
+import java.util.List;
+
 /**
  * @author xuxueli 2020-01-19
  */
@@ -17,4 +19,37 @@ public interface JobAlarm {
      */
     public boolean doAlarm(XxlJobInfo info, XxlJobLog jobLog);
 
+    /**
+     * job alarm, batch (digest) of one job, aggregated in alarm window
+     *
+     * default alarm each log, override to send digest
+     *
+     * @param info
+     * @param jobLogList
+     * @return
+     */
+    default boolean doAlarm(XxlJobInfo info, List<XxlJobLog> jobLogList) {
+        boolean result = true;
+        for (XxlJobLog jobLog: jobLogList) {
+            if (!doAlarm(info, jobLog)) {
+                result = false;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * job alarm, batch (digest) of one job, with fail count in alarm window; log over window limit counted only, not in "jobLogList"
+     *
+     * default alarm by log list, override to show fail count
+     *
+     * @param info
+     * @param jobLogList
+     * @param failCount
+     * @return
+     */
+    default boolean doAlarm(XxlJobInfo info, List<XxlJobLog> jobLogList, int failCount) {
+        return doAlarm(info, jobLogList);
+    }
+
 }
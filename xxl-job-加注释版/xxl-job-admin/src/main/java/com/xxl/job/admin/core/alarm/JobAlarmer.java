@@ -1,5 +1,6 @@
 package com.xxl.job.admin.core.alarm;
 
+import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
 import com.xxl.job.admin.core.model.XxlJobInfo;
 import com.xxl.job.admin.core.model.XxlJobLog;
 import org.slf4j.Logger;
@@ -10,10 +11,16 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.*;
 
+/**
+ * job alarm pipeline
+ *
+ *      a、聚合：同一任务首次失败立即告警，之后窗口期（xxl.job.alarm.window）内的失败聚合为一次摘要告警；窗口内仅保留前 WINDOW_LOG_MAX 条日志，超出部分只计数，其告警状态随下次刷新即刻回写（1-无需告警）；
+ *      b、异步：告警在独立线程池发送，发送完成后批量回写日志告警状态；
+ *      c、SPI："JobAlarm.doAlarm(info, jobLogList)" 接收批量日志；
+ */
 @Component
 public class JobAlarmer implements ApplicationContextAware, InitializingBean {
     private static Logger logger = LoggerFactory.getLogger(JobAlarmer.class);
@@ -42,6 +49,29 @@ public class JobAlarmer implements ApplicationContextAware, InitializingBean {
      * @return
      */
     public boolean alarm(XxlJobInfo info, XxlJobLog jobLog) {
+        return alarm(info, Collections.singletonList(jobLog));
+    }
+
+    /**
+     * job alarm, batch of one job
+     *
+     * @param info
+     * @param jobLogList
+     * @return
+     */
+    public boolean alarm(XxlJobInfo info, List<XxlJobLog> jobLogList) {
+        return alarm(info, jobLogList, jobLogList.size());
+    }
+
+    /**
+     * job alarm, batch of one job, with fail count in alarm window
+     *
+     * @param info
+     * @param jobLogList
+     * @param failCount
+     * @return
+     */
+    public boolean alarm(XxlJobInfo info, List<XxlJobLog> jobLogList, int failCount) {
 
         boolean result = false;
         if (jobAlarmList!=null && jobAlarmList.size()>0) {
@@ -49,7 +79,13 @@ public class JobAlarmer implements ApplicationContextAware, InitializingBean {
             for (JobAlarm alarm: jobAlarmList) {
                 boolean resultItem = false;
                 try {
-                    resultItem = alarm.doAlarm(info, jobLog);
+                    if (jobLogList.size()==1 && failCount<=1) {
+                        resultItem = alarm.doAlarm(info, jobLogList.get(0));
+                    } else if (failCount > jobLogList.size()) {
+                        resultItem = alarm.doAlarm(info, jobLogList, failCount);
+                    } else {
+                        resultItem = alarm.doAlarm(info, jobLogList);
+                    }
                 } catch (Exception e) {
                     logger.error(e.getMessage(), e);
                 }
@@ -62,4 +98,212 @@ public class JobAlarmer implements ApplicationContextAware, InitializingBean {
         return result;
     }
 
+
+    // ---------------------- alarm pipeline (aggregate + async) ----------------------
+
+    private static final int WINDOW_LOG_MAX = 100;
+    private static final int RELEASE_BATCH_SIZE = 1000;
+
+    /**
+     * fail log of one job, in alarm window; first "WINDOW_LOG_MAX" kept, others counted and released
+     */
+    private static class AlarmWindow {
+        private final long startTime;
+        private XxlJobInfo info;
+        private int failCount = 0;
+        private List<XxlJobLog> jobLogList = new ArrayList<XxlJobLog>();
+        private List<Long> releaseLogIds = new ArrayList<Long>();
+
+        private AlarmWindow(long startTime) {
+            this.startTime = startTime;
+        }
+    }
+
+    private ConcurrentMap<Integer, AlarmWindow> alarmWindowMap = new ConcurrentHashMap<Integer, AlarmWindow>();
+    private ThreadPoolExecutor alarmPool;
+    private Thread flushThread;
+    private volatile boolean toStop = false;
+
+    public void start() {
+        toStop = false;
+        alarmPool = new ThreadPoolExecutor(
+                XxlJobAdminConfig.getAdminConfig().getAlarmPoolMax(),
+                XxlJobAdminConfig.getAdminConfig().getAlarmPoolMax(),
+                60L,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(1000),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        return new Thread(r, "xxl-job, admin JobAlarmer-alarmPool-" + r.hashCode());
+                    }
+                },
+                new RejectedExecutionHandler() {
+                    @Override
+                    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                        // full or shutdown, run in caller; alarm status locked (-1) must always be written back
+                        if (executor.isShutdown()) {
+                            logger.warn(">>>>>>>>>>> xxl-job, job alarm pool shutdown, alarm run in caller thread.");
+                        }
+                        r.run();
+                    }
+                });
+        alarmPool.allowCoreThreadTimeOut(true);
+
+        flushThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!toStop) {
+                    try {
+                        flushAlarmWindow(false);
+                    } catch (Exception e) {
+                        if (!toStop) {
+                            logger.error(">>>>>>>>>>> xxl-job, job alarm flush thread error:{}", e);
+                        }
+                    }
+                    try {
+                        TimeUnit.SECONDS.sleep(1);
+                    } catch (InterruptedException e) {
+                        if (!toStop) {
+                            logger.error(e.getMessage(), e);
+                        }
+                    }
+                }
+
+                // flush remaining
+                try {
+                    flushAlarmWindow(true);
+                } catch (Exception e) {
+                    logger.error(">>>>>>>>>>> xxl-job, job alarm flush thread error:{}", e);
+                }
+                logger.info(">>>>>>>>>>> xxl-job, job alarm flush thread stop");
+            }
+        });
+        flushThread.setDaemon(true);
+        flushThread.setName("xxl-job, admin JobAlarmer");
+        flushThread.start();
+    }
+
+    public void toStop() {
+        toStop = true;
+        // interrupt and wait
+        flushThread.interrupt();
+        try {
+            flushThread.join();
+        } catch (InterruptedException e) {
+            logger.error(e.getMessage(), e);
+        }
+
+        // wait alarm sent
+        alarmPool.shutdown();
+        try {
+            if (!alarmPool.awaitTermination(10, TimeUnit.SECONDS)) {
+                alarmPool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * push fail log (alarm status locked), alarm async and write back alarm status
+     *
+     * @param info
+     * @param jobLog
+     */
+    public void push(XxlJobInfo info, XxlJobLog jobLog) {
+        long windowTime = XxlJobAdminConfig.getAdminConfig().getAlarmWindow() * 1000L;
+        if (windowTime <= 0) {
+            submitAlarm(info, Collections.singletonList(jobLog));
+            return;
+        }
+
+        synchronized (alarmWindowMap) {
+            AlarmWindow window = alarmWindowMap.get(info.getId());
+            if (window != null) {
+                // in window, aggregate; over limit, count only and release by next flush
+                window.info = info;
+                window.failCount++;
+                if (window.jobLogList.size() < WINDOW_LOG_MAX) {
+                    window.jobLogList.add(jobLog);
+                } else {
+                    window.releaseLogIds.add(jobLog.getId());
+                }
+                return;
+            }
+            // first fail, open window
+            alarmWindowMap.put(info.getId(), new AlarmWindow(System.currentTimeMillis()));
+        }
+
+        // first fail, alarm now
+        submitAlarm(info, Collections.singletonList(jobLog));
+    }
+
+    /**
+     * flush expired window, send digest alarm; release log over window limit
+     */
+    private void flushAlarmWindow(boolean flushAll) {
+        long windowTime = XxlJobAdminConfig.getAdminConfig().getAlarmWindow() * 1000L;
+        long nowTime = System.currentTimeMillis();
+
+        List<AlarmWindow> expiredWindowList = new ArrayList<AlarmWindow>();
+        List<Long> releaseLogIds = new ArrayList<Long>();
+        synchronized (alarmWindowMap) {
+            Iterator<Map.Entry<Integer, AlarmWindow>> it = alarmWindowMap.entrySet().iterator();
+            while (it.hasNext()) {
+                AlarmWindow window = it.next().getValue();
+                if (window.releaseLogIds.size() > 0) {
+                    releaseLogIds.addAll(window.releaseLogIds);
+                    window.releaseLogIds = new ArrayList<Long>();
+                }
+                if (flushAll || nowTime - window.startTime >= windowTime) {
+                    it.remove();
+                    if (window.jobLogList.size() > 0) {
+                        expiredWindowList.add(window);
+                    }
+                }
+            }
+        }
+
+        for (AlarmWindow window: expiredWindowList) {
+            submitAlarm(window.info, window.jobLogList, window.failCount);
+        }
+
+        // release log over window limit, counted in digest only: unlock as "1-无需告警"
+        for (int from = 0; from < releaseLogIds.size(); from += RELEASE_BATCH_SIZE) {
+            List<Long> batch = releaseLogIds.subList(from, Math.min(from + RELEASE_BATCH_SIZE, releaseLogIds.size()));
+            try {
+                XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().updateAlarmStatusBatch(batch, -1, 1);
+            } catch (Exception e) {
+                logger.error(">>>>>>>>>>> xxl-job, job alarm release error, logIds:{}", batch, e);
+            }
+        }
+    }
+
+    private void submitAlarm(XxlJobInfo info, List<XxlJobLog> jobLogList) {
+        submitAlarm(info, jobLogList, jobLogList.size());
+    }
+
+    private void submitAlarm(final XxlJobInfo info, final List<XxlJobLog> jobLogList, final int failCount) {
+        alarmPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                int newAlarmStatus = 0;		// 告警状态：0-默认、-1=锁定状态、1-无需告警、2-告警成功、3-告警失败
+                try {
+                    boolean alarmResult = alarm(info, jobLogList, failCount);
+                    newAlarmStatus = alarmResult?2:3;
+                } catch (Exception e) {
+                    logger.error(">>>>>>>>>>> xxl-job, job fail alarm error, jobId:{}", info.getId(), e);
+                    newAlarmStatus = 3;
+                }
+
+                List<Long> logIds = new ArrayList<Long>();
+                for (XxlJobLog jobLog: jobLogList) {
+                    logIds.add(jobLog.getId());
+                }
+                XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().updateAlarmStatusBatch(logIds, -1, newAlarmStatus);
+            }
+        });
+    }
+
 }
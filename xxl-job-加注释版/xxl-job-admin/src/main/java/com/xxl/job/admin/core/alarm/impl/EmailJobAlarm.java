@@ -14,52 +14,122 @@ import org.springframework.stereotype.Component;
 
 import javax.mail.internet.MimeMessage;
 import java.text.MessageFormat;
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * job alarm by email
  *
+ *      a、摘要：批量告警按告警内容去重，一封邮件展示失败次数及日志ID；超出窗口上限仅计数的失败单独一行展示次数；
+ *      b、限流：单个收件人每分钟最多 "xxl.job.alarm.ratelimit" 封，超出则丢弃并记录日志，告警结果记为失败；
+ *      c、缓存：邮件模板、执行器信息（1分钟）本地缓存；
+ *
  * @author xuxueli 2020-01-19
  */
 @Component
 public class EmailJobAlarm implements JobAlarm {
     private static Logger logger = LoggerFactory.getLogger(EmailJobAlarm.class);
 
+    private static final int DIGEST_LOG_ID_MAX = 20;
+
     /**
      * fail alarm
      *
      * @param jobLog
      */
     public boolean doAlarm(XxlJobInfo info, XxlJobLog jobLog){
+        return doAlarm(info, Collections.singletonList(jobLog));
+    }
+
+    /**
+     * fail alarm, digest
+     *
+     * @param info
+     * @param jobLogList
+     * @return
+     */
+    @Override
+    public boolean doAlarm(XxlJobInfo info, List<XxlJobLog> jobLogList) {
+        return doAlarm(info, jobLogList, jobLogList.size());
+    }
+
+    /**
+     * fail alarm, digest with fail count in alarm window
+     *
+     * @param info
+     * @param jobLogList
+     * @param failCount
+     * @return
+     */
+    @Override
+    public boolean doAlarm(XxlJobInfo info, List<XxlJobLog> jobLogList, int failCount) {
         boolean alarmResult = true;
 
         // send monitor email
-        if (info!=null && info.getAlarmEmail()!=null && info.getAlarmEmail().trim().length()>0) {
+        if (info!=null && info.getAlarmEmail()!=null && info.getAlarmEmail().trim().length()>0 && jobLogList.size()>0) {
 
-            // alarmContent
-            String alarmContent = "Alarm Job LogId=" + jobLog.getId();
-            if (jobLog.getTriggerCode() != ReturnT.SUCCESS_CODE) {
-                alarmContent += "<br>TriggerMsg=<br>" + jobLog.getTriggerMsg();
-            }
-            if (jobLog.getHandleCode()>0 && jobLog.getHandleCode() != ReturnT.SUCCESS_CODE) {
-                alarmContent += "<br>HandleCode=" + jobLog.getHandleMsg();
+            // alarmContent, dedup by content
+            Map<String, List<Long>> alarmContentMap = new LinkedHashMap<String, List<Long>>();
+            for (XxlJobLog jobLog: jobLogList) {
+                String alarmContent = "";
+                if (jobLog.getTriggerCode() != ReturnT.SUCCESS_CODE) {
+                    alarmContent += "<br>TriggerMsg=<br>" + jobLog.getTriggerMsg();
+                }
+                if (jobLog.getHandleCode()>0 && jobLog.getHandleCode() != ReturnT.SUCCESS_CODE) {
+                    alarmContent += "<br>HandleCode=" + jobLog.getHandleMsg();
+                }
+
+                List<Long> logIds = alarmContentMap.get(alarmContent);
+                if (logIds == null) {
+                    logIds = new ArrayList<Long>();
+                    alarmContentMap.put(alarmContent, logIds);
+                }
+                logIds.add(jobLog.getId());
             }
 
             // email info
-            XxlJobGroup group = XxlJobAdminConfig.getAdminConfig().getXxlJobGroupDao().load(Integer.valueOf(info.getJobGroup()));
+            XxlJobGroup group = loadGroup(info.getJobGroup());
             String personal = I18nUtil.getString("admin_name_full");
             String title = I18nUtil.getString("jobconf_monitor");
-            String content = MessageFormat.format(loadEmailJobAlarmTemplate(),
-                    group!=null?group.getTitle():"null",
-                    info.getId(),
-                    info.getJobDesc(),
-                    alarmContent);
+
+            StringBuilder rows = new StringBuilder();
+            for (Map.Entry<String, List<Long>> item: alarmContentMap.entrySet()) {
+                List<Long> logIds = item.getValue();
+                String logIdStr = logIds.size()>DIGEST_LOG_ID_MAX
+                        ?logIds.subList(0, DIGEST_LOG_ID_MAX).toString().replace("]", ", ...]")
+                        :logIds.toString();
+
+                rows.append(MessageFormat.format(loadEmailJobAlarmRowTemplate(),
+                        group!=null?group.getTitle():"null",
+                        String.valueOf(info.getId()),
+                        info.getJobDesc(),
+                        String.valueOf(logIds.size()),
+                        "Alarm Job LogId=" + logIdStr + item.getKey()));
+            }
+            if (failCount > jobLogList.size()) {
+                rows.append(MessageFormat.format(loadEmailJobAlarmRowTemplate(),
+                        group!=null?group.getTitle():"null",
+                        String.valueOf(info.getId()),
+                        info.getJobDesc(),
+                        String.valueOf(failCount - jobLogList.size()),
+                        "Alarm Job LogId omitted, over alarm window limit"));
+            }
+            String content = MessageFormat.format(loadEmailJobAlarmTemplate(), rows.toString());
 
             Set<String> emailSet = new HashSet<String>(Arrays.asList(info.getAlarmEmail().split(",")));
             for (String email: emailSet) {
 
+                // rate limit
+                if (!tryAcquire(email)) {
+                    logger.warn(">>>>>>>>>>> xxl-job, job fail alarm email limited, email:{}, jobId:{}, fail count:{}", email, info.getId(), failCount);
+
+                    alarmResult = false;
+                    continue;
+                }
+
                 // make mail
                 try {
                     MimeMessage mimeMessage = XxlJobAdminConfig.getAdminConfig().getMailSender().createMimeMessage();
@@ -72,7 +142,7 @@ public class EmailJobAlarm implements JobAlarm {
 
                     XxlJobAdminConfig.getAdminConfig().getMailSender().send(mimeMessage);
                 } catch (Exception e) {
-                    logger.error(">>>>>>>>>>> xxl-job, job fail alarm email send error, JobLogId:{}", jobLog.getId(), e);
+                    logger.error(">>>>>>>>>>> xxl-job, job fail alarm email send error, JobId:{}", info.getId(), e);
 
                     alarmResult = false;
                 }
@@ -83,35 +153,119 @@ public class EmailJobAlarm implements JobAlarm {
         return alarmResult;
     }
 
+
+    // ---------------------- rate limit ----------------------
+
+    /**
+     * email count of one minute, minute and count swapped together
+     */
+    private static class RateLimitWindow {
+        private final long minTim;
+        private final ConcurrentMap<String, AtomicInteger> countMap = new ConcurrentHashMap<String, AtomicInteger>();
+
+        private RateLimitWindow(long minTim) {
+            this.minTim = minTim;
+        }
+    }
+
+    private final AtomicReference<RateLimitWindow> rateLimitWindow = new AtomicReference<RateLimitWindow>(new RateLimitWindow(System.currentTimeMillis()/60000));
+
+    /**
+     * email count of recipient in current minute
+     */
+    private boolean tryAcquire(String email) {
+        int rateLimit = XxlJobAdminConfig.getAdminConfig().getAlarmRateLimit();
+        if (rateLimit < 1) {
+            return true;
+        }
+
+        // new minute, only one thread swaps; never back to an older minute
+        long minTim_now = System.currentTimeMillis()/60000;
+        RateLimitWindow window = rateLimitWindow.get();
+        if (window.minTim < minTim_now) {
+            RateLimitWindow newWindow = new RateLimitWindow(minTim_now);
+            window = rateLimitWindow.compareAndSet(window, newWindow)?newWindow:rateLimitWindow.get();
+        }
+
+        AtomicInteger count = window.countMap.get(email);
+        if (count == null) {
+            window.countMap.putIfAbsent(email, new AtomicInteger(0));
+            count = window.countMap.get(email);
+        }
+        return count.incrementAndGet() <= rateLimit;
+    }
+
+
+    // ---------------------- cache ----------------------
+
+    private static final long GROUP_CACHE_TIME = 60 * 1000;
+    private ConcurrentMap<Integer, Object[]> groupCache = new ConcurrentHashMap<Integer, Object[]>();
+
     /**
-     * load email job alarm template
+     * load group, cached
+     */
+    private XxlJobGroup loadGroup(int jobGroup) {
+        Object[] cache = groupCache.get(jobGroup);
+        if (cache!=null && System.currentTimeMillis() < (Long) cache[1]) {
+            return (XxlJobGroup) cache[0];
+        }
+
+        XxlJobGroup group = XxlJobAdminConfig.getAdminConfig().getXxlJobGroupDao().load(jobGroup);
+        groupCache.put(jobGroup, new Object[]{group, System.currentTimeMillis() + GROUP_CACHE_TIME});
+        return group;
+    }
+
+    private static volatile String mailBodyTemplate;
+    private static volatile String mailRowTemplate;
+
+    /**
+     * load email job alarm template, cached
      *
      * @return
      */
     private static final String loadEmailJobAlarmTemplate(){
-        String mailBodyTemplate = "<h5>" + I18nUtil.getString("jobconf_monitor_detail") + "：</span>" +
+        if (mailBodyTemplate != null) {
+            return mailBodyTemplate;
+        }
+
+        mailBodyTemplate = "<h5>" + I18nUtil.getString("jobconf_monitor_detail") + "：</span>" +
                 "<table border=\"1\" cellpadding=\"3\" style=\"border-collapse:collapse; width:80%;\" >\n" +
                 "   <thead style=\"font-weight: bold;color: #ffffff;background-color: #ff8c00;\" >" +
                 "      <tr>\n" +
-                "         <td width=\"20%\" >"+ I18nUtil.getString("jobinfo_field_jobgroup") +"</td>\n" +
+                "         <td width=\"15%\" >"+ I18nUtil.getString("jobinfo_field_jobgroup") +"</td>\n" +
                 "         <td width=\"10%\" >"+ I18nUtil.getString("jobinfo_field_id") +"</td>\n" +
-                "         <td width=\"20%\" >"+ I18nUtil.getString("jobinfo_field_jobdesc") +"</td>\n" +
+                "         <td width=\"15%\" >"+ I18nUtil.getString("jobinfo_field_jobdesc") +"</td>\n" +
                 "         <td width=\"10%\" >"+ I18nUtil.getString("jobconf_monitor_alarm_title") +"</td>\n" +
+                "         <td width=\"10%\" >"+ I18nUtil.getString("jobconf_monitor_alarm_count") +"</td>\n" +
                 "         <td width=\"40%\" >"+ I18nUtil.getString("jobconf_monitor_alarm_content") +"</td>\n" +
                 "      </tr>\n" +
                 "   </thead>\n" +
                 "   <tbody>\n" +
-                "      <tr>\n" +
+                "{0}" +
+                "   </tbody>\n" +
+                "</table>";
+        return mailBodyTemplate;
+    }
+
+    /**
+     * load email job alarm row template, cached
+     *
+     * @return
+     */
+    private static final String loadEmailJobAlarmRowTemplate(){
+        if (mailRowTemplate != null) {
+            return mailRowTemplate;
+        }
+
+        mailRowTemplate = "      <tr>\n" +
                 "         <td>{0}</td>\n" +
                 "         <td>{1}</td>\n" +
                 "         <td>{2}</td>\n" +
                 "         <td>"+ I18nUtil.getString("jobconf_monitor_alarm_type") +"</td>\n" +
                 "         <td>{3}</td>\n" +
-                "      </tr>\n" +
-                "   </tbody>\n" +
-                "</table>";
-
-        return mailBodyTemplate;
+                "         <td>{4}</td>\n" +
+                "      </tr>\n";
+        return mailRowTemplate;
     }
 
 }
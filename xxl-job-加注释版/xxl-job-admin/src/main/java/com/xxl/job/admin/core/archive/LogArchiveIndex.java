@@ -0,0 +1,175 @@
+package com.xxl.job.admin.core.archive;
+
+import com.xxl.job.admin.core.model.XxlJobLog;
+
+import java.util.List;
+
+/**
+ * log archive index, one block of one job in segment file
+ *
+ * line: jobGroup,jobId,minId,maxId,minTime,maxTime,offset,length,count,sucCount,failCount,runningCount
+ */
+public class LogArchiveIndex {
+
+    private int jobGroup;
+    private int jobId;
+    private long minId;
+    private long maxId;
+    private long minTime;
+    private long maxTime;
+    private long offset;
+    private int length;
+
+    private int count;
+    private int sucCount;       // logStatus 1
+    private int failCount;      // logStatus 2
+    private int runningCount;   // logStatus 3
+
+    /**
+     * log status, same as "XxlJobLogMapper.pageList": 1-success, 2-fail, 3-running, 0-other
+     */
+    public static int logStatus(XxlJobLog log) {
+        if (log.getHandleCode() == 200) {
+            return 1;
+        }
+        boolean triggerFail = log.getTriggerCode()!=0 && log.getTriggerCode()!=200;
+        boolean handleFail = log.getHandleCode()!=0 && log.getHandleCode()!=200;
+        if (triggerFail || handleFail) {
+            return 2;
+        }
+        if (log.getTriggerCode()==200 && log.getHandleCode()==0) {
+            return 3;
+        }
+        return 0;
+    }
+
+    /**
+     * index of block
+     */
+    public static LogArchiveIndex build(List<XxlJobLog> blockLogList, long offset, int length) {
+        LogArchiveIndex index = new LogArchiveIndex();
+        index.jobGroup = blockLogList.get(0).getJobGroup();
+        index.jobId = blockLogList.get(0).getJobId();
+        index.minId = Long.MAX_VALUE;
+        index.maxId = Long.MIN_VALUE;
+        index.minTime = Long.MAX_VALUE;
+        index.maxTime = Long.MIN_VALUE;
+        index.offset = offset;
+        index.length = length;
+
+        for (XxlJobLog log: blockLogList) {
+            long triggerTime = log.getTriggerTime()!=null?log.getTriggerTime().getTime():0;
+            index.minId = Math.min(index.minId, log.getId());
+            index.maxId = Math.max(index.maxId, log.getId());
+            index.minTime = Math.min(index.minTime, triggerTime);
+            index.maxTime = Math.max(index.maxTime, triggerTime);
+
+            index.count++;
+            int logStatus = logStatus(log);
+            if (logStatus == 1) {
+                index.sucCount++;
+            } else if (logStatus == 2) {
+                index.failCount++;
+            } else if (logStatus == 3) {
+                index.runningCount++;
+            }
+        }
+        return index;
+    }
+
+    public static LogArchiveIndex parse(String line) {
+        String[] items = line.split(",");
+        if (items.length != 12) {
+            return null;
+        }
+        LogArchiveIndex index = new LogArchiveIndex();
+        index.jobGroup = Integer.parseInt(items[0]);
+        index.jobId = Integer.parseInt(items[1]);
+        index.minId = Long.parseLong(items[2]);
+        index.maxId = Long.parseLong(items[3]);
+        index.minTime = Long.parseLong(items[4]);
+        index.maxTime = Long.parseLong(items[5]);
+        index.offset = Long.parseLong(items[6]);
+        index.length = Integer.parseInt(items[7]);
+        index.count = Integer.parseInt(items[8]);
+        index.sucCount = Integer.parseInt(items[9]);
+        index.failCount = Integer.parseInt(items[10]);
+        index.runningCount = Integer.parseInt(items[11]);
+        return index;
+    }
+
+    public String format() {
+        return jobGroup + "," + jobId + "," + minId + "," + maxId + "," + minTime + "," + maxTime + ","
+                + offset + "," + length + "," + count + "," + sucCount + "," + failCount + "," + runningCount;
+    }
+
+    /**
+     * match job, same as "XxlJobLogMapper.pageList"
+     */
+    public boolean matchJob(int jobGroup, int jobId) {
+        if (jobId > 0) {
+            return this.jobId == jobId;
+        }
+        if (jobGroup > 0) {
+            return this.jobGroup == jobGroup;
+        }
+        return true;
+    }
+
+    /**
+     * log count of status, -1 means need read block (time range partly overlapped)
+     */
+    public int count(long fromTime, long toTime, int logStatus) {
+        if (maxTime < fromTime || minTime > toTime) {
+            return 0;
+        }
+        if (minTime < fromTime || maxTime > toTime) {
+            return -1;
+        }
+        if (logStatus == 1) {
+            return sucCount;
+        } else if (logStatus == 2) {
+            return failCount;
+        } else if (logStatus == 3) {
+            return runningCount;
+        }
+        return count;
+    }
+
+    public int getJobGroup() {
+        return jobGroup;
+    }
+
+    public int getJobId() {
+        return jobId;
+    }
+
+    public long getMinId() {
+        return minId;
+    }
+
+    public long getMaxId() {
+        return maxId;
+    }
+
+    public long getMinTime() {
+        return minTime;
+    }
+
+    public long getMaxTime() {
+        return maxTime;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+}
@@ -0,0 +1,568 @@
+package com.xxl.job.admin.core.archive;
+
+import com.xxl.job.admin.core.model.XxlJobLog;
+import com.xxl.job.core.util.DateUtil;
+import com.xxl.job.core.util.GsonTool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * log archive store, one day one segment
+ *
+ *      a、"{yyyyMMdd}.seg"：日志按任务分块，每块为 gzip 压缩的 json 数组；
+ *      b、"{yyyyMMdd}.idx"：首行为当天汇总（#minId,maxId,count），其余每行为一个块的索引（任务、ID范围、时间范围、偏移、各状态数量）；
+ *      c、".idx" 写入完成即代表当天归档提交，查询仅读取已提交的归档；
+ *      d、追加：已提交的天可追加块（如归档后才结束的日志），先截断未提交的段尾再追加，新 ".idx" 原子替换后生效；
+ */
+public class LogArchiveStore {
+    private static Logger logger = LoggerFactory.getLogger(LogArchiveStore.class);
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String INDEX_TMP_SUFFIX = ".idx.tmp";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int BLOCK_SIZE = 500;
+    private static final int BUFFER_MAX = 20000;
+    private static final int INDEX_CACHE_MAX = 64;
+    private static final long DAY_META_REFRESH = 60 * 1000;
+    private static final long DAY_TIME = 24 * 60 * 60 * 1000L;
+
+    private final File archiveDir;
+
+    public LogArchiveStore(String archivePath) {
+        this.archiveDir = new File(archivePath);
+        if (!archiveDir.exists()) {
+            archiveDir.mkdirs();
+        }
+    }
+
+    private static String dayName(Date day) {
+        return DateUtil.format(day, "yyyyMMdd");
+    }
+
+    private File segmentFile(String dayName) {
+        return new File(archiveDir, dayName + SEGMENT_SUFFIX);
+    }
+
+    private File indexFile(String dayName) {
+        return new File(archiveDir, dayName + INDEX_SUFFIX);
+    }
+
+
+    // ---------------------- write ----------------------
+
+    /**
+     * whether day archived (index committed)
+     */
+    public boolean isArchived(Date day) {
+        return indexFile(dayName(day)).exists();
+    }
+
+    public Writer openWriter(Date day) throws IOException {
+        return new Writer(dayName(day), false);
+    }
+
+    /**
+     * writer appending block to archived day, committed block kept
+     */
+    public Writer openAppender(Date day) throws IOException {
+        return new Writer(dayName(day), true);
+    }
+
+    /**
+     * day writer, log of one job buffered into block
+     */
+    public class Writer implements Closeable {
+        private final String dayName;
+        private final FileOutputStream segmentOutput;
+        private long position = 0;
+
+        private Map<Integer, List<XxlJobLog>> bufferMap = new HashMap<Integer, List<XxlJobLog>>();
+        private int bufferCount = 0;
+        private List<LogArchiveIndex> indexList = new ArrayList<LogArchiveIndex>();
+
+        private Writer(String dayName, boolean append) throws IOException {
+            this.dayName = dayName;
+            if (append) {
+                indexList.addAll(readIndex(dayName));
+                for (LogArchiveIndex index: indexList) {
+                    position = Math.max(position, index.getOffset() + index.getLength());
+                }
+            }
+            this.segmentOutput = new FileOutputStream(segmentFile(dayName), append);
+            if (append) {
+                segmentOutput.getChannel().truncate(position);      // uncommitted tail of last append
+            }
+        }
+
+        public void append(XxlJobLog log) throws IOException {
+            List<XxlJobLog> buffer = bufferMap.get(log.getJobId());
+            if (buffer == null) {
+                buffer = new ArrayList<XxlJobLog>();
+                bufferMap.put(log.getJobId(), buffer);
+            }
+            buffer.add(log);
+            bufferCount++;
+
+            if (buffer.size() >= BLOCK_SIZE) {
+                writeBlock(buffer);
+                bufferMap.remove(log.getJobId());
+            } else if (bufferCount >= BUFFER_MAX) {
+                flushBuffer();
+            }
+        }
+
+        private void flushBuffer() throws IOException {
+            for (List<XxlJobLog> buffer: bufferMap.values()) {
+                writeBlock(buffer);
+            }
+            bufferMap.clear();
+            bufferCount = 0;
+        }
+
+        private void writeBlock(List<XxlJobLog> blockLogList) throws IOException {
+            ByteArrayOutputStream bytesOutput = new ByteArrayOutputStream();
+            GZIPOutputStream gzipOutput = new GZIPOutputStream(bytesOutput);
+            gzipOutput.write(GsonTool.toJson(blockLogList).getBytes(UTF_8));
+            gzipOutput.close();
+            byte[] blockBytes = bytesOutput.toByteArray();
+
+            segmentOutput.write(blockBytes);
+            indexList.add(LogArchiveIndex.build(blockLogList, position, blockBytes.length));
+            position += blockBytes.length;
+            bufferCount -= blockLogList.size();
+        }
+
+        /**
+         * flush block, sync segment, and commit index
+         *
+         * @return archived log count
+         */
+        public int commit() throws IOException {
+            flushBuffer();
+            segmentOutput.getFD().sync();
+            segmentOutput.close();
+
+            long minId = Long.MAX_VALUE;
+            long maxId = Long.MIN_VALUE;
+            int count = 0;
+            for (LogArchiveIndex index: indexList) {
+                minId = Math.min(minId, index.getMinId());
+                maxId = Math.max(maxId, index.getMaxId());
+                count += index.getCount();
+            }
+
+            File indexTmpFile = new File(archiveDir, dayName + INDEX_TMP_SUFFIX);
+            FileOutputStream indexOutput = new FileOutputStream(indexTmpFile, false);
+            try {
+                BufferedWriter indexWriter = new BufferedWriter(new OutputStreamWriter(indexOutput, UTF_8));
+                indexWriter.write("#" + minId + "," + maxId + "," + count);
+                indexWriter.newLine();
+                for (LogArchiveIndex index: indexList) {
+                    indexWriter.write(index.format());
+                    indexWriter.newLine();
+                }
+                indexWriter.flush();
+                indexOutput.getFD().sync();
+            } finally {
+                indexOutput.close();
+            }
+            // atomic replace, old index valid until moved
+            Files.move(indexTmpFile.toPath(), indexFile(dayName).toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+            dayMetaRefreshTime = 0;
+            return count;
+        }
+
+        /**
+         * close without commit, segment removed
+         */
+        @Override
+        public void close() throws IOException {
+            segmentOutput.close();
+            if (!indexFile(dayName).exists()) {
+                segmentFile(dayName).delete();
+            }
+        }
+    }
+
+
+    // ---------------------- read ----------------------
+
+    /**
+     * archived day
+     */
+    private static class DayMeta {
+        private String dayName;
+        private long dayStart;
+        private long minId;
+        private long maxId;
+        private String version;     // index modified time and length, changed by append
+    }
+
+    private static String indexVersion(File indexFile) {
+        return indexFile.lastModified() + "-" + indexFile.length();
+    }
+
+    private volatile TreeMap<Long, DayMeta> dayMetaMap = new TreeMap<Long, DayMeta>();
+    private volatile long dayMetaRefreshTime = 0;
+
+    private LinkedHashMap<String, List<LogArchiveIndex>> indexCache = new LinkedHashMap<String, List<LogArchiveIndex>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<LogArchiveIndex>> eldest) {
+            return size() > INDEX_CACHE_MAX;
+        }
+    };
+
+    /**
+     * archived day, refresh each minute (archived by other admin on shared storage)
+     */
+    private TreeMap<Long, DayMeta> loadDayMeta() {
+        if (System.currentTimeMillis() - dayMetaRefreshTime < DAY_META_REFRESH) {
+            return dayMetaMap;
+        }
+
+        TreeMap<Long, DayMeta> dayMetaMapOld = dayMetaMap;
+        TreeMap<Long, DayMeta> dayMetaMapNew = new TreeMap<Long, DayMeta>();
+        File[] indexFiles = archiveDir.listFiles();
+        if (indexFiles != null) {
+            for (File indexFile: indexFiles) {
+                if (!indexFile.getName().endsWith(INDEX_SUFFIX)) {
+                    continue;
+                }
+                String dayName = indexFile.getName().substring(0, indexFile.getName().length() - INDEX_SUFFIX.length());
+                Date day = DateUtil.parse(dayName, "yyyyMMdd");
+                if (day == null) {
+                    continue;
+                }
+
+                DayMeta dayMeta = dayMetaMapOld.get(day.getTime());
+                if (dayMeta == null || !dayMeta.version.equals(indexVersion(indexFile))) {
+                    dayMeta = readDayMeta(dayName, day.getTime(), indexFile);
+                }
+                if (dayMeta != null) {
+                    dayMetaMapNew.put(dayMeta.dayStart, dayMeta);
+                }
+            }
+        }
+
+        dayMetaMap = dayMetaMapNew;
+        dayMetaRefreshTime = System.currentTimeMillis();
+        return dayMetaMapNew;
+    }
+
+    private DayMeta readDayMeta(String dayName, long dayStart, File indexFile) {
+        try {
+            String version = indexVersion(indexFile);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(indexFile), UTF_8));
+            try {
+                String header = reader.readLine();
+                if (header==null || !header.startsWith("#")) {
+                    return null;
+                }
+                String[] items = header.substring(1).split(",");
+
+                DayMeta dayMeta = new DayMeta();
+                dayMeta.dayName = dayName;
+                dayMeta.dayStart = dayStart;
+                dayMeta.minId = Long.parseLong(items[0]);
+                dayMeta.maxId = Long.parseLong(items[1]);
+                dayMeta.version = version;
+                return dayMeta;
+            } finally {
+                reader.close();
+            }
+        } catch (Exception e) {
+            logger.error(">>>>>>>>>>> xxl-job, log archive index read error, file:{}", indexFile, e);
+            return null;
+        }
+    }
+
+    private List<LogArchiveIndex> loadIndex(DayMeta dayMeta) throws IOException {
+        String cacheKey = dayMeta.dayName + "@" + dayMeta.version;
+        synchronized (indexCache) {
+            List<LogArchiveIndex> indexList = indexCache.get(cacheKey);
+            if (indexList != null) {
+                return indexList;
+            }
+        }
+
+        List<LogArchiveIndex> indexList = readIndex(dayMeta.dayName);
+        synchronized (indexCache) {
+            indexCache.put(cacheKey, indexList);
+        }
+        return indexList;
+    }
+
+    private List<LogArchiveIndex> readIndex(String dayName) throws IOException {
+        List<LogArchiveIndex> indexList = new ArrayList<LogArchiveIndex>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(indexFile(dayName)), UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("#") || line.trim().length()==0) {
+                    continue;
+                }
+                LogArchiveIndex index = LogArchiveIndex.parse(line);
+                if (index != null) {
+                    indexList.add(index);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return indexList;
+    }
+
+    private List<XxlJobLog> readBlock(String dayName, LogArchiveIndex index) throws IOException {
+        byte[] blockBytes = new byte[index.getLength()];
+        RandomAccessFile segmentFile = new RandomAccessFile(segmentFile(dayName), "r");
+        try {
+            segmentFile.seek(index.getOffset());
+            segmentFile.readFully(blockBytes);
+        } finally {
+            segmentFile.close();
+        }
+
+        GZIPInputStream gzipInput = new GZIPInputStream(new ByteArrayInputStream(blockBytes));
+        ByteArrayOutputStream bytesOutput = new ByteArrayOutputStream();
+        try {
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = gzipInput.read(buffer)) > 0) {
+                bytesOutput.write(buffer, 0, len);
+            }
+        } finally {
+            gzipInput.close();
+        }
+        XxlJobLog[] blockLogs = GsonTool.fromJson(new String(bytesOutput.toByteArray(), UTF_8), XxlJobLog[].class);
+        return blockLogs!=null?Arrays.asList(blockLogs):new ArrayList<XxlJobLog>();
+    }
+
+    private static boolean matchLog(XxlJobLog log, long fromTime, long toTime, int logStatus) {
+        long triggerTime = log.getTriggerTime()!=null?log.getTriggerTime().getTime():0;
+        if (triggerTime < fromTime || triggerTime > toTime) {
+            return false;
+        }
+        return logStatus<1 || logStatus>3 || LogArchiveIndex.logStatus(log)==logStatus;
+    }
+
+    /**
+     * archived day in time range, desc
+     */
+    private Collection<DayMeta> rangeDayMeta(Date triggerTimeStart, Date triggerTimeEnd) {
+        TreeMap<Long, DayMeta> dayMetaMap = loadDayMeta();
+        long fromDay = triggerTimeStart!=null?triggerTimeStart.getTime() - DAY_TIME:Long.MIN_VALUE;
+        long toDay = triggerTimeEnd!=null?triggerTimeEnd.getTime():Long.MAX_VALUE;
+        return dayMetaMap.subMap(fromDay, false, toDay, true).descendingMap().values();
+    }
+
+    private int dayCount(DayMeta dayMeta, int jobGroup, int jobId, long fromTime, long toTime, int logStatus) throws IOException {
+        int dayCount = 0;
+        for (LogArchiveIndex index: loadIndex(dayMeta)) {
+            if (!index.matchJob(jobGroup, jobId)) {
+                continue;
+            }
+            int count = index.count(fromTime, toTime, logStatus);
+            if (count < 0) {
+                count = 0;
+                for (XxlJobLog log: readBlock(dayMeta.dayName, index)) {
+                    if (matchLog(log, fromTime, toTime, logStatus)) {
+                        count++;
+                    }
+                }
+            }
+            dayCount += count;
+        }
+        return dayCount;
+    }
+
+    /**
+     * end of archived time (exclusive), null if no archive
+     */
+    public Date getArchiveEndTime() {
+        TreeMap<Long, DayMeta> dayMetaMap = loadDayMeta();
+        if (dayMetaMap.isEmpty()) {
+            return null;
+        }
+        return new Date(dayMetaMap.lastKey() + DAY_TIME);
+    }
+
+    /**
+     * archived log count, param same as "XxlJobLogDao.pageListCount"
+     */
+    public int pageListCount(int jobGroup, int jobId, Date triggerTimeStart, Date triggerTimeEnd, int logStatus) throws IOException {
+        long fromTime = triggerTimeStart!=null?triggerTimeStart.getTime():Long.MIN_VALUE;
+        long toTime = triggerTimeEnd!=null?triggerTimeEnd.getTime():Long.MAX_VALUE;
+
+        int count = 0;
+        for (DayMeta dayMeta: rangeDayMeta(triggerTimeStart, triggerTimeEnd)) {
+            count += dayCount(dayMeta, jobGroup, jobId, fromTime, toTime, logStatus);
+        }
+        return count;
+    }
+
+    /**
+     * archived log page, order by trigger_time desc, param same as "XxlJobLogDao.pageList"
+     */
+    public List<XxlJobLog> pageList(int offset, int pagesize, int jobGroup, int jobId, Date triggerTimeStart, Date triggerTimeEnd, int logStatus) throws IOException {
+        long fromTime = triggerTimeStart!=null?triggerTimeStart.getTime():Long.MIN_VALUE;
+        long toTime = triggerTimeEnd!=null?triggerTimeEnd.getTime():Long.MAX_VALUE;
+
+        List<XxlJobLog> pageLogList = new ArrayList<XxlJobLog>();
+        int skip = offset;
+        for (DayMeta dayMeta: rangeDayMeta(triggerTimeStart, triggerTimeEnd)) {
+            if (pageLogList.size() >= pagesize) {
+                break;
+            }
+
+            // skip whole day by index
+            int dayCount = dayCount(dayMeta, jobGroup, jobId, fromTime, toTime, logStatus);
+            if (skip >= dayCount) {
+                skip -= dayCount;
+                continue;
+            }
+
+            // read block of day
+            List<XxlJobLog> dayLogList = new ArrayList<XxlJobLog>();
+            for (LogArchiveIndex index: loadIndex(dayMeta)) {
+                if (!index.matchJob(jobGroup, jobId) || index.count(fromTime, toTime, logStatus)==0) {
+                    continue;
+                }
+                for (XxlJobLog log: readBlock(dayMeta.dayName, index)) {
+                    if (matchLog(log, fromTime, toTime, logStatus)) {
+                        dayLogList.add(log);
+                    }
+                }
+            }
+            Collections.sort(dayLogList, new Comparator<XxlJobLog>() {
+                @Override
+                public int compare(XxlJobLog o1, XxlJobLog o2) {
+                    int ret = o2.getTriggerTime().compareTo(o1.getTriggerTime());
+                    return ret!=0?ret:Long.compare(o2.getId(), o1.getId());
+                }
+            });
+
+            for (int i = skip; i < dayLogList.size() && pageLogList.size() < pagesize; i++) {
+                pageLogList.add(dayLogList.get(i));
+            }
+            skip = 0;
+        }
+        return pageLogList;
+    }
+
+    /**
+     * load archived log by id
+     */
+    public XxlJobLog load(long id) throws IOException {
+        for (DayMeta dayMeta: loadDayMeta().values()) {
+            if (id < dayMeta.minId || id > dayMeta.maxId) {
+                continue;
+            }
+            for (LogArchiveIndex index: loadIndex(dayMeta)) {
+                if (id < index.getMinId() || id > index.getMaxId()) {
+                    continue;
+                }
+                for (XxlJobLog log: readBlock(dayMeta.dayName, index)) {
+                    if (log.getId() == id) {
+                        return log;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * block index of archived day, null if not archived
+     */
+    public List<LogArchiveIndex> loadDayIndex(Date day) throws IOException {
+        String dayName = dayName(day);
+        File indexFile = indexFile(dayName);
+        if (!indexFile.exists()) {
+            return null;
+        }
+        DayMeta dayMeta = readDayMeta(dayName, day.getTime(), indexFile);
+        return dayMeta!=null?loadIndex(dayMeta):null;
+    }
+
+    /**
+     * log id of one block, archived log cleared from db by id
+     */
+    public List<Long> loadBlockIds(Date day, LogArchiveIndex index) throws IOException {
+        List<Long> logIds = new ArrayList<Long>();
+        for (XxlJobLog log: readBlock(dayName(day), index)) {
+            logIds.add(log.getId());
+        }
+        return logIds;
+    }
+
+    /**
+     * id of given log already in archived day, only block possibly containing (same job, id in range) read
+     */
+    public Set<Long> findArchivedIds(Date day, List<XxlJobLog> logList) throws IOException {
+        Set<Long> archivedIds = new HashSet<Long>();
+        String dayName = dayName(day);
+        if (logList.isEmpty() || !indexFile(dayName).exists()) {
+            return archivedIds;
+        }
+
+        Set<Long> logIds = new HashSet<Long>();
+        for (XxlJobLog log: logList) {
+            logIds.add(log.getId());
+        }
+        for (LogArchiveIndex index: readIndex(dayName)) {
+            boolean possible = false;
+            for (XxlJobLog log: logList) {
+                if (log.getJobId()==index.getJobId() && log.getId()>=index.getMinId() && log.getId()<=index.getMaxId()) {
+                    possible = true;
+                    break;
+                }
+            }
+            if (!possible) {
+                continue;
+            }
+            for (XxlJobLog archivedLog: readBlock(dayName, index)) {
+                if (logIds.contains(archivedLog.getId())) {
+                    archivedIds.add(archivedLog.getId());
+                }
+            }
+        }
+        return archivedIds;
+    }
+
+    /**
+     * remove archive before time
+     *
+     * @return removed day count
+     */
+    public int cleanBefore(Date clearBeforeTime) {
+        int count = 0;
+        for (DayMeta dayMeta: loadDayMeta().values()) {
+            if (dayMeta.dayStart + DAY_TIME > clearBeforeTime.getTime()) {
+                break;
+            }
+            // index first, uncommit day
+            indexFile(dayMeta.dayName).delete();
+            segmentFile(dayMeta.dayName).delete();
+            synchronized (indexCache) {
+                indexCache.remove(dayMeta.dayName + "@" + dayMeta.version);
+            }
+            count++;
+        }
+        if (count > 0) {
+            dayMetaRefreshTime = 0;
+        }
+        return count;
+    }
+
+}
@@ -2,12 +2,15 @@ package com.xxl.job.admin.core.conf;
 
 import com.xxl.job.admin.core.alarm.JobAlarmer;
 import com.xxl.job.admin.core.scheduler.XxlJobScheduler;
+import com.xxl.job.admin.core.thread.JobLogPartitionHelper;
 import com.xxl.job.admin.dao.*;
+import com.xxl.job.core.biz.AdminBiz;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import javax.annotation.Resource;
 import javax.sql.DataSource;
@@ -78,6 +81,57 @@ public class XxlJobAdminConfig implements InitializingBean, DisposableBean {
     @Value("${xxl.job.logretentiondays}")
     private int logretentiondays;
 
+    @Value("${xxl.job.alarmpool.max:20}")
+    private int alarmPoolMax;
+
+    @Value("${xxl.job.alarm.window:60}")
+    private int alarmWindow;
+
+    @Value("${xxl.job.alarm.ratelimit:10}")
+    private int alarmRateLimit;
+
+    @Value("${xxl.job.log.partition:NONE}")
+    private String logPartition;
+
+    @Value("${xxl.job.logarchive.days:-1}")
+    private int logArchiveDays;
+
+    @Value("${xxl.job.logarchive.retentiondays:365}")
+    private int logArchiveRetentionDays;
+
+    @Value("${xxl.job.logarchive.path:/data/applogs/xxl-job/archive}")
+    private String logArchivePath;
+
+    @Value("${xxl.job.logstat.minute.retentiondays:2}")
+    private int logStatMinuteRetentionDays;
+
+    @Value("${xxl.job.logstat.hour.retentiondays:30}")
+    private int logStatHourRetentionDays;
+
+    @Value("${xxl.job.logstat.day.retentiondays:365}")
+    private int logStatDayRetentionDays;
+
+    @Value("${xxl.job.logreport.reconcile:60}")
+    private int logReportReconcile;
+
+    @Value("${xxl.job.executorbiz.connecttimeout:3}")
+    private int executorBizConnectTimeout;
+
+    @Value("${xxl.job.executorbiz.beattimeout:3}")
+    private int executorBizBeatTimeout;
+
+    @Value("${xxl.job.executorbiz.timeout:3}")
+    private int executorBizTimeout;
+
+    @Value("${xxl.job.channel.port:-1}")
+    private int channelPort;
+
+    @Value("${xxl.job.triggerbatch.window:10}")
+    private int triggerBatchWindow;
+
+    @Value("${xxl.job.triggerbatch.maxsize:100}")
+    private int triggerBatchMaxSize;
+
     // dao, service
 
     @Resource
@@ -91,11 +145,23 @@ public class XxlJobAdminConfig implements InitializingBean, DisposableBean {
     @Resource
     private XxlJobLogReportDao xxlJobLogReportDao;
     @Resource
+    private XxlJobLogStatDao xxlJobLogStatDao;
+    @Resource
+    private XxlJobWorkflowDao xxlJobWorkflowDao;
+    @Resource
+    private XxlJobWorkflowRunDao xxlJobWorkflowRunDao;
+    @Resource
+    private XxlJobWorkflowNodeDao xxlJobWorkflowNodeDao;
+    @Resource
     private JavaMailSender mailSender;
     @Resource
     private DataSource dataSource;
     @Resource
+    private PlatformTransactionManager transactionManager;
+    @Resource
     private JobAlarmer jobAlarmer;
+    @Resource
+    private AdminBiz adminBiz;
 
 
     public String getI18n() {
@@ -134,6 +200,124 @@ public class XxlJobAdminConfig implements InitializingBean, DisposableBean {
         return logretentiondays;
     }
 
+    public int getAlarmPoolMax() {
+        if (alarmPoolMax < 5) {
+            return 5;
+        }
+        return alarmPoolMax;
+    }
+
+    public int getAlarmWindow() {
+        if (alarmWindow < 0) {
+            return 0;   // 0 means alarm each fail log immediately, without aggregation
+        }
+        return alarmWindow;
+    }
+
+    public int getAlarmRateLimit() {
+        if (alarmRateLimit < 1) {
+            return -1;  // Limit greater than or equal to 1, otherwise close
+        }
+        return alarmRateLimit;
+    }
+
+    public String getLogPartition() {
+        String mode = logPartition!=null?logPartition.trim().toUpperCase():null;
+        if (JobLogPartitionHelper.DAY.equals(mode) || JobLogPartitionHelper.MONTH.equals(mode)) {
+            return mode;
+        }
+        return JobLogPartitionHelper.NONE;
+    }
+
+    public int getLogArchiveDays() {
+        if (logArchiveDays < 7) {
+            return -1;  // Limit greater than or equal to 7, otherwise close
+        }
+        return logArchiveDays;
+    }
+
+    public int getLogArchiveRetentionDays() {
+        if (logArchiveRetentionDays < 1) {
+            return -1;  // Limit greater than or equal to 1, otherwise keep all
+        }
+        return logArchiveRetentionDays;
+    }
+
+    public String getLogArchivePath() {
+        return logArchivePath;
+    }
+
+    public int getLogStatMinuteRetentionDays() {
+        if (logStatMinuteRetentionDays < 1) {
+            return 1;
+        }
+        return logStatMinuteRetentionDays;
+    }
+
+    public int getLogStatHourRetentionDays() {
+        if (logStatHourRetentionDays < 1) {
+            return 1;
+        }
+        return logStatHourRetentionDays;
+    }
+
+    public int getLogStatDayRetentionDays() {
+        if (logStatDayRetentionDays < 1) {
+            return 1;
+        }
+        return logStatDayRetentionDays;
+    }
+
+    public int getLogReportReconcile() {
+        if (logReportReconcile < 10) {
+            return 10;
+        }
+        return logReportReconcile;
+    }
+
+    public int getExecutorBizConnectTimeout() {
+        if (executorBizConnectTimeout < 1) {
+            return 3;
+        }
+        return executorBizConnectTimeout;
+    }
+
+    public int getExecutorBizBeatTimeout() {
+        if (executorBizBeatTimeout < 1) {
+            return 3;
+        }
+        return executorBizBeatTimeout;
+    }
+
+    public int getExecutorBizTimeout() {
+        if (executorBizTimeout < 1) {
+            return 3;
+        }
+        return executorBizTimeout;
+    }
+
+    public int getChannelPort() {
+        return channelPort;
+    }
+
+    public int getTriggerBatchWindow() {
+        if (triggerBatchWindow < 0) {
+            return 0;
+        }
+        return triggerBatchWindow;
+    }
+
+    public int getTriggerBatchMaxSize() {
+        if (triggerBatchMaxSize < 1) {
+            return 1;
+        }
+        return triggerBatchMaxSize;
+    }
+
+    public AdminBiz getAdminBiz() {
+        return adminBiz;
+    }
+
     public XxlJobLogDao getXxlJobLogDao() {
         return xxlJobLogDao;
     }
@@ -154,6 +338,22 @@ public class XxlJobAdminConfig implements InitializingBean, DisposableBean {
         return xxlJobLogReportDao;
     }
 
+    public XxlJobLogStatDao getXxlJobLogStatDao() {
+        return xxlJobLogStatDao;
+    }
+
+    public XxlJobWorkflowDao getXxlJobWorkflowDao() {
+        return xxlJobWorkflowDao;
+    }
+
+    public XxlJobWorkflowRunDao getXxlJobWorkflowRunDao() {
+        return xxlJobWorkflowRunDao;
+    }
+
+    public XxlJobWorkflowNodeDao getXxlJobWorkflowNodeDao() {
+        return xxlJobWorkflowNodeDao;
+    }
+
     public JavaMailSender getMailSender() {
         return mailSender;
     }
@@ -162,6 +362,10 @@ public class XxlJobAdminConfig implements InitializingBean, DisposableBean {
         return dataSource;
     }
 
+    public PlatformTransactionManager getTransactionManager() {
+        return transactionManager;
+    }
+
     public JobAlarmer getJobAlarmer() {
         return jobAlarmer;
     }
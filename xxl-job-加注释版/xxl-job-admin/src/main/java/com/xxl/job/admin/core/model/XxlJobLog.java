@@ -34,6 +34,9 @@ public class XxlJobLog {
 	// alarm info
 	private int alarmStatus;
 
+	// workflow info, 0 if not triggered by workflow
+	private long workflowNodeId;
+
 	public long getId() {
 		return id;
 	}
@@ -154,4 +157,12 @@ public class XxlJobLog {
 		this.alarmStatus = alarmStatus;
 	}
 
+	public long getWorkflowNodeId() {
+		return workflowNodeId;
+	}
+
+	public void setWorkflowNodeId(long workflowNodeId) {
+		this.workflowNodeId = workflowNodeId;
+	}
+
 }
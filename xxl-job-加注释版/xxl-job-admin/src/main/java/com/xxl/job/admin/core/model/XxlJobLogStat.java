@@ -0,0 +1,180 @@
+package com.xxl.job.admin.core.model;
+
+import java.util.Date;
+
+/**
+ * job log stat, time series of job execution
+ *
+ * @see com.xxl.job.admin.core.thread.JobLogStatHelper
+ */
+public class XxlJobLogStat {
+
+    private long id;
+    private int statPeriod;        // 统计粒度：1-分钟、2-小时、3-天
+    private Date statTime;         // 粒度起始时间
+    private int jobGroup;
+    private int jobId;
+    private int triggerCount;
+    private int sucCount;
+    private int failCount;
+    private long durationSum;
+    private long durationMax;
+    // 执行耗时分布，见 "JobLogStatHelper.DURATION_BOUNDS"
+    private int durationB0;
+    private int durationB1;
+    private int durationB2;
+    private int durationB3;
+    private int durationB4;
+    private int durationB5;
+    private int durationB6;
+    private int durationB7;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public int getStatPeriod() {
+        return statPeriod;
+    }
+
+    public void setStatPeriod(int statPeriod) {
+        this.statPeriod = statPeriod;
+    }
+
+    public Date getStatTime() {
+        return statTime;
+    }
+
+    public void setStatTime(Date statTime) {
+        this.statTime = statTime;
+    }
+
+    public int getJobGroup() {
+        return jobGroup;
+    }
+
+    public void setJobGroup(int jobGroup) {
+        this.jobGroup = jobGroup;
+    }
+
+    public int getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(int jobId) {
+        this.jobId = jobId;
+    }
+
+    public int getTriggerCount() {
+        return triggerCount;
+    }
+
+    public void setTriggerCount(int triggerCount) {
+        this.triggerCount = triggerCount;
+    }
+
+    public int getSucCount() {
+        return sucCount;
+    }
+
+    public void setSucCount(int sucCount) {
+        this.sucCount = sucCount;
+    }
+
+    public int getFailCount() {
+        return failCount;
+    }
+
+    public void setFailCount(int failCount) {
+        this.failCount = failCount;
+    }
+
+    public long getDurationSum() {
+        return durationSum;
+    }
+
+    public void setDurationSum(long durationSum) {
+        this.durationSum = durationSum;
+    }
+
+    public long getDurationMax() {
+        return durationMax;
+    }
+
+    public void setDurationMax(long durationMax) {
+        this.durationMax = durationMax;
+    }
+
+    public int getDurationB0() {
+        return durationB0;
+    }
+
+    public void setDurationB0(int durationB0) {
+        this.durationB0 = durationB0;
+    }
+
+    public int getDurationB1() {
+        return durationB1;
+    }
+
+    public void setDurationB1(int durationB1) {
+        this.durationB1 = durationB1;
+    }
+
+    public int getDurationB2() {
+        return durationB2;
+    }
+
+    public void setDurationB2(int durationB2) {
+        this.durationB2 = durationB2;
+    }
+
+    public int getDurationB3() {
+        return durationB3;
+    }
+
+    public void setDurationB3(int durationB3) {
+        this.durationB3 = durationB3;
+    }
+
+    public int getDurationB4() {
+        return durationB4;
+    }
+
+    public void setDurationB4(int durationB4) {
+        this.durationB4 = durationB4;
+    }
+
+    public int getDurationB5() {
+        return durationB5;
+    }
+
+    public void setDurationB5(int durationB5) {
+        this.durationB5 = durationB5;
+    }
+
+    public int getDurationB6() {
+        return durationB6;
+    }
+
+    public void setDurationB6(int durationB6) {
+        this.durationB6 = durationB6;
+    }
+
+    public int getDurationB7() {
+        return durationB7;
+    }
+
+    public void setDurationB7(int durationB7) {
+        this.durationB7 = durationB7;
+    }
+
+    public int[] getDurationBuckets() {
+        return new int[]{durationB0, durationB1, durationB2, durationB3, durationB4, durationB5, durationB6, durationB7};
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.xxl.job.admin.core.model;
+
+import java.util.Date;
+
+/**
+ * workflow, DAG of job
+ */
+public class XxlJobWorkflow {
+
+    private int id;
+    private int jobGroup; // 执行器主键ID，用于权限控制
+    private String workflowDesc;
+    private String author;
+    private String graph; // DAG 定义，JSON，见 WorkflowGraph
+    private Date addTime;
+    private Date updateTime;
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public int getJobGroup() {
+        return jobGroup;
+    }
+
+    public void setJobGroup(int jobGroup) {
+        this.jobGroup = jobGroup;
+    }
+
+    public String getWorkflowDesc() {
+        return workflowDesc;
+    }
+
+    public void setWorkflowDesc(String workflowDesc) {
+        this.workflowDesc = workflowDesc;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    public String getGraph() {
+        return graph;
+    }
+
+    public void setGraph(String graph) {
+        this.graph = graph;
+    }
+
+    public Date getAddTime() {
+        return addTime;
+    }
+
+    public void setAddTime(Date addTime) {
+        this.addTime = addTime;
+    }
+
+    public Date getUpdateTime() {
+        return updateTime;
+    }
+
+    public void setUpdateTime(Date updateTime) {
+        this.updateTime = updateTime;
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.xxl.job.admin.core.model;
+
+import java.util.Date;
+
+/**
+ * workflow node of run, one job in DAG
+ */
+public class XxlJobWorkflowNode {
+
+    private long id;
+    private long runId;
+    private int jobId;
+    private int nodeStatus; // 0-等待、1-运行中、2-成功、3-失败、4-跳过
+    private int logCount; // 调度日志数量，分片广播时为分片数
+    private int finishCount;
+    private int failCount;
+    private Date updateTime;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public long getRunId() {
+        return runId;
+    }
+
+    public void setRunId(long runId) {
+        this.runId = runId;
+    }
+
+    public int getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(int jobId) {
+        this.jobId = jobId;
+    }
+
+    public int getNodeStatus() {
+        return nodeStatus;
+    }
+
+    public void setNodeStatus(int nodeStatus) {
+        this.nodeStatus = nodeStatus;
+    }
+
+    public int getLogCount() {
+        return logCount;
+    }
+
+    public void setLogCount(int logCount) {
+        this.logCount = logCount;
+    }
+
+    public int getFinishCount() {
+        return finishCount;
+    }
+
+    public void setFinishCount(int finishCount) {
+        this.finishCount = finishCount;
+    }
+
+    public int getFailCount() {
+        return failCount;
+    }
+
+    public void setFailCount(int failCount) {
+        this.failCount = failCount;
+    }
+
+    public Date getUpdateTime() {
+        return updateTime;
+    }
+
+    public void setUpdateTime(Date updateTime) {
+        this.updateTime = updateTime;
+    }
+
+}
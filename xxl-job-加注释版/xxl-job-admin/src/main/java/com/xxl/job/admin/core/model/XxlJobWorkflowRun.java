@@ -0,0 +1,65 @@
+package com.xxl.job.admin.core.model;
+
+import java.util.Date;
+
+/**
+ * workflow run, one trigger of workflow
+ */
+public class XxlJobWorkflowRun {
+
+    private long id;
+    private int workflowId;
+    private String graph; // 触发时的 DAG 快照
+    private int runStatus; // 0-运行中、1-成功、2-失败
+    private Date triggerTime;
+    private Date finishTime;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public int getWorkflowId() {
+        return workflowId;
+    }
+
+    public void setWorkflowId(int workflowId) {
+        this.workflowId = workflowId;
+    }
+
+    public String getGraph() {
+        return graph;
+    }
+
+    public void setGraph(String graph) {
+        this.graph = graph;
+    }
+
+    public int getRunStatus() {
+        return runStatus;
+    }
+
+    public void setRunStatus(int runStatus) {
+        this.runStatus = runStatus;
+    }
+
+    public Date getTriggerTime() {
+        return triggerTime;
+    }
+
+    public void setTriggerTime(Date triggerTime) {
+        this.triggerTime = triggerTime;
+    }
+
+    public Date getFinishTime() {
+        return finishTime;
+    }
+
+    public void setFinishTime(Date finishTime) {
+        this.finishTime = finishTime;
+    }
+
+}
@@ -13,6 +13,8 @@ public enum ExecutorRouteStrategyEnum {
     LAST(I18nUtil.getString("jobconf_route_last"), new ExecutorRouteLast()),
     // 轮询
     ROUND(I18nUtil.getString("jobconf_route_round"), new ExecutorRouteRound()),
+    // 加权轮询
+    WEIGHT_ROUND(I18nUtil.getString("jobconf_route_weight_round"), new ExecutorRouteWeightRound()),
     // 随机
     RANDOM(I18nUtil.getString("jobconf_route_random"), new ExecutorRouteRandom()),
     // 一致性HASH
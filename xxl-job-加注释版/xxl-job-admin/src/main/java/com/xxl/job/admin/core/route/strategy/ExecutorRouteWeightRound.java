@@ -0,0 +1,98 @@
+package com.xxl.job.admin.core.route.strategy;
+
+import com.xxl.job.admin.core.route.ExecutorRouter;
+import com.xxl.job.admin.core.thread.JobRegistryMonitorHelper;
+import com.xxl.job.core.biz.model.ReturnT;
+import com.xxl.job.core.biz.model.TriggerParam;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 平滑加权轮询（smooth weighted round-robin，同 nginx）：
+ *      a、每次选举，所有机器 currentWeight += weight，选出 currentWeight 最大的机器，并将其 currentWeight -= totalWeight；
+ *      b、weight 由执行器注册时上报，未上报（如手动录入地址）按默认权重处理；
+ *      c、单个JOB的选举状态为不可变快照，通过CAS替换，无锁；
+ */
+public class ExecutorRouteWeightRound extends ExecutorRouter {
+
+    private static ConcurrentMap<Integer, AtomicReference<WeightRoundState>> routeStateEachJob = new ConcurrentHashMap<Integer, AtomicReference<WeightRoundState>>();
+    private static volatile long CACHE_VALID_TIME = 0;
+
+    /**
+     * route state of one job, immutable
+     */
+    private static class WeightRoundState {
+        private final List<String> addressList;
+        private final int[] weights;
+        private final long[] currentWeights;
+
+        private WeightRoundState(List<String> addressList, int[] weights, long[] currentWeights) {
+            this.addressList = addressList;
+            this.weights = weights;
+            this.currentWeights = currentWeights;
+        }
+
+        private boolean match(List<String> addressList, int[] weights) {
+            return this.addressList.equals(addressList) && Arrays.equals(this.weights, weights);
+        }
+    }
+
+    public String route(int jobId, List<String> addressList, int[] weights) {
+
+        // cache clear
+        if (System.currentTimeMillis() > CACHE_VALID_TIME) {
+            routeStateEachJob.clear();
+            CACHE_VALID_TIME = System.currentTimeMillis() + 1000*60*60*24;
+        }
+
+        AtomicReference<WeightRoundState> stateRef = routeStateEachJob.get(jobId);
+        if (stateRef == null) {
+            // use own or winner ref, cache may be cleared concurrently
+            AtomicReference<WeightRoundState> newStateRef = new AtomicReference<WeightRoundState>();
+            AtomicReference<WeightRoundState> existStateRef = routeStateEachJob.putIfAbsent(jobId, newStateRef);
+            stateRef = existStateRef!=null?existStateRef:newStateRef;
+        }
+
+        while (true) {
+            WeightRoundState oldState = stateRef.get();
+
+            // address or weight changed, reset current weight
+            long[] currentWeights = (oldState!=null && oldState.match(addressList, weights))
+                    ?oldState.currentWeights.clone()
+                    :new long[addressList.size()];
+
+            // select max current weight
+            long totalWeight = 0;
+            int selected = -1;
+            for (int i = 0; i < currentWeights.length; i++) {
+                currentWeights[i] += weights[i];
+                totalWeight += weights[i];
+                if (selected == -1 || currentWeights[i] > currentWeights[selected]) {
+                    selected = i;
+                }
+            }
+            currentWeights[selected] -= totalWeight;
+
+            WeightRoundState newState = new WeightRoundState(addressList, weights, currentWeights);
+            if (stateRef.compareAndSet(oldState, newState)) {
+                return addressList.get(selected);
+            }
+        }
+    }
+
+    @Override
+    public ReturnT<String> route(TriggerParam triggerParam, List<String> addressList) {
+        int[] weights = new int[addressList.size()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = JobRegistryMonitorHelper.getInstance().getAddressWeight(addressList.get(i));
+        }
+
+        String address = route(triggerParam.getJobId(), addressList, weights);
+        return new ReturnT<String>(address);
+    }
+
+}
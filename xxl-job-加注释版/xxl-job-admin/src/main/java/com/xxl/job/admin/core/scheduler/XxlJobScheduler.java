@@ -36,10 +36,30 @@ public class  XxlJobScheduler  {
         // 初始化fastTriggerPool、slowTriggerPool两种线程池
         // admin trigger pool start
         JobTriggerPoolHelper.toStart();
+
+        // admin trigger batch, fires to same executor within window sent by one request
+        JobTriggerBatchHelper.getInstance().start(XxlJobAdminConfig.getAdminConfig().getTriggerBatchWindow(),
+                XxlJobAdminConfig.getAdminConfig().getTriggerBatchMaxSize());
         // 计算&汇总任务执行日志信息并更新xxl_job_log_report表
         // admin log report start
         JobLogReportHelper.getInstance().start();
 
+        // admin log stat start
+        JobLogStatHelper.getInstance().start();
+
+        // admin log archive start
+        JobLogArchiveHelper.getInstance().start();
+
+        // admin workflow start
+        JobWorkflowHelper.getInstance().start();
+
+        // admin executor channel start, disabled if port not set
+        JobChannelHelper.getInstance().start(XxlJobAdminConfig.getAdminConfig().getChannelPort(),
+                XxlJobAdminConfig.getAdminConfig().getAccessToken(),
+                XxlJobAdminConfig.getAdminConfig().getAdminBiz(),
+                XxlJobAdminConfig.getAdminConfig().getExecutorBizBeatTimeout(),
+                XxlJobAdminConfig.getAdminConfig().getExecutorBizTimeout());
+
         // start-schedule   调度器，死循环，在xxl_job_info表里取将要执行的任务，更新下次执行时间的，调用JobTriggerPoolHelper类，来给执行器发送调度任务的
         JobScheduleHelper.getInstance().start();
 
@@ -55,9 +75,24 @@ public class  XxlJobScheduler  {
         // admin log report stop
         JobLogReportHelper.getInstance().toStop();
 
+        // admin log stat stop
+        JobLogStatHelper.getInstance().toStop();
+
+        // admin log archive stop
+        JobLogArchiveHelper.getInstance().toStop();
+
+        // admin workflow stop
+        JobWorkflowHelper.getInstance().toStop();
+
         // admin trigger pool stop
         JobTriggerPoolHelper.toStop();
 
+        // admin trigger batch stop
+        JobTriggerBatchHelper.getInstance().toStop();
+
+        // admin executor channel stop
+        JobChannelHelper.getInstance().toStop();
+
         // admin lose-monitor stop
         JobLosedMonitorHelper.getInstance().toStop();
 
@@ -85,15 +120,25 @@ public class  XxlJobScheduler  {
             return null;
         }
 
-        // load-cache
+        // executor connected by channel
         address = address.trim();
-        ExecutorBiz executorBiz = executorBizRepository.get(address);
+        ExecutorBiz executorBiz = JobChannelHelper.getInstance().getExecutorBiz(address);
+        if (executorBiz != null) {
+            return executorBiz;
+        }
+
+        // load-cache
+        executorBiz = executorBizRepository.get(address);
         if (executorBiz != null) {
             return executorBiz;
         }
 
         // set-cache
-        executorBiz = new ExecutorBizClient(address, XxlJobAdminConfig.getAdminConfig().getAccessToken());
+        ExecutorBizClient executorBizClient = new ExecutorBizClient(address, XxlJobAdminConfig.getAdminConfig().getAccessToken());
+        executorBizClient.setTimeout(XxlJobAdminConfig.getAdminConfig().getExecutorBizConnectTimeout(),
+                XxlJobAdminConfig.getAdminConfig().getExecutorBizBeatTimeout(),
+                XxlJobAdminConfig.getAdminConfig().getExecutorBizTimeout());
+        executorBiz = executorBizClient;
 
         executorBizRepository.put(address, executorBiz);
         return executorBiz;
@@ -0,0 +1,246 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.core.biz.AdminBiz;
+import com.xxl.job.core.biz.ExecutorBiz;
+import com.xxl.job.core.biz.model.HandleCallbackParam;
+import com.xxl.job.core.biz.model.RegistryParam;
+import com.xxl.job.core.biz.model.ReturnT;
+import com.xxl.job.core.channel.ChannelExecutorBiz;
+import com.xxl.job.core.channel.ChannelFrame;
+import com.xxl.job.core.channel.ExecutorChannelClient;
+import com.xxl.job.core.channel.XxlJobChannel;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * 执行器长连接通道
+ * executor channel, executor connect to admin and keep one long-lived connection
+ *
+ *      a、执行器主动连接（可位于NAT之后），首帧 "auth" 校验 accessToken，此后注册、心跳、回调经该连接上报；
+ *      b、注册成功后绑定 "registryValue -> channel"，调度中心对该地址的 run/kill/log/beat/idleBeat 经通道下发，未绑定时仍走HTTP；
+ *      c、连接断开（或空闲超时）时解除本地绑定，并在内存注册表中标记该地址下线，路由立即跳过，下次注册时恢复；注册表记录不删除，仍由注册超时清理；
+ */
+public class JobChannelHelper {
+    private static Logger logger = LoggerFactory.getLogger(JobChannelHelper.class);
+
+    private static JobChannelHelper instance = new JobChannelHelper();
+    public static JobChannelHelper getInstance(){
+        return instance;
+    }
+
+    private AdminBiz adminBiz;
+    private String accessToken;
+    private int beatTimeout;
+    private int timeout;
+
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private ThreadPoolExecutor channelBizPool;
+    private volatile boolean toStop = false;
+
+    // registryValue -> executor biz, over channel
+    private final ConcurrentMap<String, ChannelExecutorBiz> executorBizMap = new ConcurrentHashMap<String, ChannelExecutorBiz>();
+
+
+    public void start(int port, String accessToken, AdminBiz adminBiz, int beatTimeout, int timeout){
+        if (port <= 0) {
+            return;     // disabled
+        }
+        this.adminBiz = adminBiz;
+        this.accessToken = accessToken;
+        this.beatTimeout = beatTimeout;
+        this.timeout = timeout;
+        toStop = false;
+
+        channelBizPool = new ThreadPoolExecutor(
+                10,
+                200,
+                60L,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(2000),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        return new Thread(r, "xxl-job, admin JobChannelHelper-channelBizPool-" + r.hashCode());
+                    }
+                });
+
+        bossGroup = new NioEventLoopGroup(1);
+        workerGroup = new NioEventLoopGroup();
+        try {
+            ServerBootstrap bootstrap = new ServerBootstrap();
+            bootstrap.group(bossGroup, workerGroup)
+                    .channel(NioServerSocketChannel.class)
+                    .childHandler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        public void initChannel(SocketChannel channel) throws Exception {
+                            XxlJobChannel.initPipeline(channel.pipeline())
+                                    .addFirst(new IdleStateHandler(0, 0, 30 * 3, TimeUnit.SECONDS))   // beat 3N, close if idle
+                                    .addLast(new AdminChannelHandler());
+                        }
+                    })
+                    .childOption(ChannelOption.SO_KEEPALIVE, true)
+                    .childOption(ChannelOption.TCP_NODELAY, true);
+            bootstrap.bind(port).sync();
+            logger.info(">>>>>>>>>>> xxl-job, admin JobChannelHelper start success, port = {}", port);
+        } catch (Exception e) {
+            logger.error(">>>>>>>>>>> xxl-job, admin JobChannelHelper start error, port = {}", port, e);
+            toStop();
+        }
+    }
+
+    public void toStop(){
+        toStop = true;
+        if (workerGroup == null) {
+            return;
+        }
+
+        executorBizMap.clear();
+        bossGroup.shutdownGracefully();
+        workerGroup.shutdownGracefully();
+        channelBizPool.shutdownNow();
+        workerGroup = null;
+        logger.info(">>>>>>>>>>> xxl-job, admin JobChannelHelper stop");
+    }
+
+
+    // ---------------------- executor biz ----------------------
+
+    /**
+     * executor biz over channel, null if executor not connected
+     */
+    public ExecutorBiz getExecutorBiz(String address) {
+        ChannelExecutorBiz executorBiz = executorBizMap.get(address);
+        if (executorBiz != null && executorBiz.getChannel().isActive()) {
+            return executorBiz;
+        }
+        return null;
+    }
+
+
+    // ---------------------- channel handler ----------------------
+
+    /**
+     * one per connection
+     */
+    private class AdminChannelHandler extends SimpleChannelInboundHandler<ByteBuf> implements XxlJobChannel.RequestHandler {
+
+        private XxlJobChannel xxlJobChannel;
+        private volatile boolean authed = false;
+        private final Map<String, RegistryParam> registryMap = new ConcurrentHashMap<String, RegistryParam>();
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            xxlJobChannel = new XxlJobChannel(ctx.channel(), this, channelBizPool);
+            super.channelActive(ctx);
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) throws Exception {
+            xxlJobChannel.receive(ChannelFrame.decode(msg));
+        }
+
+        @Override
+        public Object handle(XxlJobChannel channel, String uri, Object body) throws Exception {
+
+            // auth, first request
+            if (ExecutorChannelClient.URI_AUTH.equals(uri)) {
+                if (accessToken!=null
+                        && accessToken.trim().length()>0
+                        && !accessToken.equals(body)) {
+                    return new ReturnT<String>(ReturnT.FAIL_CODE, "The access token is wrong.");
+                }
+                authed = true;
+                return ReturnT.SUCCESS;
+            }
+            if (!authed) {
+                return new ReturnT<String>(ReturnT.FAIL_CODE, "The access token is wrong.");
+            }
+
+            // services mapping
+            if (ExecutorChannelClient.URI_REGISTRY.equals(uri)) {
+                RegistryParam registryParam = (RegistryParam) body;
+                ReturnT<String> result = adminBiz.registry(registryParam);
+                if (result.getCode() == ReturnT.SUCCESS_CODE) {
+                    registryMap.put(registryParam.getRegistryValue(), registryParam);
+                    ChannelExecutorBiz executorBiz = executorBizMap.get(registryParam.getRegistryValue());
+                    if (executorBiz == null || executorBiz.getChannel() != channel) {
+                        executorBizMap.put(registryParam.getRegistryValue(), new ChannelExecutorBiz(channel, beatTimeout, timeout));
+                    }
+                }
+                return result;
+            } else if (ExecutorChannelClient.URI_REGISTRY_REMOVE.equals(uri)) {
+                RegistryParam registryParam = (RegistryParam) body;
+                unbind(registryParam.getRegistryValue());
+                return adminBiz.registryRemove(registryParam);
+            } else if (ExecutorChannelClient.URI_CALLBACK.equals(uri)) {
+                return adminBiz.callback((List<HandleCallbackParam>) body);
+            } else {
+                return new ReturnT<String>(ReturnT.FAIL_CODE, "invalid request, uri-mapping(" + uri + ") not found.");
+            }
+        }
+
+        private void unbind(String registryValue) {
+            registryMap.remove(registryValue);
+            ChannelExecutorBiz executorBiz = executorBizMap.get(registryValue);
+            if (executorBiz != null && executorBiz.getChannel() == xxlJobChannel) {
+                executorBizMap.remove(registryValue, executorBiz);
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            xxlJobChannel.close();
+
+            // unbind, fall back to http; mark address down in memory at once, db registry left to dead-timeout
+            for (final RegistryParam registryParam: registryMap.values()) {
+                unbind(registryParam.getRegistryValue());
+                if (toStop
+                        || !JobRegistryMonitorHelper.getInstance().registryDown(registryParam.getRegistryGroup(), registryParam.getRegistryKey(), registryParam.getRegistryValue())) {
+                    continue;
+                }
+                logger.info(">>>>>>>>>>> xxl-job, executor channel closed, registry down:{}", registryParam);
+                try {
+                    channelBizPool.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            JobRegistryMonitorHelper.getInstance().freshGroupRegistryInfo(registryParam.getRegistryKey());
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    logger.warn(">>>>>>>>>>> xxl-job, executor channel closed, fresh group registry rejected:{}", registryParam);
+                }
+            }
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+            if (evt instanceof IdleStateEvent) {
+                ctx.channel().close();      // beat 3N, close if idle
+                logger.debug(">>>>>>>>>>> xxl-job, admin JobChannelHelper close an idle channel.");
+            } else {
+                super.userEventTriggered(ctx, evt);
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+            logger.error(">>>>>>>>>>> xxl-job, admin JobChannelHelper caught exception", cause);
+            ctx.close();
+        }
+    }
+
+}
@@ -7,18 +7,25 @@ import com.xxl.job.admin.core.trigger.TriggerTypeEnum;
 import com.xxl.job.admin.core.util.I18nUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.TimeUnit;
 
 /**
  * job monitor instance
  *
+ *      a、批量锁定：事务内 "SELECT ... FOR UPDATE" 锁定失败日志并批量置为锁定状态，批量加载日志及任务信息；
+ *      b、失败重试：投递至触发线程池并行触发，重试标记批量更新；
+ *      c、失败告警：推送至 JobAlarmer 聚合后异步发送，并回写告警状态；
+ *
  * @author xuxueli 2015-9-1 18:05:56
  */
 public class JobFailMonitorHelper {
 	private static Logger logger = LoggerFactory.getLogger(JobFailMonitorHelper.class);
-	
+
 	private static JobFailMonitorHelper instance = new JobFailMonitorHelper();
 	public static JobFailMonitorHelper getInstance(){
 		return instance;
@@ -29,6 +36,9 @@ public class JobFailMonitorHelper {
 	private Thread monitorThread;
 	private volatile boolean toStop = false;
 	public void start(){
+		// alarm pipeline
+		XxlJobAdminConfig.getAdminConfig().getJobAlarmer().start();
+
 		monitorThread = new Thread(new Runnable() {
 
 			@Override
@@ -40,34 +50,11 @@ public class JobFailMonitorHelper {
 
 						List<Long> failLogIds = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().findFailJobLogIds(1000);
 						if (failLogIds!=null && !failLogIds.isEmpty()) {
-							for (long failLogId: failLogIds) {
-
-								// lock log
-								int lockRet = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().updateAlarmStatus(failLogId, 0, -1);
-								if (lockRet < 1) {
-									continue;
-								}
-								XxlJobLog log = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().load(failLogId);
-								XxlJobInfo info = XxlJobAdminConfig.getAdminConfig().getXxlJobInfoDao().loadById(log.getJobId());
-
-								// 1、fail retry monitor
-								if (log.getExecutorFailRetryCount() > 0) {
-									JobTriggerPoolHelper.trigger(log.getJobId(), TriggerTypeEnum.RETRY, (log.getExecutorFailRetryCount()-1), log.getExecutorShardingParam(), log.getExecutorParam(), null);
-									String retryMsg = "<br><br><span style=\"color:#F39C12;\" > >>>>>>>>>>>"+ I18nUtil.getString("jobconf_trigger_type_retry") +"<<<<<<<<<<< </span><br>";
-									log.setTriggerMsg(log.getTriggerMsg() + retryMsg);
-									XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().updateTriggerInfo(log);
-								}
-
-								// 2、fail alarm monitor
-								int newAlarmStatus = 0;		// 告警状态：0-默认、-1=锁定状态、1-无需告警、2-告警成功、3-告警失败
-								if (info!=null && info.getAlarmEmail()!=null && info.getAlarmEmail().trim().length()>0) {
-									boolean alarmResult = XxlJobAdminConfig.getAdminConfig().getJobAlarmer().alarm(info, log);
-									newAlarmStatus = alarmResult?2:3;
-								} else {
-									newAlarmStatus = 1;
-								}
-
-								XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().updateAlarmStatus(failLogId, -1, newAlarmStatus);
+
+							// lock log
+							List<Long> lockedLogIds = lockFailLog(failLogIds);
+							if (!lockedLogIds.isEmpty()) {
+								processFailLog(lockedLogIds);
 							}
 						}
 
@@ -96,6 +83,71 @@ public class JobFailMonitorHelper {
 		monitorThread.start();
 	}
 
+	/**
+	 * lock fail log in batch, alarm status: 0 -> -1
+	 *
+	 * @return locked log ids, by this admin
+	 */
+	private List<Long> lockFailLog(final List<Long> failLogIds) {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(XxlJobAdminConfig.getAdminConfig().getTransactionManager());
+		List<Long> lockedLogIds = transactionTemplate.execute(new TransactionCallback<List<Long>>() {
+			@Override
+			public List<Long> doInTransaction(TransactionStatus status) {
+				List<Long> logIds = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().findAlarmStatusForUpdate(failLogIds, 0);
+				if (logIds!=null && !logIds.isEmpty()) {
+					XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().updateAlarmStatusBatch(logIds, 0, -1);
+				}
+				return logIds;
+			}
+		});
+		return lockedLogIds!=null?lockedLogIds:new ArrayList<Long>();
+	}
+
+	/**
+	 * process locked fail log: retry, alarm
+	 */
+	private void processFailLog(List<Long> lockedLogIds) {
+		List<XxlJobLog> logList = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().loadByIds(lockedLogIds);
+
+		Set<Integer> jobIds = new HashSet<Integer>();
+		for (XxlJobLog log: logList) {
+			jobIds.add(log.getJobId());
+		}
+		Map<Integer, XxlJobInfo> infoMap = new HashMap<Integer, XxlJobInfo>();
+		if (!jobIds.isEmpty()) {
+			for (XxlJobInfo info: XxlJobAdminConfig.getAdminConfig().getXxlJobInfoDao().loadByIds(jobIds)) {
+				infoMap.put(info.getId(), info);
+			}
+		}
+
+		List<Long> retryLogIds = new ArrayList<Long>();
+		List<Long> noAlarmLogIds = new ArrayList<Long>();
+		for (XxlJobLog log: logList) {
+
+			// 1、fail retry monitor
+			if (log.getExecutorFailRetryCount() > 0) {
+				JobTriggerPoolHelper.trigger(log.getJobId(), TriggerTypeEnum.RETRY, (log.getExecutorFailRetryCount()-1), log.getExecutorShardingParam(), log.getExecutorParam(), null, log.getWorkflowNodeId());
+				retryLogIds.add(log.getId());
+			}
+
+			// 2、fail alarm monitor
+			XxlJobInfo info = infoMap.get(log.getJobId());
+			if (info!=null && info.getAlarmEmail()!=null && info.getAlarmEmail().trim().length()>0) {
+				XxlJobAdminConfig.getAdminConfig().getJobAlarmer().push(info, log);
+			} else {
+				noAlarmLogIds.add(log.getId());
+			}
+		}
+
+		if (!retryLogIds.isEmpty()) {
+			String retryMsg = "<br><br><span style=\"color:#F39C12;\" > >>>>>>>>>>>"+ I18nUtil.getString("jobconf_trigger_type_retry") +"<<<<<<<<<<< </span><br>";
+			XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().appendTriggerMsg(retryLogIds, retryMsg);
+		}
+		if (!noAlarmLogIds.isEmpty()) {
+			XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().updateAlarmStatusBatch(noAlarmLogIds, -1, 1);
+		}
+	}
+
 	public void toStop(){
 		toStop = true;
 		// interrupt and wait
@@ -105,6 +157,9 @@ public class JobFailMonitorHelper {
 		} catch (InterruptedException e) {
 			logger.error(e.getMessage(), e);
 		}
+
+		// alarm pipeline, flush and wait alarm sent
+		XxlJobAdminConfig.getAdminConfig().getJobAlarmer().toStop();
 	}
 
 }
@@ -0,0 +1,322 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.admin.core.archive.LogArchiveIndex;
+import com.xxl.job.admin.core.archive.LogArchiveStore;
+import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
+import com.xxl.job.admin.core.model.XxlJobLog;
+import com.xxl.job.core.util.DateUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * job log archive helper
+ *
+ *      a、归档：超过 "xxl.job.logarchive.days" 天的日志按天写入压缩段文件（见 LogArchiveStore），提交后按段内日志ID从日志表删除；
+ *          运行中日志不归档、不删除，保留在日志表；其结束后，每轮作为追加块写入所属天的归档，提交后删除；
+ *      b、集群：逐天持有 "archive_lock" 锁（每天单独事务提交），同一时刻仅一个调度中心归档同一天；归档目录需为共享存储；
+ *      c、查询：日志列表、日志详情在查询范围触及归档数据时，合并读取归档；
+ *      d、清理：归档保留 "xxl.job.logarchive.retentiondays" 天；
+ */
+public class JobLogArchiveHelper {
+    private static Logger logger = LoggerFactory.getLogger(JobLogArchiveHelper.class);
+
+    private static JobLogArchiveHelper instance = new JobLogArchiveHelper();
+    public static JobLogArchiveHelper getInstance(){
+        return instance;
+    }
+
+    private static final int PAGE_SIZE = 1000;
+
+    private volatile LogArchiveStore archiveStore;
+
+    /**
+     * last day archived and cleared, by this admin; only log finished late (running when archived) left in db for day before
+     */
+    private Date clearedDay;
+
+    /**
+     * archive store, null if log archive closed
+     */
+    public LogArchiveStore getArchiveStore() {
+        return archiveStore;
+    }
+
+    /**
+     * load archived log, null if not found
+     */
+    public XxlJobLog load(long id) {
+        if (archiveStore == null) {
+            return null;
+        }
+        try {
+            return archiveStore.load(id);
+        } catch (Exception e) {
+            logger.error(">>>>>>>>>>> xxl-job, log archive load error, logId:{}", id, e);
+            return null;
+        }
+    }
+
+
+    // ---------------------- archive ----------------------
+
+    private Thread archiveThread;
+    private volatile boolean toStop = false;
+    public void start(){
+        if (XxlJobAdminConfig.getAdminConfig().getLogArchiveDays() < 0) {
+            return;
+        }
+        archiveStore = new LogArchiveStore(XxlJobAdminConfig.getAdminConfig().getLogArchivePath());
+
+        archiveThread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+
+                while (!toStop) {
+
+                    // 1、archive expired log
+                    try {
+                        archive();
+                    } catch (Exception e) {
+                        if (!toStop) {
+                            logger.error(">>>>>>>>>>> xxl-job, job log archive thread error:{}", e);
+                        }
+                    }
+
+                    // 2、clean expired archive
+                    try {
+                        if (XxlJobAdminConfig.getAdminConfig().getLogArchiveRetentionDays() > 0) {
+                            Date clearBeforeTime = dayStart(DateUtil.addDays(new Date(), -1 * XxlJobAdminConfig.getAdminConfig().getLogArchiveRetentionDays()));
+                            int ret = archiveStore.cleanBefore(clearBeforeTime);
+                            if (ret > 0) {
+                                logger.info(">>>>>>>>>>> xxl-job, job log archive clean, day count:{}", ret);
+                            }
+                        }
+                    } catch (Exception e) {
+                        if (!toStop) {
+                            logger.error(">>>>>>>>>>> xxl-job, job log archive thread error:{}", e);
+                        }
+                    }
+
+                    try {
+                        TimeUnit.MINUTES.sleep(10);
+                    } catch (Exception e) {
+                        if (!toStop) {
+                            logger.error(e.getMessage(), e);
+                        }
+                    }
+
+                }
+
+                logger.info(">>>>>>>>>>> xxl-job, job log archive thread stop");
+
+            }
+        });
+        archiveThread.setDaemon(true);
+        archiveThread.setName("xxl-job, admin JobLogArchiveHelper");
+        archiveThread.start();
+    }
+
+    private static Date dayStart(Date time) {
+        Calendar day = Calendar.getInstance();
+        day.setTime(time);
+        day.set(Calendar.HOUR_OF_DAY, 0);
+        day.set(Calendar.MINUTE, 0);
+        day.set(Calendar.SECOND, 0);
+        day.set(Calendar.MILLISECOND, 0);
+        return day.getTime();
+    }
+
+    /**
+     * archive log before "xxl.job.logarchive.days", day by day, each day with "archive_lock" in own transaction
+     */
+    private void archive() throws Exception {
+        Date archiveBeforeTime = dayStart(DateUtil.addDays(new Date(), -1 * XxlJobAdminConfig.getAdminConfig().getLogArchiveDays()));
+        Date minTriggerTime = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().findMinTriggerTime();
+        if (minTriggerTime == null) {
+            return;
+        }
+
+        // day by day, from min day in db (log finished late of archived day included)
+        Date dayFrom = dayStart(minTriggerTime);
+        while (!toStop && dayFrom.before(archiveBeforeTime)) {
+            Date dayTo = DateUtil.addDays(dayFrom, 1);
+            if (!archiveDayWithLock(dayFrom, dayTo)) {
+                break;
+            }
+            if (clearedDay==null || dayFrom.after(clearedDay)) {
+                clearedDay = dayFrom;
+            }
+            dayFrom = dayTo;
+        }
+    }
+
+    /**
+     * archive one day, holding "archive_lock" in one transaction
+     *
+     * @return false if stopped, or lock not found
+     */
+    private boolean archiveDayWithLock(Date dayFrom, Date dayTo) throws Exception {
+        Connection conn = null;
+        Boolean connAutoCommit = null;
+        PreparedStatement preparedStatement = null;
+        try {
+            conn = XxlJobAdminConfig.getAdminConfig().getDataSource().getConnection();
+            connAutoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            preparedStatement = conn.prepareStatement(  "select * from xxl_job_lock where lock_name = 'archive_lock' for update" );
+            ResultSet lockResult = preparedStatement.executeQuery();
+            if (!lockResult.next()) {
+                logger.warn(">>>>>>>>>>> xxl-job, job log archive skip, lock \"archive_lock\" not found in xxl_job_lock.");
+                return false;
+            }
+
+            return archiveDay(dayFrom, dayTo);
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.commit();
+                } catch (Exception e) {
+                    logger.error(e.getMessage(), e);
+                }
+                try {
+                    if (connAutoCommit != null) {
+                        conn.setAutoCommit(connAutoCommit);
+                    }
+                } catch (Exception e) {
+                    logger.error(e.getMessage(), e);
+                }
+                try {
+                    conn.close();
+                } catch (Exception e) {
+                    logger.error(e.getMessage(), e);
+                }
+            }
+            if (preparedStatement != null) {
+                try {
+                    preparedStatement.close();
+                } catch (Exception e) {
+                    logger.error(e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * write log of day into archive (running log skipped), then clear archived log from db;
+     * day archived before, log finished late appended as extra block
+     *
+     * @return false if stopped
+     */
+    private boolean archiveDay(Date dayFrom, Date dayTo) throws Exception {
+
+        // 1、write archive, skip if committed (cleared partly last time)
+        if (!archiveStore.isArchived(dayFrom)) {
+            List<Long> archivedLogIds = writeArchive(dayFrom, dayTo, false);
+            if (archivedLogIds == null) {
+                return false;
+            }
+            if (archivedLogIds.size() > 0) {
+                logger.info(">>>>>>>>>>> xxl-job, job log archive, day:{}, count:{}", DateUtil.formatDate(dayFrom), archivedLogIds.size());
+            }
+        }
+        if (!archiveStore.isArchived(dayFrom)) {
+            return true;        // empty day (all running), no segment
+        }
+
+        // 2、clear archived log, by id of each committed block; not cleared by this admin yet only (restart, other admin archived)
+        if (clearedDay==null || dayFrom.after(clearedDay)) {
+            for (LogArchiveIndex index: archiveStore.loadDayIndex(dayFrom)) {
+                if (toStop) {
+                    return false;
+                }
+                List<Long> logIds = archiveStore.loadBlockIds(dayFrom, index);
+                if (logIds.size() > 0) {
+                    XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().clearArchiveLogs(dayFrom, dayTo, logIds);
+                }
+            }
+        }
+
+        // 3、log finished late (running when archived): append block, then clear; already archived (append not cleared, by crash) only cleared
+        List<Long> lateLogIds = writeArchive(dayFrom, dayTo, true);
+        if (lateLogIds == null) {
+            return false;
+        }
+        if (lateLogIds.size() > 0) {
+            logger.info(">>>>>>>>>>> xxl-job, job log archive append, day:{}, count:{}", DateUtil.formatDate(dayFrom), lateLogIds.size());
+            for (int from = 0; from < lateLogIds.size(); from += PAGE_SIZE) {
+                XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().clearArchiveLogs(dayFrom, dayTo, lateLogIds.subList(from, Math.min(from + PAGE_SIZE, lateLogIds.size())));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * write not running log of day in db into archive, new segment or appended block
+     *
+     * @return log ids in archive after commit (appended one, or found archived already), empty if none; null if stopped
+     */
+    private List<Long> writeArchive(Date dayFrom, Date dayTo, boolean append) throws Exception {
+        List<Long> logIds = new ArrayList<Long>();
+        int writeCount = 0;
+        LogArchiveStore.Writer writer = append?archiveStore.openAppender(dayFrom):archiveStore.openWriter(dayFrom);
+        try {
+            long lastId = 0;
+            while (true) {
+                if (toStop) {
+                    return null;     // uncommit, segment removed (or appended tail ignored)
+                }
+                List<XxlJobLog> logList = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().findArchiveLogs(dayFrom, dayTo, lastId, PAGE_SIZE);
+                if (logList==null || logList.isEmpty()) {
+                    break;
+                }
+                Set<Long> archivedIds = append?archiveStore.findArchivedIds(dayFrom, logList):new HashSet<Long>();
+                for (XxlJobLog log: logList) {
+                    if (!archivedIds.contains(log.getId())) {
+                        writer.append(log);
+                        writeCount++;
+                    }
+                    logIds.add(log.getId());
+                    lastId = log.getId();
+                }
+                if (logList.size() < PAGE_SIZE) {
+                    break;
+                }
+            }
+
+            if (writeCount > 0) {
+                writer.commit();
+            }
+            return logIds;
+        } finally {
+            writer.close();
+        }
+    }
+
+    public void toStop(){
+        if (archiveThread == null) {
+            return;
+        }
+        toStop = true;
+        // interrupt and wait
+        archiveThread.interrupt();
+        try {
+            archiveThread.join();
+        } catch (InterruptedException e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+}
@@ -0,0 +1,180 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
+import com.xxl.job.core.util.DateUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * job log partition helper, "xxl.job.log.partition"
+ *
+ *      a、分区模式：NONE-不分区（默认），DAY-按天分区，MONTH-按月分区；日志表需按 "trigger_time" RANGE COLUMNS 分区，且保留 "pmax" 分区；
+ *      b、分区维护：调度中心定期预建未来分区（按天预建7天，按月预建2个月），新分区从 "pmax" 拆分；
+ *      c、日志清理：过期日志整分区 DROP，不再逐条删除；开启日志归档时，仅 DROP 已归档天的分区，未归档日志不随分区丢失；
+ */
+public class JobLogPartitionHelper {
+    private static Logger logger = LoggerFactory.getLogger(JobLogPartitionHelper.class);
+
+    private static JobLogPartitionHelper instance = new JobLogPartitionHelper();
+    public static JobLogPartitionHelper getInstance(){
+        return instance;
+    }
+
+    public static final String NONE = "NONE";
+    public static final String DAY = "DAY";
+    public static final String MONTH = "MONTH";
+
+    private static final String MAX_PARTITION = "pmax";
+    private static final int AHEAD_DAY = 7;
+    private static final int AHEAD_MONTH = 2;
+
+    private volatile boolean partitioned = false;
+
+    /**
+     * partition mode on, and log table partitioned
+     */
+    public boolean isPartitioned() {
+        return partitioned;
+    }
+
+    /**
+     * log partition, lessThan null means MAXVALUE
+     */
+    private static class LogPartition {
+        private String name;
+        private Date lessThan;
+    }
+
+    private List<LogPartition> loadPartitions() {
+        List<LogPartition> partitionList = new ArrayList<LogPartition>();
+
+        List<Map<String, Object>> partitionMapList = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().findLogPartitions();
+        if (partitionMapList != null) {
+            for (Map<String, Object> partitionMap: partitionMapList) {
+                Object name = partitionMap.get("partitionName");
+                Object description = partitionMap.get("partitionDescription");
+                if (name == null || description == null) {
+                    continue;   // not partitioned
+                }
+
+                LogPartition partition = new LogPartition();
+                partition.name = String.valueOf(name);
+                String lessThan = String.valueOf(description).replace("'", "").trim();
+                if (!"MAXVALUE".equalsIgnoreCase(lessThan)) {
+                    partition.lessThan = DateUtil.parseDateTime(lessThan);
+                    if (partition.lessThan == null) {
+                        continue;
+                    }
+                }
+                partitionList.add(partition);
+            }
+        }
+        return partitionList;
+    }
+
+    private static Date truncate(Date date, String mode) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        if (MONTH.equals(mode)) {
+            calendar.set(Calendar.DAY_OF_MONTH, 1);
+        }
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTime();
+    }
+
+    /**
+     * check partition mode, and create partition ahead
+     */
+    public void maintain() {
+        String mode = XxlJobAdminConfig.getAdminConfig().getLogPartition();
+        if (NONE.equals(mode)) {
+            partitioned = false;
+            return;
+        }
+
+        List<LogPartition> partitionList = loadPartitions();
+        Date lastLessThan = null;
+        boolean hasMaxPartition = false;
+        for (LogPartition partition: partitionList) {
+            if (partition.lessThan == null) {
+                hasMaxPartition = MAX_PARTITION.equals(partition.name);
+            } else if (lastLessThan==null || partition.lessThan.after(lastLessThan)) {
+                lastLessThan = partition.lessThan;
+            }
+        }
+        if (!hasMaxPartition) {
+            partitioned = false;
+            logger.warn(">>>>>>>>>>> xxl-job, log partition mode [{}], but xxl_job_log not partitioned by trigger_time with partition \"pmax\", log cleaned by delete.", mode);
+            return;
+        }
+        partitioned = true;
+
+        Date nowStart = truncate(new Date(), mode);
+        Date aheadTime = DAY.equals(mode)?DateUtil.addDays(nowStart, AHEAD_DAY):DateUtil.addMonths(nowStart, AHEAD_MONTH);
+        String namePattern = DAY.equals(mode)?"yyyyMMdd":"yyyyMM";
+
+        // catch up, log before now in one partition
+        if (lastLessThan==null || lastLessThan.before(nowStart)) {
+            Date fromTime = lastLessThan!=null?lastLessThan:nowStart;
+            Date nextLessThan = DAY.equals(mode)?DateUtil.addDays(nowStart, 1):DateUtil.addMonths(nowStart, 1);
+            addPartition("p" + DateUtil.format(fromTime, namePattern), nextLessThan);
+            lastLessThan = nextLessThan;
+        }
+
+        // create ahead
+        while (!lastLessThan.after(aheadTime)) {
+            Date nextLessThan = DAY.equals(mode)?DateUtil.addDays(lastLessThan, 1):DateUtil.addMonths(lastLessThan, 1);
+            addPartition("p" + DateUtil.format(lastLessThan, namePattern), nextLessThan);
+            lastLessThan = nextLessThan;
+        }
+    }
+
+    private void addPartition(String partitionName, Date lessThan) {
+        // split from pmax, fail when created by other admin concurrently
+        XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().addLogPartition(partitionName, DateUtil.formatDateTime(lessThan));
+        logger.info(">>>>>>>>>>> xxl-job, log partition add, partition:{}, lessThan:{}", partitionName, DateUtil.formatDateTime(lessThan));
+    }
+
+    /**
+     * drop partition, all log in partition trigger before "clearBeforeTime"; clamped to archived day if log archive open
+     *
+     * @param clearBeforeTime
+     * @return dropped partition count
+     */
+    public int dropBefore(Date clearBeforeTime) {
+        if (!partitioned || clearBeforeTime==null) {
+            return 0;
+        }
+
+        // log archive open, drop archived day only
+        if (JobLogArchiveHelper.getInstance().getArchiveStore() != null) {
+            Date archiveEndTime = JobLogArchiveHelper.getInstance().getArchiveStore().getArchiveEndTime();
+            if (archiveEndTime == null) {
+                return 0;
+            }
+            if (archiveEndTime.before(clearBeforeTime)) {
+                clearBeforeTime = archiveEndTime;
+            }
+        }
+
+        List<String> partitionNames = new ArrayList<String>();
+        for (LogPartition partition: loadPartitions()) {
+            if (partition.lessThan!=null && !partition.lessThan.after(clearBeforeTime)) {
+                partitionNames.add(partition.name);
+            }
+        }
+        if (partitionNames.isEmpty()) {
+            return 0;
+        }
+
+        XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().dropLogPartitions(partitionNames);
+        logger.info(">>>>>>>>>>> xxl-job, log partition drop, partition:{}", partitionNames);
+        return partitionNames.size();
+    }
+
+}
@@ -1,19 +1,27 @@
 package com.xxl.job.admin.core.thread;
 
 import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
+import com.xxl.job.admin.core.model.XxlJobLog;
 import com.xxl.job.admin.core.model.XxlJobLogReport;
+import com.xxl.job.core.biz.model.ReturnT;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Calendar;
-import java.util.Date;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * job log report helper
  *
+ *      a、增量统计：调度、回调、丢失、终止时按 "调度日期" 在内存中累加运行中/成功/失败数量，每10秒批量累加写入 xxl_job_log_report；
+ *      b、定期校准：启动时及每 "xxl.job.logreport.reconcile" 分钟，基于日志全量重算前2天（已结束日期）报表；
+ *          当天不校准：覆盖写入时其他调度中心尚未落库的增量会被重复累加，当天增量频繁，报表将持续偏高；
+ *          已结束日期仅剩少量迟到回调，偏差可忽略，并在下次校准时修正；
+ *      c、日志清理：分区模式下过期日志整分区删除，见 JobLogPartitionHelper；
+ *
  * @author xuxueli 2019-11-22
  */
 public class JobLogReportHelper {
@@ -25,6 +33,8 @@ public class JobLogReportHelper {
     }
 
 
+    private static final int REPORT_FLUSH_INTERVAL = 10;
+
     private Thread logrThread;
     private volatile boolean toStop = false;
     public void start(){
@@ -36,64 +46,50 @@ public class JobLogReportHelper {
                 // last clean log time
                 long lastCleanLogTime = 0;
 
+                // last reconcile time
+                long lastReconcileTime = 0;
+
+                // last log partition maintain time
+                long lastPartitionTime = 0;
 
                 while (!toStop) {
 
-                    // 1、log-report refresh: refresh log report in 3 days
+                    // 1、log-report flush: incremental counter, every 10s
                     try {
+                        flushReport();
+                    } catch (Exception e) {
+                        if (!toStop) {
+                            logger.error(">>>>>>>>>>> xxl-job, job log report thread error:{}", e);
+                        }
+                    }
 
-                        for (int i = 0; i < 3; i++) {
-
-                            // today
-                            Calendar itemDay = Calendar.getInstance();
-                            itemDay.add(Calendar.DAY_OF_MONTH, -i);
-                            itemDay.set(Calendar.HOUR_OF_DAY, 0);
-                            itemDay.set(Calendar.MINUTE, 0);
-                            itemDay.set(Calendar.SECOND, 0);
-                            itemDay.set(Calendar.MILLISECOND, 0);
-
-                            Date todayFrom = itemDay.getTime();
-
-                            itemDay.set(Calendar.HOUR_OF_DAY, 23);
-                            itemDay.set(Calendar.MINUTE, 59);
-                            itemDay.set(Calendar.SECOND, 59);
-                            itemDay.set(Calendar.MILLISECOND, 999);
-
-                            Date todayTo = itemDay.getTime();
-
-                            // refresh log-report every minute
-                            XxlJobLogReport xxlJobLogReport = new XxlJobLogReport();
-                            xxlJobLogReport.setTriggerDay(todayFrom);
-                            xxlJobLogReport.setRunningCount(0);
-                            xxlJobLogReport.setSucCount(0);
-                            xxlJobLogReport.setFailCount(0);
-
-                            Map<String, Object> triggerCountMap = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().findLogReport(todayFrom, todayTo);
-                            if (triggerCountMap!=null && triggerCountMap.size()>0) {
-                                int triggerDayCount = triggerCountMap.containsKey("triggerDayCount")?Integer.valueOf(String.valueOf(triggerCountMap.get("triggerDayCount"))):0;
-                                int triggerDayCountRunning = triggerCountMap.containsKey("triggerDayCountRunning")?Integer.valueOf(String.valueOf(triggerCountMap.get("triggerDayCountRunning"))):0;
-                                int triggerDayCountSuc = triggerCountMap.containsKey("triggerDayCountSuc")?Integer.valueOf(String.valueOf(triggerCountMap.get("triggerDayCountSuc"))):0;
-                                int triggerDayCountFail = triggerDayCount - triggerDayCountRunning - triggerDayCountSuc;
-
-                                xxlJobLogReport.setRunningCount(triggerDayCountRunning);
-                                xxlJobLogReport.setSucCount(triggerDayCountSuc);
-                                xxlJobLogReport.setFailCount(triggerDayCountFail);
+                    // 2、log-report reconcile: recompute log report of closed days (yesterday and before), on start & each "xxl.job.logreport.reconcile" minutes
+                    if (System.currentTimeMillis() - lastReconcileTime > XxlJobAdminConfig.getAdminConfig().getLogReportReconcile()*60*1000L) {
+                        try {
+                            for (int i = 1; i < 3; i++) {
+                                reconcileReport(i);
                             }
-
-                            // do refresh
-                            int ret = XxlJobAdminConfig.getAdminConfig().getXxlJobLogReportDao().update(xxlJobLogReport);
-                            if (ret < 1) {
-                                XxlJobAdminConfig.getAdminConfig().getXxlJobLogReportDao().save(xxlJobLogReport);
+                        } catch (Exception e) {
+                            if (!toStop) {
+                                logger.error(">>>>>>>>>>> xxl-job, job log report thread error:{}", e);
                             }
                         }
+                        lastReconcileTime = System.currentTimeMillis();
+                    }
 
-                    } catch (Exception e) {
-                        if (!toStop) {
-                            logger.error(">>>>>>>>>>> xxl-job, job log report thread error:{}", e);
+                    // 3、log-partition: check partition mode and create partition ahead, each hour
+                    if (System.currentTimeMillis() - lastPartitionTime > 60*60*1000) {
+                        try {
+                            JobLogPartitionHelper.getInstance().maintain();
+                        } catch (Exception e) {
+                            if (!toStop) {
+                                logger.error(">>>>>>>>>>> xxl-job, job log partition maintain error:{}", e);
+                            }
                         }
+                        lastPartitionTime = System.currentTimeMillis();
                     }
 
-                    // 2、log-clean: switch open & once each day
+                    // 4、log-clean: switch open & once each day
                     if (XxlJobAdminConfig.getAdminConfig().getLogretentiondays()>0
                             && System.currentTimeMillis() - lastCleanLogTime > 24*60*60*1000) {
 
@@ -106,7 +102,16 @@ public class JobLogReportHelper {
                         expiredDay.set(Calendar.MILLISECOND, 0);
                         Date clearBeforeTime = expiredDay.getTime();
 
-                        // clean expired log
+                        // drop expired log partition
+                        try {
+                            JobLogPartitionHelper.getInstance().dropBefore(clearBeforeTime);
+                        } catch (Exception e) {
+                            if (!toStop) {
+                                logger.error(">>>>>>>>>>> xxl-job, job log partition drop error:{}", e);
+                            }
+                        }
+
+                        // clean expired log (remaining)
                         List<Long> logIds = null;
                         do {
                             logIds = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().findClearLogIds(0, 0, clearBeforeTime, 0, 1000);
@@ -120,7 +125,7 @@ public class JobLogReportHelper {
                     }
 
                     try {
-                        TimeUnit.MINUTES.sleep(1);
+                        TimeUnit.SECONDS.sleep(REPORT_FLUSH_INTERVAL);
                     } catch (Exception e) {
                         if (!toStop) {
                             logger.error(e.getMessage(), e);
@@ -129,6 +134,13 @@ public class JobLogReportHelper {
 
                 }
 
+                // flush remaining
+                try {
+                    flushReport();
+                } catch (Exception e) {
+                    logger.error(">>>>>>>>>>> xxl-job, job log report thread error:{}", e);
+                }
+
                 logger.info(">>>>>>>>>>> xxl-job, job log report thread stop");
 
             }
@@ -138,6 +150,200 @@ public class JobLogReportHelper {
         logrThread.start();
     }
 
+    /**
+     * recompute log report of day, by log; closed day only, absolute overwrite double counts unflushed delta of other admin
+     */
+    private void reconcileReport(int dayOffset) {
+
+        // today
+        Calendar itemDay = Calendar.getInstance();
+        itemDay.add(Calendar.DAY_OF_MONTH, -dayOffset);
+        itemDay.set(Calendar.HOUR_OF_DAY, 0);
+        itemDay.set(Calendar.MINUTE, 0);
+        itemDay.set(Calendar.SECOND, 0);
+        itemDay.set(Calendar.MILLISECOND, 0);
+
+        Date todayFrom = itemDay.getTime();
+
+        itemDay.set(Calendar.HOUR_OF_DAY, 23);
+        itemDay.set(Calendar.MINUTE, 59);
+        itemDay.set(Calendar.SECOND, 59);
+        itemDay.set(Calendar.MILLISECOND, 999);
+
+        Date todayTo = itemDay.getTime();
+
+        // flush counter before recompute, avoid counted twice
+        flushReport();
+
+        XxlJobLogReport xxlJobLogReport = new XxlJobLogReport();
+        xxlJobLogReport.setTriggerDay(todayFrom);
+        xxlJobLogReport.setRunningCount(0);
+        xxlJobLogReport.setSucCount(0);
+        xxlJobLogReport.setFailCount(0);
+
+        Map<String, Object> triggerCountMap = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().findLogReport(todayFrom, todayTo);
+        if (triggerCountMap!=null && triggerCountMap.size()>0) {
+            int triggerDayCount = triggerCountMap.containsKey("triggerDayCount")?Integer.valueOf(String.valueOf(triggerCountMap.get("triggerDayCount"))):0;
+            int triggerDayCountRunning = triggerCountMap.containsKey("triggerDayCountRunning")?Integer.valueOf(String.valueOf(triggerCountMap.get("triggerDayCountRunning"))):0;
+            int triggerDayCountSuc = triggerCountMap.containsKey("triggerDayCountSuc")?Integer.valueOf(String.valueOf(triggerCountMap.get("triggerDayCountSuc"))):0;
+            int triggerDayCountFail = triggerDayCount - triggerDayCountRunning - triggerDayCountSuc;
+
+            xxlJobLogReport.setRunningCount(triggerDayCountRunning);
+            xxlJobLogReport.setSucCount(triggerDayCountSuc);
+            xxlJobLogReport.setFailCount(triggerDayCountFail);
+        }
+
+        // do refresh
+        int ret = XxlJobAdminConfig.getAdminConfig().getXxlJobLogReportDao().update(xxlJobLogReport);
+        if (ret < 1) {
+            XxlJobAdminConfig.getAdminConfig().getXxlJobLogReportDao().save(xxlJobLogReport);
+        }
+    }
+
+
+    // ---------------------- report counter ----------------------
+
+    /**
+     * counter of one trigger day
+     */
+    private static class ReportCounter {
+        private final AtomicInteger runningCount = new AtomicInteger(0);
+        private final AtomicInteger sucCount = new AtomicInteger(0);
+        private final AtomicInteger failCount = new AtomicInteger(0);
+    }
+
+    /**
+     * trigger day (time of day start) -> counter
+     */
+    private ConcurrentMap<Long, ReportCounter> reportCounterMap = new ConcurrentHashMap<Long, ReportCounter>();
+
+    /**
+     * log status, same as "findLogReport": 0-running, 1-success, 2-fail
+     */
+    private static int logStatus(int triggerCode, int handleCode) {
+        if (handleCode == ReturnT.SUCCESS_CODE) {
+            return 1;
+        }
+        if (handleCode == 0 && (triggerCode == 0 || triggerCode == ReturnT.SUCCESS_CODE)) {
+            return 0;
+        }
+        return 2;
+    }
+
+    private ReportCounter loadCounter(Date triggerTime) {
+        Calendar itemDay = Calendar.getInstance();
+        itemDay.setTime(triggerTime);
+        itemDay.set(Calendar.HOUR_OF_DAY, 0);
+        itemDay.set(Calendar.MINUTE, 0);
+        itemDay.set(Calendar.SECOND, 0);
+        itemDay.set(Calendar.MILLISECOND, 0);
+        long triggerDay = itemDay.getTimeInMillis();
+
+        ReportCounter counter = reportCounterMap.get(triggerDay);
+        if (counter == null) {
+            reportCounterMap.putIfAbsent(triggerDay, new ReportCounter());
+            counter = reportCounterMap.get(triggerDay);
+        }
+        return counter;
+    }
+
+    private static AtomicInteger statusCount(ReportCounter counter, int status) {
+        return status==0?counter.runningCount:(status==1?counter.sucCount:counter.failCount);
+    }
+
+    /**
+     * log created, count as running
+     *
+     * @param jobLog
+     */
+    public void logCreate(XxlJobLog jobLog) {
+        if (jobLog.getTriggerTime() == null) {
+            return;
+        }
+        loadCounter(jobLog.getTriggerTime()).runningCount.incrementAndGet();
+
+        // stat
+        JobLogStatHelper.getInstance().trigger(jobLog.getJobGroup(), jobLog.getJobId(), jobLog.getTriggerTime());
+    }
+
+    /**
+     * log status change, by trigger-info or handle-info
+     *
+     * @param jobLog            log, with new trigger-code and handle-code
+     * @param fromTriggerCode
+     * @param fromHandleCode
+     */
+    public void logChange(XxlJobLog jobLog, int fromTriggerCode, int fromHandleCode) {
+        int fromStatus = logStatus(fromTriggerCode, fromHandleCode);
+        int toStatus = logStatus(jobLog.getTriggerCode(), jobLog.getHandleCode());
+        if (jobLog.getTriggerTime()==null || fromStatus == toStatus) {
+            return;
+        }
+        ReportCounter counter = loadCounter(jobLog.getTriggerTime());
+        statusCount(counter, fromStatus).decrementAndGet();
+        statusCount(counter, toStatus).incrementAndGet();
+
+        // stat, running -> finish
+        if (fromStatus == 0) {
+            long duration = (jobLog.getHandleCode()>0 && jobLog.getHandleTime()!=null)
+                    ?Math.max(0, jobLog.getHandleTime().getTime() - jobLog.getTriggerTime().getTime())
+                    :-1;
+            JobLogStatHelper.getInstance().finish(jobLog.getJobGroup(), jobLog.getJobId(), toStatus==1, duration);
+        }
+    }
+
+    /**
+     * flush counter, increase log report in batch
+     */
+    private synchronized void flushReport() {
+        List<XxlJobLogReport> reportList = new ArrayList<XxlJobLogReport>();
+
+        Calendar expiredDay = Calendar.getInstance();
+        expiredDay.add(Calendar.DAY_OF_MONTH, -3);
+        long expiredTime = expiredDay.getTimeInMillis();
+
+        Iterator<Map.Entry<Long, ReportCounter>> it = reportCounterMap.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, ReportCounter> item = it.next();
+            ReportCounter counter = item.getValue();
+
+            int runningCount = counter.runningCount.getAndSet(0);
+            int sucCount = counter.sucCount.getAndSet(0);
+            int failCount = counter.failCount.getAndSet(0);
+
+            // counter out of 3 days, remove (late delta corrected by reconcile)
+            if (item.getKey() < expiredTime) {
+                it.remove();
+            }
+
+            if (runningCount==0 && sucCount==0 && failCount==0) {
+                continue;
+            }
+
+            XxlJobLogReport report = new XxlJobLogReport();
+            report.setTriggerDay(new Date(item.getKey()));
+            report.setRunningCount(runningCount);
+            report.setSucCount(sucCount);
+            report.setFailCount(failCount);
+            reportList.add(report);
+        }
+
+        if (reportList.size() > 0) {
+            try {
+                XxlJobAdminConfig.getAdminConfig().getXxlJobLogReportDao().saveOrIncrease(reportList);
+            } catch (Exception e) {
+                // back to counter, flush next time
+                for (XxlJobLogReport report: reportList) {
+                    ReportCounter counter = loadCounter(report.getTriggerDay());
+                    counter.runningCount.addAndGet(report.getRunningCount());
+                    counter.sucCount.addAndGet(report.getSucCount());
+                    counter.failCount.addAndGet(report.getFailCount());
+                }
+                throw e;
+            }
+        }
+    }
+
     public void toStop(){
         toStop = true;
         // interrupt and wait
@@ -0,0 +1,378 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
+import com.xxl.job.admin.core.model.XxlJobLogStat;
+import com.xxl.job.core.util.DateUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * job log stat helper, time series of job execution (xxl_job_log_stat)
+ *
+ *      a、分钟统计：按 "任务 + 分钟" 在内存中累加调度次数（调度时间）、成功/失败次数及执行耗时分布（完成时间），每10秒批量累加写入；
+ *      b、汇总：分钟数据每分钟汇总为小时数据，小时数据每10分钟汇总为天数据，汇总可重复执行；自上次已汇总周期（库中最新汇总数据，即水位）起逐个重建有数据的周期，停顿任意时长均不留缺口；
+ *      c、保留：分钟、小时、天数据分别保留 "xxl.job.logstat.*.retentiondays" 天；
+ */
+public class JobLogStatHelper {
+    private static Logger logger = LoggerFactory.getLogger(JobLogStatHelper.class);
+
+    private static JobLogStatHelper instance = new JobLogStatHelper();
+    public static JobLogStatHelper getInstance(){
+        return instance;
+    }
+
+    public static final int PERIOD_MINUTE = 1;
+    public static final int PERIOD_HOUR = 2;
+    public static final int PERIOD_DAY = 3;
+
+    /**
+     * duration bucket upper bound (ms, exclusive), the last bucket without bound
+     */
+    public static final long[] DURATION_BOUNDS = {100, 500, 1000, 5000, 10000, 60000, 300000};
+
+    private static final int FLUSH_INTERVAL = 10;
+    private static final int PAGE_SIZE = 1000;
+
+
+    // ---------------------- stat counter ----------------------
+
+    /**
+     * counter of one job in one minute
+     */
+    private static class StatCounter {
+        private final int jobGroup;
+        private final AtomicInteger triggerCount = new AtomicInteger(0);
+        private final AtomicInteger sucCount = new AtomicInteger(0);
+        private final AtomicInteger failCount = new AtomicInteger(0);
+        private final AtomicLong durationSum = new AtomicLong(0);
+        private final AtomicLong durationMax = new AtomicLong(0);
+        private final AtomicIntegerArray durationBuckets = new AtomicIntegerArray(DURATION_BOUNDS.length + 1);
+
+        private StatCounter(int jobGroup) {
+            this.jobGroup = jobGroup;
+        }
+    }
+
+    /**
+     * minute -> (jobId -> counter)
+     */
+    private ConcurrentMap<Long, ConcurrentMap<Integer, StatCounter>> statCounterMap = new ConcurrentHashMap<Long, ConcurrentMap<Integer, StatCounter>>();
+
+    /**
+     * minute removed by last flush, drained once more for late count (counter loaded before removed)
+     */
+    private List<Map.Entry<Long, ConcurrentMap<Integer, StatCounter>>> retiredCounterList = new ArrayList<Map.Entry<Long, ConcurrentMap<Integer, StatCounter>>>();
+
+    private StatCounter loadCounter(long eventTime, int jobGroup, int jobId) {
+        long minute = eventTime - eventTime%60000;
+
+        ConcurrentMap<Integer, StatCounter> jobCounterMap = statCounterMap.get(minute);
+        if (jobCounterMap == null) {
+            statCounterMap.putIfAbsent(minute, new ConcurrentHashMap<Integer, StatCounter>());
+            jobCounterMap = statCounterMap.get(minute);
+        }
+        StatCounter counter = jobCounterMap.get(jobId);
+        if (counter == null) {
+            jobCounterMap.putIfAbsent(jobId, new StatCounter(jobGroup));
+            counter = jobCounterMap.get(jobId);
+        }
+        return counter;
+    }
+
+    /**
+     * job triggered, count in minute of trigger time
+     */
+    public void trigger(int jobGroup, int jobId, Date triggerTime) {
+        long eventTime = triggerTime!=null?triggerTime.getTime():System.currentTimeMillis();
+        loadCounter(eventTime, jobGroup, jobId).triggerCount.incrementAndGet();
+    }
+
+    /**
+     * job finished (trigger fail, callback, kill, lost), count in minute of now
+     *
+     * @param success
+     * @param duration      execute duration (ms), -1 if not executed
+     */
+    public void finish(int jobGroup, int jobId, boolean success, long duration) {
+        StatCounter counter = loadCounter(System.currentTimeMillis(), jobGroup, jobId);
+        if (success) {
+            counter.sucCount.incrementAndGet();
+        } else {
+            counter.failCount.incrementAndGet();
+        }
+
+        if (duration >= 0) {
+            counter.durationSum.addAndGet(duration);
+            long durationMax;
+            while ((durationMax = counter.durationMax.get()) < duration) {
+                if (counter.durationMax.compareAndSet(durationMax, duration)) {
+                    break;
+                }
+            }
+            counter.durationBuckets.incrementAndGet(durationBucket(duration));
+        }
+    }
+
+    private static int durationBucket(long duration) {
+        for (int i = 0; i < DURATION_BOUNDS.length; i++) {
+            if (duration < DURATION_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return DURATION_BOUNDS.length;
+    }
+
+    /**
+     * duration percentile, estimated by bucket (linear in bucket)
+     *
+     * @param stat
+     * @param percent   0-100
+     * @return ms
+     */
+    public static long durationPercentile(XxlJobLogStat stat, double percent) {
+        int[] buckets = stat.getDurationBuckets();
+        long total = 0;
+        for (int bucket: buckets) {
+            total += bucket;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        double rank = total * percent / 100;
+        long count = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[i] == 0) {
+                continue;
+            }
+            if (count + buckets[i] >= rank) {
+                long lower = i>0?DURATION_BOUNDS[i-1]:0;
+                long upper = i<DURATION_BOUNDS.length?Math.min(DURATION_BOUNDS[i], Math.max(stat.getDurationMax(), lower)):Math.max(stat.getDurationMax(), lower);
+                return lower + (long) ((upper - lower) * ((rank - count) / buckets[i]));
+            }
+            count += buckets[i];
+        }
+        return stat.getDurationMax();
+    }
+
+    /**
+     * flush counter, increase minute stat in batch
+     */
+    private void flushStat() {
+        long nowMinute = System.currentTimeMillis() - System.currentTimeMillis()%60000;
+
+        // minute retired last time, drain again then drop
+        List<Map.Entry<Long, ConcurrentMap<Integer, StatCounter>>> drainList = new ArrayList<Map.Entry<Long, ConcurrentMap<Integer, StatCounter>>>(retiredCounterList);
+        retiredCounterList.clear();
+
+        Iterator<Map.Entry<Long, ConcurrentMap<Integer, StatCounter>>> it = statCounterMap.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, ConcurrentMap<Integer, StatCounter>> minuteItem = it.next();
+
+            // minute passed, remove and retire, late count drained by next flush
+            if (minuteItem.getKey() < nowMinute - 60000) {
+                it.remove();
+                retiredCounterList.add(new AbstractMap.SimpleEntry<Long, ConcurrentMap<Integer, StatCounter>>(minuteItem.getKey(), minuteItem.getValue()));
+            }
+            drainList.add(minuteItem);
+        }
+
+        List<XxlJobLogStat> statList = new ArrayList<XxlJobLogStat>();
+        for (Map.Entry<Long, ConcurrentMap<Integer, StatCounter>> minuteItem: drainList) {
+            for (Map.Entry<Integer, StatCounter> jobItem: minuteItem.getValue().entrySet()) {
+                StatCounter counter = jobItem.getValue();
+
+                XxlJobLogStat stat = new XxlJobLogStat();
+                stat.setStatPeriod(PERIOD_MINUTE);
+                stat.setStatTime(new Date(minuteItem.getKey()));
+                stat.setJobGroup(counter.jobGroup);
+                stat.setJobId(jobItem.getKey());
+                stat.setTriggerCount(counter.triggerCount.getAndSet(0));
+                stat.setSucCount(counter.sucCount.getAndSet(0));
+                stat.setFailCount(counter.failCount.getAndSet(0));
+                stat.setDurationSum(counter.durationSum.getAndSet(0));
+                stat.setDurationMax(counter.durationMax.getAndSet(0));
+                stat.setDurationB0(counter.durationBuckets.getAndSet(0, 0));
+                stat.setDurationB1(counter.durationBuckets.getAndSet(1, 0));
+                stat.setDurationB2(counter.durationBuckets.getAndSet(2, 0));
+                stat.setDurationB3(counter.durationBuckets.getAndSet(3, 0));
+                stat.setDurationB4(counter.durationBuckets.getAndSet(4, 0));
+                stat.setDurationB5(counter.durationBuckets.getAndSet(5, 0));
+                stat.setDurationB6(counter.durationBuckets.getAndSet(6, 0));
+                stat.setDurationB7(counter.durationBuckets.getAndSet(7, 0));
+
+                if (stat.getTriggerCount()==0 && stat.getSucCount()==0 && stat.getFailCount()==0) {
+                    continue;
+                }
+                statList.add(stat);
+            }
+        }
+
+        for (int from = 0; from < statList.size(); from += PAGE_SIZE) {
+            List<XxlJobLogStat> batch = statList.subList(from, Math.min(from + PAGE_SIZE, statList.size()));
+            try {
+                XxlJobAdminConfig.getAdminConfig().getXxlJobLogStatDao().saveOrIncrease(batch);
+            } catch (Exception e) {
+                // back to counter, this and later batch, flush next time
+                for (XxlJobLogStat stat: statList.subList(from, statList.size())) {
+                    putBack(stat);
+                }
+                throw e;
+            }
+        }
+    }
+
+    private void putBack(XxlJobLogStat stat) {
+        StatCounter counter = loadCounter(stat.getStatTime().getTime(), stat.getJobGroup(), stat.getJobId());
+        counter.triggerCount.addAndGet(stat.getTriggerCount());
+        counter.sucCount.addAndGet(stat.getSucCount());
+        counter.failCount.addAndGet(stat.getFailCount());
+        counter.durationSum.addAndGet(stat.getDurationSum());
+        long durationMax;
+        while ((durationMax = counter.durationMax.get()) < stat.getDurationMax()) {
+            if (counter.durationMax.compareAndSet(durationMax, stat.getDurationMax())) {
+                break;
+            }
+        }
+        int[] durationBuckets = stat.getDurationBuckets();
+        for (int i = 0; i < durationBuckets.length; i++) {
+            counter.durationBuckets.addAndGet(i, durationBuckets[i]);
+        }
+    }
+
+
+    // ---------------------- rollup & retention ----------------------
+
+    private static Date truncate(Date time, int period) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(time);
+        if (period == PERIOD_DAY) {
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+        }
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTime();
+    }
+
+    private static Date addPeriod(Date time, int period, int amount) {
+        return period==PERIOD_DAY?DateUtil.addDays(time, amount):DateUtil.addHours(time, amount);
+    }
+
+    /**
+     * rollup minute -> hour, hour -> day; each period with data since last rolled up one (watermark, latest "toPeriod" stat in db)
+     */
+    private void rollup(int toPeriod) {
+        int fromPeriod = toPeriod - 1;
+
+        // watermark, last rolled up period; with the one before, for late count
+        Date lastStatTime = XxlJobAdminConfig.getAdminConfig().getXxlJobLogStatDao().findMaxStatTime(toPeriod);
+        Date from = lastStatTime!=null?addPeriod(truncate(lastStatTime, toPeriod), toPeriod, -1):null;
+
+        // period by period, empty period skipped
+        Date fromStatTime = XxlJobAdminConfig.getAdminConfig().getXxlJobLogStatDao().findMinStatTime(fromPeriod, from);
+        while (fromStatTime!=null && !toStop) {
+            Date statTime = truncate(fromStatTime, toPeriod);
+            Date statTimeEnd = addPeriod(statTime, toPeriod, 1);
+            XxlJobAdminConfig.getAdminConfig().getXxlJobLogStatDao().rollup(fromPeriod, toPeriod, statTime, statTimeEnd, statTime);
+
+            fromStatTime = XxlJobAdminConfig.getAdminConfig().getXxlJobLogStatDao().findMinStatTime(fromPeriod, statTimeEnd);
+        }
+    }
+
+    private void clearStat(int statPeriod, int retentionDays) {
+        Date clearBeforeTime = DateUtil.addDays(new Date(), -1 * retentionDays);
+        int ret;
+        do {
+            ret = XxlJobAdminConfig.getAdminConfig().getXxlJobLogStatDao().clearStat(statPeriod, clearBeforeTime, PAGE_SIZE);
+        } while (ret > 0 && !toStop);
+    }
+
+
+    // ---------------------- thread ----------------------
+
+    private Thread statThread;
+    private volatile boolean toStop = false;
+    public void start(){
+        statThread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+
+                long lastHourRollupTime = 0;
+                long lastDayRollupTime = 0;
+                long lastClearTime = 0;
+
+                while (!toStop) {
+                    try {
+                        // 1、flush minute stat
+                        flushStat();
+
+                        // 2、rollup, hour each minute, day each 10 minutes
+                        if (System.currentTimeMillis() - lastHourRollupTime >= 60*1000) {
+                            rollup(PERIOD_HOUR);
+                            lastHourRollupTime = System.currentTimeMillis();
+                        }
+                        if (System.currentTimeMillis() - lastDayRollupTime >= 10*60*1000) {
+                            rollup(PERIOD_DAY);
+                            lastDayRollupTime = System.currentTimeMillis();
+                        }
+
+                        // 3、retention, each hour
+                        if (System.currentTimeMillis() - lastClearTime >= 60*60*1000) {
+                            clearStat(PERIOD_MINUTE, XxlJobAdminConfig.getAdminConfig().getLogStatMinuteRetentionDays());
+                            clearStat(PERIOD_HOUR, XxlJobAdminConfig.getAdminConfig().getLogStatHourRetentionDays());
+                            clearStat(PERIOD_DAY, XxlJobAdminConfig.getAdminConfig().getLogStatDayRetentionDays());
+                            lastClearTime = System.currentTimeMillis();
+                        }
+                    } catch (Exception e) {
+                        if (!toStop) {
+                            logger.error(">>>>>>>>>>> xxl-job, job log stat thread error:{}", e);
+                        }
+                    }
+
+                    try {
+                        TimeUnit.SECONDS.sleep(FLUSH_INTERVAL);
+                    } catch (Exception e) {
+                        if (!toStop) {
+                            logger.error(e.getMessage(), e);
+                        }
+                    }
+                }
+
+                // flush remaining
+                try {
+                    flushStat();
+                } catch (Exception e) {
+                    logger.error(">>>>>>>>>>> xxl-job, job log stat thread error:{}", e);
+                }
+
+                logger.info(">>>>>>>>>>> xxl-job, job log stat thread stop");
+
+            }
+        });
+        statThread.setDaemon(true);
+        statThread.setName("xxl-job, admin JobLogStatHelper");
+        statThread.start();
+    }
+
+    public void toStop(){
+        toStop = true;
+        // interrupt and wait
+        statThread.interrupt();
+        try {
+            statThread.join();
+        } catch (InterruptedException e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+}
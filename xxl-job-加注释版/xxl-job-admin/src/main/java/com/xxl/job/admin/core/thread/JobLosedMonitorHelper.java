@@ -7,9 +7,11 @@ import com.xxl.job.core.biz.model.ReturnT;
 import com.xxl.job.core.util.DateUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.Date;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -27,6 +29,8 @@ public class JobLosedMonitorHelper {
 
 	// ---------------------- monitor ----------------------
 
+	private static final int PAGE_SIZE = 1000;
+
 	private Thread monitorThread;
 	private volatile boolean toStop = false;
 	public void start(){
@@ -39,22 +43,8 @@ public class JobLosedMonitorHelper {
 				while (!toStop) {
 					try {
 						// 任务结果丢失处理：调度记录停留在 "运行中" 状态超过10min，且对应执行器心跳注册失败不在线，则将本地调度主动标记失败；
-						Date losedTime = DateUtil.addMinutes(new Date(), -10);
-						List<Long> losedJobIds  = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().findLostJobIds(losedTime);
-
-						if (losedJobIds!=null && losedJobIds.size()>0) {
-							for (Long logId: losedJobIds) {
-
-								XxlJobLog jobLog = new XxlJobLog();
-								jobLog.setId(logId);
-
-								jobLog.setHandleTime(new Date());
-								jobLog.setHandleCode(ReturnT.FAIL_CODE);
-								jobLog.setHandleMsg( I18nUtil.getString("joblog_lost_fail") );
-
-								XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().updateHandleInfo(jobLog);
-							}
-
+						if (JobRegistryMonitorHelper.getInstance().isRegistryLoaded()) {
+							processLostJobLogs(DateUtil.addMinutes(new Date(), -10));
 						}
 					} catch (Exception e) {
 						if (!toStop) {
@@ -81,6 +71,79 @@ public class JobLosedMonitorHelper {
 		monitorThread.start();
 	}
 
+	/**
+	 * running log (index: trigger_code + handle_code + id, seek by id without filesort), executor address not online in memory registry, mark fail in batch;
+	 * still running ones locked first ("FOR UPDATE"), report and workflow only for log actually marked
+	 */
+	private void processLostJobLogs(Date losedTime) {
+
+		// online address
+		Set<String> onlineAddressSet = new HashSet<String>();
+		for (List<String> registryList: JobRegistryMonitorHelper.getInstance().getRegistryAddress().values()) {
+			onlineAddressSet.addAll(registryList);
+		}
+
+		long lastId = 0;
+		while (!toStop) {
+			List<XxlJobLog> runningLogList = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().findRunningJobLogs(losedTime, lastId, PAGE_SIZE);
+			if (runningLogList==null || runningLogList.isEmpty()) {
+				break;
+			}
+
+			List<XxlJobLog> lostLogList = new ArrayList<XxlJobLog>();
+			List<Long> lostLogIds = new ArrayList<Long>();
+			for (XxlJobLog runningLog: runningLogList) {
+				lastId = runningLog.getId();
+				if (!onlineAddressSet.contains(runningLog.getExecutorAddress())) {
+					lostLogList.add(runningLog);
+					lostLogIds.add(runningLog.getId());
+				}
+			}
+
+			if (lostLogIds.size() > 0) {
+				Date handleTime = new Date();
+				Set<Long> markedLogIds = markLostJobLogs(lostLogIds, handleTime);
+				logger.info(">>>>>>>>>>> xxl-job, job lost, mark fail count:{}", markedLogIds.size());
+
+				// log report and workflow, only marked here (not handled by callback concurrently)
+				for (XxlJobLog lostLog: lostLogList) {
+					if (!markedLogIds.contains(lostLog.getId())) {
+						continue;
+					}
+					lostLog.setTriggerCode(ReturnT.SUCCESS_CODE);
+					lostLog.setHandleTime(handleTime);
+					lostLog.setHandleCode(ReturnT.FAIL_CODE);
+					JobLogReportHelper.getInstance().logChange(lostLog, ReturnT.SUCCESS_CODE, 0);
+					JobWorkflowHelper.getInstance().logFinish(lostLog);
+				}
+			}
+
+			if (runningLogList.size() < PAGE_SIZE) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * lock still running log, then mark fail in one update
+	 *
+	 * @return log ids marked fail
+	 */
+	private Set<Long> markLostJobLogs(final List<Long> lostLogIds, final Date handleTime) {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(XxlJobAdminConfig.getAdminConfig().getTransactionManager());
+		List<Long> markedLogIds = transactionTemplate.execute(new TransactionCallback<List<Long>>() {
+			@Override
+			public List<Long> doInTransaction(TransactionStatus status) {
+				List<Long> runningLogIds = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().findRunningIdsForUpdate(lostLogIds);
+				if (runningLogIds!=null && !runningLogIds.isEmpty()) {
+					XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().updateLostJobLogs(runningLogIds, handleTime, ReturnT.FAIL_CODE, I18nUtil.getString("joblog_lost_fail"));
+				}
+				return runningLogIds;
+			}
+		});
+		return markedLogIds!=null?new HashSet<Long>(markedLogIds):new HashSet<Long>();
+	}
+
 	public void toStop(){
 		toStop = true;
 		// interrupt and wait
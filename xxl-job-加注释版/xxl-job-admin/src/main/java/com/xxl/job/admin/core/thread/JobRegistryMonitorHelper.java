@@ -8,11 +8,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 /**
  * 监控作业注册
  * job registry instance
+ *
+ *      a、内存注册表：执行器注册/摘除直接更新内存，仅在注册节点新增/摘除时写库并刷新执行器地址，地址无变化不写 xxl_job_group；
+ *      b、集群同步：注册节点新增/摘除时递增 xxl_job_registry_version，其他调度中心节点秒级感知后全量加载；
+ *      c、兜底：每 BEAT_TIMEOUT 清理过期注册节点并全量加载一次；
+ *      d、心跳合并：已知注册节点的心跳仅更新内存时间戳，并周期性批量 upsert 落库；过期判断基于内存时间戳；
+ *      e、启动：首次全量加载完成前内存为空，注册请求均按心跳处理（仅批量落库），避免调度中心重启后每个心跳都递增版本；
+ *      f、下线标记：执行器长连接断开时立即从内存摘除该地址（路由即刻跳过），全量加载不再载入，直至该地址下次注册；注册表记录仍由注册超时清理；
+ *
  * @author xuxueli 2016-10-02 19:10:24
  */
 public class JobRegistryMonitorHelper {
@@ -23,74 +33,55 @@ public class JobRegistryMonitorHelper {
 		return instance;
 	}
 
+	private static final long VERSION_CHECK_INTERVAL = 1000;
+
 	private Thread registryThread;
 	private volatile boolean toStop = false;
 	public void start(){
 		registryThread = new Thread(new Runnable() {
 			@Override
 			public void run() {
+				long lastVersion = -1;
+				long lastFullLoadTime = 0;
 				while (!toStop) {
 					try {
-						// auto registry group
-						List<XxlJobGroup> groupList = XxlJobAdminConfig.getAdminConfig().getXxlJobGroupDao().findByAddressType(0);
-						if (groupList!=null && !groupList.isEmpty()) {
-
-							// remove dead address (admin/executor)
-							List<Integer> ids = XxlJobAdminConfig.getAdminConfig().getXxlJobRegistryDao().findDead(RegistryConfig.DEAD_TIMEOUT, new Date());
-							if (ids!=null && ids.size()>0) {
-								XxlJobAdminConfig.getAdminConfig().getXxlJobRegistryDao().removeDead(ids);
-							}
-
-							// fresh online address (admin/executor)
-							HashMap<String, List<String>> appAddressMap = new HashMap<String, List<String>>();
-							List<XxlJobRegistry> list = XxlJobAdminConfig.getAdminConfig().getXxlJobRegistryDao().findAll(RegistryConfig.DEAD_TIMEOUT, new Date());
-							if (list != null) {
-								for (XxlJobRegistry item: list) {
-									if (RegistryConfig.RegistType.EXECUTOR.name().equals(item.getRegistryGroup())) {
-										String appname = item.getRegistryKey();
-										List<String> registryList = appAddressMap.get(appname);
-										if (registryList == null) {
-											registryList = new ArrayList<String>();
-										}
-
-										if (!registryList.contains(item.getRegistryValue())) {
-											registryList.add(item.getRegistryValue());
-										}
-										appAddressMap.put(appname, registryList);
-									}
-								}
-							}
-
-							// fresh group address
-							for (XxlJobGroup group: groupList) {
-								List<String> registryList = appAddressMap.get(group.getAppname());
-								String addressListStr = null;
-								if (registryList!=null && !registryList.isEmpty()) {
-									Collections.sort(registryList);
-									StringBuilder addressListSB = new StringBuilder();
-									for (String item:registryList) {
-										addressListSB.append(item).append(",");
-									}
-									addressListStr = addressListSB.toString();
-									addressListStr = addressListStr.substring(0, addressListStr.length()-1);
-								}
-								group.setAddressList(addressListStr);
-								XxlJobAdminConfig.getAdminConfig().getXxlJobGroupDao().update(group);
-							}
+						// flush heartbeat
+						long loadTime = System.currentTimeMillis();
+						flushRegistryBeat();
+
+						// change version (admin cluster)
+						long version = loadVersion();
+
+						// full load, when changed or timeout
+						if (version != lastVersion
+								|| System.currentTimeMillis() - lastFullLoadTime >= RegistryConfig.BEAT_TIMEOUT * 1000) {
+							fullLoad(loadTime);
+							lastVersion = version;
+							lastFullLoadTime = System.currentTimeMillis();
 						}
+
+						// remove dead address in memory
+						removeDeadInMemory();
 					} catch (Exception e) {
 						if (!toStop) {
 							logger.error(">>>>>>>>>>> xxl-job, job registry monitor thread error:{}", e);
 						}
 					}
 					try {
-						TimeUnit.SECONDS.sleep(RegistryConfig.BEAT_TIMEOUT);
+						TimeUnit.MILLISECONDS.sleep(VERSION_CHECK_INTERVAL);
 					} catch (InterruptedException e) {
 						if (!toStop) {
 							logger.error(">>>>>>>>>>> xxl-job, job registry monitor thread error:{}", e);
 						}
 					}
 				}
+
+				// flush remaining heartbeat
+				try {
+					flushRegistryBeat();
+				} catch (Exception e) {
+					logger.error(">>>>>>>>>>> xxl-job, job registry monitor thread error:{}", e);
+				}
 				logger.info(">>>>>>>>>>> xxl-job, job registry monitor thread stop");
 			}
 		});
@@ -110,4 +101,416 @@ public class JobRegistryMonitorHelper {
 		}
 	}
 
+
+	// ---------------------- registry version ----------------------
+
+	private volatile boolean versionSupported = true;
+
+	/**
+	 * load change version of registry, -1 if table "xxl_job_registry_version" not exists (fallback to timeout full load)
+	 */
+	private long loadVersion() {
+		if (!versionSupported) {
+			return -1;
+		}
+		try {
+			Long version = XxlJobAdminConfig.getAdminConfig().getXxlJobRegistryDao().loadVersion();
+			return version!=null?version:-1;
+		} catch (Exception e) {
+			versionSupported = false;
+			logger.warn(">>>>>>>>>>> xxl-job, registry version not supported, please create table \"xxl_job_registry_version\". {}", e.getMessage());
+			return -1;
+		}
+	}
+
+	private void increaseVersion() {
+		if (!versionSupported) {
+			return;
+		}
+		try {
+			XxlJobAdminConfig.getAdminConfig().getXxlJobRegistryDao().increaseVersion();
+		} catch (Exception e) {
+			logger.error(">>>>>>>>>>> xxl-job, registry version increase error:{}", e);
+		}
+	}
+
+
+	// ---------------------- registry (memory) ----------------------
+
+	/**
+	 * registry entry of executor address
+	 */
+	private static class RegistryEntry {
+		private final int weight;
+		private volatile long updateTime;
+
+		private RegistryEntry(int weight, long updateTime) {
+			this.weight = weight;
+			this.updateTime = updateTime;
+		}
+	}
+
+	/**
+	 * appname -> (address -> entry), executor only
+	 */
+	private volatile ConcurrentMap<String, ConcurrentMap<String, RegistryEntry>> executorRegistry = new ConcurrentHashMap<String, ConcurrentMap<String, RegistryEntry>>();
+	private volatile boolean registryLoaded = false;
+
+	/**
+	 * whether memory registry loaded from db (at least once)
+	 */
+	public boolean isRegistryLoaded() {
+		return registryLoaded;
+	}
+
+	/**
+	 * address marked down (channel closed), (appname, address) -> down time; skipped by full load, until next registry or dead-timeout
+	 */
+	private ConcurrentMap<List<String>, Long> addressDownMap = new ConcurrentHashMap<List<String>, Long>();
+
+	/**
+	 * registry executor address in memory
+	 *
+	 * @return true if address added or weight changed
+	 */
+	public boolean registry(String registryGroup, String appname, String address, int weight) {
+		if (!RegistryConfig.RegistType.EXECUTOR.name().equals(registryGroup)) {
+			return false;
+		}
+		weight = RegistryConfig.validWeight(weight);
+		addressDownMap.remove(Arrays.asList(appname, address));		// re-admit, if marked down
+		freshAddressWeight(address, weight);
+
+		ConcurrentMap<String, RegistryEntry> addressMap = executorRegistry.get(appname);
+		if (addressMap == null) {
+			executorRegistry.putIfAbsent(appname, new ConcurrentHashMap<String, RegistryEntry>());
+			addressMap = executorRegistry.get(appname);
+		}
+
+		// heartbeat, only fresh update time
+		RegistryEntry entry = addressMap.get(address);
+		if (entry!=null && entry.weight==weight) {
+			entry.updateTime = System.currentTimeMillis();
+			return false;
+		}
+
+		// not loaded yet, memory empty and every beat looks new; as heartbeat, no version increase
+		if (!registryLoaded) {
+			addressMap.put(address, new RegistryEntry(weight, System.currentTimeMillis()));
+			return false;
+		}
+
+		RegistryEntry oldEntry = addressMap.put(address, new RegistryEntry(weight, System.currentTimeMillis()));
+		if (oldEntry == null) {
+			JobRegistryWatchHelper.getInstance().onAdded(appname, address);
+		}
+		return true;
+	}
+
+	/**
+	 * remove executor address in memory
+	 *
+	 * @return true if address removed
+	 */
+	public boolean registryRemove(String registryGroup, String appname, String address) {
+		// drop pending heartbeat, otherwise upsert again by next flush; call before db delete
+		registryBeatMap.remove(Arrays.asList(registryGroup, appname, address));
+
+		if (!RegistryConfig.RegistType.EXECUTOR.name().equals(registryGroup)) {
+			return false;
+		}
+		ConcurrentMap<String, RegistryEntry> addressMap = executorRegistry.get(appname);
+		if (addressMap!=null && addressMap.remove(address)!=null) {
+			JobRegistryWatchHelper.getInstance().onRemoved(appname, address);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * mark executor address down in memory (channel closed), route skip it at once; db registry kept, left to dead-timeout
+	 *
+	 * @return true if address removed
+	 */
+	public boolean registryDown(String registryGroup, String appname, String address) {
+		if (!RegistryConfig.RegistType.EXECUTOR.name().equals(registryGroup)) {
+			return false;
+		}
+		addressDownMap.put(Arrays.asList(appname, address), System.currentTimeMillis());
+
+		ConcurrentMap<String, RegistryEntry> addressMap = executorRegistry.get(appname);
+		if (addressMap!=null && addressMap.remove(address)!=null) {
+			JobRegistryWatchHelper.getInstance().onRemoved(appname, address);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * registry changed: notify other admin, and fresh address of auto registry group
+	 *
+	 * @param appname
+	 */
+	public void freshGroupRegistryInfo(String appname) {
+		increaseVersion();
+		try {
+			List<XxlJobGroup> groupList = XxlJobAdminConfig.getAdminConfig().getXxlJobGroupDao().findByAddressType(0);
+			if (groupList != null) {
+				for (XxlJobGroup group: groupList) {
+					if (group.getAppname().equals(appname)) {
+						freshGroupAddress(group);
+					}
+				}
+			}
+		} catch (Exception e) {
+			logger.error(">>>>>>>>>>> xxl-job, fresh group registry info error, appname:{}", appname, e);
+		}
+	}
+
+	/**
+	 * load all online address from db, and fresh address of auto registry group
+	 *
+	 * @param loadTime	time before db read, address registered or beat after it kept from memory
+	 */
+	private void fullLoad(long loadTime) {
+		// remove dead address (admin/executor)
+		List<Integer> ids = XxlJobAdminConfig.getAdminConfig().getXxlJobRegistryDao().findDead(RegistryConfig.DEAD_TIMEOUT, new Date());
+		if (ids!=null && ids.size()>0) {
+			XxlJobAdminConfig.getAdminConfig().getXxlJobRegistryDao().removeDead(ids);
+		}
+
+		// load online address (executor), keep the newer update time of memory
+		ConcurrentMap<String, ConcurrentMap<String, RegistryEntry>> registryTmp = new ConcurrentHashMap<String, ConcurrentMap<String, RegistryEntry>>();
+		List<XxlJobRegistry> list = XxlJobAdminConfig.getAdminConfig().getXxlJobRegistryDao().findAll(RegistryConfig.DEAD_TIMEOUT, new Date());
+		if (list != null) {
+			for (XxlJobRegistry item: list) {
+				if (RegistryConfig.RegistType.EXECUTOR.name().equals(item.getRegistryGroup())) {
+					// marked down, until next registry
+					if (addressDownMap.containsKey(Arrays.asList(item.getRegistryKey(), item.getRegistryValue()))) {
+						continue;
+					}
+					int weight = RegistryConfig.validWeight(item.getWeight());
+					freshAddressWeight(item.getRegistryValue(), weight);
+
+					long updateTime = item.getUpdateTime()!=null?item.getUpdateTime().getTime():System.currentTimeMillis();
+					ConcurrentMap<String, RegistryEntry> oldAddressMap = executorRegistry.get(item.getRegistryKey());
+					RegistryEntry oldEntry = oldAddressMap!=null?oldAddressMap.get(item.getRegistryValue()):null;
+					if (oldEntry!=null && oldEntry.updateTime>updateTime) {
+						updateTime = oldEntry.updateTime;
+					}
+
+					ConcurrentMap<String, RegistryEntry> addressMap = registryTmp.get(item.getRegistryKey());
+					if (addressMap == null) {
+						addressMap = new ConcurrentHashMap<String, RegistryEntry>();
+						registryTmp.put(item.getRegistryKey(), addressMap);
+					}
+					addressMap.put(item.getRegistryValue(), new RegistryEntry(weight, updateTime));
+				}
+			}
+		}
+		ConcurrentMap<String, ConcurrentMap<String, RegistryEntry>> registryOld = executorRegistry;
+		executorRegistry = registryTmp;
+		mergeNewer(registryOld, registryTmp, loadTime);
+		// first load, address kept before load also notified as added
+		JobRegistryWatchHelper.getInstance().onReload(registryLoaded?registryOld:new HashMap<String, Map<String, RegistryEntry>>(), registryTmp);
+		registryLoaded = true;
+
+		// fresh group address (auto registry group)
+		List<XxlJobGroup> groupList = XxlJobAdminConfig.getAdminConfig().getXxlJobGroupDao().findByAddressType(0);
+		if (groupList != null) {
+			for (XxlJobGroup group: groupList) {
+				freshGroupAddress(group);
+			}
+		}
+	}
+
+	/**
+	 * merge address registered or beat after "loadTime" (not in db snapshot yet), otherwise dropped by swap
+	 */
+	private void mergeNewer(ConcurrentMap<String, ConcurrentMap<String, RegistryEntry>> registryOld,
+							ConcurrentMap<String, ConcurrentMap<String, RegistryEntry>> registryNew,
+							long loadTime) {
+		for (Map.Entry<String, ConcurrentMap<String, RegistryEntry>> appEntry: registryOld.entrySet()) {
+			for (Map.Entry<String, RegistryEntry> addressEntry: appEntry.getValue().entrySet()) {
+				RegistryEntry entry = addressEntry.getValue();
+				if (entry.updateTime < loadTime) {
+					continue;
+				}
+				ConcurrentMap<String, RegistryEntry> addressMap = registryNew.get(appEntry.getKey());
+				if (addressMap == null) {
+					registryNew.putIfAbsent(appEntry.getKey(), new ConcurrentHashMap<String, RegistryEntry>());
+					addressMap = registryNew.get(appEntry.getKey());
+				}
+				RegistryEntry newEntry = addressMap.get(addressEntry.getKey());
+				if (newEntry==null || newEntry.updateTime<entry.updateTime) {
+					addressMap.put(addressEntry.getKey(), entry);
+				}
+			}
+		}
+	}
+
+	/**
+	 * remove dead address by update time in memory, and fresh address of group
+	 */
+	private void removeDeadInMemory() {
+		long deadTime = System.currentTimeMillis() - RegistryConfig.DEAD_TIMEOUT * 1000;
+
+		// down mark expired, db registry dead too (if no registry since)
+		for (Map.Entry<List<String>, Long> downEntry: addressDownMap.entrySet()) {
+			if (downEntry.getValue() < deadTime) {
+				addressDownMap.remove(downEntry.getKey(), downEntry.getValue());
+			}
+		}
+
+		for (Map.Entry<String, ConcurrentMap<String, RegistryEntry>> appEntry: executorRegistry.entrySet()) {
+			boolean removed = false;
+			for (Map.Entry<String, RegistryEntry> addressEntry: appEntry.getValue().entrySet()) {
+				if (addressEntry.getValue().updateTime < deadTime
+						&& appEntry.getValue().remove(addressEntry.getKey(), addressEntry.getValue())) {
+					removed = true;
+					JobRegistryWatchHelper.getInstance().onRemoved(appEntry.getKey(), addressEntry.getKey());
+					logger.info(">>>>>>>>>>> xxl-job, registry address dead, appname:{}, address:{}", appEntry.getKey(), addressEntry.getKey());
+				}
+			}
+			if (removed) {
+				freshGroupRegistryInfo(appEntry.getKey());
+			}
+		}
+	}
+
+	/**
+	 * update address of group, only when changed
+	 */
+	private synchronized void freshGroupAddress(XxlJobGroup group) {
+		String addressListStr = getAddressListStr(group.getAppname());
+
+		String oldAddressListStr = (group.getAddressList()!=null && group.getAddressList().trim().length()>0)?group.getAddressList():null;
+		if (addressListStr==null ? oldAddressListStr==null : addressListStr.equals(oldAddressListStr)) {
+			return;
+		}
+
+		group.setAddressList(addressListStr);
+		XxlJobAdminConfig.getAdminConfig().getXxlJobGroupDao().update(group);
+	}
+
+	/**
+	 * online address of all appname (memory registry), sorted
+	 */
+	public Map<String, List<String>> getRegistryAddress() {
+		Map<String, List<String>> registryAddress = new TreeMap<String, List<String>>();
+		for (Map.Entry<String, ConcurrentMap<String, RegistryEntry>> appEntry: executorRegistry.entrySet()) {
+			List<String> registryList = new ArrayList<String>(appEntry.getValue().keySet());
+			if (registryList.size() > 0) {
+				Collections.sort(registryList);
+				registryAddress.put(appEntry.getKey(), registryList);
+			}
+		}
+		return registryAddress;
+	}
+
+	/**
+	 * online address of appname, sorted and separated by ","; null if empty
+	 */
+	private String getAddressListStr(String appname) {
+		ConcurrentMap<String, RegistryEntry> addressMap = executorRegistry.get(appname);
+		if (addressMap==null || addressMap.isEmpty()) {
+			return null;
+		}
+
+		List<String> registryList = new ArrayList<String>(addressMap.keySet());
+		if (registryList.isEmpty()) {
+			return null;
+		}
+		Collections.sort(registryList);
+		StringBuilder addressListSB = new StringBuilder();
+		for (String item:registryList) {
+			addressListSB.append(item).append(",");
+		}
+		String addressListStr = addressListSB.toString();
+		return addressListStr.substring(0, addressListStr.length()-1);
+	}
+
+
+	// ---------------------- registry beat (batch) ----------------------
+
+	private static final int BEAT_FLUSH_BATCH_SIZE = 200;
+
+	/**
+	 * pending heartbeat, coalesced by (registryGroup, registryKey, registryValue)
+	 */
+	private ConcurrentMap<List<String>, XxlJobRegistry> registryBeatMap = new ConcurrentHashMap<List<String>, XxlJobRegistry>();
+
+	/**
+	 * push heartbeat, flushed to db in batch
+	 */
+	public void registryBeat(String registryGroup, String registryKey, String registryValue, int weight) {
+		XxlJobRegistry registry = new XxlJobRegistry();
+		registry.setRegistryGroup(registryGroup);
+		registry.setRegistryKey(registryKey);
+		registry.setRegistryValue(registryValue);
+		registry.setWeight(RegistryConfig.validWeight(weight));
+		registry.setUpdateTime(new Date());
+
+		registryBeatMap.put(Arrays.asList(registryGroup, registryKey, registryValue), registry);
+	}
+
+	/**
+	 * flush pending heartbeat, by "INSERT ... ON DUPLICATE KEY UPDATE"
+	 */
+	private void flushRegistryBeat() {
+		if (registryBeatMap.isEmpty()) {
+			return;
+		}
+
+		List<XxlJobRegistry> registryList = new ArrayList<XxlJobRegistry>();
+		for (List<String> key: registryBeatMap.keySet()) {
+			XxlJobRegistry registry = registryBeatMap.remove(key);
+			if (registry != null) {
+				registryList.add(registry);
+			}
+		}
+
+		for (int i = 0; i < registryList.size(); i += BEAT_FLUSH_BATCH_SIZE) {
+			List<XxlJobRegistry> batchList = registryList.subList(i, Math.min(i + BEAT_FLUSH_BATCH_SIZE, registryList.size()));
+			try {
+				XxlJobAdminConfig.getAdminConfig().getXxlJobRegistryDao().registrySaveOrUpdate(batchList);
+			} catch (Exception e) {
+				// retry next time, newer heartbeat first
+				for (XxlJobRegistry registry: batchList) {
+					registryBeatMap.putIfAbsent(Arrays.asList(registry.getRegistryGroup(), registry.getRegistryKey(), registry.getRegistryValue()), registry);
+				}
+				logger.error(">>>>>>>>>>> xxl-job, registry beat flush error:{}", e);
+			}
+		}
+	}
+
+
+	// ---------------------- address weight ----------------------
+
+	private ConcurrentMap<String, Integer> addressWeightMap = new ConcurrentHashMap<String, Integer>();
+
+	/**
+	 * fresh route weight of executor address, reported by executor registry
+	 *
+	 * @param address
+	 * @param weight
+	 */
+	public void freshAddressWeight(String address, int weight) {
+		if (address == null) {
+			return;
+		}
+		addressWeightMap.put(address, RegistryConfig.validWeight(weight));
+	}
+
+	/**
+	 * load route weight of executor address, default weight if unknown (such as address of manual registry)
+	 *
+	 * @param address
+	 * @return
+	 */
+	public int getAddressWeight(String address) {
+		Integer weight = addressWeightMap.get(address);
+		return weight!=null?weight:RegistryConfig.DEFAULT_WEIGHT;
+	}
+
 }
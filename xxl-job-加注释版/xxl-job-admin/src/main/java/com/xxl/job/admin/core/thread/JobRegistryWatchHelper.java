@@ -0,0 +1,286 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.core.biz.model.ReturnT;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 注册信息变更监听（长轮询）
+ * job registry watch
+ *
+ *      a、调度中心节点内存维护注册变更版本号及最近变更事件（环形缓冲），版本号仅本节点有效，由 epoch 区分节点/重启；
+ *      b、客户端携带 epoch + version 长轮询，有变更立即返回增量（added/removed），否则挂起至超时；
+ *      c、epoch 不一致、version 过旧（变更事件已淘汰）时返回全量地址；
+ */
+public class JobRegistryWatchHelper {
+
+    private static JobRegistryWatchHelper instance = new JobRegistryWatchHelper();
+    public static JobRegistryWatchHelper getInstance(){
+        return instance;
+    }
+
+    private static final int EVENT_BUFFER_SIZE = 1024;
+    public static final int WATCH_TIMEOUT_DEFAULT = 30;
+    public static final int WATCH_TIMEOUT_MAX = 60;
+
+    /**
+     * registry change event
+     */
+    private static class RegistryEvent {
+        private final long version;
+        private final String appname;
+        private final String address;
+        private final boolean added;
+
+        private RegistryEvent(long version, String appname, String address, boolean added) {
+            this.version = version;
+            this.appname = appname;
+            this.address = address;
+            this.added = added;
+        }
+    }
+
+    /**
+     * registry watcher, pending request
+     */
+    private static class RegistryWatcher {
+        private final long epoch;
+        private final long version;
+        private final Set<String> appnameSet;
+        private final DeferredResult<ReturnT<Map<String, Object>>> deferredResult;
+
+        private RegistryWatcher(long epoch, long version, Set<String> appnameSet, DeferredResult<ReturnT<Map<String, Object>>> deferredResult) {
+            this.epoch = epoch;
+            this.version = version;
+            this.appnameSet = appnameSet;
+            this.deferredResult = deferredResult;
+        }
+    }
+
+    private final long epoch = System.currentTimeMillis();
+    private long version = 0;
+    private final RegistryEvent[] eventBuffer = new RegistryEvent[EVENT_BUFFER_SIZE];
+    private final ConcurrentLinkedQueue<RegistryWatcher> watcherQueue = new ConcurrentLinkedQueue<RegistryWatcher>();
+
+
+    // ---------------------- change ----------------------
+
+    /**
+     * executor address added (memory registry)
+     */
+    public void onAdded(String appname, String address) {
+        onChanged(Collections.singletonList(new RegistryEvent(0, appname, address, true)));
+    }
+
+    /**
+     * executor address removed (memory registry)
+     */
+    public void onRemoved(String appname, String address) {
+        onChanged(Collections.singletonList(new RegistryEvent(0, appname, address, false)));
+    }
+
+    /**
+     * diff of full load: old registry -> new registry
+     */
+    public void onReload(Map<String, ? extends Map<String, ?>> oldRegistry, Map<String, ? extends Map<String, ?>> newRegistry) {
+        List<RegistryEvent> eventList = new ArrayList<RegistryEvent>();
+        for (Map.Entry<String, ? extends Map<String, ?>> appEntry: newRegistry.entrySet()) {
+            Map<String, ?> oldAddressMap = oldRegistry.get(appEntry.getKey());
+            for (String address: appEntry.getValue().keySet()) {
+                if (oldAddressMap==null || !oldAddressMap.containsKey(address)) {
+                    eventList.add(new RegistryEvent(0, appEntry.getKey(), address, true));
+                }
+            }
+        }
+        for (Map.Entry<String, ? extends Map<String, ?>> appEntry: oldRegistry.entrySet()) {
+            Map<String, ?> newAddressMap = newRegistry.get(appEntry.getKey());
+            for (String address: appEntry.getValue().keySet()) {
+                if (newAddressMap==null || !newAddressMap.containsKey(address)) {
+                    eventList.add(new RegistryEvent(0, appEntry.getKey(), address, false));
+                }
+            }
+        }
+        if (eventList.size() > 0) {
+            onChanged(eventList);
+        }
+    }
+
+    private void onChanged(List<RegistryEvent> eventList) {
+        synchronized (this) {
+            for (RegistryEvent event: eventList) {
+                version++;
+                eventBuffer[(int) (version % EVENT_BUFFER_SIZE)] = new RegistryEvent(version, event.appname, event.address, event.added);
+            }
+        }
+        notifyWatcher();
+    }
+
+
+    // ---------------------- watch ----------------------
+
+    /**
+     * watch registry change, result returned when changed or timeout
+     *
+     * @param epoch         epoch of admin node, from last result; 0 for first watch
+     * @param version       version from last result
+     * @param appnameList   appname to watch, empty for all
+     * @param timeout       timeout, by second
+     * @return
+     */
+    public DeferredResult<ReturnT<Map<String, Object>>> watch(long epoch, long version, List<String> appnameList, int timeout) {
+        if (timeout <= 0) {
+            timeout = WATCH_TIMEOUT_DEFAULT;
+        }
+        timeout = Math.min(timeout, WATCH_TIMEOUT_MAX);
+        Set<String> appnameSet = (appnameList!=null && appnameList.size()>0)?new HashSet<String>(appnameList):null;
+
+        final DeferredResult<ReturnT<Map<String, Object>>> deferredResult = new DeferredResult<ReturnT<Map<String, Object>>>(timeout * 1000L);
+        final RegistryWatcher watcher = new RegistryWatcher(epoch, version, appnameSet, deferredResult);
+
+        // changed, return now
+        Map<String, Object> result = buildResult(watcher);
+        if (result != null) {
+            deferredResult.setResult(new ReturnT<Map<String, Object>>(result));
+            return deferredResult;
+        }
+
+        // wait
+        deferredResult.onTimeout(new Runnable() {
+            @Override
+            public void run() {
+                watcherQueue.remove(watcher);
+                deferredResult.setResult(new ReturnT<Map<String, Object>>(buildEmptyResult()));
+            }
+        });
+        deferredResult.onCompletion(new Runnable() {
+            @Override
+            public void run() {
+                watcherQueue.remove(watcher);
+            }
+        });
+        watcherQueue.add(watcher);
+
+        // avoid missing change between check and wait
+        notifyWatcher();
+        return deferredResult;
+    }
+
+    private void notifyWatcher() {
+        for (RegistryWatcher watcher: watcherQueue) {
+            if (watcher.deferredResult.isSetOrExpired()) {
+                watcherQueue.remove(watcher);
+                continue;
+            }
+            Map<String, Object> result = buildResult(watcher);
+            if (result != null) {
+                watcherQueue.remove(watcher);
+                watcher.deferredResult.setResult(new ReturnT<Map<String, Object>>(result));
+            }
+        }
+    }
+
+    /**
+     * delta since version of watcher, full address if delta not available; null if nothing changed
+     */
+    private Map<String, Object> buildResult(RegistryWatcher watcher) {
+        Map<String, Set<String>> added = new TreeMap<String, Set<String>>();
+        Map<String, Set<String>> removed = new TreeMap<String, Set<String>>();
+        long currentVersion;
+
+        synchronized (this) {
+            currentVersion = this.version;
+            if (watcher.epoch==this.epoch && watcher.version==currentVersion) {
+                return null;
+            }
+
+            boolean full = watcher.epoch!=this.epoch
+                    || watcher.version>currentVersion
+                    || currentVersion-watcher.version>EVENT_BUFFER_SIZE;
+            if (!full) {
+                for (long v = watcher.version+1; v <= currentVersion; v++) {
+                    RegistryEvent event = eventBuffer[(int) (v % EVENT_BUFFER_SIZE)];
+                    if (watcher.appnameSet!=null && !watcher.appnameSet.contains(event.appname)) {
+                        continue;
+                    }
+                    if (event.added) {
+                        if (!removeAddress(removed, event.appname, event.address)) {
+                            addAddress(added, event.appname, event.address);
+                        }
+                    } else {
+                        if (!removeAddress(added, event.appname, event.address)) {
+                            addAddress(removed, event.appname, event.address);
+                        }
+                    }
+                }
+            }
+
+            if (full) {
+                Map<String, List<String>> registry = JobRegistryMonitorHelper.getInstance().getRegistryAddress();
+                for (Map.Entry<String, List<String>> appEntry: registry.entrySet()) {
+                    if (watcher.appnameSet!=null && !watcher.appnameSet.contains(appEntry.getKey())) {
+                        continue;
+                    }
+                    for (String address: appEntry.getValue()) {
+                        addAddress(added, appEntry.getKey(), address);
+                    }
+                }
+
+                Map<String, Object> result = new HashMap<String, Object>();
+                result.put("epoch", this.epoch);
+                result.put("version", currentVersion);
+                result.put("full", true);
+                result.put("added", added);
+                result.put("removed", removed);
+                return result;
+            }
+        }
+
+        // changes of other appname only, keep waiting
+        if (added.isEmpty() && removed.isEmpty()) {
+            return null;
+        }
+
+        Map<String, Object> result = new HashMap<String, Object>();
+        result.put("epoch", this.epoch);
+        result.put("version", currentVersion);
+        result.put("full", false);
+        result.put("added", added);
+        result.put("removed", removed);
+        return result;
+    }
+
+    private Map<String, Object> buildEmptyResult() {
+        Map<String, Object> result = new HashMap<String, Object>();
+        synchronized (this) {
+            result.put("epoch", this.epoch);
+            result.put("version", this.version);
+        }
+        result.put("full", false);
+        result.put("added", new TreeMap<String, Set<String>>());
+        result.put("removed", new TreeMap<String, Set<String>>());
+        return result;
+    }
+
+    private void addAddress(Map<String, Set<String>> addressMap, String appname, String address) {
+        Set<String> addressSet = addressMap.get(appname);
+        if (addressSet == null) {
+            addressSet = new TreeSet<String>();
+            addressMap.put(appname, addressSet);
+        }
+        addressSet.add(address);
+    }
+
+    private boolean removeAddress(Map<String, Set<String>> addressMap, String appname, String address) {
+        Set<String> addressSet = addressMap.get(appname);
+        if (addressSet==null || !addressSet.remove(address)) {
+            return false;
+        }
+        if (addressSet.isEmpty()) {
+            addressMap.remove(appname);
+        }
+        return true;
+    }
+
+}
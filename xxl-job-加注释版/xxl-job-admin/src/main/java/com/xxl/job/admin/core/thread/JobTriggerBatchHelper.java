@@ -0,0 +1,187 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.core.biz.ExecutorBiz;
+import com.xxl.job.core.biz.model.ReturnT;
+import com.xxl.job.core.biz.model.TriggerParam;
+import com.xxl.job.core.util.ThrowableUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 调度请求合并
+ * job trigger batch, fires to same executor address within a short window sent by one "runBatch"
+ *
+ *      a、合并：同一地址的首个调度请求作为发送方，等待 window 毫秒（或凑满 maxSize）后将期间到达的请求一次发送，其余调度线程等待各自结果；
+ *      b、单个：窗口内仅一个请求时仍使用 "run"；
+ *      c、兼容：执行器不支持 "runBatch"（旧版本）时逐个 "run"，并在一段时间内不再对该地址合并；
+ */
+public class JobTriggerBatchHelper {
+    private static Logger logger = LoggerFactory.getLogger(JobTriggerBatchHelper.class);
+
+    private static JobTriggerBatchHelper instance = new JobTriggerBatchHelper();
+    public static JobTriggerBatchHelper getInstance(){
+        return instance;
+    }
+
+    private static final long UNSUPPORTED_RETRY_INTERVAL = 10 * 60 * 1000;
+
+    private volatile int windowMillis = 0;
+    private volatile int maxSize = 100;
+
+    private final ConcurrentMap<String, TriggerBatch> batchMap = new ConcurrentHashMap<String, TriggerBatch>();
+    private final ConcurrentMap<String, Long> unsupportedMap = new ConcurrentHashMap<String, Long>();
+
+    /**
+     * @param windowMillis  batch window, disabled if <= 0
+     * @param maxSize       max trigger param of one batch, send at once when full
+     */
+    public void start(int windowMillis, int maxSize){
+        this.windowMillis = windowMillis;
+        this.maxSize = maxSize>1?maxSize:1;
+    }
+
+    public void toStop(){
+        windowMillis = 0;
+        unsupportedMap.clear();
+    }
+
+    /**
+     * pending batch of one address
+     */
+    private static class TriggerBatch {
+        private final List<TriggerParam> triggerParamList = new ArrayList<TriggerParam>();
+        private final List<CompletableFuture<ReturnT<String>>> futureList = new ArrayList<CompletableFuture<ReturnT<String>>>();
+        private boolean closed = false;
+    }
+
+
+    // ---------------------- run ----------------------
+
+    /**
+     * run, batched with other fires to same address
+     */
+    public ReturnT<String> run(String address, ExecutorBiz executorBiz, TriggerParam triggerParam) {
+        if (windowMillis <= 0 || maxSize <= 1 || isUnsupported(address)) {
+            return executorBiz.run(triggerParam);
+        }
+
+        // join batch, first one lead
+        CompletableFuture<ReturnT<String>> future = new CompletableFuture<ReturnT<String>>();
+        TriggerBatch batch;
+        boolean leader;
+        while (true) {
+            batch = batchMap.get(address);
+            if (batch == null) {
+                TriggerBatch newBatch = new TriggerBatch();
+                batch = batchMap.putIfAbsent(address, newBatch);
+                if (batch == null) {
+                    batch = newBatch;
+                }
+            }
+            synchronized (batch) {
+                if (batch.closed) {
+                    batchMap.remove(address, batch);
+                    continue;
+                }
+                batch.triggerParamList.add(triggerParam);
+                batch.futureList.add(future);
+                leader = batch.triggerParamList.size() == 1;
+                if (batch.triggerParamList.size() >= maxSize) {
+                    close(address, batch);
+                    batch.notifyAll();
+                }
+                break;
+            }
+        }
+
+        // leader, wait window or full, then send
+        if (leader) {
+            synchronized (batch) {
+                long deadline = System.currentTimeMillis() + windowMillis;
+                long remain;
+                while (!batch.closed && (remain = deadline - System.currentTimeMillis()) > 0) {
+                    try {
+                        batch.wait(remain);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                close(address, batch);
+            }
+            send(address, executorBiz, batch);
+        }
+
+        // result, run self if batch not supported
+        try {
+            ReturnT<String> result = future.get();
+            return result!=null?result:executorBiz.run(triggerParam);
+        } catch (Exception e) {
+            logger.error(">>>>>>>>>>> xxl-job trigger batch error, address:{}", address, e);
+            return new ReturnT<String>(ReturnT.FAIL_CODE, ThrowableUtil.toString(e));
+        }
+    }
+
+    private void close(String address, TriggerBatch batch) {
+        batch.closed = true;
+        batchMap.remove(address, batch);
+    }
+
+    private void send(String address, ExecutorBiz executorBiz, TriggerBatch batch) {
+        List<TriggerParam> triggerParamList = batch.triggerParamList;
+        List<CompletableFuture<ReturnT<String>>> futureList = batch.futureList;
+        try {
+            // single, plain run
+            if (triggerParamList.size() == 1) {
+                futureList.get(0).complete(executorBiz.run(triggerParamList.get(0)));
+                return;
+            }
+
+            ReturnT<List<ReturnT<String>>> batchResult = executorBiz.runBatch(triggerParamList);
+            List<ReturnT<String>> resultList = batchResult.getContent();
+            if (resultList != null && resultList.size() == triggerParamList.size()) {
+                for (int i = 0; i < futureList.size(); i++) {
+                    futureList.get(i).complete(resultList.get(i));
+                }
+                return;
+            }
+
+            // not support (old executor), each run self
+            if (batchResult.getMsg()!=null && batchResult.getMsg().contains("uri-mapping(/runBatch)")) {
+                unsupportedMap.put(address, System.currentTimeMillis());
+                logger.info(">>>>>>>>>>> xxl-job trigger batch not supported by executor, address:{}", address);
+                for (CompletableFuture<ReturnT<String>> future: futureList) {
+                    future.complete(null);
+                }
+                return;
+            }
+            for (CompletableFuture<ReturnT<String>> future: futureList) {
+                future.complete(new ReturnT<String>(batchResult.getCode()!=ReturnT.SUCCESS_CODE?batchResult.getCode():ReturnT.FAIL_CODE, batchResult.getMsg()));
+            }
+        } catch (Exception e) {
+            logger.error(">>>>>>>>>>> xxl-job trigger batch error, address:{}", address, e);
+            for (CompletableFuture<ReturnT<String>> future: futureList) {
+                future.complete(new ReturnT<String>(ReturnT.FAIL_CODE, ThrowableUtil.toString(e)));
+            }
+        }
+    }
+
+    private boolean isUnsupported(String address) {
+        Long unsupportedTime = unsupportedMap.get(address);
+        if (unsupportedTime == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() - unsupportedTime > UNSUPPORTED_RETRY_INTERVAL) {
+            unsupportedMap.remove(address);
+            return false;
+        }
+        return true;
+    }
+
+}
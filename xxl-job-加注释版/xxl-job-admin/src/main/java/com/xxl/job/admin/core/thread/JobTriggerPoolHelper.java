@@ -74,7 +74,8 @@ public class JobTriggerPoolHelper {
                            final int failRetryCount,
                            final String executorShardingParam,
                            final String executorParam,
-                           final String addressList) {
+                           final String addressList,
+                           final long workflowNodeId) {
         // 选择线程池fast or slow
         // choose thread pool
         ThreadPoolExecutor triggerPool_ = fastTriggerPool;
@@ -97,7 +98,7 @@ public class JobTriggerPoolHelper {
                     // jobId:作业id,triggerType:触发器类型(见：TriggerTypeEnum),failRetryCount:失败重试次数
                     // executorShardingParam:执行器分片参数,executorParam:执行器参数,addressList:地址列表
                     // 如果从管理端的【任务管理】->【操作】->【执行一次】触发时，executorShardingParam=null
-                    XxlJobTrigger.trigger(jobId, triggerType, failRetryCount, executorShardingParam, executorParam, addressList);
+                    XxlJobTrigger.trigger(jobId, triggerType, failRetryCount, executorShardingParam, executorParam, addressList, workflowNodeId);
                 } catch (Exception e) {
                     logger.error(e.getMessage(), e);
                 } finally {
@@ -149,7 +150,15 @@ public class JobTriggerPoolHelper {
      *          not null: cover job param
      */
     public static void trigger(int jobId, TriggerTypeEnum triggerType, int failRetryCount, String executorShardingParam, String executorParam, String addressList) {
-        helper.addTrigger(jobId, triggerType, failRetryCount, executorShardingParam, executorParam, addressList);
+        helper.addTrigger(jobId, triggerType, failRetryCount, executorShardingParam, executorParam, addressList, 0);
+    }
+
+    /**
+     * @param workflowNodeId
+     *          >0: trigger of workflow node, log linked to node
+     */
+    public static void trigger(int jobId, TriggerTypeEnum triggerType, int failRetryCount, String executorShardingParam, String executorParam, String addressList, long workflowNodeId) {
+        helper.addTrigger(jobId, triggerType, failRetryCount, executorShardingParam, executorParam, addressList, workflowNodeId);
     }
 
 }
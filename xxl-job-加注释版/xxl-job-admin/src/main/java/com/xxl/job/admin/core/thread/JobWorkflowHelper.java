@@ -0,0 +1,354 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
+import com.xxl.job.admin.core.model.XxlJobLog;
+import com.xxl.job.admin.core.model.XxlJobWorkflow;
+import com.xxl.job.admin.core.model.XxlJobWorkflowNode;
+import com.xxl.job.admin.core.model.XxlJobWorkflowRun;
+import com.xxl.job.admin.core.trigger.TriggerTypeEnum;
+import com.xxl.job.admin.core.util.I18nUtil;
+import com.xxl.job.admin.core.workflow.WorkflowGraph;
+import com.xxl.job.core.biz.model.ReturnT;
+import com.xxl.job.core.util.DateUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * job workflow helper
+ *
+ *      a、触发：保存运行记录（含 DAG 快照）及全部节点，无父节点的节点并行触发；
+ *      b、推进：节点日志结束（回调、终止、丢失、调度失败且无剩余重试）时累加节点完成数，全部分片结束后节点成功/失败，推进下游节点；
+ *          同一日志仅累加一次：先写入 xxl_job_workflow_node_log（日志ID主键），写入成功才累加；
+ *      c、状态：节点、运行记录状态变更均为条件更新（CAS），调度中心集群下同一节点仅触发一次；
+ *      d、清理：运行记录保留 "xxl.job.logretentiondays" 天；
+ *      e、派发丢失：节点置为运行中后调度被拒绝时立即置为失败；调度中心宕机、调度线程异常等导致超过10min仍未派发（log_count = 0）的运行中节点，由清理线程置为失败并推进；
+ */
+public class JobWorkflowHelper {
+    private static Logger logger = LoggerFactory.getLogger(JobWorkflowHelper.class);
+
+    private static JobWorkflowHelper instance = new JobWorkflowHelper();
+    public static JobWorkflowHelper getInstance(){
+        return instance;
+    }
+
+    // node status
+    public static final int NODE_WAITING = 0;
+    public static final int NODE_RUNNING = 1;
+    public static final int NODE_SUCCESS = 2;
+    public static final int NODE_FAIL = 3;
+    public static final int NODE_SKIPPED = 4;
+
+    // run status
+    public static final int RUN_RUNNING = 0;
+    public static final int RUN_SUCCESS = 1;
+    public static final int RUN_FAIL = 2;
+
+    private static final int PAGE_SIZE = 1000;
+
+    /**
+     * running node not dispatched (log_count = 0) longer than this, dispatch lost
+     */
+    private static final int DISPATCH_LOST_MINUTES = 10;
+
+
+    // ---------------------- run ----------------------
+
+    /**
+     * trigger workflow, start a new run
+     *
+     * @param workflowId
+     * @return run id
+     */
+    public ReturnT<String> trigger(int workflowId) {
+        XxlJobWorkflow workflow = XxlJobAdminConfig.getAdminConfig().getXxlJobWorkflowDao().load(workflowId);
+        if (workflow == null) {
+            return new ReturnT<String>(ReturnT.FAIL_CODE, I18nUtil.getString("workflow_unvalid"));
+        }
+        WorkflowGraph graph = WorkflowGraph.parse(workflow.getGraph());
+        String validMsg = graph!=null?graph.valid():"json invalid";
+        if (validMsg != null) {
+            return new ReturnT<String>(ReturnT.FAIL_CODE, I18nUtil.getString("workflow_field_graph_unvalid") + "：" + validMsg);
+        }
+
+        // save run, with graph snapshot
+        XxlJobWorkflowRun run = new XxlJobWorkflowRun();
+        run.setWorkflowId(workflowId);
+        run.setGraph(workflow.getGraph());
+        run.setRunStatus(RUN_RUNNING);
+        run.setTriggerTime(new Date());
+        XxlJobAdminConfig.getAdminConfig().getXxlJobWorkflowRunDao().save(run);
+
+        // save node
+        List<XxlJobWorkflowNode> nodeList = new ArrayList<XxlJobWorkflowNode>();
+        for (Integer jobId: graph.getNodes()) {
+            XxlJobWorkflowNode node = new XxlJobWorkflowNode();
+            node.setRunId(run.getId());
+            node.setJobId(jobId);
+            node.setNodeStatus(NODE_WAITING);
+            node.setUpdateTime(run.getTriggerTime());
+            nodeList.add(node);
+        }
+        XxlJobAdminConfig.getAdminConfig().getXxlJobWorkflowNodeDao().saveBatch(nodeList);
+        logger.info(">>>>>>>>>>> xxl-job, workflow trigger, workflowId:{}, runId:{}", workflowId, run.getId());
+
+        // trigger root node
+        advance(run.getId());
+        return new ReturnT<String>(String.valueOf(run.getId()));
+    }
+
+    /**
+     * node dispatched, log count known before trigger (sharding broadcast: count of shard)
+     */
+    public void nodeDispatch(long nodeId, int logCount) {
+        XxlJobAdminConfig.getAdminConfig().getXxlJobWorkflowNodeDao().updateLogCount(nodeId, logCount);
+    }
+
+    /**
+     * node dispatch fail, such as job not found
+     */
+    public void nodeDispatchFail(long nodeId) {
+        try {
+            int ret = XxlJobAdminConfig.getAdminConfig().getXxlJobWorkflowNodeDao().updateStatus(nodeId, NODE_RUNNING, NODE_FAIL);
+            if (ret > 0) {
+                XxlJobWorkflowNode node = XxlJobAdminConfig.getAdminConfig().getXxlJobWorkflowNodeDao().load(nodeId);
+                advance(node.getRunId());
+            }
+        } catch (Exception e) {
+            logger.error(">>>>>>>>>>> xxl-job, workflow node dispatch fail error, nodeId:{}", nodeId, e);
+        }
+    }
+
+    /**
+     * log finished (callback, kill, lost, trigger fail), count into workflow node
+     *
+     * @param jobLog
+     */
+    public void logFinish(XxlJobLog jobLog) {
+        if (jobLog.getWorkflowNodeId() <= 0) {
+            return;
+        }
+
+        boolean success = jobLog.getHandleCode() == ReturnT.SUCCESS_CODE;
+        if (!success) {
+            boolean triggerFail = jobLog.getTriggerCode()!=0 && jobLog.getTriggerCode()!=ReturnT.SUCCESS_CODE;
+            boolean handleFail = jobLog.getHandleCode()!=0 && jobLog.getHandleCode()!=ReturnT.SUCCESS_CODE;
+            if (!triggerFail && !handleFail) {
+                return;     // running
+            }
+            if (jobLog.getExecutorFailRetryCount() > 0) {
+                return;     // fail retry by JobFailMonitorHelper, wait for retry log
+            }
+        }
+
+        try {
+            long nodeId = jobLog.getWorkflowNodeId();
+
+            // once per log, repeat finish (concurrent callback, lost, kill) ignored
+            int saveRet = XxlJobAdminConfig.getAdminConfig().getXxlJobWorkflowNodeDao().saveFinishLog(nodeId, jobLog.getId());
+            if (saveRet < 1) {
+                return;
+            }
+            XxlJobAdminConfig.getAdminConfig().getXxlJobWorkflowNodeDao().increaseFinish(nodeId, success?0:1);
+            int ret = XxlJobAdminConfig.getAdminConfig().getXxlJobWorkflowNodeDao().complete(nodeId, NODE_RUNNING, NODE_SUCCESS, NODE_FAIL);
+            if (ret > 0) {
+                XxlJobWorkflowNode node = XxlJobAdminConfig.getAdminConfig().getXxlJobWorkflowNodeDao().load(nodeId);
+                advance(node.getRunId());
+            }
+        } catch (Exception e) {
+            logger.error(">>>>>>>>>>> xxl-job, workflow log finish error, logId:{}", jobLog.getId(), e);
+        }
+    }
+
+    /**
+     * advance run: trigger or skip node whose parents all finished, then finish run if no node left
+     */
+    private void advance(long runId) {
+        XxlJobWorkflowRun run = XxlJobAdminConfig.getAdminConfig().getXxlJobWorkflowRunDao().load(runId);
+        if (run==null || run.getRunStatus()!=RUN_RUNNING) {
+            return;
+        }
+        WorkflowGraph graph = WorkflowGraph.parse(run.getGraph());
+        List<XxlJobWorkflowNode> nodeList = XxlJobAdminConfig.getAdminConfig().getXxlJobWorkflowNodeDao().findByRunId(runId);
+        Map<Integer, XxlJobWorkflowNode> nodeMap = new HashMap<Integer, XxlJobWorkflowNode>();
+        for (XxlJobWorkflowNode node: nodeList) {
+            nodeMap.put(node.getJobId(), node);
+        }
+
+        // trigger or skip ready node, skip passed to downstream
+        boolean skipped = true;
+        while (skipped) {
+            skipped = false;
+            for (XxlJobWorkflowNode node: nodeList) {
+                if (node.getNodeStatus() != NODE_WAITING) {
+                    continue;
+                }
+                int nextStatus = nextStatus(graph, node.getJobId(), nodeMap);
+                if (nextStatus == NODE_WAITING) {
+                    continue;
+                }
+                int ret = XxlJobAdminConfig.getAdminConfig().getXxlJobWorkflowNodeDao().updateStatus(node.getId(), NODE_WAITING, nextStatus);
+                if (ret < 1) {
+                    continue;       // advanced by other
+                }
+                node.setNodeStatus(nextStatus);
+                if (nextStatus == NODE_RUNNING) {
+                    try {
+                        JobTriggerPoolHelper.trigger(node.getJobId(), TriggerTypeEnum.WORKFLOW, -1, null, null, null, node.getId());
+                    } catch (RejectedExecutionException e) {
+                        // trigger pool full or stopped, fail node and pass to downstream
+                        logger.error(">>>>>>>>>>> xxl-job, workflow node trigger rejected, nodeId:{}", node.getId(), e);
+                        XxlJobAdminConfig.getAdminConfig().getXxlJobWorkflowNodeDao().updateStatus(node.getId(), NODE_RUNNING, NODE_FAIL);
+                        node.setNodeStatus(NODE_FAIL);
+                        skipped = true;
+                    }
+                } else {
+                    skipped = true;
+                }
+            }
+        }
+
+        // finish run
+        boolean fail = false;
+        for (XxlJobWorkflowNode node: nodeList) {
+            if (node.getNodeStatus()==NODE_WAITING || node.getNodeStatus()==NODE_RUNNING) {
+                return;
+            }
+            if (node.getNodeStatus() == NODE_FAIL) {
+                fail = true;
+            }
+        }
+        int ret = XxlJobAdminConfig.getAdminConfig().getXxlJobWorkflowRunDao().updateStatus(runId, RUN_RUNNING, fail?RUN_FAIL:RUN_SUCCESS, new Date());
+        if (ret > 0) {
+            logger.info(">>>>>>>>>>> xxl-job, workflow finish, workflowId:{}, runId:{}, fail:{}", run.getWorkflowId(), runId, fail);
+        }
+    }
+
+    /**
+     * next status of waiting node: NODE_WAITING if parent not finished, NODE_RUNNING if all edges matched, else NODE_SKIPPED
+     */
+    static int nextStatus(WorkflowGraph graph, int jobId, Map<Integer, XxlJobWorkflowNode> nodeMap) {
+        boolean match = true;
+        for (WorkflowGraph.Edge edge: graph.parents(jobId)) {
+            XxlJobWorkflowNode parent = nodeMap.get(edge.getFrom());
+            int parentStatus = parent!=null?parent.getNodeStatus():NODE_SKIPPED;
+            if (parentStatus==NODE_WAITING || parentStatus==NODE_RUNNING) {
+                return NODE_WAITING;
+            }
+            if (parentStatus==NODE_SKIPPED || !edge.match(parentStatus==NODE_SUCCESS)) {
+                match = false;
+            }
+        }
+        return match?NODE_RUNNING:NODE_SKIPPED;
+    }
+
+    /**
+     * remove run of workflow
+     */
+    public void removeRun(int workflowId) {
+        List<Long> runIds = null;
+        do {
+            runIds = XxlJobAdminConfig.getAdminConfig().getXxlJobWorkflowRunDao().findRunIdsByWorkflowId(workflowId, PAGE_SIZE);
+            clearRun(runIds);
+        } while (runIds!=null && runIds.size()>0);
+    }
+
+    private void clearRun(List<Long> runIds) {
+        if (runIds!=null && runIds.size()>0) {
+            XxlJobAdminConfig.getAdminConfig().getXxlJobWorkflowNodeDao().clearFinishLog(runIds);
+            XxlJobAdminConfig.getAdminConfig().getXxlJobWorkflowNodeDao().clearNode(runIds);
+            XxlJobAdminConfig.getAdminConfig().getXxlJobWorkflowRunDao().clearRun(runIds);
+        }
+    }
+
+
+    /**
+     * running node dispatch lost (admin crash, trigger thread error before "nodeDispatch"), never finished by log; fail and advance
+     */
+    private void processDispatchLost() {
+        Date lostTime = DateUtil.addMinutes(new Date(), -DISPATCH_LOST_MINUTES);
+        List<Long> nodeIds = XxlJobAdminConfig.getAdminConfig().getXxlJobWorkflowNodeDao().findDispatchLostNodeIds(NODE_RUNNING, lostTime, PAGE_SIZE);
+        if (nodeIds == null) {
+            return;
+        }
+        for (Long nodeId: nodeIds) {        // one page each minute, the rest next round
+            logger.warn(">>>>>>>>>>> xxl-job, workflow node dispatch lost, mark fail, nodeId:{}", nodeId);
+            nodeDispatchFail(nodeId);
+        }
+    }
+
+
+    // ---------------------- clean ----------------------
+
+    private Thread cleanThread;
+    private volatile boolean toStop = false;
+    public void start(){
+        cleanThread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+
+                long lastCleanTime = 0;
+                while (!toStop) {
+
+                    // node dispatch lost, each minute
+                    try {
+                        processDispatchLost();
+                    } catch (Exception e) {
+                        if (!toStop) {
+                            logger.error(">>>>>>>>>>> xxl-job, job workflow dispatch lost check error:{}", e);
+                        }
+                    }
+
+                    // clean expired run, same retention as log, each hour
+                    try {
+                        if (XxlJobAdminConfig.getAdminConfig().getLogretentiondays() > 0
+                                && System.currentTimeMillis() - lastCleanTime >= 60 * 60 * 1000) {
+                            lastCleanTime = System.currentTimeMillis();
+                            Date clearBeforeTime = DateUtil.addDays(new Date(), -1 * XxlJobAdminConfig.getAdminConfig().getLogretentiondays());
+                            List<Long> runIds = null;
+                            do {
+                                runIds = XxlJobAdminConfig.getAdminConfig().getXxlJobWorkflowRunDao().findClearRunIds(clearBeforeTime, PAGE_SIZE);
+                                clearRun(runIds);
+                            } while (runIds!=null && runIds.size()>0 && !toStop);
+                        }
+                    } catch (Exception e) {
+                        if (!toStop) {
+                            logger.error(">>>>>>>>>>> xxl-job, job workflow clean thread error:{}", e);
+                        }
+                    }
+
+                    try {
+                        TimeUnit.MINUTES.sleep(1);
+                    } catch (Exception e) {
+                        if (!toStop) {
+                            logger.error(e.getMessage(), e);
+                        }
+                    }
+
+                }
+
+                logger.info(">>>>>>>>>>> xxl-job, job workflow clean thread stop");
+
+            }
+        });
+        cleanThread.setDaemon(true);
+        cleanThread.setName("xxl-job, admin JobWorkflowHelper");
+        cleanThread.start();
+    }
+
+    public void toStop(){
+        toStop = true;
+        // interrupt and wait
+        cleanThread.interrupt();
+        try {
+            cleanThread.join();
+        } catch (InterruptedException e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+}
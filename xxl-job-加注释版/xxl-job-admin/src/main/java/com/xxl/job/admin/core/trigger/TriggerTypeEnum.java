@@ -17,7 +17,9 @@ public enum TriggerTypeEnum {
     // 父任务触发
     PARENT(I18nUtil.getString("jobconf_trigger_type_parent")),
     // API触发
-    API(I18nUtil.getString("jobconf_trigger_type_api"));
+    API(I18nUtil.getString("jobconf_trigger_type_api")),
+    // 工作流触发
+    WORKFLOW(I18nUtil.getString("jobconf_trigger_type_workflow"));
 
     private TriggerTypeEnum(String title){
         this.title = title;
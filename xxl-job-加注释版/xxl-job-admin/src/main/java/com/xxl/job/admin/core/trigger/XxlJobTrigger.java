@@ -6,6 +6,9 @@ import com.xxl.job.admin.core.model.XxlJobInfo;
 import com.xxl.job.admin.core.model.XxlJobLog;
 import com.xxl.job.admin.core.route.ExecutorRouteStrategyEnum;
 import com.xxl.job.admin.core.scheduler.XxlJobScheduler;
+import com.xxl.job.admin.core.thread.JobLogReportHelper;
+import com.xxl.job.admin.core.thread.JobTriggerBatchHelper;
+import com.xxl.job.admin.core.thread.JobWorkflowHelper;
 import com.xxl.job.admin.core.util.I18nUtil;
 import com.xxl.job.core.biz.ExecutorBiz;
 import com.xxl.job.core.biz.model.ReturnT;
@@ -17,6 +20,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Date;
+import java.util.List;
 
 /**
  * xxl-job trigger
@@ -25,6 +29,11 @@ import java.util.Date;
 public class XxlJobTrigger {
     private static Logger logger = LoggerFactory.getLogger(XxlJobTrigger.class);
 
+    /**
+     * max other address tried when executor busy
+     */
+    private static final int BUSY_RETRY_MAX = 3;
+
     /**
      * trigger job
      *
@@ -40,18 +49,24 @@ public class XxlJobTrigger {
      * @param addressList
      *          null: use executor addressList
      *          not null: cover
+     * @param workflowNodeId
+     *          >0: trigger of workflow node, log linked to node
      */
     public static void trigger(int jobId,
                                TriggerTypeEnum triggerType,
                                int failRetryCount,
                                String executorShardingParam,
                                String executorParam,
-                               String addressList) {
+                               String addressList,
+                               long workflowNodeId) {
         //通过任务id获取该条任务的信息
         // load data
         XxlJobInfo jobInfo = XxlJobAdminConfig.getAdminConfig().getXxlJobInfoDao().loadById(jobId);
         if (jobInfo == null) {
             logger.warn(">>>>>>>>>>>> trigger fail, jobId invalid，jobId={}", jobId);
+            if (workflowNodeId > 0) {
+                JobWorkflowHelper.getInstance().nodeDispatchFail(workflowNodeId);
+            }
             return;
         }
         if (executorParam != null) {
@@ -82,14 +97,21 @@ public class XxlJobTrigger {
         if (ExecutorRouteStrategyEnum.SHARDING_BROADCAST==ExecutorRouteStrategyEnum.match(jobInfo.getExecutorRouteStrategy(), null)
                 && group.getRegistryList()!=null && !group.getRegistryList().isEmpty()
                 && shardingParam==null) {
+            // workflow node, finished when all shard finished; retry log replaces failed one, not counted
+            if (workflowNodeId>0 && triggerType!=TriggerTypeEnum.RETRY) {
+                JobWorkflowHelper.getInstance().nodeDispatch(workflowNodeId, group.getRegistryList().size());
+            }
             for (int i = 0; i < group.getRegistryList().size(); i++) {
-                processTrigger(group, jobInfo, finalFailRetryCount, triggerType, i, group.getRegistryList().size());
+                processTrigger(group, jobInfo, finalFailRetryCount, triggerType, i, group.getRegistryList().size(), workflowNodeId);
             }
         } else {
             if (shardingParam == null) {
                 shardingParam = new int[]{0, 1};
             }
-            processTrigger(group, jobInfo, finalFailRetryCount, triggerType, shardingParam[0], shardingParam[1]);
+            if (workflowNodeId>0 && triggerType!=TriggerTypeEnum.RETRY) {
+                JobWorkflowHelper.getInstance().nodeDispatch(workflowNodeId, 1);
+            }
+            processTrigger(group, jobInfo, finalFailRetryCount, triggerType, shardingParam[0], shardingParam[1], workflowNodeId);
         }
 
     }
@@ -110,8 +132,9 @@ public class XxlJobTrigger {
      * @param triggerType
      * @param index                     sharding index
      * @param total                     sharding index
+     * @param workflowNodeId            workflow node, 0 if not triggered by workflow
      */
-    private static void processTrigger(XxlJobGroup group, XxlJobInfo jobInfo, int finalFailRetryCount, TriggerTypeEnum triggerType, int index, int total){
+    private static void processTrigger(XxlJobGroup group, XxlJobInfo jobInfo, int finalFailRetryCount, TriggerTypeEnum triggerType, int index, int total, long workflowNodeId){
 
         // param
         ExecutorBlockStrategyEnum blockStrategy = ExecutorBlockStrategyEnum.match(jobInfo.getExecutorBlockStrategy(), ExecutorBlockStrategyEnum.SERIAL_EXECUTION);  // block strategy
@@ -123,7 +146,9 @@ public class XxlJobTrigger {
         jobLog.setJobGroup(jobInfo.getJobGroup());
         jobLog.setJobId(jobInfo.getId());
         jobLog.setTriggerTime(new Date());
+        jobLog.setWorkflowNodeId(workflowNodeId);
         XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().save(jobLog);
+        JobLogReportHelper.getInstance().logCreate(jobLog);
         logger.debug(">>>>>>>>>>> xxl-job trigger start, jobId:{}", jobLog.getId());
 
         // 2、init trigger-param
@@ -165,6 +190,27 @@ public class XxlJobTrigger {
         ReturnT<String> triggerResult = null;
         if (address != null) {
             triggerResult = runExecutor(triggerParam, address);
+
+            // executor busy (fast-fail, not run), failover to next addresses, strategy without affinity only
+            if (triggerResult.getCode() == ReturnT.BUSY_CODE
+                    && ExecutorRouteStrategyEnum.SHARDING_BROADCAST != executorRouteStrategyEnum
+                    && ExecutorRouteStrategyEnum.CONSISTENT_HASH != executorRouteStrategyEnum) {
+                StringBuffer busyMsgSb = new StringBuffer(triggerResult.getMsg());
+                List<String> registryList = group.getRegistryList();
+                int busyIndex = registryList.indexOf(address);
+                int retryCount = Math.min(BUSY_RETRY_MAX, registryList.size() - 1);
+                for (int i = 1; i <= retryCount; i++) {
+                    String otherAddress = registryList.get((busyIndex + i) % registryList.size());
+                    ReturnT<String> otherResult = runExecutor(triggerParam, otherAddress);
+                    busyMsgSb.append("<br><br>").append(otherResult.getMsg());
+                    if (otherResult.getCode() == ReturnT.SUCCESS_CODE) {
+                        address = otherAddress;
+                        triggerResult = otherResult;
+                        break;
+                    }
+                }
+                triggerResult.setMsg(busyMsgSb.toString());
+            }
         } else {
             triggerResult = new ReturnT<String>(ReturnT.FAIL_CODE, null);
         }
@@ -197,6 +243,8 @@ public class XxlJobTrigger {
         jobLog.setTriggerCode(triggerResult.getCode());
         jobLog.setTriggerMsg(triggerMsgSb.toString());
         XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().updateTriggerInfo(jobLog);
+        JobLogReportHelper.getInstance().logChange(jobLog, 0, 0);
+        JobWorkflowHelper.getInstance().logFinish(jobLog);
 
         logger.debug(">>>>>>>>>>> xxl-job trigger end, jobId:{}", jobLog.getId());
     }
@@ -212,7 +260,7 @@ public class XxlJobTrigger {
         try {
             // *** 重点：调起应用任务
             ExecutorBiz executorBiz = XxlJobScheduler.getExecutorBiz(address);
-            runResult = executorBiz.run(triggerParam);
+            runResult = JobTriggerBatchHelper.getInstance().run(address, executorBiz, triggerParam);   // batched with other fires to same address
         } catch (Exception e) {
             logger.error(">>>>>>>>>>> xxl-job trigger error, please check if the executor[{}] is running.", address, e);
             runResult = new ReturnT<String>(ReturnT.FAIL_CODE, ThrowableUtil.toString(e));
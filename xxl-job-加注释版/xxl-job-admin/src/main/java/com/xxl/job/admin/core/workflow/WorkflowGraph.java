@@ -0,0 +1,177 @@
+package com.xxl.job.admin.core.workflow;
+
+import com.xxl.job.core.util.GsonTool;
+
+import java.util.*;
+
+/**
+ * workflow graph, DAG of job
+ *
+ *      a、节点：任务ID，同一工作流内唯一；
+ *      b、连线：from -> to，附带条件 "SUCCESS"（默认）/"FAIL"/"ALWAYS"，匹配父节点结果；
+ *      c、汇聚：节点等待全部父节点结束，全部连线条件满足时触发，否则跳过（跳过向下游传递）；
+ *
+ * json: {"nodes":[1,2,3,4],"edges":[{"from":1,"to":2},{"from":1,"to":3},{"from":2,"to":4},{"from":3,"to":4,"condition":"ALWAYS"}]}
+ */
+public class WorkflowGraph {
+
+    public static final String CONDITION_SUCCESS = "SUCCESS";
+    public static final String CONDITION_FAIL = "FAIL";
+    public static final String CONDITION_ALWAYS = "ALWAYS";
+
+    public static class Edge {
+        private int from;
+        private int to;
+        private String condition;
+
+        public int getFrom() {
+            return from;
+        }
+
+        public int getTo() {
+            return to;
+        }
+
+        public String getCondition() {
+            return condition!=null?condition:CONDITION_SUCCESS;
+        }
+
+        /**
+         * match parent result
+         *
+         * @param parentSuccess     parent node finished, success or fail
+         */
+        public boolean match(boolean parentSuccess) {
+            String condition = getCondition();
+            if (CONDITION_ALWAYS.equals(condition)) {
+                return true;
+            }
+            return CONDITION_SUCCESS.equals(condition) == parentSuccess;
+        }
+    }
+
+    private List<Integer> nodes;
+    private List<Edge> edges;
+
+    public List<Integer> getNodes() {
+        return nodes!=null?nodes:Collections.<Integer>emptyList();
+    }
+
+    public List<Edge> getEdges() {
+        return edges!=null?edges:Collections.<Edge>emptyList();
+    }
+
+    /**
+     * parse graph json, null if not valid json
+     */
+    public static WorkflowGraph parse(String graph) {
+        if (graph==null || graph.trim().length()==0) {
+            return null;
+        }
+        try {
+            return GsonTool.fromJson(graph, WorkflowGraph.class);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * valid graph
+     *
+     * @return error msg, null if valid
+     */
+    public String valid() {
+        if (getNodes().isEmpty()) {
+            return "nodes empty";
+        }
+        Set<Integer> nodeSet = new HashSet<Integer>();
+        for (Integer node: getNodes()) {
+            if (node==null || node <= 0) {
+                return "node invalid: " + node;
+            }
+            if (!nodeSet.add(node)) {
+                return "node repeat: " + node;
+            }
+        }
+
+        Set<String> edgeSet = new HashSet<String>();
+        for (Edge edge: getEdges()) {
+            if (!nodeSet.contains(edge.getFrom()) || !nodeSet.contains(edge.getTo())) {
+                return "edge node not found: " + edge.getFrom() + "->" + edge.getTo();
+            }
+            if (edge.getFrom() == edge.getTo()) {
+                return "edge self loop: " + edge.getFrom();
+            }
+            if (!edgeSet.add(edge.getFrom() + "->" + edge.getTo())) {
+                return "edge repeat: " + edge.getFrom() + "->" + edge.getTo();
+            }
+            String condition = edge.getCondition();
+            if (!CONDITION_SUCCESS.equals(condition) && !CONDITION_FAIL.equals(condition) && !CONDITION_ALWAYS.equals(condition)) {
+                return "edge condition invalid: " + condition;
+            }
+        }
+
+        // acyclic, topological sort
+        Map<Integer, Integer> inDegree = new HashMap<Integer, Integer>();
+        for (Integer node: getNodes()) {
+            inDegree.put(node, parents(node).size());
+        }
+        LinkedList<Integer> readyNodes = new LinkedList<Integer>(roots());
+        int sortedCount = 0;
+        while (!readyNodes.isEmpty()) {
+            Integer node = readyNodes.poll();
+            sortedCount++;
+            for (Edge edge: children(node)) {
+                int degree = inDegree.get(edge.getTo()) - 1;
+                inDegree.put(edge.getTo(), degree);
+                if (degree == 0) {
+                    readyNodes.add(edge.getTo());
+                }
+            }
+        }
+        if (sortedCount != getNodes().size()) {
+            return "graph has cycle";
+        }
+        return null;
+    }
+
+    /**
+     * node without parent
+     */
+    public List<Integer> roots() {
+        List<Integer> roots = new ArrayList<Integer>();
+        for (Integer node: getNodes()) {
+            if (parents(node).isEmpty()) {
+                roots.add(node);
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * edges into node
+     */
+    public List<Edge> parents(int node) {
+        List<Edge> parents = new ArrayList<Edge>();
+        for (Edge edge: getEdges()) {
+            if (edge.getTo() == node) {
+                parents.add(edge);
+            }
+        }
+        return parents;
+    }
+
+    /**
+     * edges out of node
+     */
+    public List<Edge> children(int node) {
+        List<Edge> children = new ArrayList<Edge>();
+        for (Edge edge: getEdges()) {
+            if (edge.getFrom() == node) {
+                children.add(edge);
+            }
+        }
+        return children;
+    }
+
+}
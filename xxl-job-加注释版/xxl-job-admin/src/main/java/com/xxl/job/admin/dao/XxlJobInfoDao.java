@@ -4,6 +4,7 @@ import com.xxl.job.admin.core.model.XxlJobInfo;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 
@@ -32,6 +33,8 @@ public interface XxlJobInfoDao {
 	public int save(XxlJobInfo info);
 
 	public XxlJobInfo loadById(@Param("id") int id);
+
+	public List<XxlJobInfo> loadByIds(@Param("ids") Collection<Integer> ids);
 	
 	public int update(XxlJobInfo xxlJobInfo);
 	
@@ -38,6 +38,8 @@ public interface XxlJobLogDao {
 	public int updateTriggerInfo(XxlJobLog xxlJobLog);
 
 	public int updateHandleInfo(XxlJobLog xxlJobLog);
+
+	public int updateHandleInfoBatch(@Param("logList") List<XxlJobLog> logList);
 	
 	public int delete(@Param("jobId") int jobId);
 
@@ -51,12 +53,51 @@ public interface XxlJobLogDao {
 									  @Param("pagesize") int pagesize);
 	public int clearLog(@Param("logIds") List<Long> logIds);
 
+	public Date findMinTriggerTime();
+
+	public List<XxlJobLog> findArchiveLogs(@Param("from") Date from,
+										   @Param("to") Date to,
+										   @Param("lastId") long lastId,
+										   @Param("pagesize") int pagesize);
+
+	public int clearArchiveLogs(@Param("from") Date from,
+								@Param("to") Date to,
+								@Param("logIds") List<Long> logIds);
+
+	public List<Map<String, Object>> findLogPartitions();
+
+	public int addLogPartition(@Param("partitionName") String partitionName,
+							   @Param("lessThan") String lessThan);
+
+	public int dropLogPartitions(@Param("partitionNames") List<String> partitionNames);
+
 	public List<Long> findFailJobLogIds(@Param("pagesize") int pagesize);
 
 	public int updateAlarmStatus(@Param("logId") long logId,
 								 @Param("oldAlarmStatus") int oldAlarmStatus,
 								 @Param("newAlarmStatus") int newAlarmStatus);
 
-	public List<Long> findLostJobIds(@Param("losedTime") Date losedTime);
+	public List<Long> findAlarmStatusForUpdate(@Param("logIds") List<Long> logIds,
+											   @Param("alarmStatus") int alarmStatus);
+
+	public int updateAlarmStatusBatch(@Param("logIds") List<Long> logIds,
+									  @Param("oldAlarmStatus") int oldAlarmStatus,
+									  @Param("newAlarmStatus") int newAlarmStatus);
+
+	public List<XxlJobLog> loadByIds(@Param("logIds") List<Long> logIds);
+
+	public int appendTriggerMsg(@Param("logIds") List<Long> logIds,
+								@Param("triggerMsg") String triggerMsg);
+
+	public List<XxlJobLog> findRunningJobLogs(@Param("losedTime") Date losedTime,
+											  @Param("lastId") long lastId,
+											  @Param("pagesize") int pagesize);
+
+	public List<Long> findRunningIdsForUpdate(@Param("logIds") List<Long> logIds);
+
+	public int updateLostJobLogs(@Param("logIds") List<Long> logIds,
+								 @Param("handleTime") Date handleTime,
+								 @Param("handleCode") int handleCode,
+								 @Param("handleMsg") String handleMsg);
 
 }
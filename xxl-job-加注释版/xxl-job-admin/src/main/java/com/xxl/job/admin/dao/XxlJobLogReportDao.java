@@ -18,6 +18,8 @@ public interface XxlJobLogReportDao {
 
 	public int update(XxlJobLogReport xxlJobLogReport);
 
+	public int saveOrIncrease(@Param("reportList") List<XxlJobLogReport> reportList);
+
 	public List<XxlJobLogReport> queryLogReport(@Param("triggerDayFrom") Date triggerDayFrom,
 												@Param("triggerDayTo") Date triggerDayTo);
 
@@ -0,0 +1,39 @@
+package com.xxl.job.admin.dao;
+
+import com.xxl.job.admin.core.model.XxlJobLogStat;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * job log stat
+ */
+@Mapper
+public interface XxlJobLogStatDao {
+
+	public int saveOrIncrease(@Param("statList") List<XxlJobLogStat> statList);
+
+	public int rollup(@Param("fromPeriod") int fromPeriod,
+					  @Param("toPeriod") int toPeriod,
+					  @Param("from") Date from,
+					  @Param("to") Date to,
+					  @Param("statTime") Date statTime);
+
+	public Date findMaxStatTime(@Param("statPeriod") int statPeriod);
+
+	public Date findMinStatTime(@Param("statPeriod") int statPeriod,
+								@Param("from") Date from);
+
+	public List<XxlJobLogStat> queryStat(@Param("statPeriod") int statPeriod,
+										 @Param("from") Date from,
+										 @Param("to") Date to,
+										 @Param("jobGroup") int jobGroup,
+										 @Param("jobId") int jobId);
+
+	public int clearStat(@Param("statPeriod") int statPeriod,
+						 @Param("clearBeforeTime") Date clearBeforeTime,
+						 @Param("pagesize") int pagesize);
+
+}
@@ -24,15 +24,23 @@ public interface XxlJobRegistryDao {
     public int registryUpdate(@Param("registryGroup") String registryGroup,
                               @Param("registryKey") String registryKey,
                               @Param("registryValue") String registryValue,
+                              @Param("weight") int weight,
                               @Param("updateTime") Date updateTime);
 
     public int registrySave(@Param("registryGroup") String registryGroup,
                             @Param("registryKey") String registryKey,
                             @Param("registryValue") String registryValue,
+                            @Param("weight") int weight,
                             @Param("updateTime") Date updateTime);
 
+    public int registrySaveOrUpdate(@Param("registryList") List<XxlJobRegistry> registryList);
+
     public int registryDelete(@Param("registryGroup") String registryGroup,
                           @Param("registryKey") String registryKey,
                           @Param("registryValue") String registryValue);
 
+    public Long loadVersion();
+
+    public int increaseVersion();
+
 }
@@ -0,0 +1,32 @@
+package com.xxl.job.admin.dao;
+
+import com.xxl.job.admin.core.model.XxlJobWorkflow;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * job workflow
+ */
+@Mapper
+public interface XxlJobWorkflowDao {
+
+	public List<XxlJobWorkflow> pageList(@Param("offset") int offset,
+										 @Param("pagesize") int pagesize,
+										 @Param("jobGroup") int jobGroup,
+										 @Param("workflowDesc") String workflowDesc);
+	public int pageListCount(@Param("offset") int offset,
+							 @Param("pagesize") int pagesize,
+							 @Param("jobGroup") int jobGroup,
+							 @Param("workflowDesc") String workflowDesc);
+
+	public XxlJobWorkflow load(@Param("id") int id);
+
+	public int save(XxlJobWorkflow workflow);
+
+	public int update(XxlJobWorkflow workflow);
+
+	public int delete(@Param("id") int id);
+
+}
@@ -0,0 +1,48 @@
+package com.xxl.job.admin.dao;
+
+import com.xxl.job.admin.core.model.XxlJobWorkflowNode;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * job workflow node
+ */
+@Mapper
+public interface XxlJobWorkflowNodeDao {
+
+	public int saveBatch(@Param("nodeList") List<XxlJobWorkflowNode> nodeList);
+
+	public XxlJobWorkflowNode load(@Param("id") long id);
+
+	public List<XxlJobWorkflowNode> findByRunId(@Param("runId") long runId);
+
+	public int updateStatus(@Param("id") long id,
+							@Param("oldStatus") int oldStatus,
+							@Param("newStatus") int newStatus);
+
+	public int updateLogCount(@Param("id") long id,
+							  @Param("logCount") int logCount);
+
+	public int saveFinishLog(@Param("id") long id,
+							 @Param("logId") long logId);
+
+	public int increaseFinish(@Param("id") long id,
+							  @Param("failCount") int failCount);
+
+	public int complete(@Param("id") long id,
+						@Param("runningStatus") int runningStatus,
+						@Param("sucStatus") int sucStatus,
+						@Param("failStatus") int failStatus);
+
+	public List<Long> findDispatchLostNodeIds(@Param("runningStatus") int runningStatus,
+											  @Param("lostTime") Date lostTime,
+											  @Param("pagesize") int pagesize);
+
+	public int clearNode(@Param("runIds") List<Long> runIds);
+
+	public int clearFinishLog(@Param("runIds") List<Long> runIds);
+
+}
@@ -0,0 +1,40 @@
+package com.xxl.job.admin.dao;
+
+import com.xxl.job.admin.core.model.XxlJobWorkflowRun;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * job workflow run
+ */
+@Mapper
+public interface XxlJobWorkflowRunDao {
+
+	public int save(XxlJobWorkflowRun run);
+
+	public XxlJobWorkflowRun load(@Param("id") long id);
+
+	public List<XxlJobWorkflowRun> pageList(@Param("offset") int offset,
+											@Param("pagesize") int pagesize,
+											@Param("workflowId") int workflowId);
+	public int pageListCount(@Param("offset") int offset,
+							 @Param("pagesize") int pagesize,
+							 @Param("workflowId") int workflowId);
+
+	public int updateStatus(@Param("id") long id,
+							@Param("oldStatus") int oldStatus,
+							@Param("newStatus") int newStatus,
+							@Param("finishTime") Date finishTime);
+
+	public List<Long> findClearRunIds(@Param("clearBeforeTime") Date clearBeforeTime,
+									  @Param("pagesize") int pagesize);
+
+	public List<Long> findRunIdsByWorkflowId(@Param("workflowId") int workflowId,
+											 @Param("pagesize") int pagesize);
+
+	public int clearRun(@Param("runIds") List<Long> runIds);
+
+}
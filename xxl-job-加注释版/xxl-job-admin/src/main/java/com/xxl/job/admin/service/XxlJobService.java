@@ -83,4 +83,15 @@ public interface XxlJobService {
 	 */
 	public ReturnT<Map<String,Object>> chartInfo(Date startDate, Date endDate);
 
+	/**
+	 * chart stat, time series of job execution, period by time range (minute/hour/day)
+	 *
+	 * @param startDate
+	 * @param endDate
+	 * @param jobGroup
+	 * @param jobId
+	 * @return
+	 */
+	public ReturnT<Map<String,Object>> chartStat(Date startDate, Date endDate, int jobGroup, int jobId);
+
 }
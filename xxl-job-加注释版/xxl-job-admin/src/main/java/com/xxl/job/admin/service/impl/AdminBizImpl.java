@@ -2,9 +2,14 @@ package com.xxl.job.admin.service.impl;
 
 import com.xxl.job.admin.core.model.XxlJobInfo;
 import com.xxl.job.admin.core.model.XxlJobLog;
+import com.xxl.job.admin.core.model.XxlJobRegistry;
+import com.xxl.job.admin.core.thread.JobLogReportHelper;
+import com.xxl.job.admin.core.thread.JobRegistryMonitorHelper;
 import com.xxl.job.admin.core.thread.JobTriggerPoolHelper;
+import com.xxl.job.admin.core.thread.JobWorkflowHelper;
 import com.xxl.job.admin.core.trigger.TriggerTypeEnum;
 import com.xxl.job.admin.core.util.I18nUtil;
+import com.xxl.job.admin.core.util.LocalCacheUtil;
 import com.xxl.job.admin.dao.XxlJobGroupDao;
 import com.xxl.job.admin.dao.XxlJobInfoDao;
 import com.xxl.job.admin.dao.XxlJobLogDao;
@@ -13,16 +18,20 @@ import com.xxl.job.core.biz.AdminBiz;
 import com.xxl.job.core.biz.model.HandleCallbackParam;
 import com.xxl.job.core.biz.model.RegistryParam;
 import com.xxl.job.core.biz.model.ReturnT;
+import com.xxl.job.core.enums.RegistryConfig;
 import com.xxl.job.core.handler.IJobHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
 import javax.annotation.Resource;
 import java.text.MessageFormat;
-import java.util.Date;
-import java.util.List;
+import java.util.*;
 
 /**
  * @author xuxueli 2017-07-27 21:54:20
@@ -39,85 +48,233 @@ public class AdminBizImpl implements AdminBiz {
     private XxlJobRegistryDao xxlJobRegistryDao;
     @Resource
     private XxlJobGroupDao xxlJobGroupDao;
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+
+    /**
+     * callback batch size, one "IN" query and one batch update each; side effect only for log moved from running (locked by "FOR UPDATE")
+     */
+    private static final int CALLBACK_BATCH_SIZE = 100;
+
+    /**
+     * job info cache time (ms), for child job of callback
+     */
+    private static final long JOB_INFO_CACHE_TIME = 10 * 1000;
 
+    public static String jobInfoCacheKey(int jobId) {
+        return "xxl-job-callback-jobinfo-" + jobId;
+    }
 
     @Override
     public ReturnT<String> callback(List<HandleCallbackParam> callbackParamList) {
-        for (HandleCallbackParam handleCallbackParam: callbackParamList) {
-            ReturnT<String> callbackResult = callback(handleCallbackParam);
-            logger.debug(">>>>>>>>> JobApiController.callback {}, handleCallbackParam={}, callbackResult={}",
-                    (callbackResult.getCode()==IJobHandler.SUCCESS.getCode()?"success":"fail"), handleCallbackParam, callbackResult);
+        if (callbackParamList==null || callbackParamList.isEmpty()) {
+            return ReturnT.SUCCESS;
+        }
+        for (int from = 0; from < callbackParamList.size(); from += CALLBACK_BATCH_SIZE) {
+            callbackBatch(callbackParamList.subList(from, Math.min(from + CALLBACK_BATCH_SIZE, callbackParamList.size())));
         }
 
         return ReturnT.SUCCESS;
     }
 
-    private ReturnT<String> callback(HandleCallbackParam handleCallbackParam) {
-        // valid log item
-        XxlJobLog log = xxlJobLogDao.load(handleCallbackParam.getLogId());
-        if (log == null) {
-            return new ReturnT<String>(ReturnT.FAIL_CODE, "log item not found.");
+    private void callbackBatch(List<HandleCallbackParam> callbackParamList) {
+
+        // load log item, in one query
+        Set<Long> logIds = new LinkedHashSet<Long>();
+        for (HandleCallbackParam handleCallbackParam: callbackParamList) {
+            logIds.add(handleCallbackParam.getLogId());
         }
-        if (log.getHandleCode() > 0) {
-            return new ReturnT<String>(ReturnT.FAIL_CODE, "log repeate callback.");     // avoid repeat callback, trigger child job etc
+        Map<Long, XxlJobLog> logMap = new HashMap<Long, XxlJobLog>();
+        List<XxlJobLog> loadLogList = xxlJobLogDao.loadByIds(new ArrayList<Long>(logIds));
+        if (loadLogList != null) {
+            for (XxlJobLog log: loadLogList) {
+                logMap.put(log.getId(), log);
+            }
         }
 
-        // trigger success, to trigger child job
-        String callbackMsg = null;
-        if (IJobHandler.SUCCESS.getCode() == handleCallbackParam.getExecuteResult().getCode()) {
-            XxlJobInfo xxlJobInfo = xxlJobInfoDao.loadById(log.getJobId());
-            if (xxlJobInfo!=null && xxlJobInfo.getChildJobId()!=null && xxlJobInfo.getChildJobId().trim().length()>0) {
-                callbackMsg = "<br><br><span style=\"color:#00c0ef;\" > >>>>>>>>>>>"+ I18nUtil.getString("jobconf_trigger_child_run") +"<<<<<<<<<<< </span><br>";
-
-                String[] childJobIds = xxlJobInfo.getChildJobId().split(",");
-                for (int i = 0; i < childJobIds.length; i++) {
-                    int childJobId = (childJobIds[i]!=null && childJobIds[i].trim().length()>0 && isNumeric(childJobIds[i]))?Integer.valueOf(childJobIds[i]):-1;
-                    if (childJobId > 0) {
-
-                        JobTriggerPoolHelper.trigger(childJobId, TriggerTypeEnum.PARENT, -1, null, null, null);
-                        ReturnT<String> triggerChildResult = ReturnT.SUCCESS;
-
-                        // add msg
-                        callbackMsg += MessageFormat.format(I18nUtil.getString("jobconf_callback_child_msg1"),
-                                (i+1),
-                                childJobIds.length,
-                                childJobIds[i],
-                                (triggerChildResult.getCode()==ReturnT.SUCCESS_CODE?I18nUtil.getString("system_success"):I18nUtil.getString("system_fail")),
-                                triggerChildResult.getMsg());
-                    } else {
-                        callbackMsg += MessageFormat.format(I18nUtil.getString("jobconf_callback_child_msg2"),
-                                (i+1),
-                                childJobIds.length,
-                                childJobIds[i]);
-                    }
+        // valid log item
+        List<HandleCallbackParam> validParamList = new ArrayList<HandleCallbackParam>();
+        List<XxlJobLog> validLogList = new ArrayList<XxlJobLog>();
+        Set<Integer> childJobInfoIds = new HashSet<Integer>();
+        Set<Long> handledLogIds = new HashSet<Long>();
+        for (HandleCallbackParam handleCallbackParam: callbackParamList) {
+            XxlJobLog log = logMap.get(handleCallbackParam.getLogId());
+
+            ReturnT<String> callbackResult = ReturnT.SUCCESS;
+            if (log == null) {
+                callbackResult = new ReturnT<String>(ReturnT.FAIL_CODE, "log item not found.");
+            } else if (log.getHandleCode() > 0 || !handledLogIds.add(log.getId())) {
+                callbackResult = new ReturnT<String>(ReturnT.FAIL_CODE, "log repeate callback.");     // avoid repeat callback, trigger child job etc
+            } else {
+                validParamList.add(handleCallbackParam);
+                validLogList.add(log);
+                if (IJobHandler.SUCCESS.getCode() == handleCallbackParam.getExecuteResult().getCode()) {
+                    childJobInfoIds.add(log.getJobId());
                 }
+            }
+            logger.debug(">>>>>>>>> JobApiController.callback {}, handleCallbackParam={}, callbackResult={}",
+                    (callbackResult.getCode()==IJobHandler.SUCCESS.getCode()?"success":"fail"), handleCallbackParam, callbackResult);
+        }
+        if (validLogList.isEmpty()) {
+            return;
+        }
+
+        // job info of success callback, from cache
+        Map<Integer, XxlJobInfo> jobInfoMap = loadJobInfo(childJobInfoIds);
 
+        // handle info, child job msg included, so log written once
+        for (int i = 0; i < validLogList.size(); i++) {
+            HandleCallbackParam handleCallbackParam = validParamList.get(i);
+            XxlJobLog log = validLogList.get(i);
+
+            // trigger success, child job msg
+            String callbackMsg = null;
+            if (IJobHandler.SUCCESS.getCode() == handleCallbackParam.getExecuteResult().getCode()) {
+                callbackMsg = childJobMsg(jobInfoMap.get(log.getJobId()));
+            }
+
+            // handle msg
+            StringBuffer handleMsg = new StringBuffer();
+            if (log.getHandleMsg()!=null) {
+                handleMsg.append(log.getHandleMsg()).append("<br>");
+            }
+            if (handleCallbackParam.getExecuteResult().getMsg() != null) {
+                handleMsg.append(handleCallbackParam.getExecuteResult().getMsg());
             }
+            if (callbackMsg != null) {
+                handleMsg.append(callbackMsg);
+            }
+
+            if (handleMsg.length() > 15000) {
+                handleMsg = new StringBuffer(handleMsg.substring(0, 15000));  // text最大64kb 避免长度过长
+            }
+
+            log.setHandleTime(new Date());
+            log.setHandleCode(handleCallbackParam.getExecuteResult().getCode());
+            log.setHandleMsg(handleMsg.toString());
         }
 
-        // handle msg
-        StringBuffer handleMsg = new StringBuffer();
-        if (log.getHandleMsg()!=null) {
-            handleMsg.append(log.getHandleMsg()).append("<br>");
+        // save log in batch, only log still running; handled concurrently (repeat callback, lost, kill) skip child job, report and workflow
+        Set<Long> movedLogIds = saveRunningLog(validLogList);
+        if (movedLogIds.size() < validLogList.size()) {
+            logger.debug(">>>>>>>>> JobApiController.callback, log handled concurrently, callback count:{}, update count:{}", validLogList.size(), movedLogIds.size());
         }
-        if (handleCallbackParam.getExecuteResult().getMsg() != null) {
-            handleMsg.append(handleCallbackParam.getExecuteResult().getMsg());
+        for (int i = 0; i < validLogList.size(); i++) {
+            XxlJobLog log = validLogList.get(i);
+            if (!movedLogIds.contains(log.getId())) {
+                continue;
+            }
+            if (IJobHandler.SUCCESS.getCode() == validParamList.get(i).getExecuteResult().getCode()) {
+                triggerChildJob(jobInfoMap.get(log.getJobId()));
+            }
+            JobLogReportHelper.getInstance().logChange(log, log.getTriggerCode(), 0);
+            JobWorkflowHelper.getInstance().logFinish(log);
         }
-        if (callbackMsg != null) {
-            handleMsg.append(callbackMsg);
+    }
+
+    /**
+     * lock log still running ("FOR UPDATE"), then save handle info in one update
+     *
+     * @return log ids moved from running
+     */
+    private Set<Long> saveRunningLog(final List<XxlJobLog> logList) {
+        final List<Long> logIds = new ArrayList<Long>();
+        for (XxlJobLog log: logList) {
+            logIds.add(log.getId());
         }
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<Long> movedLogIds = transactionTemplate.execute(new TransactionCallback<List<Long>>() {
+            @Override
+            public List<Long> doInTransaction(TransactionStatus status) {
+                List<Long> runningLogIds = xxlJobLogDao.findRunningIdsForUpdate(logIds);
+                if (runningLogIds==null || runningLogIds.isEmpty()) {
+                    return runningLogIds;
+                }
+                List<XxlJobLog> runningLogList = new ArrayList<XxlJobLog>();
+                Set<Long> runningLogIdSet = new HashSet<Long>(runningLogIds);
+                for (XxlJobLog log: logList) {
+                    if (runningLogIdSet.contains(log.getId())) {
+                        runningLogList.add(log);
+                    }
+                }
+                xxlJobLogDao.updateHandleInfoBatch(runningLogList);
+                return runningLogIds;
+            }
+        });
+        return movedLogIds!=null?new HashSet<Long>(movedLogIds):new HashSet<Long>();
+    }
 
-        if (handleMsg.length() > 15000) {
-            handleMsg = new StringBuffer(handleMsg.substring(0, 15000));  // text最大64kb 避免长度过长
+    /**
+     * load job info, from cache first, then the missing in one query
+     */
+    private Map<Integer, XxlJobInfo> loadJobInfo(Set<Integer> jobIds) {
+        Map<Integer, XxlJobInfo> jobInfoMap = new HashMap<Integer, XxlJobInfo>();
+        List<Integer> missJobIds = new ArrayList<Integer>();
+        for (Integer jobId: jobIds) {
+            Object jobInfo = LocalCacheUtil.get(jobInfoCacheKey(jobId));
+            if (jobInfo != null) {
+                jobInfoMap.put(jobId, (XxlJobInfo) jobInfo);
+            } else {
+                missJobIds.add(jobId);
+            }
         }
 
-        // success, save log
-        log.setHandleTime(new Date());
-        log.setHandleCode(handleCallbackParam.getExecuteResult().getCode());
-        log.setHandleMsg(handleMsg.toString());
-        xxlJobLogDao.updateHandleInfo(log);
+        if (!missJobIds.isEmpty()) {
+            List<XxlJobInfo> jobInfoList = xxlJobInfoDao.loadByIds(missJobIds);
+            if (jobInfoList != null) {
+                for (XxlJobInfo jobInfo: jobInfoList) {
+                    jobInfoMap.put(jobInfo.getId(), jobInfo);
+                    LocalCacheUtil.set(jobInfoCacheKey(jobInfo.getId()), jobInfo, JOB_INFO_CACHE_TIME);
+                }
+            }
+        }
+        return jobInfoMap;
+    }
 
-        return ReturnT.SUCCESS;
+    /**
+     * child job msg, trigger submitted async so always success
+     */
+    private String childJobMsg(XxlJobInfo xxlJobInfo) {
+        String callbackMsg = null;
+        if (xxlJobInfo!=null && xxlJobInfo.getChildJobId()!=null && xxlJobInfo.getChildJobId().trim().length()>0) {
+            callbackMsg = "<br><br><span style=\"color:#00c0ef;\" > >>>>>>>>>>>"+ I18nUtil.getString("jobconf_trigger_child_run") +"<<<<<<<<<<< </span><br>";
+
+            String[] childJobIds = xxlJobInfo.getChildJobId().split(",");
+            for (int i = 0; i < childJobIds.length; i++) {
+                int childJobId = (childJobIds[i]!=null && childJobIds[i].trim().length()>0 && isNumeric(childJobIds[i]))?Integer.valueOf(childJobIds[i]):-1;
+                if (childJobId > 0) {
+
+                    ReturnT<String> triggerChildResult = ReturnT.SUCCESS;
+
+                    // add msg
+                    callbackMsg += MessageFormat.format(I18nUtil.getString("jobconf_callback_child_msg1"),
+                            (i+1),
+                            childJobIds.length,
+                            childJobIds[i],
+                            (triggerChildResult.getCode()==ReturnT.SUCCESS_CODE?I18nUtil.getString("system_success"):I18nUtil.getString("system_fail")),
+                            triggerChildResult.getMsg());
+                } else {
+                    callbackMsg += MessageFormat.format(I18nUtil.getString("jobconf_callback_child_msg2"),
+                            (i+1),
+                            childJobIds.length,
+                            childJobIds[i]);
+                }
+            }
+
+        }
+        return callbackMsg;
+    }
+
+    private void triggerChildJob(XxlJobInfo xxlJobInfo) {
+        if (xxlJobInfo!=null && xxlJobInfo.getChildJobId()!=null && xxlJobInfo.getChildJobId().trim().length()>0) {
+            for (String childJobIdStr: xxlJobInfo.getChildJobId().split(",")) {
+                int childJobId = (childJobIdStr!=null && childJobIdStr.trim().length()>0 && isNumeric(childJobIdStr))?Integer.valueOf(childJobIdStr):-1;
+                if (childJobId > 0) {
+                    JobTriggerPoolHelper.trigger(childJobId, TriggerTypeEnum.PARENT, -1, null, null, null);
+                }
+            }
+        }
     }
 
     private boolean isNumeric(String str){
@@ -139,12 +296,24 @@ public class AdminBizImpl implements AdminBiz {
             return new ReturnT<String>(ReturnT.FAIL_CODE, "Illegal Argument.");
         }
 
-        int ret = xxlJobRegistryDao.registryUpdate(registryParam.getRegistryGroup(), registryParam.getRegistryKey(), registryParam.getRegistryValue(), new Date());
-        if (ret < 1) {
-            xxlJobRegistryDao.registrySave(registryParam.getRegistryGroup(), registryParam.getRegistryKey(), registryParam.getRegistryValue(), new Date());
+        int weight = RegistryConfig.validWeight(registryParam.getWeight());
+
+        // memory registry
+        boolean changed = JobRegistryMonitorHelper.getInstance().registry(registryParam.getRegistryGroup(), registryParam.getRegistryKey(), registryParam.getRegistryValue(), weight);
+        if (changed) {
+            // address added or weight changed: upsert now, and fresh
+            XxlJobRegistry registry = new XxlJobRegistry();
+            registry.setRegistryGroup(registryParam.getRegistryGroup());
+            registry.setRegistryKey(registryParam.getRegistryKey());
+            registry.setRegistryValue(registryParam.getRegistryValue());
+            registry.setWeight(weight);
+            registry.setUpdateTime(new Date());
+            xxlJobRegistryDao.registrySaveOrUpdate(Collections.singletonList(registry));
 
-            // fresh
             freshGroupRegistryInfo(registryParam);
+        } else {
+            // heartbeat: coalesced in memory, batch upsert
+            JobRegistryMonitorHelper.getInstance().registryBeat(registryParam.getRegistryGroup(), registryParam.getRegistryKey(), registryParam.getRegistryValue(), weight);
         }
         return ReturnT.SUCCESS;
     }
@@ -159,8 +328,10 @@ public class AdminBizImpl implements AdminBiz {
             return new ReturnT<String>(ReturnT.FAIL_CODE, "Illegal Argument.");
         }
 
+        // memory and pending heartbeat first, avoid deleted row upsert again by heartbeat flush
+        boolean changed = JobRegistryMonitorHelper.getInstance().registryRemove(registryParam.getRegistryGroup(), registryParam.getRegistryKey(), registryParam.getRegistryValue());
         int ret = xxlJobRegistryDao.registryDelete(registryParam.getRegistryGroup(), registryParam.getRegistryKey(), registryParam.getRegistryValue());
-        if (ret > 0) {
+        if (ret > 0 || changed) {
 
             // fresh
             freshGroupRegistryInfo(registryParam);
@@ -169,7 +340,11 @@ public class AdminBizImpl implements AdminBiz {
     }
 
     private void freshGroupRegistryInfo(RegistryParam registryParam){
-        // Under consideration, prevent affecting core tables
+        // only executor address is used by group
+        if (!RegistryConfig.RegistType.EXECUTOR.name().equals(registryParam.getRegistryGroup())) {
+            return;
+        }
+        JobRegistryMonitorHelper.getInstance().freshGroupRegistryInfo(registryParam.getRegistryKey());
     }
 
 }
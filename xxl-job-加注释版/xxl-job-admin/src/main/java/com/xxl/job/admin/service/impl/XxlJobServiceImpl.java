@@ -4,9 +4,12 @@ import com.xxl.job.admin.core.model.XxlJobGroup;
 import com.xxl.job.admin.core.model.XxlJobInfo;
 import com.xxl.job.admin.core.cron.CronExpression;
 import com.xxl.job.admin.core.model.XxlJobLogReport;
+import com.xxl.job.admin.core.model.XxlJobLogStat;
 import com.xxl.job.admin.core.route.ExecutorRouteStrategyEnum;
+import com.xxl.job.admin.core.thread.JobLogStatHelper;
 import com.xxl.job.admin.core.thread.JobScheduleHelper;
 import com.xxl.job.admin.core.util.I18nUtil;
+import com.xxl.job.admin.core.util.LocalCacheUtil;
 import com.xxl.job.admin.dao.*;
 import com.xxl.job.admin.service.XxlJobService;
 import com.xxl.job.core.biz.model.ReturnT;
@@ -40,6 +43,8 @@ public class XxlJobServiceImpl implements XxlJobService {
 	private XxlJobLogGlueDao xxlJobLogGlueDao;
 	@Resource
 	private XxlJobLogReportDao xxlJobLogReportDao;
+	@Resource
+	private XxlJobLogStatDao xxlJobLogStatDao;
 	
 	@Override
 	public Map<String, Object> pageList(int start, int length, int jobGroup, int triggerStatus, String jobDesc, String executorHandler, String author) {
@@ -226,6 +231,7 @@ public class XxlJobServiceImpl implements XxlJobService {
 
 		exists_jobInfo.setUpdateTime(new Date());
         xxlJobInfoDao.update(exists_jobInfo);
+		LocalCacheUtil.remove(AdminBizImpl.jobInfoCacheKey(exists_jobInfo.getId()));
 
 
 		return ReturnT.SUCCESS;
@@ -239,6 +245,7 @@ public class XxlJobServiceImpl implements XxlJobService {
 		}
 
 		xxlJobInfoDao.delete(id);
+		LocalCacheUtil.remove(AdminBizImpl.jobInfoCacheKey(id));
 		xxlJobLogDao.delete(id);
 		xxlJobLogGlueDao.deleteByJobId(id);
 		return ReturnT.SUCCESS;
@@ -373,4 +380,68 @@ public class XxlJobServiceImpl implements XxlJobService {
 		return new ReturnT<Map<String, Object>>(result);
 	}
 
+	@Override
+	public ReturnT<Map<String, Object>> chartStat(Date startDate, Date endDate, int jobGroup, int jobId) {
+		if (startDate==null || endDate==null || !startDate.before(endDate)) {
+			return new ReturnT<Map<String, Object>>(ReturnT.FAIL_CODE, I18nUtil.getString("system_unvalid"));
+		}
+
+		// period, by time range
+		long timeRange = endDate.getTime() - startDate.getTime();
+		int statPeriod = JobLogStatHelper.PERIOD_DAY;
+		String timePattern = "yyyy-MM-dd";
+		if (timeRange <= 6*60*60*1000L) {
+			statPeriod = JobLogStatHelper.PERIOD_MINUTE;
+			timePattern = "HH:mm";
+		} else if (timeRange <= 7*24*60*60*1000L) {
+			statPeriod = JobLogStatHelper.PERIOD_HOUR;
+			timePattern = "MM-dd HH:00";
+		}
+
+		// process
+		List<String> statTimeList = new ArrayList<String>();
+		List<Integer> triggerCountList = new ArrayList<Integer>();
+		List<Integer> sucCountList = new ArrayList<Integer>();
+		List<Integer> failCountList = new ArrayList<Integer>();
+		List<Long> durationAvgList = new ArrayList<Long>();
+		List<Long> durationP50List = new ArrayList<Long>();
+		List<Long> durationP95List = new ArrayList<Long>();
+		List<Long> durationP99List = new ArrayList<Long>();
+		List<Long> durationMaxList = new ArrayList<Long>();
+
+		List<XxlJobLogStat> statList = xxlJobLogStatDao.queryStat(statPeriod, startDate, endDate, jobGroup, jobId);
+		if (statList != null) {
+			for (XxlJobLogStat item: statList) {
+				int durationCount = 0;
+				for (int bucket: item.getDurationBuckets()) {
+					durationCount += bucket;
+				}
+
+				statTimeList.add(DateUtil.format(item.getStatTime(), timePattern));
+				triggerCountList.add(item.getTriggerCount());
+				sucCountList.add(item.getSucCount());
+				failCountList.add(item.getFailCount());
+				durationAvgList.add(durationCount>0?item.getDurationSum()/durationCount:0);
+				durationP50List.add(JobLogStatHelper.durationPercentile(item, 50));
+				durationP95List.add(JobLogStatHelper.durationPercentile(item, 95));
+				durationP99List.add(JobLogStatHelper.durationPercentile(item, 99));
+				durationMaxList.add(item.getDurationMax());
+			}
+		}
+
+		Map<String, Object> result = new HashMap<String, Object>();
+		result.put("statPeriod", statPeriod);
+		result.put("statTimeList", statTimeList);
+		result.put("triggerCountList", triggerCountList);
+		result.put("sucCountList", sucCountList);
+		result.put("failCountList", failCountList);
+		result.put("durationAvgList", durationAvgList);
+		result.put("durationP50List", durationP50List);
+		result.put("durationP95List", durationP95List);
+		result.put("durationP99List", durationP99List);
+		result.put("durationMaxList", durationMaxList);
+
+		return new ReturnT<Map<String, Object>>(result);
+	}
+
 }
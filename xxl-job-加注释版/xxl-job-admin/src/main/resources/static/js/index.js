@@ -37,8 +37,10 @@ $(function () {
         endDate: rangesConf[I18n.daterangepicker_ranges_recent_week][1]
     }, function (start, end, label) {
         freshChartDate(start, end);
+        freshStatChart(start, end);
     });
     freshChartDate(rangesConf[I18n.daterangepicker_ranges_recent_week][0], rangesConf[I18n.daterangepicker_ranges_recent_week][1]);
+    freshStatChart(rangesConf[I18n.daterangepicker_ranges_recent_week][0], rangesConf[I18n.daterangepicker_ranges_recent_week][1]);
 
     /**
      * fresh Chart Date
@@ -71,6 +73,29 @@ $(function () {
         });
     }
 
+    /**
+     * fresh Stat Chart, period by time range (minute/hour/day)
+     *
+     * @param startDate
+     * @param endDate
+     */
+    function freshStatChart(startDate, endDate) {
+        $.ajax({
+            type : 'POST',
+            url : base_url + '/chartStat',
+            data : {
+                'startDate':startDate.format('YYYY-MM-DD HH:mm:ss'),
+                'endDate':endDate.format('YYYY-MM-DD HH:mm:ss')
+            },
+            dataType : "json",
+            success : function(data){
+                if (data.code == 200) {
+                    statChartInit(data);
+                }
+            }
+        });
+    }
+
     /**
      * line Chart Init
      */
@@ -150,6 +175,85 @@ $(function () {
         lineChart.setOption(option);
     }
 
+    /**
+     * stat Chart Init
+     */
+    function statChartInit(data) {
+        var option = {
+            title: {
+                text: I18n.job_dashboard_stat_report
+            },
+            tooltip : {
+                trigger: 'axis'
+            },
+            legend: {
+                data:[I18n.joblog_status_suc, I18n.joblog_status_fail, I18n.job_dashboard_trigger_num, 'P50', 'P95', 'P99']
+            },
+            grid: {
+                left: '3%',
+                right: '4%',
+                bottom: '3%',
+                containLabel: true
+            },
+            xAxis : [
+                {
+                    type : 'category',
+                    data : data.content.statTimeList
+                }
+            ],
+            yAxis : [
+                {
+                    type : 'value'
+                },
+                {
+                    type : 'value',
+                    name : I18n.job_dashboard_stat_duration
+                }
+            ],
+            series : [
+                {
+                    name:I18n.joblog_status_suc,
+                    type:'bar',
+                    stack: 'Total',
+                    data: data.content.sucCountList
+                },
+                {
+                    name:I18n.joblog_status_fail,
+                    type:'bar',
+                    stack: 'Total',
+                    data: data.content.failCountList
+                },
+                {
+                    name:I18n.job_dashboard_trigger_num,
+                    type:'line',
+                    data: data.content.triggerCountList
+                },
+                {
+                    name:'P50',
+                    type:'line',
+                    yAxisIndex: 1,
+                    data: data.content.durationP50List
+                },
+                {
+                    name:'P95',
+                    type:'line',
+                    yAxisIndex: 1,
+                    data: data.content.durationP95List
+                },
+                {
+                    name:'P99',
+                    type:'line',
+                    yAxisIndex: 1,
+                    data: data.content.durationP99List
+                }
+            ],
+            color:['#00A65A', '#c23632', '#3c8dbc', '#8e44ad', '#F39C12', '#d81b60']
+        };
+
+        var statChart = echarts.init(document.getElementById('statChart'));
+        statChart.setOption(option);
+    }
+
     /**
      * pie Chart Init
      */
@@ -0,0 +1,428 @@
+$(function() {
+
+	// dataTable language
+	var dataTableLanguage = {
+		"sProcessing" : I18n.dataTable_sProcessing ,
+		"sLengthMenu" : I18n.dataTable_sLengthMenu ,
+		"sZeroRecords" : I18n.dataTable_sZeroRecords ,
+		"sInfo" : I18n.dataTable_sInfo ,
+		"sInfoEmpty" : I18n.dataTable_sInfoEmpty ,
+		"sInfoFiltered" : I18n.dataTable_sInfoFiltered ,
+		"sInfoPostFix" : "",
+		"sSearch" : I18n.dataTable_sSearch ,
+		"sUrl" : "",
+		"sEmptyTable" : I18n.dataTable_sEmptyTable ,
+		"sLoadingRecords" : I18n.dataTable_sLoadingRecords ,
+		"sInfoThousands" : ",",
+		"oPaginate" : {
+			"sFirst" : I18n.dataTable_sFirst ,
+			"sPrevious" : I18n.dataTable_sPrevious ,
+			"sNext" : I18n.dataTable_sNext ,
+			"sLast" : I18n.dataTable_sLast
+		},
+		"oAria" : {
+			"sSortAscending" : I18n.dataTable_sSortAscending ,
+			"sSortDescending" : I18n.dataTable_sSortDescending
+		}
+	};
+
+	// init date tables
+	var workflowTable = $("#workflow_list").dataTable({
+		"deferRender": true,
+		"processing" : true,
+		"serverSide": true,
+		"ajax": {
+			url: base_url + "/jobworkflow/pageList",
+			type:"post",
+			data : function ( d ) {
+				var obj = {};
+				obj.jobGroup = $('#jobGroup').val();
+				obj.workflowDesc = $('#workflowDesc').val();
+				obj.start = d.start;
+				obj.length = d.length;
+				return obj;
+			}
+		},
+		"searching": false,
+		"ordering": false,
+		"columns": [
+			{
+				"data": 'id',
+				"width":'10%'
+			},
+			{
+				"data": 'workflowDesc',
+				"width":'40%'
+			},
+			{
+				"data": 'author',
+				"width":'15%'
+			},
+			{
+				"data": 'updateTime',
+				"width":'20%',
+				"render": function ( data, type, row ) {
+					return data?moment(new Date(data)).format("YYYY-MM-DD HH:mm:ss"):"";
+				}
+			},
+			{
+				"data": I18n.system_opt ,
+				"width":'15%',
+				"render": function ( data, type, row ) {
+					return function(){
+						// data
+						tableData['key'+row.id] = row;
+
+						// opt
+						var html = '<div class="btn-group">\n' +
+							'     <button type="button" class="btn btn-primary btn-sm">'+ I18n.system_opt +'</button>\n' +
+							'     <button type="button" class="btn btn-primary btn-sm dropdown-toggle" data-toggle="dropdown">\n' +
+							'       <span class="caret"></span>\n' +
+							'       <span class="sr-only">Toggle Dropdown</span>\n' +
+							'     </button>\n' +
+							'     <ul class="dropdown-menu" role="menu" _id="'+ row.id +'" >\n' +
+							'       <li><a href="javascript:void(0);" class="opt_trigger" >'+ I18n.workflow_run +'</a></li>\n' +
+							'       <li><a href="javascript:void(0);" class="opt_run_log" >'+ I18n.workflow_run_log +'</a></li>\n' +
+							'       <li class="divider"></li>\n' +
+							'       <li><a href="javascript:void(0);" class="opt_edit" >'+ I18n.system_opt_edit +'</a></li>\n' +
+							'       <li><a href="javascript:void(0);" class="opt_del" >'+ I18n.system_opt_del +'</a></li>\n' +
+							'     </ul>\n' +
+							'   </div>';
+
+						return html;
+					};
+				}
+			}
+		],
+		"language" : dataTableLanguage
+	});
+
+	// table data
+	var tableData = {};
+
+	// search btn
+	$('#searchBtn').on('click', function(){
+		workflowTable.fnDraw();
+	});
+	$('#jobGroup').on('change', function(){
+		workflowTable.fnDraw();
+	});
+
+	// opt_trigger
+	$("#workflow_list").on('click', '.opt_trigger',function() {
+		var id = $(this).parents('ul').attr("_id");
+
+		layer.confirm( (I18n.system_ok + I18n.workflow_run + '？') , {
+			icon: 3,
+			title: I18n.system_tips ,
+			btn: [ I18n.system_ok, I18n.system_cancel ]
+		}, function(index){
+			layer.close(index);
+
+			$.ajax({
+				type : 'POST',
+				url : base_url + '/jobworkflow/trigger',
+				data : {"id":id},
+				dataType : "json",
+				success : function(data){
+					if (data.code == 200) {
+						layer.open({
+							title: I18n.system_tips ,
+							btn: [ I18n.system_ok ],
+							content: (I18n.workflow_run + I18n.system_success),
+							icon: '1'
+						});
+					} else {
+						layer.open({
+							title: I18n.system_tips,
+							btn: [ I18n.system_ok ],
+							content: (data.msg || (I18n.workflow_run + I18n.system_fail)),
+							icon: '2'
+						});
+					}
+				}
+			});
+		});
+	});
+
+	// opt_del
+	$("#workflow_list").on('click', '.opt_del',function() {
+		var id = $(this).parents('ul').attr("_id");
+
+		layer.confirm( (I18n.system_ok + I18n.workflow_del + '？') , {
+			icon: 3,
+			title: I18n.system_tips ,
+			btn: [ I18n.system_ok, I18n.system_cancel ]
+		}, function(index){
+			layer.close(index);
+
+			$.ajax({
+				type : 'POST',
+				url : base_url + '/jobworkflow/remove',
+				data : {"id":id},
+				dataType : "json",
+				success : function(data){
+					if (data.code == 200) {
+						layer.open({
+							title: I18n.system_tips ,
+							btn: [ I18n.system_ok ],
+							content: (I18n.workflow_del + I18n.system_success),
+							icon: '1',
+							end: function(layero, index){
+								workflowTable.fnDraw();
+							}
+						});
+					} else {
+						layer.open({
+							title: I18n.system_tips,
+							btn: [ I18n.system_ok ],
+							content: (data.msg || (I18n.workflow_del + I18n.system_fail)),
+							icon: '2'
+						});
+					}
+				}
+			});
+		});
+	});
+
+	// run log
+	var runWorkflowId = 0;
+	var runTable = $("#run_list").dataTable({
+		"deferRender": true,
+		"processing" : true,
+		"serverSide": true,
+		"ajax": {
+			url: base_url + "/jobworkflow/runPageList",
+			type:"post",
+			data : function ( d ) {
+				var obj = {};
+				obj.workflowId = runWorkflowId;
+				obj.start = d.start;
+				obj.length = d.length;
+				return obj;
+			}
+		},
+		"searching": false,
+		"ordering": false,
+		"columns": [
+			{
+				"data": 'id',
+				"width":'10%'
+			},
+			{
+				"data": 'triggerTime',
+				"width":'25%',
+				"render": function ( data, type, row ) {
+					return data?moment(new Date(data)).format("YYYY-MM-DD HH:mm:ss"):"";
+				}
+			},
+			{
+				"data": 'finishTime',
+				"width":'25%',
+				"render": function ( data, type, row ) {
+					return data?moment(new Date(data)).format("YYYY-MM-DD HH:mm:ss"):"";
+				}
+			},
+			{
+				"data": 'runStatus',
+				"width":'20%',
+				"render": function ( data, type, row ) {
+					if (data == 1) {
+						return '<span style="color: green">'+ I18n.workflow_run_status_suc +'</span>';
+					} else if (data == 2) {
+						return '<span style="color: red">'+ I18n.workflow_run_status_fail +'</span>';
+					}
+					return I18n.workflow_run_status_running;
+				}
+			},
+			{
+				"data": I18n.system_opt ,
+				"width":'20%',
+				"render": function ( data, type, row ) {
+					return '<a href="javascript:void(0);" class="opt_run_node" _id="'+ row.id +'" >'+ I18n.workflow_run_node +'</a>';
+				}
+			}
+		],
+		"language" : dataTableLanguage
+	});
+
+	$("#workflow_list").on('click', '.opt_run_log',function() {
+		runWorkflowId = $(this).parents('ul').attr("_id");
+		runTable.fnDraw();
+		$('#runModal').modal({backdrop: false, keyboard: true}).modal('show');
+	});
+
+	// run node
+	var nodeStatusTitle = [I18n.workflow_node_status_waiting, I18n.workflow_node_status_running, I18n.workflow_node_status_suc, I18n.workflow_node_status_fail, I18n.workflow_node_status_skipped];
+	var nodeStatusColor = ['gray', 'blue', 'green', 'red', 'yellow'];
+	$("#run_list").on('click', '.opt_run_node',function() {
+		var runId = $(this).attr("_id");
+
+		$.ajax({
+			type : 'POST',
+			url : base_url + '/jobworkflow/runNodes',
+			data : {"runId":runId},
+			dataType : "json",
+			success : function(data){
+				if (data.code == 200) {
+					var html = '<div>';
+					for (var index in data.content) {
+						var node = data.content[index];
+						html += '<span class="badge bg-' + nodeStatusColor[node.nodeStatus] + '" >' + nodeStatusTitle[node.nodeStatus] + '</span> '
+							+ node.jobId + ' - ' + (node.jobDesc || '')
+							+ (node.logCount > 1 ? (' (' + node.finishCount + '/' + node.logCount + ')') : '')
+							+ '<br>';
+					}
+					html += '</div>';
+
+					layer.open({
+						title: I18n.workflow_run_node ,
+						btn: [ I18n.system_ok ],
+						content: html
+					});
+				} else {
+					layer.open({
+						title: I18n.system_tips,
+						btn: [ I18n.system_ok ],
+						content: (data.msg || I18n.system_fail),
+						icon: '2'
+					});
+				}
+			}
+		});
+	});
+
+	// add
+	$('.add').on('click', function(){
+		$("#addModal .form select[name='jobGroup']").val( $('#jobGroup').val() );
+		$('#addModal').modal({backdrop: false, keyboard: false}).modal('show');
+	});
+	var validateRules = {
+		workflowDesc : {
+			required : true,
+			maxlength: 255
+		},
+		author : {
+			required : true
+		},
+		graph : {
+			required : true
+		}
+	};
+	var validateMessages = {
+		workflowDesc : {
+			required : I18n.system_please_input + I18n.workflow_field_desc
+		},
+		author : {
+			required : I18n.system_please_input + I18n.jobinfo_field_author
+		},
+		graph : {
+			required : I18n.system_please_input + I18n.workflow_field_graph
+		}
+	};
+	var addModalValidate = $("#addModal .form").validate({
+		errorElement : 'span',
+		errorClass : 'help-block',
+		focusInvalid : true,
+		rules : validateRules,
+		messages : validateMessages,
+		highlight : function(element) {
+			$(element).closest('.form-group').addClass('has-error');
+		},
+		success : function(label) {
+			label.closest('.form-group').removeClass('has-error');
+			label.remove();
+		},
+		errorPlacement : function(error, element) {
+			element.parent('div').append(error);
+		},
+		submitHandler : function(form) {
+			$.post(base_url + "/jobworkflow/add",  $("#addModal .form").serialize(), function(data, status) {
+				if (data.code == "200") {
+					$('#addModal').modal('hide');
+					layer.open({
+						title: I18n.system_tips ,
+						btn: [ I18n.system_ok ],
+						content: I18n.system_add_suc ,
+						icon: '1',
+						end: function(layero, index){
+							workflowTable.fnDraw();
+						}
+					});
+				} else {
+					layer.open({
+						title: I18n.system_tips,
+						btn: [ I18n.system_ok ],
+						content: (data.msg || I18n.system_add_fail  ),
+						icon: '2'
+					});
+				}
+			});
+		}
+	});
+	$("#addModal").on('hide.bs.modal', function () {
+		$("#addModal .form")[0].reset();
+		addModalValidate.resetForm();
+		$("#addModal .form .form-group").removeClass("has-error");
+	});
+
+	// opt_edit
+	$("#workflow_list").on('click', '.opt_edit',function() {
+		var id = $(this).parents('ul').attr("_id");
+		var row = tableData['key'+id];
+
+		$("#updateModal .form input[name='id']").val( row.id );
+		$("#updateModal .form select[name='jobGroup']").val( row.jobGroup );
+		$("#updateModal .form input[name='author']").val( row.author );
+		$("#updateModal .form input[name='workflowDesc']").val( row.workflowDesc );
+		$("#updateModal .form textarea[name='graph']").val( row.graph );
+
+		$('#updateModal').modal({backdrop: false, keyboard: false}).modal('show');
+	});
+	var updateModalValidate = $("#updateModal .form").validate({
+		errorElement : 'span',
+		errorClass : 'help-block',
+		focusInvalid : true,
+		rules : validateRules,
+		messages : validateMessages,
+		highlight : function(element) {
+			$(element).closest('.form-group').addClass('has-error');
+		},
+		success : function(label) {
+			label.closest('.form-group').removeClass('has-error');
+			label.remove();
+		},
+		errorPlacement : function(error, element) {
+			element.parent('div').append(error);
+		},
+		submitHandler : function(form) {
+			$.post(base_url + "/jobworkflow/update",  $("#updateModal .form").serialize(), function(data, status) {
+				if (data.code == "200") {
+					$('#updateModal').modal('hide');
+					layer.open({
+						title: I18n.system_tips ,
+						btn: [ I18n.system_ok ],
+						content: I18n.system_update_suc ,
+						icon: '1',
+						end: function(layero, index){
+							workflowTable.fnDraw();
+						}
+					});
+				} else {
+					layer.open({
+						title: I18n.system_tips,
+						btn: [ I18n.system_ok ],
+						content: (data.msg || I18n.system_update_fail  ),
+						icon: '2'
+					});
+				}
+			});
+		}
+	});
+	$("#updateModal").on('hide.bs.modal', function () {
+		$("#updateModal .form")[0].reset();
+		updateModalValidate.resetForm();
+		$("#updateModal .form .form-group").removeClass("has-error");
+	});
+
+});
@@ -123,6 +123,12 @@
                                     <div id="pieChart" style="height: 350px;"></div>
                                 </div>
                             </div>
+                            <div class="row">
+                                <#-- 执行统计图：调度次数 + 执行耗时分位，粒度随时间区间（分钟/小时/天） -->
+                                <div class="col-md-12">
+                                    <div id="statChart" style="height: 350px;"></div>
+                                </div>
+                            </div>
                         </div>
                     </div>
                 </div>
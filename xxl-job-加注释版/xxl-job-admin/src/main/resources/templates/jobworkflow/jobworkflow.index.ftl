@@ -0,0 +1,201 @@
+<!DOCTYPE html>
+<html>
+<head>
+  	<#import "../common/common.macro.ftl" as netCommon>
+	<@netCommon.commonStyle />
+	<!-- DataTables -->
+  	<link rel="stylesheet" href="${request.contextPath}/static/adminlte/bower_components/datatables.net-bs/css/dataTables.bootstrap.min.css">
+    <title>${I18n.admin_name}</title>
+</head>
+<body class="hold-transition skin-blue sidebar-mini <#if cookieMap?exists && cookieMap["xxljob_adminlte_settings"]?exists && "off" == cookieMap["xxljob_adminlte_settings"].value >sidebar-collapse</#if> ">
+<div class="wrapper">
+	<!-- header -->
+	<@netCommon.commonHeader />
+	<!-- left -->
+	<@netCommon.commonLeft "jobworkflow" />
+
+	<!-- Content Wrapper. Contains page content -->
+	<div class="content-wrapper">
+		<!-- Content Header (Page header) -->
+		<section class="content-header">
+			<h1>${I18n.workflow_name}</h1>
+		</section>
+
+		<!-- Main content -->
+	    <section class="content">
+
+            <div class="row">
+                <div class="col-xs-3">
+                    <div class="input-group">
+                        <span class="input-group-addon">${I18n.jobinfo_field_jobgroup}</span>
+                        <select class="form-control" id="jobGroup" >
+                            <#list JobGroupList as group>
+                                <option value="${group.id}" >${group.title}</option>
+                            </#list>
+                        </select>
+                    </div>
+                </div>
+                <div class="col-xs-3">
+                    <div class="input-group">
+                        <input type="text" class="form-control" id="workflowDesc" autocomplete="on" placeholder="${I18n.system_please_input}${I18n.workflow_field_desc}" >
+                    </div>
+                </div>
+                <div class="col-xs-2">
+                    <button class="btn btn-block btn-info" id="searchBtn">${I18n.system_search}</button>
+                </div>
+                <div class="col-xs-2">
+                    <button class="btn btn-block btn-success add" type="button">${I18n.workflow_add}</button>
+                </div>
+            </div>
+
+			<div class="row">
+				<div class="col-xs-12">
+					<div class="box">
+			            <div class="box-body">
+			              	<table id="workflow_list" class="table table-bordered table-striped display" width="100%" >
+				                <thead>
+					            	<tr>
+                                        <th name="id" >ID</th>
+                                        <th name="workflowDesc" >${I18n.workflow_field_desc}</th>
+                                        <th name="author" >${I18n.jobinfo_field_author}</th>
+                                        <th name="updateTime" >${I18n.workflow_field_update_time}</th>
+                                        <th>${I18n.system_opt}</th>
+					                </tr>
+				                </thead>
+                                <tbody>
+								</tbody>
+							</table>
+						</div>
+					</div>
+				</div>
+			</div>
+	    </section>
+	</div>
+
+    <!-- 新增.模态框 -->
+    <div class="modal fade" id="addModal" tabindex="-1" role="dialog"  aria-hidden="true">
+        <div class="modal-dialog modal-lg">
+            <div class="modal-content">
+                <div class="modal-header">
+                    <h4 class="modal-title" >${I18n.workflow_add}</h4>
+                </div>
+                <div class="modal-body">
+                    <form class="form-horizontal form" role="form" >
+                        <div class="form-group">
+                            <label for="lastname" class="col-sm-2 control-label">${I18n.jobinfo_field_jobgroup}<font color="red">*</font></label>
+                            <div class="col-sm-4">
+                                <select class="form-control" name="jobGroup" >
+                                    <#list JobGroupList as group>
+                                        <option value="${group.id}" >${group.title}</option>
+                                    </#list>
+                                </select>
+                            </div>
+                            <label for="lastname" class="col-sm-2 control-label">${I18n.jobinfo_field_author}<font color="red">*</font></label>
+                            <div class="col-sm-4"><input type="text" class="form-control" name="author" placeholder="${I18n.system_please_input}${I18n.jobinfo_field_author}" maxlength="50" ></div>
+                        </div>
+                        <div class="form-group">
+                            <label for="lastname" class="col-sm-2 control-label">${I18n.workflow_field_desc}<font color="red">*</font></label>
+                            <div class="col-sm-10"><input type="text" class="form-control" name="workflowDesc" placeholder="${I18n.system_please_input}${I18n.workflow_field_desc}" maxlength="255" ></div>
+                        </div>
+                        <div class="form-group">
+                            <label for="lastname" class="col-sm-2 control-label">${I18n.workflow_field_graph}<font color="red">*</font></label>
+                            <div class="col-sm-10">
+                                <textarea class="textarea" name="graph" placeholder="${I18n.workflow_field_graph_placeholder?html}" style="width: 100%; height: 200px; font-size: 14px; line-height: 15px; border: 1px solid #dddddd; padding: 5px;"></textarea>
+                            </div>
+                        </div>
+                        <hr>
+                        <div class="form-group">
+                            <div class="col-sm-offset-3 col-sm-6">
+                                <button type="submit" class="btn btn-primary"  >${I18n.system_save}</button>
+                                <button type="button" class="btn btn-default" data-dismiss="modal">${I18n.system_cancel}</button>
+                            </div>
+                        </div>
+                    </form>
+                </div>
+            </div>
+        </div>
+    </div>
+
+    <!-- 更新.模态框 -->
+    <div class="modal fade" id="updateModal" tabindex="-1" role="dialog"  aria-hidden="true">
+        <div class="modal-dialog modal-lg">
+            <div class="modal-content">
+                <div class="modal-header">
+                    <h4 class="modal-title" >${I18n.workflow_edit}</h4>
+                </div>
+                <div class="modal-body">
+                    <form class="form-horizontal form" role="form" >
+                        <div class="form-group">
+                            <label for="lastname" class="col-sm-2 control-label">${I18n.jobinfo_field_jobgroup}<font color="red">*</font></label>
+                            <div class="col-sm-4">
+                                <select class="form-control" name="jobGroup" >
+                                    <#list JobGroupList as group>
+                                        <option value="${group.id}" >${group.title}</option>
+                                    </#list>
+                                </select>
+                            </div>
+                            <label for="lastname" class="col-sm-2 control-label">${I18n.jobinfo_field_author}<font color="red">*</font></label>
+                            <div class="col-sm-4"><input type="text" class="form-control" name="author" placeholder="${I18n.system_please_input}${I18n.jobinfo_field_author}" maxlength="50" ></div>
+                        </div>
+                        <div class="form-group">
+                            <label for="lastname" class="col-sm-2 control-label">${I18n.workflow_field_desc}<font color="red">*</font></label>
+                            <div class="col-sm-10"><input type="text" class="form-control" name="workflowDesc" placeholder="${I18n.system_please_input}${I18n.workflow_field_desc}" maxlength="255" ></div>
+                        </div>
+                        <div class="form-group">
+                            <label for="lastname" class="col-sm-2 control-label">${I18n.workflow_field_graph}<font color="red">*</font></label>
+                            <div class="col-sm-10">
+                                <textarea class="textarea" name="graph" placeholder="${I18n.workflow_field_graph_placeholder?html}" style="width: 100%; height: 200px; font-size: 14px; line-height: 15px; border: 1px solid #dddddd; padding: 5px;"></textarea>
+                            </div>
+                        </div>
+                        <hr>
+                        <div class="form-group">
+                            <div class="col-sm-offset-3 col-sm-6">
+                                <button type="submit" class="btn btn-primary"  >${I18n.system_save}</button>
+                                <button type="button" class="btn btn-default" data-dismiss="modal">${I18n.system_cancel}</button>
+                                <input type="hidden" name="id" >
+                            </div>
+                        </div>
+                    </form>
+                </div>
+            </div>
+        </div>
+    </div>
+
+    <!-- 运行记录.模态框 -->
+    <div class="modal fade" id="runModal" tabindex="-1" role="dialog"  aria-hidden="true">
+        <div class="modal-dialog modal-lg">
+            <div class="modal-content">
+                <div class="modal-header">
+                    <h4 class="modal-title" >${I18n.workflow_run_log}</h4>
+                </div>
+                <div class="modal-body">
+                    <table id="run_list" class="table table-bordered table-striped display" width="100%" >
+                        <thead>
+                            <tr>
+                                <th name="id" >ID</th>
+                                <th name="triggerTime" >${I18n.joblog_field_triggerTime}</th>
+                                <th name="finishTime" >${I18n.joblog_field_handleTime}</th>
+                                <th name="runStatus" >${I18n.joblog_status}</th>
+                                <th>${I18n.system_opt}</th>
+                            </tr>
+                        </thead>
+                        <tbody>
+                        </tbody>
+                    </table>
+                </div>
+            </div>
+        </div>
+    </div>
+
+	<!-- footer -->
+	<@netCommon.commonFooter />
+</div>
+
+<@netCommon.commonScript />
+<!-- DataTables -->
+<script src="${request.contextPath}/static/adminlte/bower_components/datatables.net/js/jquery.dataTables.min.js"></script>
+<script src="${request.contextPath}/static/adminlte/bower_components/datatables.net-bs/js/dataTables.bootstrap.min.js"></script>
+<script src="${request.contextPath}/static/adminlte/bower_components/moment/moment.min.js"></script>
+<script src="${request.contextPath}/static/js/jobworkflow.index.1.js"></script>
+</body>
+</html>
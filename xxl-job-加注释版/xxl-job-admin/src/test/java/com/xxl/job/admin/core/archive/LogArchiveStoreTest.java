@@ -0,0 +1,147 @@
+package com.xxl.job.admin.core.archive;
+
+import com.xxl.job.admin.core.model.XxlJobLog;
+import com.xxl.job.core.util.DateUtil;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class LogArchiveStoreTest {
+
+    private static XxlJobLog buildLog(long id, int jobId, Date triggerTime, int handleCode) {
+        XxlJobLog log = new XxlJobLog();
+        log.setId(id);
+        log.setJobGroup(1);
+        log.setJobId(jobId);
+        log.setTriggerTime(triggerTime);
+        log.setTriggerCode(200);
+        log.setHandleCode(handleCode);
+        log.setTriggerMsg("trigger-" + id);
+        return log;
+    }
+
+    private static LogArchiveStore archiveDays(File archiveDir, Date... days) throws Exception {
+        LogArchiveStore store = new LogArchiveStore(archiveDir.getAbsolutePath());
+        long id = 1;
+        for (Date day: days) {
+            LogArchiveStore.Writer writer = store.openWriter(day);
+            for (int i = 0; i < 1200; i++) {
+                int handleCode = i%4==0?500:200;
+                writer.append(buildLog(id++, i%3 + 1, new Date(day.getTime() + i*60*1000L), handleCode));
+            }
+            writer.commit();
+            writer.close();
+        }
+        return store;
+    }
+
+    @Test
+    public void shouldPageArchivedLogDesc() throws Exception {
+        //given
+        File archiveDir = Files.createTempDirectory("xxl-job-archive").toFile();
+        Date day1 = DateUtil.parseDate("2020-01-01");
+        Date day2 = DateUtil.parseDate("2020-01-02");
+        LogArchiveStore store = archiveDays(archiveDir, day1, day2);
+
+        //when
+        int countAll = store.pageListCount(0, 0, null, null, 0);
+        int countJob = store.pageListCount(1, 2, null, null, 0);
+        int countFail = store.pageListCount(1, 0, day1, DateUtil.addMinutes(day1, 99), 2);
+        List<XxlJobLog> firstPage = store.pageList(0, 10, 0, 0, null, null, 0);
+        List<XxlJobLog> crossDayPage = store.pageList(1195, 10, 0, 0, null, null, 0);
+
+        //then
+        assertThat(countAll, is(2400));
+        assertThat(countJob, is(800));
+        assertThat(countFail, is(25));
+        assertThat(firstPage.size(), is(10));
+        assertThat(firstPage.get(0).getId(), is(2400L));
+        assertThat(firstPage.get(9).getId(), is(2391L));
+        assertThat(crossDayPage.get(4).getId(), is(1201L));
+        assertThat(crossDayPage.get(5).getId(), is(1200L));
+        assertThat(store.getArchiveEndTime(), is(DateUtil.addDays(day2, 1)));
+    }
+
+    @Test
+    public void shouldLoadAndCleanArchivedLog() throws Exception {
+        //given
+        File archiveDir = Files.createTempDirectory("xxl-job-archive").toFile();
+        Date day1 = DateUtil.parseDate("2020-01-01");
+        Date day2 = DateUtil.parseDate("2020-01-02");
+        LogArchiveStore store = archiveDays(archiveDir, day1, day2);
+
+        //when
+        XxlJobLog log = store.load(1500);
+        int cleanCount = store.cleanBefore(day2);
+        XxlJobLog cleanedLog = store.load(100);
+
+        //then
+        assertThat(log.getTriggerMsg(), is("trigger-1500"));
+        assertThat(cleanCount, is(1));
+        assertThat(cleanedLog == null, is(true));
+        assertThat(store.isArchived(day1), is(false));
+        assertThat(store.isArchived(day2), is(true));
+    }
+
+    @Test
+    public void shouldLoadArchivedIdsByBlock() throws Exception {
+        //given
+        File archiveDir = Files.createTempDirectory("xxl-job-archive").toFile();
+        Date day1 = DateUtil.parseDate("2020-01-01");
+        Date day2 = DateUtil.parseDate("2020-01-02");
+        LogArchiveStore store = archiveDays(archiveDir, day1);
+
+        //when
+        List<LogArchiveIndex> indexList = store.loadDayIndex(day1);
+        Set<Long> logIds = new HashSet<Long>();
+        for (LogArchiveIndex index: indexList) {
+            logIds.addAll(store.loadBlockIds(day1, index));
+        }
+
+        //then
+        assertThat(logIds.size(), is(1200));
+        assertThat(logIds.contains(1L), is(true));
+        assertThat(logIds.contains(1200L), is(true));
+        assertThat(store.loadDayIndex(day2) == null, is(true));
+    }
+
+    @Test
+    public void shouldAppendBlockToArchivedDay() throws Exception {
+        //given
+        File archiveDir = Files.createTempDirectory("xxl-job-archive").toFile();
+        Date day1 = DateUtil.parseDate("2020-01-01");
+        LogArchiveStore store = archiveDays(archiveDir, day1);
+        int countBefore = store.pageListCount(0, 0, null, null, 0);
+
+        LogArchiveStore.Writer uncommitted = store.openAppender(day1);
+        uncommitted.append(buildLog(9000, 1, new Date(day1.getTime() + 1000), 200));
+        uncommitted.close();
+
+        //when
+        LogArchiveStore.Writer appender = store.openAppender(day1);
+        appender.append(buildLog(5000, 1, new Date(day1.getTime() + 2000), 500));
+        appender.append(buildLog(5001, 2, new Date(day1.getTime() + 3000), 200));
+        appender.commit();
+        appender.close();
+        Set<Long> archivedIds = store.findArchivedIds(day1, Arrays.asList(
+                buildLog(1, 1, day1, 200), buildLog(5001, 2, day1, 200), buildLog(6000, 2, day1, 200)));
+
+        //then
+        assertThat(countBefore, is(1200));
+        assertThat(store.pageListCount(0, 0, null, null, 0), is(1202));
+        assertThat(store.load(5000).getHandleCode(), is(500));
+        assertThat(store.load(9000) == null, is(true));
+        assertThat(store.load(1200).getTriggerMsg(), is("trigger-1200"));
+        assertThat(archivedIds, is((Set<Long>) new HashSet<Long>(Arrays.asList(1L, 5001L))));
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.xxl.job.admin.core.route;
+
+import com.xxl.job.admin.core.route.strategy.ExecutorRouteWeightRound;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class ExecutorRouteWeightRoundTest {
+
+    @Test
+    public void shouldRouteByWeight() {
+        //given
+        ExecutorRouteWeightRound router = new ExecutorRouteWeightRound();
+        List<String> addressList = Arrays.asList("a", "b", "c");
+        int[] weights = new int[]{5, 1, 1};
+
+        //when
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            result.add(router.route(1001, addressList, weights));
+        }
+
+        //then, smooth: "a" is not selected 5 times in a row
+        assertThat(result, is(Arrays.asList("a", "a", "b", "a", "c", "a", "a")));
+    }
+
+    @Test
+    public void shouldResetWhenAddressChanged() {
+        //given
+        ExecutorRouteWeightRound router = new ExecutorRouteWeightRound();
+        router.route(1002, Arrays.asList("a", "b"), new int[]{3, 1});
+
+        //when
+        Map<String, Integer> count = new HashMap<>();
+        List<String> addressList = Arrays.asList("a", "b", "c");
+        for (int i = 0; i < 600; i++) {
+            String address = router.route(1002, addressList, new int[]{1, 2, 3});
+            count.put(address, count.containsKey(address) ? count.get(address) + 1 : 1);
+        }
+
+        //then
+        assertThat(count.get("a"), is(100));
+        assertThat(count.get("b"), is(200));
+        assertThat(count.get("c"), is(300));
+    }
+
+}
@@ -0,0 +1,151 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.core.biz.AdminBiz;
+import com.xxl.job.core.biz.ExecutorBiz;
+import com.xxl.job.core.biz.model.HandleCallbackParam;
+import com.xxl.job.core.biz.model.RegistryParam;
+import com.xxl.job.core.biz.model.ReturnT;
+import com.xxl.job.core.channel.ExecutorChannelClient;
+import com.xxl.job.core.enums.RegistryConfig;
+import com.xxl.job.core.util.NetUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class JobChannelHelperTest {
+
+    private static final String ADDRESS = "http://10.0.0.1:9999/";
+
+    private int port;
+    private RecordAdminBiz adminBiz;
+    private RecordAdminBiz fallback;
+    private ExecutorChannelClient channelClient;
+
+    @Before
+    public void setUp() throws Exception {
+        port = NetUtil.findAvailablePort(28000);
+        adminBiz = new RecordAdminBiz();
+        fallback = new RecordAdminBiz();
+        JobChannelHelper.getInstance().start(port, "token", adminBiz, 3, 3);
+        channelClient = new ExecutorChannelClient("http://127.0.0.1:8080/xxl-job-admin/", port, "token", fallback);
+    }
+
+    @After
+    public void tearDown() {
+        channelClient.toStop();
+        JobChannelHelper.getInstance().toStop();
+    }
+
+    @Test
+    public void shouldPushToExecutorWhenRegisteredByChannel() throws Exception {
+        //given
+        channelClient.start();
+        waitConnected();
+
+        //when
+        channelClient.registry(new RegistryParam(RegistryConfig.RegistType.EXECUTOR.name(), "app-a", ADDRESS));
+        ExecutorBiz executorBiz = JobChannelHelper.getInstance().getExecutorBiz(ADDRESS);
+        ReturnT<String> callbackResult = channelClient.callback(Collections.singletonList(
+                new HandleCallbackParam(1, System.currentTimeMillis(), ReturnT.SUCCESS)));
+
+        //then
+        assertThat(adminBiz.registryList.size(), is(1));
+        assertThat(fallback.registryList.size(), is(0));
+        assertThat(executorBiz.beat().getCode(), is(ReturnT.SUCCESS_CODE));
+        assertThat(callbackResult.getCode(), is(ReturnT.SUCCESS_CODE));
+        assertThat(adminBiz.callbackList.size(), is(1));
+    }
+
+    @Test
+    public void shouldMarkDownWhenChannelClosed() throws Exception {
+        //given
+        channelClient.start();
+        waitConnected();
+        channelClient.registry(new RegistryParam(RegistryConfig.RegistType.EXECUTOR.name(), "app-down", ADDRESS));
+        boolean registeredBefore = JobRegistryMonitorHelper.getInstance().getRegistryAddress().containsKey("app-down");
+
+        //when
+        channelClient.toStop();
+        for (int i = 0; i < 50 && JobChannelHelper.getInstance().getExecutorBiz(ADDRESS) != null; i++) {
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        TimeUnit.MILLISECONDS.sleep(200);
+
+        //then
+        assertThat(JobChannelHelper.getInstance().getExecutorBiz(ADDRESS) == null, is(true));
+        assertThat(adminBiz.registryRemoveList.size(), is(0));
+        assertThat(registeredBefore, is(true));
+        assertThat(JobRegistryMonitorHelper.getInstance().getRegistryAddress().containsKey("app-down"), is(false));
+    }
+
+    @Test
+    public void shouldReadmitWhenRegistryAfterDown() {
+        //given
+        String registryGroup = RegistryConfig.RegistType.EXECUTOR.name();
+        JobRegistryMonitorHelper.getInstance().registry(registryGroup, "app-readmit", ADDRESS, RegistryConfig.DEFAULT_WEIGHT);
+        JobRegistryMonitorHelper.getInstance().registryDown(registryGroup, "app-readmit", ADDRESS);
+
+        //when
+        JobRegistryMonitorHelper.getInstance().registry(registryGroup, "app-readmit", ADDRESS, RegistryConfig.DEFAULT_WEIGHT);
+
+        //then
+        assertThat(JobRegistryMonitorHelper.getInstance().getRegistryAddress().get("app-readmit"), is(Collections.singletonList(ADDRESS)));
+    }
+
+    @Test
+    public void shouldFallbackWhenTokenWrong() throws Exception {
+        //given
+        channelClient.toStop();
+        channelClient = new ExecutorChannelClient("http://127.0.0.1:8080/xxl-job-admin/", port, "wrong", fallback);
+        channelClient.start();
+        TimeUnit.MILLISECONDS.sleep(1000);
+
+        //when
+        channelClient.registry(new RegistryParam(RegistryConfig.RegistType.EXECUTOR.name(), "app-a", ADDRESS));
+
+        //then
+        assertThat(channelClient.isConnected(), is(false));
+        assertThat(fallback.registryList.size(), is(1));
+        assertThat(adminBiz.registryList.size(), is(0));
+    }
+
+    private void waitConnected() throws InterruptedException {
+        for (int i = 0; i < 50 && !channelClient.isConnected(); i++) {
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+    }
+
+    private static class RecordAdminBiz implements AdminBiz {
+        private final List<List<HandleCallbackParam>> callbackList = new CopyOnWriteArrayList<List<HandleCallbackParam>>();
+        private final List<RegistryParam> registryList = new CopyOnWriteArrayList<RegistryParam>();
+        private final List<RegistryParam> registryRemoveList = new CopyOnWriteArrayList<RegistryParam>();
+
+        @Override
+        public ReturnT<String> callback(List<HandleCallbackParam> callbackParamList) {
+            callbackList.add(callbackParamList);
+            return ReturnT.SUCCESS;
+        }
+
+        @Override
+        public ReturnT<String> registry(RegistryParam registryParam) {
+            registryList.add(registryParam);
+            JobRegistryMonitorHelper.getInstance().registry(registryParam.getRegistryGroup(), registryParam.getRegistryKey(), registryParam.getRegistryValue(), registryParam.getWeight());
+            return ReturnT.SUCCESS;
+        }
+
+        @Override
+        public ReturnT<String> registryRemove(RegistryParam registryParam) {
+            registryRemoveList.add(registryParam);
+            return ReturnT.SUCCESS;
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.admin.core.model.XxlJobLogStat;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class JobLogStatHelperTest {
+
+    @Test
+    public void shouldEstimatePercentileByBucket() {
+        //given
+        XxlJobLogStat stat = new XxlJobLogStat();
+        stat.setDurationB0(50);
+        stat.setDurationB1(45);
+        stat.setDurationB3(5);
+        stat.setDurationMax(4000);
+
+        //when
+        long p50 = JobLogStatHelper.durationPercentile(stat, 50);
+        long p95 = JobLogStatHelper.durationPercentile(stat, 95);
+        long p99 = JobLogStatHelper.durationPercentile(stat, 99);
+        long p100 = JobLogStatHelper.durationPercentile(stat, 100);
+
+        //then
+        assertThat(p50, is(100L));
+        assertThat(p95, is(500L));
+        assertThat(p99, is(3400L));
+        assertThat(p100, is(4000L));
+    }
+
+    @Test
+    public void shouldReturnZeroWhenEmpty() {
+        //given
+        XxlJobLogStat stat = new XxlJobLogStat();
+
+        //when
+        long p99 = JobLogStatHelper.durationPercentile(stat, 99);
+
+        //then
+        assertThat(p99, is(0L));
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.core.biz.model.ReturnT;
+import org.junit.Test;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class JobRegistryWatchHelperTest {
+
+    @Test
+    public void shouldReturnDeltaWhenChanged() {
+        //given
+        JobRegistryWatchHelper helper = JobRegistryWatchHelper.getInstance();
+        Map<String, Object> snapshot = ((ReturnT<Map<String, Object>>) helper.watch(0, 0, null, 1).getResult()).getContent();
+        long epoch = (Long) snapshot.get("epoch");
+        long version = (Long) snapshot.get("version");
+
+        //when
+        DeferredResult<ReturnT<Map<String, Object>>> deferredResult = helper.watch(epoch, version, Arrays.asList("app-a"), 30);
+        boolean waiting = !deferredResult.hasResult();
+        helper.onAdded("app-b", "http://127.0.0.1:9998/");
+        boolean stillWaiting = !deferredResult.hasResult();
+        helper.onAdded("app-a", "http://127.0.0.1:9999/");
+
+        //then
+        assertThat(waiting, is(true));
+        assertThat(stillWaiting, is(true));
+        Map<String, Object> result = ((ReturnT<Map<String, Object>>) deferredResult.getResult()).getContent();
+        assertThat(result.get("full"), is((Object) false));
+        assertThat(result.get("version"), is((Object) (version + 2)));
+        assertThat(((Map) result.get("added")).get("app-a").toString(), is("[http://127.0.0.1:9999/]"));
+        assertThat(((Map) result.get("removed")).isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldReturnFullWhenEpochMismatch() {
+        //given
+        JobRegistryWatchHelper helper = JobRegistryWatchHelper.getInstance();
+
+        //when
+        DeferredResult<ReturnT<Map<String, Object>>> deferredResult = helper.watch(-1, 0, Collections.<String>emptyList(), 30);
+
+        //then
+        Map<String, Object> result = ((ReturnT<Map<String, Object>>) deferredResult.getResult()).getContent();
+        assertThat(result.get("full"), is((Object) true));
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.core.biz.ExecutorBiz;
+import com.xxl.job.core.biz.model.*;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class JobTriggerBatchHelperTest {
+
+    private static final String ADDRESS = "http://127.0.0.1:9999/";
+
+    @After
+    public void tearDown() {
+        JobTriggerBatchHelper.getInstance().toStop();
+    }
+
+    @Test
+    public void shouldSendOneBatchWhenFiresWithinWindow() throws Exception {
+        //given
+        JobTriggerBatchHelper.getInstance().start(200, 100);
+        RecordExecutorBiz executorBiz = new RecordExecutorBiz(true);
+
+        //when
+        List<ReturnT<String>> resultList = fire(executorBiz, 10);
+
+        //then
+        assertThat(executorBiz.runBatchCount.get(), is(1));
+        assertThat(executorBiz.runCount.get(), is(10));
+        assertThat(resultList.size(), is(10));
+        for (int i = 0; i < resultList.size(); i++) {
+            assertThat(resultList.get(i).getCode(), is(ReturnT.SUCCESS_CODE));
+        }
+    }
+
+    @Test
+    public void shouldSendAtOnceWhenBatchFull() throws Exception {
+        //given
+        JobTriggerBatchHelper.getInstance().start(60 * 1000, 5);
+        RecordExecutorBiz executorBiz = new RecordExecutorBiz(true);
+
+        //when
+        long start = System.currentTimeMillis();
+        fire(executorBiz, 10);
+
+        //then
+        assertThat(System.currentTimeMillis() - start < 10 * 1000, is(true));
+        assertThat(executorBiz.runBatchCount.get(), is(2));
+    }
+
+    @Test
+    public void shouldRunOneByOneWhenBatchNotSupported() throws Exception {
+        //given
+        JobTriggerBatchHelper.getInstance().start(200, 100);
+        RecordExecutorBiz executorBiz = new RecordExecutorBiz(false);
+
+        //when
+        List<ReturnT<String>> resultList = fire(executorBiz, 10);
+
+        //then
+        assertThat(executorBiz.runCount.get(), is(10));
+        for (ReturnT<String> result: resultList) {
+            assertThat(result.getCode(), is(ReturnT.SUCCESS_CODE));
+        }
+    }
+
+    private List<ReturnT<String>> fire(final ExecutorBiz executorBiz, int count) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(count);
+        try {
+            List<Future<ReturnT<String>>> futureList = new ArrayList<Future<ReturnT<String>>>();
+            for (int i = 0; i < count; i++) {
+                final TriggerParam triggerParam = new TriggerParam();
+                triggerParam.setJobId(i + 1);
+                futureList.add(pool.submit(new Callable<ReturnT<String>>() {
+                    @Override
+                    public ReturnT<String> call() {
+                        return JobTriggerBatchHelper.getInstance().run(ADDRESS, executorBiz, triggerParam);
+                    }
+                }));
+            }
+            List<ReturnT<String>> resultList = new ArrayList<ReturnT<String>>();
+            for (Future<ReturnT<String>> future: futureList) {
+                resultList.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return resultList;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static class RecordExecutorBiz implements ExecutorBiz {
+        private final boolean batchSupported;
+        private final AtomicInteger runCount = new AtomicInteger();
+        private final AtomicInteger runBatchCount = new AtomicInteger();
+
+        private RecordExecutorBiz(boolean batchSupported) {
+            this.batchSupported = batchSupported;
+        }
+
+        @Override
+        public ReturnT<String> beat() {
+            return ReturnT.SUCCESS;
+        }
+
+        @Override
+        public ReturnT<String> idleBeat(IdleBeatParam idleBeatParam) {
+            return ReturnT.SUCCESS;
+        }
+
+        @Override
+        public ReturnT<String> run(TriggerParam triggerParam) {
+            runCount.incrementAndGet();
+            return ReturnT.SUCCESS;
+        }
+
+        @Override
+        public ReturnT<List<ReturnT<String>>> runBatch(List<TriggerParam> triggerParamList) {
+            if (!batchSupported) {
+                return new ReturnT<List<ReturnT<String>>>(ReturnT.FAIL_CODE, "invalid request, uri-mapping(/runBatch) not found.");
+            }
+            runBatchCount.incrementAndGet();
+            List<ReturnT<String>> resultList = new ArrayList<ReturnT<String>>();
+            for (TriggerParam triggerParam: triggerParamList) {
+                resultList.add(run(triggerParam));
+            }
+            return new ReturnT<List<ReturnT<String>>>(resultList);
+        }
+
+        @Override
+        public ReturnT<String> kill(KillParam killParam) {
+            return ReturnT.SUCCESS;
+        }
+
+        @Override
+        public ReturnT<LogResult> log(LogParam logParam) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.admin.core.model.XxlJobWorkflowNode;
+import com.xxl.job.admin.core.workflow.WorkflowGraph;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class JobWorkflowHelperTest {
+
+    private static Map<Integer, XxlJobWorkflowNode> nodeMap(int... jobIdAndStatus) {
+        Map<Integer, XxlJobWorkflowNode> nodeMap = new HashMap<Integer, XxlJobWorkflowNode>();
+        for (int i = 0; i < jobIdAndStatus.length; i += 2) {
+            XxlJobWorkflowNode node = new XxlJobWorkflowNode();
+            node.setJobId(jobIdAndStatus[i]);
+            node.setNodeStatus(jobIdAndStatus[i+1]);
+            nodeMap.put(node.getJobId(), node);
+        }
+        return nodeMap;
+    }
+
+    @Test
+    public void shouldWaitAllParentsBeforeJoin() {
+        //given
+        WorkflowGraph graph = WorkflowGraph.parse("{\"nodes\":[1,2,3],\"edges\":[{\"from\":1,\"to\":3},{\"from\":2,\"to\":3}]}");
+
+        //when
+        int oneRunning = JobWorkflowHelper.nextStatus(graph, 3, nodeMap(1, JobWorkflowHelper.NODE_SUCCESS, 2, JobWorkflowHelper.NODE_RUNNING, 3, JobWorkflowHelper.NODE_WAITING));
+        int allSuccess = JobWorkflowHelper.nextStatus(graph, 3, nodeMap(1, JobWorkflowHelper.NODE_SUCCESS, 2, JobWorkflowHelper.NODE_SUCCESS, 3, JobWorkflowHelper.NODE_WAITING));
+        int oneFail = JobWorkflowHelper.nextStatus(graph, 3, nodeMap(1, JobWorkflowHelper.NODE_SUCCESS, 2, JobWorkflowHelper.NODE_FAIL, 3, JobWorkflowHelper.NODE_WAITING));
+        int root = JobWorkflowHelper.nextStatus(graph, 1, nodeMap(1, JobWorkflowHelper.NODE_WAITING));
+
+        //then
+        assertThat(oneRunning, is(JobWorkflowHelper.NODE_WAITING));
+        assertThat(allSuccess, is(JobWorkflowHelper.NODE_RUNNING));
+        assertThat(oneFail, is(JobWorkflowHelper.NODE_SKIPPED));
+        assertThat(root, is(JobWorkflowHelper.NODE_RUNNING));
+    }
+
+    @Test
+    public void shouldPassSkipAndMatchCondition() {
+        //given
+        WorkflowGraph graph = WorkflowGraph.parse("{\"nodes\":[1,2,3],\"edges\":[{\"from\":1,\"to\":2,\"condition\":\"FAIL\"},{\"from\":2,\"to\":3,\"condition\":\"ALWAYS\"}]}");
+
+        //when
+        int onFail = JobWorkflowHelper.nextStatus(graph, 2, nodeMap(1, JobWorkflowHelper.NODE_FAIL));
+        int onSuccess = JobWorkflowHelper.nextStatus(graph, 2, nodeMap(1, JobWorkflowHelper.NODE_SUCCESS));
+        int afterSkipped = JobWorkflowHelper.nextStatus(graph, 3, nodeMap(2, JobWorkflowHelper.NODE_SKIPPED));
+
+        //then
+        assertThat(onFail, is(JobWorkflowHelper.NODE_RUNNING));
+        assertThat(onSuccess, is(JobWorkflowHelper.NODE_SKIPPED));
+        assertThat(afterSkipped, is(JobWorkflowHelper.NODE_SKIPPED));
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.xxl.job.admin.core.workflow;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class WorkflowGraphTest {
+
+    @Test
+    public void shouldParseValidGraph() {
+        //given
+        String json = "{\"nodes\":[1,2,3,4],\"edges\":[{\"from\":1,\"to\":2},{\"from\":1,\"to\":3},{\"from\":2,\"to\":4},{\"from\":3,\"to\":4,\"condition\":\"ALWAYS\"}]}";
+
+        //when
+        WorkflowGraph graph = WorkflowGraph.parse(json);
+
+        //then
+        assertThat(graph.valid() == null, is(true));
+        assertThat(graph.roots(), is(Arrays.asList(1)));
+        assertThat(graph.parents(4).size(), is(2));
+        assertThat(graph.children(1).size(), is(2));
+        assertThat(graph.parents(4).get(0).getCondition(), is(WorkflowGraph.CONDITION_SUCCESS));
+    }
+
+    @Test
+    public void shouldRejectInvalidGraph() {
+        //given
+        String cycle = "{\"nodes\":[1,2,3],\"edges\":[{\"from\":1,\"to\":2},{\"from\":2,\"to\":3},{\"from\":3,\"to\":2}]}";
+        String unknownNode = "{\"nodes\":[1,2],\"edges\":[{\"from\":1,\"to\":5}]}";
+        String badCondition = "{\"nodes\":[1,2],\"edges\":[{\"from\":1,\"to\":2,\"condition\":\"MAYBE\"}]}";
+
+        //when
+        String cycleMsg = WorkflowGraph.parse(cycle).valid();
+        String unknownNodeMsg = WorkflowGraph.parse(unknownNode).valid();
+        String badConditionMsg = WorkflowGraph.parse(badCondition).valid();
+        WorkflowGraph notJson = WorkflowGraph.parse("not json");
+
+        //then
+        assertThat(cycleMsg, is("graph has cycle"));
+        assertThat(unknownNodeMsg, is("edge node not found: 1->5"));
+        assertThat(badConditionMsg, is("edge condition invalid: MAYBE"));
+        assertThat(notJson == null, is(true));
+    }
+
+    @Test
+    public void shouldMatchEdgeCondition() {
+        //given
+        WorkflowGraph graph = WorkflowGraph.parse("{\"nodes\":[1,2,3,4],\"edges\":[{\"from\":1,\"to\":2},{\"from\":1,\"to\":3,\"condition\":\"FAIL\"},{\"from\":1,\"to\":4,\"condition\":\"ALWAYS\"}]}");
+
+        //when
+        WorkflowGraph.Edge sucEdge = graph.children(1).get(0);
+        WorkflowGraph.Edge failEdge = graph.children(1).get(1);
+        WorkflowGraph.Edge alwaysEdge = graph.children(1).get(2);
+
+        //then
+        assertThat(sucEdge.match(true), is(true));
+        assertThat(sucEdge.match(false), is(false));
+        assertThat(failEdge.match(true), is(false));
+        assertThat(failEdge.match(false), is(true));
+        assertThat(alwaysEdge.match(false), is(true));
+    }
+
+}
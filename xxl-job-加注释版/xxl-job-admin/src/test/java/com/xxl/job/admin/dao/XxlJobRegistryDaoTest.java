@@ -20,14 +20,29 @@ public class XxlJobRegistryDaoTest {
 
     @Test
     public void test(){
-        int ret = xxlJobRegistryDao.registryUpdate("g1", "k1", "v1", new Date());
+        int ret = xxlJobRegistryDao.registryUpdate("g1", "k1", "v1", 1, new Date());
         if (ret < 1) {
-            ret = xxlJobRegistryDao.registrySave("g1", "k1", "v1", new Date());
+            ret = xxlJobRegistryDao.registrySave("g1", "k1", "v1", 1, new Date());
         }
 
+        XxlJobRegistry registry = new XxlJobRegistry();
+        registry.setRegistryGroup("g1");
+        registry.setRegistryKey("k2");
+        registry.setRegistryValue("v2");
+        registry.setWeight(1);
+        registry.setUpdateTime(new Date());
+        int ret3 = xxlJobRegistryDao.registrySaveOrUpdate(Arrays.asList(registry));
+
         List<XxlJobRegistry> list = xxlJobRegistryDao.findAll(1, new Date());
 
         int ret2 = xxlJobRegistryDao.removeDead(Arrays.asList(1));
     }
 
+    @Test
+    public void versionTest(){
+        Long version = xxlJobRegistryDao.loadVersion();
+        int ret = xxlJobRegistryDao.increaseVersion();
+        Long version2 = xxlJobRegistryDao.loadVersion();
+    }
+
 }
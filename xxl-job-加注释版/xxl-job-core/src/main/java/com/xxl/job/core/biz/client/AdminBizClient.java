@@ -29,22 +29,38 @@ public class AdminBizClient implements AdminBiz {
 
     private String addressUrl ;
     private String accessToken;
+    private int connectTimeout = 3;
+    private int beatTimeout = 3;
     private int timeout = 3;
+    private XxlJobRemotingUtil.Negotiation negotiation = new XxlJobRemotingUtil.Negotiation();     // gzip/binary, negotiated with remote by response
+
+    /**
+     * timeout by second, per call type
+     *
+     * @param connectTimeout    connect timeout, all call
+     * @param beatTimeout       read timeout, registry/registryRemove
+     * @param timeout           read timeout, callback
+     */
+    public void setTimeout(int connectTimeout, int beatTimeout, int timeout) {
+        this.connectTimeout = connectTimeout;
+        this.beatTimeout = beatTimeout;
+        this.timeout = timeout;
+    }
 
 
     @Override
     public ReturnT<String> callback(List<HandleCallbackParam> callbackParamList) {
-        return XxlJobRemotingUtil.postBody(addressUrl+"api/callback", accessToken, timeout, callbackParamList, String.class);
+        return XxlJobRemotingUtil.postBody(addressUrl + "api/callback", accessToken, connectTimeout, timeout, callbackParamList, String.class, negotiation);
     }
 
     @Override
     public ReturnT<String> registry(RegistryParam registryParam) {
-        return XxlJobRemotingUtil.postBody(addressUrl + "api/registry", accessToken, timeout, registryParam, String.class);
+        return XxlJobRemotingUtil.postBody(addressUrl + "api/registry", accessToken, connectTimeout, beatTimeout, registryParam, String.class, negotiation);
     }
 
     @Override
     public ReturnT<String> registryRemove(RegistryParam registryParam) {
-        return XxlJobRemotingUtil.postBody(addressUrl + "api/registryRemove", accessToken, timeout, registryParam, String.class);
+        return XxlJobRemotingUtil.postBody(addressUrl + "api/registryRemove", accessToken, connectTimeout, beatTimeout, registryParam, String.class, negotiation);
     }
 
 }
@@ -4,6 +4,9 @@ import com.xxl.job.core.biz.ExecutorBiz;
 import com.xxl.job.core.biz.model.*;
 import com.xxl.job.core.util.XxlJobRemotingUtil;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * admin api test
  *
@@ -25,32 +28,58 @@ public class ExecutorBizClient implements ExecutorBiz {
 
     private String addressUrl ;
     private String accessToken;
+    private int connectTimeout = 3;
+    private int beatTimeout = 3;
     private int timeout = 3;
+    private XxlJobRemotingUtil.Negotiation negotiation = new XxlJobRemotingUtil.Negotiation();     // gzip/binary, negotiated with remote by response
+
+    /**
+     * timeout by second, per call type
+     *
+     * @param connectTimeout    connect timeout, all call
+     * @param beatTimeout       read timeout, beat/idleBeat
+     * @param timeout           read timeout, run/kill/log
+     */
+    public void setTimeout(int connectTimeout, int beatTimeout, int timeout) {
+        this.connectTimeout = connectTimeout;
+        this.beatTimeout = beatTimeout;
+        this.timeout = timeout;
+    }
 
 
     @Override
     public ReturnT<String> beat() {
-        return XxlJobRemotingUtil.postBody(addressUrl+"beat", accessToken, timeout, null, String.class);
+        return XxlJobRemotingUtil.postBody(addressUrl + "beat", accessToken, connectTimeout, beatTimeout, null, String.class, negotiation);
     }
 
     @Override
     public ReturnT<String> idleBeat(IdleBeatParam idleBeatParam){
-        return XxlJobRemotingUtil.postBody(addressUrl+"idleBeat", accessToken, timeout, idleBeatParam, String.class);
+        return XxlJobRemotingUtil.postBody(addressUrl + "idleBeat", accessToken, connectTimeout, beatTimeout, idleBeatParam, String.class, negotiation);
     }
 
     @Override
     public ReturnT<String> run(TriggerParam triggerParam) {
-        return XxlJobRemotingUtil.postBody(addressUrl + "run", accessToken, timeout, triggerParam, String.class);
+        return XxlJobRemotingUtil.postBody(addressUrl + "run", accessToken, connectTimeout, timeout, triggerParam, String.class, negotiation);
+    }
+
+    @Override
+    public ReturnT<List<ReturnT<String>>> runBatch(List<TriggerParam> triggerParamList) {
+        // array on the wire, typed by json and binary codec both
+        ReturnT result = XxlJobRemotingUtil.postBody(addressUrl + "runBatch", accessToken, connectTimeout, timeout, triggerParamList.toArray(new TriggerParam[0]), ReturnT[].class, negotiation);
+        if (result.getContent() instanceof ReturnT[]) {
+            result.setContent(Arrays.asList((ReturnT[]) result.getContent()));
+        }
+        return result;
     }
 
     @Override
     public ReturnT<String> kill(KillParam killParam) {
-        return XxlJobRemotingUtil.postBody(addressUrl + "kill", accessToken, timeout, killParam, String.class);
+        return XxlJobRemotingUtil.postBody(addressUrl + "kill", accessToken, connectTimeout, timeout, killParam, String.class, negotiation);
     }
 
     @Override
     public ReturnT<LogResult> log(LogParam logParam) {
-        return XxlJobRemotingUtil.postBody(addressUrl + "log", accessToken, timeout, logParam, LogResult.class);
+        return XxlJobRemotingUtil.postBody(addressUrl + "log", accessToken, connectTimeout, timeout, logParam, LogResult.class, negotiation);
     }
 
 }
@@ -11,10 +11,13 @@ import com.xxl.job.core.handler.impl.GlueJobHandler;
 import com.xxl.job.core.handler.impl.ScriptJobHandler;
 import com.xxl.job.core.log.XxlJobFileAppender;
 import com.xxl.job.core.thread.JobThread;
+import com.xxl.job.core.util.ThrowableUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 /**
  * Created by xuxueli on 17/3/1.
@@ -143,6 +146,20 @@ public class ExecutorBizImpl implements ExecutorBiz {
         return pushResult;
     }
 
+    @Override
+    public ReturnT<List<ReturnT<String>>> runBatch(List<TriggerParam> triggerParamList) {
+        List<ReturnT<String>> resultList = new ArrayList<ReturnT<String>>(triggerParamList.size());
+        for (TriggerParam triggerParam: triggerParamList) {
+            try {
+                resultList.add(run(triggerParam));
+            } catch (Exception e) {
+                logger.error(e.getMessage(), e);
+                resultList.add(new ReturnT<String>(ReturnT.FAIL_CODE, "request error:" + ThrowableUtil.toString(e)));
+            }
+        }
+        return new ReturnT<List<ReturnT<String>>>(resultList);
+    }
+
     @Override
     public ReturnT<String> kill(KillParam killParam) {
         // kill handlerThread, and create new one
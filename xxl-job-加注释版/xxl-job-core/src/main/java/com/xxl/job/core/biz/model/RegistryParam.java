@@ -11,6 +11,7 @@ public class RegistryParam implements Serializable {
     private String registryGroup;
     private String registryKey;
     private String registryValue;
+    private int weight;     // route weight, used by WEIGHT_ROUND; <=0 means default weight
 
     public RegistryParam(){}
     public RegistryParam(String registryGroup, String registryKey, String registryValue) {
@@ -18,6 +19,10 @@ public class RegistryParam implements Serializable {
         this.registryKey = registryKey;
         this.registryValue = registryValue;
     }
+    public RegistryParam(String registryGroup, String registryKey, String registryValue, int weight) {
+        this(registryGroup, registryKey, registryValue);
+        this.weight = weight;
+    }
 
     public String getRegistryGroup() {
         return registryGroup;
@@ -43,12 +48,21 @@ public class RegistryParam implements Serializable {
         this.registryValue = registryValue;
     }
 
+    public int getWeight() {
+        return weight;
+    }
+
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+
     @Override
     public String toString() {
         return "RegistryParam{" +
                 "registryGroup='" + registryGroup + '\'' +
                 ", registryKey='" + registryKey + '\'' +
                 ", registryValue='" + registryValue + '\'' +
+                ", weight=" + weight +
                 '}';
     }
 }
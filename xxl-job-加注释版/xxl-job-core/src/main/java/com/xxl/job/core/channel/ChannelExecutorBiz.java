@@ -0,0 +1,64 @@
+package com.xxl.job.core.channel;
+
+import com.xxl.job.core.biz.ExecutorBiz;
+import com.xxl.job.core.biz.model.*;
+
+import java.util.List;
+
+/**
+ * executor biz over channel, admin push request to executor connected to it
+ */
+public class ChannelExecutorBiz implements ExecutorBiz {
+
+    public static final String URI_BEAT = "beat";
+    public static final String URI_IDLE_BEAT = "idleBeat";
+    public static final String URI_RUN = "run";
+    public static final String URI_RUN_BATCH = "runBatch";
+    public static final String URI_KILL = "kill";
+    public static final String URI_LOG = "log";
+
+    private XxlJobChannel channel;
+    private int beatTimeout;
+    private int timeout;
+
+    public ChannelExecutorBiz(XxlJobChannel channel, int beatTimeout, int timeout) {
+        this.channel = channel;
+        this.beatTimeout = beatTimeout;
+        this.timeout = timeout;
+    }
+
+    public XxlJobChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    public ReturnT<String> beat() {
+        return channel.invoke(URI_BEAT, null, beatTimeout);
+    }
+
+    @Override
+    public ReturnT<String> idleBeat(IdleBeatParam idleBeatParam) {
+        return channel.invoke(URI_IDLE_BEAT, idleBeatParam, beatTimeout);
+    }
+
+    @Override
+    public ReturnT<String> run(TriggerParam triggerParam) {
+        return channel.invoke(URI_RUN, triggerParam, timeout);
+    }
+
+    @Override
+    public ReturnT<List<ReturnT<String>>> runBatch(List<TriggerParam> triggerParamList) {
+        return channel.invoke(URI_RUN_BATCH, triggerParamList.toArray(new TriggerParam[0]), timeout);
+    }
+
+    @Override
+    public ReturnT<String> kill(KillParam killParam) {
+        return channel.invoke(URI_KILL, killParam, timeout);
+    }
+
+    @Override
+    public ReturnT<LogResult> log(LogParam logParam) {
+        return channel.invoke(URI_LOG, logParam, timeout);
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.xxl.job.core.channel;
+
+import com.xxl.job.core.util.BinaryCodecTool;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.util.CharsetUtil;
+
+/**
+ * channel frame, multiplexed request/response on one connection
+ *
+ *      frame: "length(4, by LengthFieldPrepender) + type(1) + requestId(8) + uri(2 + utf-8) + body(BinaryCodecTool)"
+ */
+public class ChannelFrame {
+
+    public static final byte TYPE_REQUEST = 1;
+    public static final byte TYPE_RESPONSE = 2;
+
+    public static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+    private byte type;
+    private long requestId;
+    private String uri;
+    private Object body;
+
+    public static ChannelFrame request(long requestId, String uri, Object body) {
+        ChannelFrame frame = new ChannelFrame();
+        frame.type = TYPE_REQUEST;
+        frame.requestId = requestId;
+        frame.uri = uri;
+        frame.body = body;
+        return frame;
+    }
+
+    public static ChannelFrame response(long requestId, Object body) {
+        ChannelFrame frame = new ChannelFrame();
+        frame.type = TYPE_RESPONSE;
+        frame.requestId = requestId;
+        frame.uri = "";
+        frame.body = body;
+        return frame;
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    public long getRequestId() {
+        return requestId;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public Object getBody() {
+        return body;
+    }
+
+    public ByteBuf encode(ByteBufAllocator allocator) {
+        byte[] uriBytes = uri.getBytes(CharsetUtil.UTF_8);
+
+        ByteBuf buf = allocator.ioBuffer();
+        buf.writeByte(type);
+        buf.writeLong(requestId);
+        buf.writeShort(uriBytes.length);
+        buf.writeBytes(uriBytes);
+        try {
+            BinaryCodecTool.encode(body, new ByteBufOutputStream(buf));
+        } catch (RuntimeException e) {
+            buf.release();
+            throw e;
+        }
+        return buf;
+    }
+
+    public static ChannelFrame decode(ByteBuf buf) {
+        ChannelFrame frame = new ChannelFrame();
+        frame.type = buf.readByte();
+        frame.requestId = buf.readLong();
+        int uriLength = buf.readUnsignedShort();
+        frame.uri = buf.readCharSequence(uriLength, CharsetUtil.UTF_8).toString();
+        frame.body = BinaryCodecTool.decode(new ByteBufInputStream(buf));
+        return frame;
+    }
+
+}
@@ -0,0 +1,253 @@
+package com.xxl.job.core.channel;
+
+import com.xxl.job.core.biz.AdminBiz;
+import com.xxl.job.core.biz.ExecutorBiz;
+import com.xxl.job.core.biz.impl.ExecutorBizImpl;
+import com.xxl.job.core.biz.model.*;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * admin biz over channel, executor keep one long-lived connection to an admin node
+ *
+ *      a、连接：后台线程维持到调度中心 "host:channelPort" 的连接，断开后重连，重连成功后先 "auth" 再立即重新注册；
+ *      b、上报：registry/registryRemove/callback 优先经通道发送，通道不可用时回退到 HTTP（fallback）；
+ *      c、下发：调度中心经通道发起的 beat/idleBeat/run/kill/log 请求交由 ExecutorBizImpl 处理；
+ */
+public class ExecutorChannelClient implements AdminBiz {
+    private static Logger logger = LoggerFactory.getLogger(ExecutorChannelClient.class);
+
+    public static final String URI_AUTH = "auth";
+    public static final String URI_REGISTRY = "registry";
+    public static final String URI_REGISTRY_REMOVE = "registryRemove";
+    public static final String URI_CALLBACK = "callback";
+
+    private static final int RECONNECT_INTERVAL = 3;
+
+    private String host;
+    private int port;
+    private String accessToken;
+    private AdminBiz fallback;
+    private int beatTimeout = 3;
+    private int timeout = 3;
+
+    private ExecutorBiz executorBiz = new ExecutorBizImpl();
+    private EventLoopGroup group;
+    private ThreadPoolExecutor channelBizPool;
+    private Thread connectThread;
+    private volatile boolean toStop = false;
+
+    private volatile XxlJobChannel channel;
+    private volatile RegistryParam registryParam;
+
+    /**
+     * @param addressUrl    admin address, channel connect to same host
+     * @param port          admin channel port
+     * @param fallback      http client, used when channel not available
+     */
+    public ExecutorChannelClient(String addressUrl, int port, String accessToken, AdminBiz fallback) throws Exception {
+        this.host = new URL(addressUrl).getHost();
+        this.port = port;
+        this.accessToken = accessToken;
+        this.fallback = fallback;
+    }
+
+    public void start() {
+        channelBizPool = new ThreadPoolExecutor(
+                0,
+                200,
+                60L,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(2000),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        return new Thread(r, "xxl-job, executor ExecutorChannelClient-channelBizPool-" + r.hashCode());
+                    }
+                });
+        group = new NioEventLoopGroup(1);
+
+        connectThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!toStop) {
+                    try {
+                        if (channel == null || !channel.isActive()) {
+                            connect();
+                        }
+                    } catch (Exception e) {
+                        if (!toStop) {
+                            logger.warn(">>>>>>>>>>> xxl-job, executor channel connect fail, admin:{}:{}, error:{}", host, port, e.getMessage());
+                        }
+                    }
+                    try {
+                        TimeUnit.SECONDS.sleep(RECONNECT_INTERVAL);
+                    } catch (InterruptedException e) {
+                        if (!toStop) {
+                            logger.warn(">>>>>>>>>>> xxl-job, executor channel connect thread interrupted, error msg:{}", e.getMessage());
+                        }
+                    }
+                }
+                logger.info(">>>>>>>>>>> xxl-job, executor channel connect thread destory, admin:{}:{}", host, port);
+            }
+        });
+        connectThread.setDaemon(true);
+        connectThread.setName("xxl-job, executor ExecutorChannelClient");
+        connectThread.start();
+    }
+
+    public void toStop() {
+        toStop = true;
+        if (connectThread != null) {
+            connectThread.interrupt();
+            try {
+                connectThread.join();
+            } catch (InterruptedException e) {
+                logger.error(e.getMessage(), e);
+            }
+        }
+        if (channel != null) {
+            channel.close();
+        }
+        if (group != null) {
+            group.shutdownGracefully();
+        }
+        if (channelBizPool != null) {
+            channelBizPool.shutdownNow();
+        }
+    }
+
+    public boolean isConnected() {
+        XxlJobChannel channel = this.channel;
+        return channel != null && channel.isActive();
+    }
+
+    private void connect() throws Exception {
+        Bootstrap bootstrap = new Bootstrap();
+        bootstrap.group(group)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 3000)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    public void initChannel(SocketChannel socketChannel) throws Exception {
+                        XxlJobChannel.initPipeline(socketChannel.pipeline())
+                                .addLast(new ExecutorChannelHandler());
+                    }
+                });
+        Channel nettyChannel = bootstrap.connect(host, port).sync().channel();
+        XxlJobChannel xxlJobChannel = nettyChannel.pipeline().get(ExecutorChannelHandler.class).xxlJobChannel;
+
+        // auth
+        ReturnT authResult = xxlJobChannel.invoke(URI_AUTH, accessToken, beatTimeout);
+        if (authResult.getCode() != ReturnT.SUCCESS_CODE) {
+            xxlJobChannel.close();
+            throw new IllegalStateException(authResult.getMsg());
+        }
+        channel = xxlJobChannel;
+        logger.info(">>>>>>>>>>> xxl-job, executor channel connected, admin:{}:{}", host, port);
+
+        // registry again, bind address to new channel
+        RegistryParam lastRegistryParam = registryParam;
+        if (lastRegistryParam != null) {
+            registry(lastRegistryParam);
+        }
+    }
+
+
+    // ---------------------- admin biz ----------------------
+
+    @Override
+    public ReturnT<String> callback(List<HandleCallbackParam> callbackParamList) {
+        XxlJobChannel channel = this.channel;
+        if (channel != null && channel.isActive()) {
+            return channel.invoke(URI_CALLBACK, callbackParamList, timeout);
+        }
+        return fallback.callback(callbackParamList);
+    }
+
+    @Override
+    public ReturnT<String> registry(RegistryParam registryParam) {
+        this.registryParam = registryParam;
+        XxlJobChannel channel = this.channel;
+        if (channel != null && channel.isActive()) {
+            return channel.invoke(URI_REGISTRY, registryParam, beatTimeout);
+        }
+        return fallback.registry(registryParam);
+    }
+
+    @Override
+    public ReturnT<String> registryRemove(RegistryParam registryParam) {
+        this.registryParam = null;
+        XxlJobChannel channel = this.channel;
+        if (channel != null && channel.isActive()) {
+            return channel.invoke(URI_REGISTRY_REMOVE, registryParam, beatTimeout);
+        }
+        return fallback.registryRemove(registryParam);
+    }
+
+
+    // ---------------------- channel handler ----------------------
+
+    private class ExecutorChannelHandler extends SimpleChannelInboundHandler<ByteBuf> implements XxlJobChannel.RequestHandler {
+
+        private XxlJobChannel xxlJobChannel;
+
+        @Override
+        public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+            xxlJobChannel = new XxlJobChannel(ctx.channel(), this, channelBizPool);
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) throws Exception {
+            xxlJobChannel.receive(ChannelFrame.decode(msg));
+        }
+
+        @Override
+        public Object handle(XxlJobChannel channel, String uri, Object body) throws Exception {
+            if (ChannelExecutorBiz.URI_BEAT.equals(uri)) {
+                return executorBiz.beat();
+            } else if (ChannelExecutorBiz.URI_IDLE_BEAT.equals(uri)) {
+                return executorBiz.idleBeat((IdleBeatParam) body);
+            } else if (ChannelExecutorBiz.URI_RUN.equals(uri)) {
+                return executorBiz.run((TriggerParam) body);
+            } else if (ChannelExecutorBiz.URI_RUN_BATCH.equals(uri)) {
+                return executorBiz.runBatch(Arrays.asList((TriggerParam[]) body));
+            } else if (ChannelExecutorBiz.URI_KILL.equals(uri)) {
+                return executorBiz.kill((KillParam) body);
+            } else if (ChannelExecutorBiz.URI_LOG.equals(uri)) {
+                return executorBiz.log((LogParam) body);
+            } else {
+                return new ReturnT<String>(ReturnT.FAIL_CODE, "invalid request, uri-mapping(" + uri + ") not found.");
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            xxlJobChannel.close();
+            if (!toStop) {
+                logger.warn(">>>>>>>>>>> xxl-job, executor channel closed, admin:{}:{}, reconnect later.", host, port);
+            }
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+            logger.error(">>>>>>>>>>> xxl-job, executor channel caught exception", cause);
+            ctx.close();
+        }
+    }
+
+}
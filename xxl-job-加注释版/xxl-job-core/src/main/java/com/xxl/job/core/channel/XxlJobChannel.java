@@ -0,0 +1,136 @@
+package com.xxl.job.core.channel;
+
+import com.xxl.job.core.biz.model.ReturnT;
+import com.xxl.job.core.util.ThrowableUtil;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * long-lived channel between executor and admin, both side send request and wait response by request id
+ *
+ *      a、请求：invoke 写出请求帧，按 requestId 等待响应帧，超时或连接断开时返回失败；
+ *      b、处理：收到请求帧后在业务线程池中交由 RequestHandler 处理，结果以同一 requestId 写回；
+ *      c、断开：close 后未完成的请求立即失败，不再等待超时；
+ */
+public class XxlJobChannel {
+    private static Logger logger = LoggerFactory.getLogger(XxlJobChannel.class);
+
+    /**
+     * handle request from remote
+     */
+    public interface RequestHandler {
+        Object handle(XxlJobChannel channel, String uri, Object body) throws Exception;
+    }
+
+    private final Channel channel;
+    private final RequestHandler requestHandler;
+    private final Executor requestExecutor;
+
+    private final AtomicLong requestIdGen = new AtomicLong(0);
+    private final ConcurrentMap<Long, CompletableFuture<Object>> pendingMap = new ConcurrentHashMap<Long, CompletableFuture<Object>>();
+
+    public XxlJobChannel(Channel channel, RequestHandler requestHandler, Executor requestExecutor) {
+        this.channel = channel;
+        this.requestHandler = requestHandler;
+        this.requestExecutor = requestExecutor;
+    }
+
+    /**
+     * frame codec, "length(4) + frame"
+     */
+    public static ChannelPipeline initPipeline(ChannelPipeline pipeline) {
+        return pipeline
+                .addLast(new LengthFieldBasedFrameDecoder(ChannelFrame.MAX_FRAME_LENGTH, 0, 4, 0, 4))
+                .addLast(new LengthFieldPrepender(4));
+    }
+
+    public boolean isActive() {
+        return channel.isActive();
+    }
+
+    public String getRemoteAddress() {
+        return String.valueOf(channel.remoteAddress());
+    }
+
+    /**
+     * invoke remote, wait response
+     *
+     * @param timeout   by second
+     */
+    public ReturnT invoke(String uri, Object body, int timeout) {
+        if (!channel.isActive()) {
+            return new ReturnT<String>(ReturnT.FAIL_CODE, "xxl-job channel inactive, for remote : " + getRemoteAddress());
+        }
+
+        long requestId = requestIdGen.incrementAndGet();
+        CompletableFuture<Object> future = new CompletableFuture<Object>();
+        pendingMap.put(requestId, future);
+        try {
+            channel.writeAndFlush(ChannelFrame.request(requestId, uri, body).encode(channel.alloc()));
+            Object result = future.get(timeout, TimeUnit.SECONDS);
+            if (!(result instanceof ReturnT)) {
+                return new ReturnT<String>(ReturnT.FAIL_CODE, "xxl-job channel response invalid(" + result + "), for remote : " + getRemoteAddress());
+            }
+            return (ReturnT) result;
+        } catch (TimeoutException e) {
+            return new ReturnT<String>(ReturnT.FAIL_CODE, "xxl-job channel invoke timeout, uri:" + uri + ", for remote : " + getRemoteAddress());
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+            return new ReturnT<String>(ReturnT.FAIL_CODE, "xxl-job channel invoke error(" + e.getMessage() + "), for remote : " + getRemoteAddress());
+        } finally {
+            pendingMap.remove(requestId);
+        }
+    }
+
+    /**
+     * receive frame, from netty io thread
+     */
+    public void receive(final ChannelFrame frame) {
+        if (frame.getType() == ChannelFrame.TYPE_RESPONSE) {
+            CompletableFuture<Object> future = pendingMap.get(frame.getRequestId());
+            if (future != null) {
+                future.complete(frame.getBody());
+            }
+            return;
+        }
+
+        // request, process in biz pool
+        try {
+            requestExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Object result;
+                    try {
+                        result = requestHandler.handle(XxlJobChannel.this, frame.getUri(), frame.getBody());
+                    } catch (Exception e) {
+                        logger.error(e.getMessage(), e);
+                        result = new ReturnT<String>(ReturnT.FAIL_CODE, "request error:" + ThrowableUtil.toString(e));
+                    }
+                    channel.writeAndFlush(ChannelFrame.response(frame.getRequestId(), result).encode(channel.alloc()));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            channel.writeAndFlush(ChannelFrame.response(frame.getRequestId(),
+                    new ReturnT<String>(ReturnT.BUSY_CODE, "xxl-job channel request pool is EXHAUSTED!")).encode(channel.alloc()));
+        }
+    }
+
+    /**
+     * close, fail pending request
+     */
+    public void close() {
+        channel.close();
+        for (Map.Entry<Long, CompletableFuture<Object>> item: pendingMap.entrySet()) {
+            item.getValue().complete(new ReturnT<String>(ReturnT.FAIL_CODE, "xxl-job channel closed, for remote : " + getRemoteAddress()));
+        }
+    }
+
+}
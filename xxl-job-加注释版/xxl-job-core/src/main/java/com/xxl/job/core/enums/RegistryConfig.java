@@ -8,6 +8,19 @@ public class RegistryConfig {
     public static final int BEAT_TIMEOUT = 30;
     public static final int DEAD_TIMEOUT = BEAT_TIMEOUT * 3;
 
+    public static final int DEFAULT_WEIGHT = 1;
+    public static final int MAX_WEIGHT = 100;
+
+    /**
+     * valid route weight, fall back to default if not set
+     */
+    public static int validWeight(int weight) {
+        if (weight <= 0) {
+            return DEFAULT_WEIGHT;
+        }
+        return Math.min(weight, MAX_WEIGHT);
+    }
+
     public enum RegistType{ EXECUTOR, ADMIN }
 
 }
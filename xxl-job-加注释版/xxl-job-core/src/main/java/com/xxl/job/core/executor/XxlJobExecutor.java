@@ -2,22 +2,24 @@ package com.xxl.job.core.executor;
 
 import com.xxl.job.core.biz.AdminBiz;
 import com.xxl.job.core.biz.client.AdminBizClient;
+import com.xxl.job.core.channel.ExecutorChannelClient;
 import com.xxl.job.core.handler.IJobHandler;
 import com.xxl.job.core.log.XxlJobFileAppender;
+import com.xxl.job.core.metrics.XxlJobMetrics;
 import com.xxl.job.core.server.EmbedServer;
 import com.xxl.job.core.thread.JobLogFileCleanThread;
 import com.xxl.job.core.thread.JobThread;
 import com.xxl.job.core.thread.TriggerCallbackThread;
 import com.xxl.job.core.util.IpUtil;
 import com.xxl.job.core.util.NetUtil;
+import com.xxl.job.core.util.VirtualThreadUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.*;
 
 /**
  * Created by xuxueli on 2016/3/2 21:14.
@@ -34,6 +36,20 @@ public class XxlJobExecutor  {
     private int port;
     private String logPath;
     private int logRetentionDays;
+    private int weight;
+    private int callbackBatchSize;
+    private int callbackBatchBytes;
+    private int callbackLingerMillis;
+    private int callbackParallel;
+    private String callbackJournalFsync;
+    private int adminChannelPort;
+    private int serverIoThreads;
+    private int serverBizCoreThreads;
+    private int serverBizMaxThreads = 200;
+    private int serverBizQueueSize = 2000;
+    private boolean serverEpoll = true;
+    private int jobPoolThreads;
+    private boolean virtualThreads;
 
     public void setAdminAddresses(String adminAddresses) {
         this.adminAddresses = adminAddresses;
@@ -59,6 +75,48 @@ public class XxlJobExecutor  {
     public void setLogRetentionDays(int logRetentionDays) {
         this.logRetentionDays = logRetentionDays;
     }
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+    public void setCallbackBatchSize(int callbackBatchSize) {
+        this.callbackBatchSize = callbackBatchSize;
+    }
+    public void setCallbackBatchBytes(int callbackBatchBytes) {
+        this.callbackBatchBytes = callbackBatchBytes;
+    }
+    public void setCallbackLingerMillis(int callbackLingerMillis) {
+        this.callbackLingerMillis = callbackLingerMillis;
+    }
+    public void setCallbackParallel(int callbackParallel) {
+        this.callbackParallel = callbackParallel;
+    }
+    public void setCallbackJournalFsync(String callbackJournalFsync) {
+        this.callbackJournalFsync = callbackJournalFsync;
+    }
+    public void setAdminChannelPort(int adminChannelPort) {
+        this.adminChannelPort = adminChannelPort;
+    }
+    public void setServerIoThreads(int serverIoThreads) {
+        this.serverIoThreads = serverIoThreads;
+    }
+    public void setServerBizCoreThreads(int serverBizCoreThreads) {
+        this.serverBizCoreThreads = serverBizCoreThreads;
+    }
+    public void setServerBizMaxThreads(int serverBizMaxThreads) {
+        this.serverBizMaxThreads = serverBizMaxThreads;
+    }
+    public void setServerBizQueueSize(int serverBizQueueSize) {
+        this.serverBizQueueSize = serverBizQueueSize;
+    }
+    public void setServerEpoll(boolean serverEpoll) {
+        this.serverEpoll = serverEpoll;
+    }
+    public void setJobPoolThreads(int jobPoolThreads) {
+        this.jobPoolThreads = jobPoolThreads;
+    }
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
 
 
     // ---------------------- start + stop ----------------------
@@ -68,17 +126,20 @@ public class XxlJobExecutor  {
         XxlJobFileAppender.initLogPath(logPath);
         // 向adminBizList字段中放入XxlRpcReferenceBean返回的代理类
         // init invoker, admin-client
-        initAdminBizList(adminAddresses, accessToken);
+        initAdminBizList(adminAddresses, accessToken, adminChannelPort);
 
         // 任务日志清除
         // init JobLogFileCleanThread
         JobLogFileCleanThread.getInstance().start(logRetentionDays);
         // 任务结果回调处理线程
         // init TriggerCallbackThread
-        TriggerCallbackThread.getInstance().start();
+        TriggerCallbackThread.getInstance().start(callbackBatchSize, callbackBatchBytes, callbackLingerMillis, callbackParallel, callbackJournalFsync);
+        // 任务共享执行线程池，未配置时每个任务独占一个线程
+        // init job worker pool
+        initJobWorkerPool(jobPoolThreads, virtualThreads);
         //启动一个内置Server,该Server是使用netty实现的rpc通信
         // init executor-server
-        initEmbedServer(address, ip, port, appname, accessToken);
+        initEmbedServer(address, ip, port, appname, accessToken, weight);
     }
     public void destroy(){
         // destory executor-server
@@ -101,6 +162,9 @@ public class XxlJobExecutor  {
         }
         jobHandlerRepository.clear();
 
+        // destory job worker pool, wait for killed job push result to callback queue
+        stopJobWorkerPool();
+
 
         // destory JobLogFileCleanThread
         JobLogFileCleanThread.getInstance().toStop();
@@ -108,18 +172,28 @@ public class XxlJobExecutor  {
         // destory TriggerCallbackThread
         TriggerCallbackThread.getInstance().toStop();
 
+        // destory admin channel, after registry-remove and callback
+        stopAdminChannel();
+
     }
 
 
     // ---------------------- admin-client (rpc invoker) ----------------------
     private static List<AdminBiz> adminBizList;
-    private void initAdminBizList(String adminAddresses, String accessToken) throws Exception {
+    private void initAdminBizList(String adminAddresses, String accessToken, int adminChannelPort) throws Exception {
         if (adminAddresses!=null && adminAddresses.trim().length()>0) {
             for (String address: adminAddresses.trim().split(",")) {
                 if (address!=null && address.trim().length()>0) {
 
                     AdminBiz adminBiz = new AdminBizClient(address.trim(), accessToken);
 
+                    // long-lived channel to each admin node, http as fallback
+                    if (adminChannelPort > 0) {
+                        ExecutorChannelClient channelClient = new ExecutorChannelClient(address.trim(), adminChannelPort, accessToken, adminBiz);
+                        channelClient.start();
+                        adminBiz = channelClient;
+                    }
+
                     if (adminBizList == null) {
                         adminBizList = new ArrayList<AdminBiz>();
                     }
@@ -131,11 +205,21 @@ public class XxlJobExecutor  {
     public static List<AdminBiz> getAdminBizList(){
         return adminBizList;
     }
+    private void stopAdminChannel() {
+        if (adminBizList == null) {
+            return;
+        }
+        for (AdminBiz adminBiz: adminBizList) {
+            if (adminBiz instanceof ExecutorChannelClient) {
+                ((ExecutorChannelClient) adminBiz).toStop();
+            }
+        }
+    }
 
     // ---------------------- executor-server (rpc provider) ----------------------
     private EmbedServer embedServer = null;
 
-    private void initEmbedServer(String address, String ip, int port, String appname, String accessToken) throws Exception {
+    private void initEmbedServer(String address, String ip, int port, String appname, String accessToken, int weight) throws Exception {
 
         // fill ip port
         port = port>0?port: NetUtil.findAvailablePort(9999);
@@ -149,7 +233,8 @@ public class XxlJobExecutor  {
 
         // start
         embedServer = new EmbedServer();
-        embedServer.start(address, port, appname, accessToken);
+        embedServer.setThreadConfig(serverIoThreads, serverBizCoreThreads, serverBizMaxThreads, serverBizQueueSize, serverEpoll);
+        embedServer.start(address, port, appname, accessToken, weight);
     }
 
     private void stopEmbedServer() {
@@ -173,11 +258,105 @@ public class XxlJobExecutor  {
     }
 
 
+    // ---------------------- job worker pool ----------------------
+    private static volatile ExecutorService jobWorkerPool;
+    private static volatile ThreadFactory virtualThreadFactory;
+    private void initJobWorkerPool(int jobPoolThreads, boolean virtualThreads) {
+        // virtual thread, one per job execution, take precedence over worker pool
+        if (virtualThreads) {
+            ExecutorService virtualExecutor = VirtualThreadUtil.newVirtualThreadPerTaskExecutor("xxl-job, executor JobVirtualThread-");
+            if (virtualExecutor != null) {
+                virtualThreadFactory = VirtualThreadUtil.newVirtualThreadFactory("xxl-job, executor JobTimeoutVirtualThread-");
+                jobWorkerPool = virtualExecutor;
+                logger.info(">>>>>>>>>>> xxl-job, executor job run on virtual thread.");
+                return;
+            }
+            logger.warn(">>>>>>>>>>> xxl-job, executor virtual thread not supported by current jdk (21+ required), fallback to platform thread.");
+        }
+
+        if (jobPoolThreads <= 0) {
+            return;
+        }
+        // one task at most per job in queue, bounded by job count
+        jobWorkerPool = new ThreadPoolExecutor(
+                jobPoolThreads,
+                jobPoolThreads,
+                60L,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        return new Thread(r, "xxl-job, executor JobWorkerPool-" + r.hashCode());
+                    }
+                });
+        logger.info(">>>>>>>>>>> xxl-job, executor job worker pool start, threads:{}", jobPoolThreads);
+    }
+    private void stopJobWorkerPool() {
+        ExecutorService workerPool = jobWorkerPool;
+        if (workerPool == null) {
+            return;
+        }
+        jobWorkerPool = null;
+        virtualThreadFactory = null;
+        workerPool.shutdown();
+        try {
+            if (!workerPool.awaitTermination(60, TimeUnit.SECONDS)) {
+                logger.warn(">>>>>>>>>>> xxl-job, executor job worker pool stop timeout, job still running.");
+            }
+        } catch (InterruptedException e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * virtual thread factory for job timeout thread, null if run on platform thread
+     */
+    public static ThreadFactory getVirtualThreadFactory() {
+        return virtualThreadFactory;
+    }
+
+
     // ---------------------- job thread repository ----------------------
     private static ConcurrentMap<Integer, JobThread> jobThreadRepository = new ConcurrentHashMap<Integer, JobThread>();
+    static {
+        // metrics, read when scrape
+        XxlJobMetrics.getInstance().gauge("xxl_job_executor_job_threads", "JobThread count, one per job.", new XxlJobMetrics.Gauge() {
+            @Override
+            public double get() {
+                return jobThreadRepository.size();
+            }
+        });
+        XxlJobMetrics.getInstance().gauge("xxl_job_executor_job_threads_busy", "JobThread count, running job or having trigger in queue.", new XxlJobMetrics.Gauge() {
+            @Override
+            public double get() {
+                int busy = 0;
+                for (JobThread jobThread: jobThreadRepository.values()) {
+                    if (jobThread.isRunningOrHasQueue()) {
+                        busy++;
+                    }
+                }
+                return busy;
+            }
+        });
+        XxlJobMetrics.getInstance().gauge("xxl_job_executor_job_trigger_queue_size", "Trigger waiting in JobThread queue, all jobs.", new XxlJobMetrics.Gauge() {
+            @Override
+            public double get() {
+                long queueSize = 0;
+                for (JobThread jobThread: jobThreadRepository.values()) {
+                    queueSize += jobThread.getTriggerQueueSize();
+                }
+                return queueSize;
+            }
+        });
+    }
     public static JobThread registJobThread(int jobId, IJobHandler handler, String removeOldReason){
-        JobThread newJobThread = new JobThread(jobId, handler);
-        newJobThread.start();
+        ExecutorService workerPool = jobWorkerPool;
+        JobThread newJobThread = new JobThread(jobId, handler, workerPool);
+        if (workerPool == null) {
+            newJobThread.start();       // own thread; otherwise scheduled onto worker pool by trigger
+        }
         logger.info(">>>>>>>>>>> xxl-job regist JobThread success, jobId:{}, handler:{}", new Object[]{jobId, handler});
 
         JobThread oldJobThread = jobThreadRepository.put(jobId, newJobThread);	// putIfAbsent | oh my god, map's put method return the old value!!!
@@ -0,0 +1,424 @@
+package com.xxl.job.core.log;
+
+import com.xxl.job.core.biz.model.HandleCallbackParam;
+import com.xxl.job.core.biz.model.ReturnT;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * fail callback journal, write-ahead and append-only
+ *
+ *      a、分段：回调失败记录追加写入 "callback-{segmentId}.journal"，单段超过 SEGMENT_BYTES 后滚动新段；
+ *      b、记录："length(4) + crc32(4) + payload"，payload 紧凑编码 logId/logDateTim/code/msg/content；
+ *      c、刷盘：fsync 策略 "always"（每次追加）/"interval"（距上次刷盘超过1s）/"never"（交由操作系统）；
+ *      d、消费：从 "callback.offset" 记录的位点顺序读取，回调成功后 ack 推进位点，位点之前的段才删除；
+ *      e、恢复：启动时校验最后一段，截断崩溃产生的残缺记录；中间段 crc 不一致时跳过该段剩余内容；
+ *
+ * struct like:
+ * 	---/callbacklog/
+ * 	---/callbacklog/callback-00000000000000000001.journal
+ * 	---/callbacklog/callback-00000000000000000002.journal
+ * 	---/callbacklog/callback.offset
+ */
+public class CallbackJournal {
+    private static Logger logger = LoggerFactory.getLogger(CallbackJournal.class);
+
+    public static final String FSYNC_ALWAYS = "always";
+    public static final String FSYNC_INTERVAL = "interval";
+    public static final String FSYNC_NEVER = "never";
+
+    private static final long SEGMENT_BYTES = 16 * 1024 * 1024;
+    private static final long FSYNC_INTERVAL_MS = 1000;
+    private static final int RECORD_MAX_BYTES = 16 * 1024 * 1024;
+    private static final String SEGMENT_PREFIX = "callback-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String OFFSET_FILE = "callback.offset";
+
+    /**
+     * read result, records and offset after them
+     */
+    public static class Batch {
+        private List<HandleCallbackParam> callbackParamList = new ArrayList<HandleCallbackParam>();
+        private long segmentId;
+        private long position;
+
+        public List<HandleCallbackParam> getCallbackParamList() {
+            return callbackParamList;
+        }
+        public long getSegmentId() {
+            return segmentId;
+        }
+        public long getPosition() {
+            return position;
+        }
+    }
+
+    private final File journalDir;
+    private final String fsync;
+
+    private TreeMap<Long, File> segments = new TreeMap<Long, File>();
+    private long activeSegmentId;
+    private FileChannel activeChannel;
+    private long lastFsyncTime;
+    private long lastAppendTime;
+
+    private long offsetSegmentId;
+    private long offsetPosition;
+
+    public CallbackJournal(File journalDir, String fsync) {
+        this.journalDir = journalDir;
+        this.fsync = (FSYNC_ALWAYS.equals(fsync) || FSYNC_NEVER.equals(fsync))?fsync:FSYNC_INTERVAL;
+    }
+
+    // ---------------------- open + close ----------------------
+
+    public synchronized void open() throws IOException {
+        if (!journalDir.exists()) {
+            journalDir.mkdirs();
+        }
+
+        // segments
+        File[] files = journalDir.listFiles();
+        if (files != null) {
+            for (File file: files) {
+                String name = file.getName();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        long segmentId = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                        segments.put(segmentId, file);
+                    } catch (NumberFormatException e) {
+                        logger.warn(">>>>>>>>>>> xxl-job, callback journal ignore invalid segment file:{}", file.getPath());
+                    }
+                }
+            }
+        }
+
+        // offset
+        readOffset();
+
+        // active segment, recover tail
+        if (segments.isEmpty()) {
+            activeSegmentId = Math.max(offsetSegmentId, 1);
+            segments.put(activeSegmentId, segmentFile(activeSegmentId));
+        } else {
+            activeSegmentId = segments.lastKey();
+        }
+        activeChannel = new RandomAccessFile(segments.get(activeSegmentId), "rw").getChannel();
+        long validLength = scanValidLength(activeChannel);
+        if (validLength < activeChannel.size()) {
+            logger.warn(">>>>>>>>>>> xxl-job, callback journal truncate broken tail, segment:{}, from {} to {}",
+                    activeSegmentId, activeChannel.size(), validLength);
+            activeChannel.truncate(validLength);
+        }
+        activeChannel.position(validLength);
+
+        // offset before first segment, start from first
+        if (offsetSegmentId < segments.firstKey()) {
+            offsetSegmentId = segments.firstKey();
+            offsetPosition = 0;
+        }
+    }
+
+    public synchronized void close() {
+        if (activeChannel != null) {
+            try {
+                activeChannel.force(false);
+                activeChannel.close();
+            } catch (IOException e) {
+                logger.error(e.getMessage(), e);
+            }
+            activeChannel = null;
+        }
+    }
+
+    // ---------------------- append ----------------------
+
+    /**
+     * append callback, durable according to fsync policy
+     */
+    public synchronized void append(List<HandleCallbackParam> callbackParamList) throws IOException {
+        if (callbackParamList==null || callbackParamList.size()==0) {
+            return;
+        }
+
+        // roll
+        if (activeChannel.size() >= SEGMENT_BYTES) {
+            roll();
+        }
+
+        // records
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        DataOutputStream recordsOutput = new DataOutputStream(records);
+        for (HandleCallbackParam callbackParam: callbackParamList) {
+            byte[] payload = encode(callbackParam);
+            CRC32 crc32 = new CRC32();
+            crc32.update(payload);
+            recordsOutput.writeInt(payload.length);
+            recordsOutput.writeInt((int) crc32.getValue());
+            recordsOutput.write(payload);
+        }
+        recordsOutput.flush();
+
+        ByteBuffer buffer = ByteBuffer.wrap(records.toByteArray());
+        while (buffer.hasRemaining()) {
+            activeChannel.write(buffer);
+        }
+
+        // fsync
+        long now = System.currentTimeMillis();
+        lastAppendTime = now;
+        if (FSYNC_ALWAYS.equals(fsync)
+                || (FSYNC_INTERVAL.equals(fsync) && now - lastFsyncTime >= FSYNC_INTERVAL_MS)) {
+            activeChannel.force(false);
+            lastFsyncTime = now;
+        }
+    }
+
+    private void roll() throws IOException {
+        activeChannel.force(false);
+        activeChannel.close();
+
+        activeSegmentId++;
+        File segmentFile = segmentFile(activeSegmentId);
+        segments.put(activeSegmentId, segmentFile);
+        activeChannel = new RandomAccessFile(segmentFile, "rw").getChannel();
+    }
+
+    // ---------------------- read + ack ----------------------
+
+    /**
+     * read from offset, sequential, bounded by size and bytes
+     */
+    public synchronized Batch read(int maxSize, int maxBytes) throws IOException {
+        // interval fsync, appended but idle since
+        if (FSYNC_INTERVAL.equals(fsync) && lastFsyncTime < lastAppendTime) {
+            activeChannel.force(false);
+            lastFsyncTime = System.currentTimeMillis();
+        }
+
+        Batch batch = new Batch();
+        batch.segmentId = offsetSegmentId;
+        batch.position = offsetPosition;
+
+        int readBytes = 0;
+        while (batch.callbackParamList.size() < maxSize && readBytes < maxBytes) {
+            File segmentFile = segments.get(batch.segmentId);
+            if (segmentFile == null) {
+                break;
+            }
+
+            RandomAccessFile segment = new RandomAccessFile(segmentFile, "r");
+            try {
+                long length = batch.segmentId==activeSegmentId?activeChannel.size():segment.length();
+                segment.seek(batch.position);
+                while (batch.position < length && batch.callbackParamList.size() < maxSize && readBytes < maxBytes) {
+                    HandleCallbackParam callbackParam = null;
+                    int payloadLength = -1;
+                    if (length - batch.position >= 8) {
+                        payloadLength = segment.readInt();
+                        int crc = segment.readInt();
+                        if (payloadLength >= 0 && payloadLength <= RECORD_MAX_BYTES && length - batch.position - 8 >= payloadLength) {
+                            byte[] payload = new byte[payloadLength];
+                            segment.readFully(payload);
+                            CRC32 crc32 = new CRC32();
+                            crc32.update(payload);
+                            if ((int) crc32.getValue() == crc) {
+                                callbackParam = decode(payload);
+                            }
+                        }
+                    }
+                    if (callbackParam == null) {
+                        // broken record, skip rest of segment
+                        logger.error(">>>>>>>>>>> xxl-job, callback journal broken record, skip segment rest, segment:{}, position:{}",
+                                batch.segmentId, batch.position);
+                        batch.position = length;
+                        break;
+                    }
+                    batch.callbackParamList.add(callbackParam);
+                    batch.position += 8 + payloadLength;
+                    readBytes += 8 + payloadLength;
+                }
+
+                // segment end, move to next
+                if (batch.position >= length && batch.segmentId != activeSegmentId) {
+                    Long nextSegmentId = segments.higherKey(batch.segmentId);
+                    if (nextSegmentId == null) {
+                        break;
+                    }
+                    batch.segmentId = nextSegmentId;
+                    batch.position = 0;
+                } else {
+                    break;
+                }
+            } finally {
+                segment.close();
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * ack offset after batch callback success, delete consumed segment
+     */
+    public synchronized void ack(Batch batch) throws IOException {
+        offsetSegmentId = batch.segmentId;
+        offsetPosition = batch.position;
+
+        // active segment fully consumed, roll so it can be deleted
+        if (offsetSegmentId == activeSegmentId && offsetPosition > 0 && offsetPosition >= activeChannel.size()) {
+            roll();
+            offsetSegmentId = activeSegmentId;
+            offsetPosition = 0;
+        }
+        writeOffset();
+
+        // delete consumed segment
+        while (!segments.isEmpty() && segments.firstKey() < offsetSegmentId) {
+            File segmentFile = segments.remove(segments.firstKey());
+            if (!segmentFile.delete()) {
+                logger.warn(">>>>>>>>>>> xxl-job, callback journal segment delete fail:{}", segmentFile.getPath());
+            }
+        }
+    }
+
+    // ---------------------- offset ----------------------
+
+    private void readOffset() {
+        File offsetFile = new File(journalDir, OFFSET_FILE);
+        if (!offsetFile.exists()) {
+            return;
+        }
+        DataInputStream offsetInput = null;
+        try {
+            offsetInput = new DataInputStream(new FileInputStream(offsetFile));
+            offsetSegmentId = offsetInput.readLong();
+            offsetPosition = offsetInput.readLong();
+        } catch (IOException e) {
+            logger.error(">>>>>>>>>>> xxl-job, callback journal offset invalid, replay from first segment.", e);
+            offsetSegmentId = 0;
+            offsetPosition = 0;
+        } finally {
+            if (offsetInput != null) {
+                try {
+                    offsetInput.close();
+                } catch (IOException e) {
+                    logger.error(e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private void writeOffset() throws IOException {
+        File offsetTmpFile = new File(journalDir, OFFSET_FILE + ".tmp");
+        FileOutputStream offsetOutput = new FileOutputStream(offsetTmpFile);
+        try {
+            DataOutputStream dataOutput = new DataOutputStream(offsetOutput);
+            dataOutput.writeLong(offsetSegmentId);
+            dataOutput.writeLong(offsetPosition);
+            dataOutput.flush();
+            if (!FSYNC_NEVER.equals(fsync)) {
+                offsetOutput.getFD().sync();
+            }
+        } finally {
+            offsetOutput.close();
+        }
+        Files.move(offsetTmpFile.toPath(), new File(journalDir, OFFSET_FILE).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // ---------------------- record ----------------------
+
+    private File segmentFile(long segmentId) {
+        return new File(journalDir, SEGMENT_PREFIX + String.format("%020d", segmentId) + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * valid length of segment, stop at first broken record
+     */
+    private static long scanValidLength(FileChannel channel) throws IOException {
+        long length = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(8);
+        while (length - position >= 8) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            int payloadLength = header.getInt();
+            int crc = header.getInt();
+            if (payloadLength < 0 || payloadLength > RECORD_MAX_BYTES || length - position - 8 < payloadLength) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(payloadLength);
+            channel.read(payload, position + 8);
+            CRC32 crc32 = new CRC32();
+            crc32.update(payload.array());
+            if ((int) crc32.getValue() != crc) {
+                break;
+            }
+            position += 8 + payloadLength;
+        }
+        return position;
+    }
+
+    static byte[] encode(HandleCallbackParam callbackParam) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(64);
+        DataOutputStream payloadOutput = new DataOutputStream(payload);
+        ReturnT<String> executeResult = callbackParam.getExecuteResult();
+        payloadOutput.writeLong(callbackParam.getLogId());
+        payloadOutput.writeLong(callbackParam.getLogDateTim());
+        payloadOutput.writeBoolean(executeResult != null);
+        if (executeResult != null) {
+            payloadOutput.writeInt(executeResult.getCode());
+            writeString(payloadOutput, executeResult.getMsg());
+            writeString(payloadOutput, executeResult.getContent());
+        }
+        payloadOutput.flush();
+        return payload.toByteArray();
+    }
+
+    static HandleCallbackParam decode(byte[] payload) throws IOException {
+        DataInputStream payloadInput = new DataInputStream(new ByteArrayInputStream(payload));
+        HandleCallbackParam callbackParam = new HandleCallbackParam();
+        callbackParam.setLogId(payloadInput.readLong());
+        callbackParam.setLogDateTim(payloadInput.readLong());
+        if (payloadInput.readBoolean()) {
+            ReturnT<String> executeResult = new ReturnT<String>();
+            executeResult.setCode(payloadInput.readInt());
+            executeResult.setMsg(readString(payloadInput));
+            executeResult.setContent(readString(payloadInput));
+            callbackParam.setExecuteResult(executeResult);
+        }
+        return callbackParam;
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes("UTF-8");
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+}
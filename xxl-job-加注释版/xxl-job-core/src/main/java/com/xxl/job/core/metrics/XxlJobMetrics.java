@@ -0,0 +1,251 @@
+package com.xxl.job.core.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * executor metrics, dependency-free registry, scraped by "/metrics" of EmbedServer in prometheus text format
+ *
+ *      a、类型：counter（累加计数）、gauge（采集时回调读取，如线程池队列深度）、histogram（固定分桶的耗时分布，单位秒）；
+ *      b、开销：计数基于 LongAdder，热点路径上的 counter/histogram 由调用方在初始化时获取并持有，记录时不查表、不分配对象；
+ *      c、标签：以 "k1, v1, k2, v2" 形式传入，同名指标的不同标签归为一组输出；
+ */
+public class XxlJobMetrics {
+
+    private static XxlJobMetrics instance = new XxlJobMetrics();
+    public static XxlJobMetrics getInstance(){
+        return instance;
+    }
+
+    /**
+     * latency buckets, seconds
+     */
+    private static final double[] LATENCY_BUCKETS = {0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private final ConcurrentMap<String, Family> familyMap = new ConcurrentHashMap<String, Family>();
+
+
+    // ---------------------- metric ----------------------
+
+    public static class Counter {
+        private final LongAdder value = new LongAdder();
+        public void inc() {
+            value.increment();
+        }
+        public void inc(long delta) {
+            value.add(delta);
+        }
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    public interface Gauge {
+        double get();
+    }
+
+    public static class Histogram {
+        private final long[] bucketNanos;
+        private final LongAdder[] bucketCounts;
+        private final LongAdder sumNanos = new LongAdder();
+        private final LongAdder count = new LongAdder();
+
+        private Histogram(double[] buckets) {
+            bucketNanos = new long[buckets.length];
+            bucketCounts = new LongAdder[buckets.length + 1];      // last one, +Inf
+            for (int i = 0; i < buckets.length; i++) {
+                bucketNanos[i] = (long) (buckets[i] * 1000_000_000L);
+            }
+            for (int i = 0; i < bucketCounts.length; i++) {
+                bucketCounts[i] = new LongAdder();
+            }
+        }
+
+        public void observeNanos(long nanos) {
+            int index = 0;
+            while (index < bucketNanos.length && nanos > bucketNanos[index]) {
+                index++;
+            }
+            bucketCounts[index].increment();
+            sumNanos.add(nanos);
+            count.increment();
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+    }
+
+    /**
+     * metrics of same name, one per labels
+     */
+    private static class Family {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final ConcurrentMap<String, Object> metricMap = new ConcurrentHashMap<String, Object>();
+
+        private Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+
+    // ---------------------- register ----------------------
+
+    /**
+     * get or create counter
+     *
+     * @param labels    label name and value pairs, "k1, v1, k2, v2"
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) register(name, help, "counter", labels, null);
+    }
+
+    /**
+     * get or create latency histogram, seconds
+     */
+    public Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) register(name, help, "histogram", labels, null);
+    }
+
+    /**
+     * register gauge, replace old one of same name and labels
+     */
+    public void gauge(String name, String help, Gauge gauge, String... labels) {
+        register(name, help, "gauge", labels, gauge);
+    }
+
+    /**
+     * remove gauge, e.g. its owner stopped
+     */
+    public void removeGauge(String name, String... labels) {
+        Family family = familyMap.get(name);
+        if (family != null) {
+            family.metricMap.remove(labelText(labels));
+        }
+    }
+
+    private Object register(String name, String help, String type, String[] labels, Gauge gauge) {
+        Family family = familyMap.get(name);
+        if (family == null) {
+            Family newFamily = new Family(name, help, type);
+            family = familyMap.putIfAbsent(name, newFamily);
+            if (family == null) {
+                family = newFamily;
+            }
+        }
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("xxl-job metrics type conflict, name:" + name + ", type:" + family.type);
+        }
+
+        String labelText = labelText(labels);
+        if (gauge != null) {
+            family.metricMap.put(labelText, gauge);
+            return gauge;
+        }
+        Object metric = family.metricMap.get(labelText);
+        if (metric == null) {
+            Object newMetric = "counter".equals(type)?new Counter():new Histogram(LATENCY_BUCKETS);
+            metric = family.metricMap.putIfAbsent(labelText, newMetric);
+            if (metric == null) {
+                metric = newMetric;
+            }
+        }
+        return metric;
+    }
+
+    private static String labelText(String[] labels) {
+        if (labels == null || labels.length == 0) {
+            return "";
+        }
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("xxl-job metrics labels invalid, should be name and value pairs.");
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        return builder.toString();
+    }
+
+    private static String escape(String labelValue) {
+        if (labelValue == null) {
+            return "";
+        }
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+
+    // ---------------------- scrape ----------------------
+
+    /**
+     * prometheus text format, version 0.0.4
+     */
+    public String scrape() {
+        StringBuilder builder = new StringBuilder(4096);
+        for (Family family: familyMap.values()) {
+            if (family.metricMap.isEmpty()) {
+                continue;
+            }
+            builder.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            builder.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Object> item: family.metricMap.entrySet()) {
+                String labelText = item.getKey();
+                Object metric = item.getValue();
+                if (metric instanceof Counter) {
+                    appendSample(builder, family.name, labelText, null, ((Counter) metric).get());
+                } else if (metric instanceof Gauge) {
+                    double value;
+                    try {
+                        value = ((Gauge) metric).get();
+                    } catch (Exception e) {
+                        value = Double.NaN;
+                    }
+                    appendSample(builder, family.name, labelText, null, value);
+                } else if (metric instanceof Histogram) {
+                    Histogram histogram = (Histogram) metric;
+                    long cumulative = 0;
+                    for (int i = 0; i < histogram.bucketCounts.length; i++) {
+                        cumulative += histogram.bucketCounts[i].sum();
+                        String le = i < LATENCY_BUCKETS.length?formatValue(LATENCY_BUCKETS[i]):"+Inf";
+                        appendSample(builder, family.name + "_bucket", labelText, le, cumulative);
+                    }
+                    appendSample(builder, family.name + "_sum", labelText, null, histogram.sumNanos.sum() / 1e9);
+                    appendSample(builder, family.name + "_count", labelText, null, histogram.count.sum());
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    private static void appendSample(StringBuilder builder, String name, String labelText, String le, double value) {
+        builder.append(name);
+        if (labelText.length() > 0 || le != null) {
+            builder.append('{').append(labelText);
+            if (le != null) {
+                builder.append(labelText.length()>0?",":"").append("le=\"").append(le).append('"');
+            }
+            builder.append('}');
+        }
+        builder.append(' ').append(formatValue(value)).append('\n');
+    }
+
+    private static String formatValue(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (value == (long) value) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+}
@@ -3,13 +3,21 @@ package com.xxl.job.core.server;
 import com.xxl.job.core.biz.ExecutorBiz;
 import com.xxl.job.core.biz.impl.ExecutorBizImpl;
 import com.xxl.job.core.biz.model.*;
+import com.xxl.job.core.metrics.XxlJobMetrics;
 import com.xxl.job.core.thread.ExecutorRegistryThread;
+import com.xxl.job.core.util.BinaryCodecTool;
 import com.xxl.job.core.util.GsonTool;
 import com.xxl.job.core.util.ThrowableUtil;
 import com.xxl.job.core.util.XxlJobRemotingUtil;
 import io.netty.bootstrap.ServerBootstrap;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.*;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
@@ -20,6 +28,10 @@ import io.netty.util.CharsetUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.*;
 
 /**
@@ -33,7 +45,30 @@ public class EmbedServer {
     private ExecutorBiz executorBiz;
     private Thread thread;
 
-    public void start(final String address, final int port, final String appname, final String accessToken) {
+    private int ioThreads = 0;
+    private int bizCoreThreads = 0;
+    private int bizMaxThreads = 200;
+    private int bizQueueSize = 2000;
+    private boolean epoll = true;
+
+    /**
+     * thread config, set before start
+     *
+     * @param ioThreads         event loop threads, netty default (cpu * 2) if <= 0
+     * @param bizCoreThreads    biz thread pool core size
+     * @param bizMaxThreads     biz thread pool max size, min 1
+     * @param bizQueueSize      biz thread pool queue size, request fast-fail with BUSY_CODE when full
+     * @param epoll             use native epoll transport on linux if available, otherwise nio
+     */
+    public void setThreadConfig(int ioThreads, int bizCoreThreads, int bizMaxThreads, int bizQueueSize, boolean epoll) {
+        this.ioThreads = ioThreads>0?ioThreads:0;
+        this.bizMaxThreads = bizMaxThreads>0?bizMaxThreads:1;
+        this.bizCoreThreads = bizCoreThreads>0?Math.min(bizCoreThreads, this.bizMaxThreads):0;
+        this.bizQueueSize = bizQueueSize>0?bizQueueSize:1;
+        this.epoll = epoll;
+    }
+
+    public void start(final String address, final int port, final String appname, final String accessToken, final int weight) {
         executorBiz = new ExecutorBizImpl();
         thread = new Thread(new Runnable() {
 
@@ -41,33 +76,30 @@ public class EmbedServer {
             public void run() {
 
                 // param
-                EventLoopGroup bossGroup = new NioEventLoopGroup();
-                EventLoopGroup workerGroup = new NioEventLoopGroup();
-                ThreadPoolExecutor bizThreadPool = new ThreadPoolExecutor(
-                        0,
-                        200,
+                final boolean useEpoll = epoll && Epoll.isAvailable();
+                EventLoopGroup bossGroup = useEpoll?new EpollEventLoopGroup(1):new NioEventLoopGroup(1);
+                EventLoopGroup workerGroup = useEpoll?new EpollEventLoopGroup(ioThreads):new NioEventLoopGroup(ioThreads);
+                final ThreadPoolExecutor bizThreadPool = new ThreadPoolExecutor(
+                        bizCoreThreads,
+                        bizMaxThreads,
                         60L,
                         TimeUnit.SECONDS,
-                        new LinkedBlockingQueue<Runnable>(2000),
+                        new LinkedBlockingQueue<Runnable>(bizQueueSize),
                         new ThreadFactory() {
                             @Override
                             public Thread newThread(Runnable r) {
                                 return new Thread(r, "xxl-rpc, EmbedServer bizThreadPool-" + r.hashCode());
                             }
                         },
-                        new RejectedExecutionHandler() {
-                            @Override
-                            public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
-                                throw new RuntimeException("xxl-job, EmbedServer bizThreadPool is EXHAUSTED!");
-                            }
-                        });
+                        new ThreadPoolExecutor.AbortPolicy());     // RejectedExecutionException, answered with BUSY_CODE by handler
+                registryMetrics(bizThreadPool);
 
 
                 try {
                     // start server
                     ServerBootstrap bootstrap = new ServerBootstrap();
                     bootstrap.group(bossGroup, workerGroup)
-                            .channel(NioServerSocketChannel.class)
+                            .channel(useEpoll?EpollServerSocketChannel.class:NioServerSocketChannel.class)
                             .childHandler(new ChannelInitializer<SocketChannel>() {
                                 @Override
                                 public void initChannel(SocketChannel channel) throws Exception {
@@ -83,10 +115,10 @@ public class EmbedServer {
                     // bind
                     ChannelFuture future = bootstrap.bind(port).sync();
 
-                    logger.info(">>>>>>>>>>> xxl-job remoting server start success, nettype = {}, port = {}", EmbedServer.class, port);
+                    logger.info(">>>>>>>>>>> xxl-job remoting server start success, nettype = {}, transport = {}, port = {}", EmbedServer.class, useEpoll?"epoll":"nio", port);
 
                     // start registry
-                    startRegistry(appname, address);
+                    startRegistry(appname, address, weight);
 
                     // wait util stop
                     future.channel().closeFuture().sync();
@@ -102,6 +134,8 @@ public class EmbedServer {
                     try {
                         workerGroup.shutdownGracefully();
                         bossGroup.shutdownGracefully();
+                        bizThreadPool.shutdown();
+                        removeMetrics();
                     } catch (Exception e) {
                         logger.error(e.getMessage(), e);
                     }
@@ -114,6 +148,33 @@ public class EmbedServer {
         thread.start();
     }
 
+    private static final String[] BIZ_POOL_GAUGES = {"xxl_job_executor_biz_pool_active_threads", "xxl_job_executor_biz_pool_threads", "xxl_job_executor_biz_pool_queue_size"};
+    private void registryMetrics(final ThreadPoolExecutor bizThreadPool) {
+        XxlJobMetrics.getInstance().gauge(BIZ_POOL_GAUGES[0], "EmbedServer biz thread pool, threads running request.", new XxlJobMetrics.Gauge() {
+            @Override
+            public double get() {
+                return bizThreadPool.getActiveCount();
+            }
+        });
+        XxlJobMetrics.getInstance().gauge(BIZ_POOL_GAUGES[1], "EmbedServer biz thread pool, current pool size.", new XxlJobMetrics.Gauge() {
+            @Override
+            public double get() {
+                return bizThreadPool.getPoolSize();
+            }
+        });
+        XxlJobMetrics.getInstance().gauge(BIZ_POOL_GAUGES[2], "EmbedServer biz thread pool, requests waiting in queue.", new XxlJobMetrics.Gauge() {
+            @Override
+            public double get() {
+                return bizThreadPool.getQueue().size();
+            }
+        });
+    }
+    private void removeMetrics() {
+        for (String gauge: BIZ_POOL_GAUGES) {
+            XxlJobMetrics.getInstance().removeGauge(gauge);
+        }
+    }
+
     public void stop() throws Exception {
         // destroy server thread
         if (thread!=null && thread.isAlive()) {
@@ -131,6 +192,12 @@ public class EmbedServer {
     /**
      * netty_http
      *
+     *      a、解码：请求参数直接从聚合后的池化 ByteBuf 解码（二进制按流读取，JSON 直接解码为字符串），不生成中间 byte[]；
+     *      b、路由：uri 经预构建的路由表分发，替代 if/else 链；
+     *      c、线程：beat/idleBeat 仅读内存状态，直接在 event loop 执行，其余请求切换至 bizThreadPool；线程池已满时立即返回 BUSY_CODE，不再抛异常导致调度中心等待超时；
+     *      d、编码：响应直接编码至池化 direct buffer（ctx.alloc().ioBuffer()），不再经 byte[] 拷贝；
+     *      e、指标：按 uri 记录请求数（success/fail/busy）及耗时分布（含 bizThreadPool 排队时间），"/metrics" 支持 GET，以 Prometheus 文本格式输出；
+     *
      * Copy from : https://github.com/xuxueli/xxl-rpc
      *
      * @author xuxueli 2015-11-24 22:25:15
@@ -138,10 +205,83 @@ public class EmbedServer {
     public static class EmbedHttpServerHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
         private static final Logger logger = LoggerFactory.getLogger(EmbedHttpServerHandler.class);
 
+        /**
+         * route of uri, param type and whether run on event loop
+         */
+        private static abstract class Route {
+            private final String uri;
+            private final Class<?> paramClass;
+            private final boolean inline;
+            private final XxlJobMetrics.Counter successCounter;
+            private final XxlJobMetrics.Counter failCounter;
+            private final XxlJobMetrics.Counter busyCounter;
+            private final XxlJobMetrics.Histogram latency;
+            private Route(String uri, Class<?> paramClass, boolean inline) {
+                this.uri = uri;
+                this.paramClass = paramClass;
+                this.inline = inline;
+                this.successCounter = requestCounter(uri, "success");
+                this.failCounter = requestCounter(uri, "fail");
+                this.busyCounter = requestCounter(uri, "busy");
+                this.latency = XxlJobMetrics.getInstance().histogram("xxl_job_executor_request_seconds",
+                        "Executor request latency from received to handled, biz thread pool wait included.", "uri", uri);
+            }
+            abstract Object invoke(ExecutorBiz executorBiz, Object param);
+
+            private static XxlJobMetrics.Counter requestCounter(String uri, String result) {
+                return XxlJobMetrics.getInstance().counter("xxl_job_executor_requests_total",
+                        "Executor requests handled, by uri and result.", "uri", uri, "result", result);
+            }
+        }
+
+        private static final String METRICS_URI = "/metrics";
+        private static final Map<String, Route> ROUTE_TABLE = new HashMap<String, Route>();
+        private static void addRoute(Route route) {
+            ROUTE_TABLE.put(route.uri, route);
+        }
+        static {
+            addRoute(new Route("/beat", null, true) {
+                @Override
+                Object invoke(ExecutorBiz executorBiz, Object param) {
+                    return executorBiz.beat();
+                }
+            });
+            addRoute(new Route("/idleBeat", IdleBeatParam.class, true) {
+                @Override
+                Object invoke(ExecutorBiz executorBiz, Object param) {
+                    return executorBiz.idleBeat((IdleBeatParam) param);
+                }
+            });
+            addRoute(new Route("/run", TriggerParam.class, false) {
+                @Override
+                Object invoke(ExecutorBiz executorBiz, Object param) {
+                    return executorBiz.run((TriggerParam) param);
+                }
+            });
+            addRoute(new Route("/runBatch", TriggerParam[].class, false) {
+                @Override
+                Object invoke(ExecutorBiz executorBiz, Object param) {
+                    return executorBiz.runBatch(Arrays.asList((TriggerParam[]) param));
+                }
+            });
+            addRoute(new Route("/kill", KillParam.class, false) {
+                @Override
+                Object invoke(ExecutorBiz executorBiz, Object param) {
+                    return executorBiz.kill((KillParam) param);
+                }
+            });
+            addRoute(new Route("/log", LogParam.class, false) {
+                @Override
+                Object invoke(ExecutorBiz executorBiz, Object param) {
+                    return executorBiz.log((LogParam) param);
+                }
+            });
+        }
+
         private ExecutorBiz executorBiz;
         private String accessToken;
-        private ThreadPoolExecutor bizThreadPool;
-        public EmbedHttpServerHandler(ExecutorBiz executorBiz, String accessToken, ThreadPoolExecutor bizThreadPool) {
+        private Executor bizThreadPool;
+        public EmbedHttpServerHandler(ExecutorBiz executorBiz, String accessToken, Executor bizThreadPool) {
             this.executorBiz = executorBiz;
             this.accessToken = accessToken;
             this.bizThreadPool = bizThreadPool;
@@ -149,79 +289,155 @@ public class EmbedServer {
 
         @Override
         protected void channelRead0(final ChannelHandlerContext ctx, FullHttpRequest msg) throws Exception {
+            final long startNanos = System.nanoTime();
+
+            // request, binary or json by content type
+            String contentType = msg.headers().get(HttpHeaderNames.CONTENT_TYPE);
+            final boolean binary = contentType!=null && contentType.startsWith(BinaryCodecTool.CONTENT_TYPE);
+            final boolean keepAlive = HttpUtil.isKeepAlive(msg);
+
+            // metrics, GET for prometheus scrape
+            if (msg.uri()!=null && msg.uri().startsWith(METRICS_URI)) {
+                QueryStringDecoder queryStringDecoder = new QueryStringDecoder(msg.uri());
+                if (METRICS_URI.equals(queryStringDecoder.path())) {
+                    writeMetrics(ctx, keepAlive, msg, queryStringDecoder);
+                    return;
+                }
+            }
 
-            // request parse
-            //final byte[] requestBytes = ByteBufUtil.getBytes(msg.content());    // byteBuf.toString(io.netty.util.CharsetUtil.UTF_8);
-            String requestData = msg.content().toString(CharsetUtil.UTF_8);
-            String uri = msg.uri();
-            HttpMethod httpMethod = msg.method();
-            boolean keepAlive = HttpUtil.isKeepAlive(msg);
-            String accessTokenReq = msg.headers().get(XxlJobRemotingUtil.XXL_JOB_ACCESS_TOKEN);
-
-            // invoke
-            bizThreadPool.execute(new Runnable() {
-                @Override
-                public void run() {
-                    // do invoke
-                    Object responseObj = process(httpMethod, uri, requestData, accessTokenReq);
+            // valid + route
+            final Route route;
+            final Object param;
+            try {
+                ReturnT<String> validResult = valid(msg);
+                if (validResult != null) {
+                    writeResponse(ctx, keepAlive, validResult, binary);
+                    return;
+                }
+                route = ROUTE_TABLE.get(msg.uri());
+                if (route == null) {
+                    writeResponse(ctx, keepAlive, new ReturnT<String>(ReturnT.FAIL_CODE, "invalid request, uri-mapping("+ msg.uri() +") not found."), binary);
+                    return;
+                }
 
-                    // to json
-                    String responseJson = GsonTool.toJson(responseObj);
+                // decode from pooled buffer, before released by SimpleChannelInboundHandler
+                param = route.paramClass!=null?parseParam(msg.content(), binary, route.paramClass):null;
+            } catch (Exception e) {
+                logger.error(e.getMessage(), e);
+                writeResponse(ctx, keepAlive, new ReturnT<String>(ReturnT.FAIL_CODE, "request error:" + ThrowableUtil.toString(e)), binary);
+                return;
+            }
 
-                    // write response
-                    writeResponse(ctx, keepAlive, responseJson);
-                }
-            });
+            // invoke, inline on event loop or in biz thread pool
+            if (route.inline) {
+                writeResponse(ctx, keepAlive, invoke(route, param, startNanos), binary);
+                return;
+            }
+            try {
+                bizThreadPool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        writeResponse(ctx, keepAlive, invoke(route, param, startNanos), binary);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // fast-fail, admin route to other executor
+                route.busyCounter.inc();
+                writeResponse(ctx, keepAlive, new ReturnT<String>(ReturnT.BUSY_CODE, "xxl-job, EmbedServer bizThreadPool is EXHAUSTED!"), binary);
+            }
         }
 
-        private Object process(HttpMethod httpMethod, String uri, String requestData, String accessTokenReq) {
+        /**
+         * metrics, prometheus text format; access token by header or "accessToken" query param
+         */
+        private void writeMetrics(ChannelHandlerContext ctx, boolean keepAlive, FullHttpRequest msg, QueryStringDecoder queryStringDecoder) {
+            String requestToken = msg.headers().get(XxlJobRemotingUtil.XXL_JOB_ACCESS_TOKEN);
+            if (requestToken==null && queryStringDecoder.parameters().containsKey("accessToken")) {
+                requestToken = queryStringDecoder.parameters().get("accessToken").get(0);
+            }
+            boolean authed = accessToken==null || accessToken.trim().length()==0 || accessToken.equals(requestToken);
 
-            // valid
-            if (HttpMethod.POST != httpMethod) {
+            ByteBuf content = ctx.alloc().ioBuffer();
+            ByteBufUtil.writeUtf8(content, authed?XxlJobMetrics.getInstance().scrape():"The access token is wrong.");
+            FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, authed?HttpResponseStatus.OK:HttpResponseStatus.UNAUTHORIZED, content);
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain; version=0.0.4; charset=utf-8");
+            response.headers().set(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
+            if (keepAlive) {
+                response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+            }
+            ctx.writeAndFlush(response);
+        }
+
+        private ReturnT<String> valid(FullHttpRequest msg) {
+            if (HttpMethod.POST != msg.method()) {
                 return new ReturnT<String>(ReturnT.FAIL_CODE, "invalid request, HttpMethod not support.");
             }
-            if (uri==null || uri.trim().length()==0) {
+            if (msg.uri()==null || msg.uri().trim().length()==0) {
                 return new ReturnT<String>(ReturnT.FAIL_CODE, "invalid request, uri-mapping empty.");
             }
             if (accessToken!=null
                     && accessToken.trim().length()>0
-                    && !accessToken.equals(accessTokenReq)) {
+                    && !accessToken.equals(msg.headers().get(XxlJobRemotingUtil.XXL_JOB_ACCESS_TOKEN))) {
                 return new ReturnT<String>(ReturnT.FAIL_CODE, "The access token is wrong.");
             }
+            return null;
+        }
 
-            // services mapping
+        private Object invoke(Route route, Object param, long startNanos) {
+            Object result;
             try {
-                if ("/beat".equals(uri)) {
-                    return executorBiz.beat();
-                } else if ("/idleBeat".equals(uri)) {
-                    IdleBeatParam idleBeatParam = GsonTool.fromJson(requestData, IdleBeatParam.class);
-                    return executorBiz.idleBeat(idleBeatParam);
-                } else if ("/run".equals(uri)) {
-                    TriggerParam triggerParam = GsonTool.fromJson(requestData, TriggerParam.class);
-                    return executorBiz.run(triggerParam);
-                } else if ("/kill".equals(uri)) {
-                    KillParam killParam = GsonTool.fromJson(requestData, KillParam.class);
-                    return executorBiz.kill(killParam);
-                } else if ("/log".equals(uri)) {
-                    LogParam logParam = GsonTool.fromJson(requestData, LogParam.class);
-                    return executorBiz.log(logParam);
-                } else {
-                    return new ReturnT<String>(ReturnT.FAIL_CODE, "invalid request, uri-mapping("+ uri +") not found.");
-                }
+                result = route.invoke(executorBiz, param);
             } catch (Exception e) {
                 logger.error(e.getMessage(), e);
-                return new ReturnT<String>(ReturnT.FAIL_CODE, "request error:" + ThrowableUtil.toString(e));
+                result = new ReturnT<String>(ReturnT.FAIL_CODE, "request error:" + ThrowableUtil.toString(e));
+            }
+
+            // metrics
+            route.latency.observeNanos(System.nanoTime() - startNanos);
+            if (result instanceof ReturnT && ((ReturnT) result).getCode() == ReturnT.SUCCESS_CODE) {
+                route.successCounter.inc();
+            } else {
+                route.failCounter.inc();
             }
+            return result;
+        }
+
+        private <T> T parseParam(ByteBuf content, boolean binary, Class<T> paramClass) throws IOException {
+            if (binary) {
+                ByteBufInputStream inputStream = new ByteBufInputStream(content);
+                try {
+                    return BinaryCodecTool.decode(inputStream, paramClass);
+                } finally {
+                    inputStream.close();
+                }
+            }
+            // decode utf-8 from buffer directly, no byte[] copy; json is small, a reader costs more (8KB buffer per request)
+            return GsonTool.fromJson(content.toString(CharsetUtil.UTF_8), paramClass);
         }
 
         /**
-         * write response
+         * write response, encode into pooled direct buffer, binary or json same as request
          */
-        private void writeResponse(ChannelHandlerContext ctx, boolean keepAlive, String responseJson) {
+        private void writeResponse(ChannelHandlerContext ctx, boolean keepAlive, Object responseObj, boolean binary) {
+            ByteBuf content = ctx.alloc().ioBuffer();
+            try {
+                if (binary) {
+                    BinaryCodecTool.encode(responseObj, new ByteBufOutputStream(content));
+                } else {
+                    ByteBufUtil.writeUtf8(content, GsonTool.toJson(responseObj));
+                }
+            } catch (Exception e) {
+                content.release();
+                logger.error(">>>>>>>>>>> xxl-job provider netty_http server encode response error.", e);
+                ctx.close();
+                return;
+            }
+
             // write response
-            FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.copiedBuffer(responseJson, CharsetUtil.UTF_8));   //  Unpooled.wrappedBuffer(responseJson)
-            response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/html;charset=UTF-8");       // HttpHeaderValues.TEXT_PLAIN.toString()
-            response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+            FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, content);
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE, binary?BinaryCodecTool.CONTENT_TYPE:"text/html;charset=UTF-8");       // HttpHeaderValues.TEXT_PLAIN.toString()
+            response.headers().set(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
+            response.headers().set(BinaryCodecTool.CODEC_HEADER, BinaryCodecTool.CODEC_BINARY);      // declare binary codec support
             if (keepAlive) {
                 response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
             }
@@ -252,9 +468,9 @@ public class EmbedServer {
 
     // ---------------------- registry ----------------------
 
-    public void startRegistry(final String appname, final String address) {
+    public void startRegistry(final String appname, final String address, final int weight) {
         // start registry
-        ExecutorRegistryThread.getInstance().start(appname, address);
+        ExecutorRegistryThread.getInstance().start(appname, address, weight);
     }
 
     public void stopRegistry() {
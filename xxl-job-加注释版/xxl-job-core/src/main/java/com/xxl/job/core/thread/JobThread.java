@@ -18,10 +18,17 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 /**
  * handler thread
+ *
+ *      a、独占线程（默认）：每个任务一个线程，轮询自身触发队列，空闲超过 30 次轮询（约 90 秒）后销毁；
+ *      b、共享线程池：指定 workerPool 时不启动自身线程，触发入队后才将任务调度到线程池执行（actor 方式），同一任务同一时刻最多占用一个工作线程，
+ *          保证串行执行；每次执行一个触发后让出工作线程，多任务间公平；终止时中断正在执行该任务的工作线程；
+ *      c、虚拟线程：workerPool 为每任务一个虚拟线程的线程池时同 b，执行超时控制线程同样使用虚拟线程，XxlJobContext 经 InheritableThreadLocal 传递；
+ *
  * @author xuxueli 2016-1-16 19:52:47
  */
 public class JobThread extends Thread{
@@ -35,15 +42,31 @@ public class JobThread extends Thread{
 	private volatile boolean toStop = false;
 	private String stopReason;
 
-    private boolean running = false;    // if running job
+    private volatile boolean running = false;    // if running job
 	private int idleTimes = 0;			// idel times
 
+	// worker pool mode
+	private final Executor workerPool;
+	private final AtomicBoolean scheduled = new AtomicBoolean(false);
+	private final Object runningLock = new Object();
+	private Thread runningThread;
+	private boolean inited = false;
+	private boolean destroyed = false;
+
 
 	public JobThread(int jobId, IJobHandler handler) {
+		this(jobId, handler, null);
+	}
+
+	/**
+	 * @param workerPool	shared worker pool, run on it instead of own thread (not started) if not null
+	 */
+	public JobThread(int jobId, IJobHandler handler, Executor workerPool) {
 		this.jobId = jobId;
 		this.handler = handler;
 		this.triggerQueue = new LinkedBlockingQueue<TriggerParam>();
 		this.triggerLogIdSet = Collections.synchronizedSet(new HashSet<Long>());
+		this.workerPool = workerPool;
 	}
 	public IJobHandler getHandler() {
 		return handler;
@@ -65,6 +88,7 @@ public class JobThread extends Thread{
 		triggerLogIdSet.add(triggerParam.getLogId());
 		// 如果没有重复，直接把触发器参数塞到触发器队列中
 		triggerQueue.add(triggerParam);
+		schedule();
         return ReturnT.SUCCESS;
 	}
 
@@ -81,6 +105,16 @@ public class JobThread extends Thread{
 		 */
 		this.toStop = true;
 		this.stopReason = stopReason;
+
+		// worker pool mode, interrupt worker running this job, then kill queue and destroy on worker
+		if (workerPool != null) {
+			synchronized (runningLock) {
+				if (runningThread != null) {
+					runningThread.interrupt();
+				}
+			}
+			schedule();
+		}
 	}
 
     /**
@@ -91,118 +125,235 @@ public class JobThread extends Thread{
         return running || triggerQueue.size()>0;
     }
 
-    @Override
+    /**
+     * trigger waiting in queue
+     * @return
+     */
+    public int getTriggerQueueSize() {
+        return triggerQueue.size();
+    }
+
+	@Override
 	public void run() {
 
-    	// init
-    	try {
-			handler.init();
-		} catch (Throwable e) {
-    		logger.error(e.getMessage(), e);
-		}
+		// init
+		initHandler();
 
 		// execute
 		while(!toStop){
 			running = false;
 			idleTimes++;
 
-            TriggerParam triggerParam = null;
-            ReturnT<String> executeResult = null;
-            try {
+			TriggerParam triggerParam = null;
+			try {
 				// to check toStop signal, we need cycle, so wo cannot use queue.take(), instand of poll(timeout)
 				// poll()从队列中取出并移除元素,若队列为空，发生阻塞，等待有元素。
 				triggerParam = triggerQueue.poll(3L, TimeUnit.SECONDS);
-				if (triggerParam!=null) {
-					running = true;
-					idleTimes = 0;
-					triggerLogIdSet.remove(triggerParam.getLogId());
-
-					// log filename, like "logPath/yyyy-MM-dd/9999.log"
-					String logFileName = XxlJobFileAppender.makeLogFileName(new Date(triggerParam.getLogDateTime()), triggerParam.getLogId());
-					XxlJobContext.setXxlJobContext(new XxlJobContext(
-							triggerParam.getLogId(),
-							logFileName,
-							triggerParam.getBroadcastIndex(),
-							triggerParam.getBroadcastTotal()));
-
-					// execute
-					XxlJobLogger.log("<br>----------- xxl-job job execute start -----------<br>----------- Param:" + triggerParam.getExecutorParams());
-
-					if (triggerParam.getExecutorTimeout() > 0) {
-						// limit timeout
-						Thread futureThread = null;
-						try {
-							final TriggerParam triggerParamTmp = triggerParam;
-							FutureTask<ReturnT<String>> futureTask = new FutureTask<ReturnT<String>>(new Callable<ReturnT<String>>() {
-								@Override
-								public ReturnT<String> call() throws Exception {
-									return handler.execute(triggerParamTmp.getExecutorParams());
-								}
-							});
-							futureThread = new Thread(futureTask);
-							futureThread.start();
-
-							executeResult = futureTask.get(triggerParam.getExecutorTimeout(), TimeUnit.SECONDS);
-						} catch (TimeoutException e) {
-
-							XxlJobLogger.log("<br>----------- xxl-job job execute timeout");
-							XxlJobLogger.log(e);
-
-							executeResult = new ReturnT<String>(IJobHandler.FAIL_TIMEOUT.getCode(), "job execute timeout ");
-						} finally {
-							futureThread.interrupt();
-						}
-					} else {
-						// *** 关键点:通过反射调用指定类的指定方法
-						// just execute
-						executeResult = handler.execute(triggerParam.getExecutorParams());
+			} catch (InterruptedException e) {
+				if (!toStop) {
+					logger.error(e.getMessage(), e);
+				}
+			}
+			if (triggerParam!=null) {
+				execute(triggerParam);
+			} else {
+				if (idleTimes > 30) {
+					if(triggerQueue.size() == 0) {	// avoid concurrent trigger causes jobId-lost
+						XxlJobExecutor.removeJobThread(jobId, "excutor idel times over limit.");
 					}
+				}
+			}
+		}
 
-					if (executeResult == null) {
-						executeResult = IJobHandler.FAIL;
-					} else {
-						executeResult.setMsg(
-								(executeResult!=null&&executeResult.getMsg()!=null&&executeResult.getMsg().length()>50000)
-										?executeResult.getMsg().substring(0, 50000).concat("...")
-										:executeResult.getMsg());
-						executeResult.setContent(null);	// limit obj size
-					}
-					XxlJobLogger.log("<br>----------- xxl-job job execute end(finish) -----------<br>----------- ReturnT:" + executeResult);
+		// callback trigger request in queue
+		killQueue();
+
+		// destroy
+		destroyHandler();
+
+		logger.info(">>>>>>>>>>> xxl-job JobThread stoped, hashCode:{}", Thread.currentThread());
+	}
 
-				} else {
-					if (idleTimes > 30) {
-						if(triggerQueue.size() == 0) {	// avoid concurrent trigger causes jobId-lost
-							XxlJobExecutor.removeJobThread(jobId, "excutor idel times over limit.");
+
+	// ---------------------- worker pool ----------------------
+
+	/**
+	 * schedule onto worker pool, at most one task of this job pending or running
+	 */
+	private void schedule() {
+		if (workerPool == null || !scheduled.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			workerPool.execute(new Runnable() {
+				@Override
+				public void run() {
+					runOnce();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			scheduled.set(false);
+			logger.error(">>>>>>>>>>> xxl-job JobThread schedule fail, worker pool stopped, jobId:{}", jobId, e);
+		}
+	}
+
+	/**
+	 * one trigger per task, then yield worker to other jobs; state is handed over between workers by "scheduled"
+	 */
+	private void runOnce() {
+		try {
+			if (!inited) {
+				inited = true;
+				initHandler();
+			}
+
+			if (!toStop) {
+				TriggerParam triggerParam = triggerQueue.poll();
+				if (triggerParam != null) {
+					synchronized (runningLock) {
+						runningThread = Thread.currentThread();
+					}
+					try {
+						execute(triggerParam);
+					} finally {
+						synchronized (runningLock) {
+							runningThread = null;
 						}
+						Thread.interrupted();	// clear kill interrupt, not leak to next job on this worker
+						running = false;
 					}
 				}
-			} catch (Throwable e) {
-				if (toStop) {
-					XxlJobLogger.log("<br>----------- JobThread toStop, stopReason:" + stopReason);
+			}
+
+			if (toStop) {
+				killQueue();
+				if (!destroyed) {
+					destroyed = true;
+					destroyHandler();
+					logger.info(">>>>>>>>>>> xxl-job JobThread stoped, jobId:{}", jobId);
 				}
+			}
+		} finally {
+			scheduled.set(false);
+		}
 
-				StringWriter stringWriter = new StringWriter();
-				e.printStackTrace(new PrintWriter(stringWriter));
-				String errorMsg = stringWriter.toString();
-				executeResult = new ReturnT<String>(ReturnT.FAIL_CODE, errorMsg);
-
-				XxlJobLogger.log("<br>----------- JobThread Exception:" + errorMsg + "<br>----------- xxl-job job execute end(error) -----------");
-			} finally {
-                if(triggerParam != null) {
-                    // callback handler info
-                    if (!toStop) {
-                        // commonm
-                        TriggerCallbackThread.pushCallBack(new HandleCallbackParam(triggerParam.getLogId(), triggerParam.getLogDateTime(), executeResult));
-                    } else {
-                        // is killed
-                        ReturnT<String> stopResult = new ReturnT<String>(ReturnT.FAIL_CODE, stopReason + " [job running, killed]");
-                        TriggerCallbackThread.pushCallBack(new HandleCallbackParam(triggerParam.getLogId(), triggerParam.getLogDateTime(), stopResult));
-                    }
+		// more trigger or stopped meanwhile, schedule again
+		if (triggerQueue.size() > 0 || (toStop && !destroyed)) {
+			schedule();
+		}
+	}
+
+
+	// ---------------------- execute ----------------------
+
+	private void initHandler() {
+		try {
+			handler.init();
+		} catch (Throwable e) {
+			logger.error(e.getMessage(), e);
+		}
+	}
+
+	private void destroyHandler() {
+		try {
+			handler.destroy();
+		} catch (Throwable e) {
+			logger.error(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * execute one trigger, and push result to callback queue
+	 */
+	private void execute(TriggerParam triggerParam) {
+		ReturnT<String> executeResult = null;
+		try {
+			running = true;
+			idleTimes = 0;
+			triggerLogIdSet.remove(triggerParam.getLogId());
+
+			// log filename, like "logPath/yyyy-MM-dd/9999.log"
+			String logFileName = XxlJobFileAppender.makeLogFileName(new Date(triggerParam.getLogDateTime()), triggerParam.getLogId());
+			XxlJobContext.setXxlJobContext(new XxlJobContext(
+					triggerParam.getLogId(),
+					logFileName,
+					triggerParam.getBroadcastIndex(),
+					triggerParam.getBroadcastTotal()));
+
+			// execute
+			XxlJobLogger.log("<br>----------- xxl-job job execute start -----------<br>----------- Param:" + triggerParam.getExecutorParams());
+
+			if (triggerParam.getExecutorTimeout() > 0) {
+				// limit timeout
+				Thread futureThread = null;
+				try {
+					final TriggerParam triggerParamTmp = triggerParam;
+					FutureTask<ReturnT<String>> futureTask = new FutureTask<ReturnT<String>>(new Callable<ReturnT<String>>() {
+						@Override
+						public ReturnT<String> call() throws Exception {
+							return handler.execute(triggerParamTmp.getExecutorParams());
+						}
+					});
+					ThreadFactory virtualThreadFactory = XxlJobExecutor.getVirtualThreadFactory();
+					futureThread = virtualThreadFactory!=null?virtualThreadFactory.newThread(futureTask):new Thread(futureTask);
+					futureThread.start();
+
+					executeResult = futureTask.get(triggerParam.getExecutorTimeout(), TimeUnit.SECONDS);
+				} catch (TimeoutException e) {
+
+					XxlJobLogger.log("<br>----------- xxl-job job execute timeout");
+					XxlJobLogger.log(e);
+
+					executeResult = new ReturnT<String>(IJobHandler.FAIL_TIMEOUT.getCode(), "job execute timeout ");
+				} finally {
+					futureThread.interrupt();
+				}
+			} else {
+				// *** 关键点:通过反射调用指定类的指定方法
+				// just execute
+				executeResult = handler.execute(triggerParam.getExecutorParams());
+			}
+
+			if (executeResult == null) {
+				executeResult = IJobHandler.FAIL;
+			} else {
+				executeResult.setMsg(
+						(executeResult!=null&&executeResult.getMsg()!=null&&executeResult.getMsg().length()>50000)
+								?executeResult.getMsg().substring(0, 50000).concat("...")
+								:executeResult.getMsg());
+				executeResult.setContent(null);	// limit obj size
+			}
+			XxlJobLogger.log("<br>----------- xxl-job job execute end(finish) -----------<br>----------- ReturnT:" + executeResult);
+		} catch (Throwable e) {
+			if (toStop) {
+				XxlJobLogger.log("<br>----------- JobThread toStop, stopReason:" + stopReason);
+			}
+
+			StringWriter stringWriter = new StringWriter();
+			e.printStackTrace(new PrintWriter(stringWriter));
+			String errorMsg = stringWriter.toString();
+			executeResult = new ReturnT<String>(ReturnT.FAIL_CODE, errorMsg);
+
+			XxlJobLogger.log("<br>----------- JobThread Exception:" + errorMsg + "<br>----------- xxl-job job execute end(error) -----------");
+		} finally {
+            if(triggerParam != null) {
+                // callback handler info
+                if (!toStop) {
+                    // commonm
+                    TriggerCallbackThread.pushCallBack(new HandleCallbackParam(triggerParam.getLogId(), triggerParam.getLogDateTime(), executeResult));
+                } else {
+                    // is killed
+                    ReturnT<String> stopResult = new ReturnT<String>(ReturnT.FAIL_CODE, stopReason + " [job running, killed]");
+                    TriggerCallbackThread.pushCallBack(new HandleCallbackParam(triggerParam.getLogId(), triggerParam.getLogDateTime(), stopResult));
                 }
             }
         }
+	}
 
-		// callback trigger request in queue
+	/**
+	 * callback trigger request in queue, as killed
+	 */
+	private void killQueue() {
 		while(triggerQueue !=null && triggerQueue.size()>0){
 			TriggerParam triggerParam = triggerQueue.poll();
 			if (triggerParam!=null) {
@@ -211,14 +362,5 @@ public class JobThread extends Thread{
 				TriggerCallbackThread.pushCallBack(new HandleCallbackParam(triggerParam.getLogId(), triggerParam.getLogDateTime(), stopResult));
 			}
 		}
-
-		// destroy
-		try {
-			handler.destroy();
-		} catch (Throwable e) {
-			logger.error(e.getMessage(), e);
-		}
-
-		logger.info(">>>>>>>>>>> xxl-job JobThread stoped, hashCode:{}", Thread.currentThread());
 	}
-}
+}
\ No newline at end of file
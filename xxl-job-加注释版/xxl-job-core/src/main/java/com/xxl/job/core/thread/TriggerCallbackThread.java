@@ -6,18 +6,24 @@ import com.xxl.job.core.biz.model.ReturnT;
 import com.xxl.job.core.context.XxlJobContext;
 import com.xxl.job.core.enums.RegistryConfig;
 import com.xxl.job.core.executor.XxlJobExecutor;
+import com.xxl.job.core.log.CallbackJournal;
 import com.xxl.job.core.log.XxlJobFileAppender;
 import com.xxl.job.core.log.XxlJobLogger;
+import com.xxl.job.core.metrics.XxlJobMetrics;
 import com.xxl.job.core.util.FileUtil;
 import com.xxl.job.core.util.JdkSerializeTool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -35,25 +41,83 @@ public class TriggerCallbackThread {
      * job results callback queue
      */
     private LinkedBlockingQueue<HandleCallbackParam> callBackQueue = new LinkedBlockingQueue<HandleCallbackParam>();
+    private final XxlJobMetrics.Counter callbackSuccessCounter = callbackCounter("success");
+    private final XxlJobMetrics.Counter callbackFailCounter = callbackCounter("fail");
+    private XxlJobMetrics.Counter callbackCounter(String result) {
+        return XxlJobMetrics.getInstance().counter("xxl_job_executor_callback_total",
+                "Job result callback to admin, by result; fail ones kept in fail-callback file and retried.", "result", result);
+    }
+    private TriggerCallbackThread() {
+        XxlJobMetrics.getInstance().gauge("xxl_job_executor_callback_queue_size", "Job result waiting in callback queue.", new XxlJobMetrics.Gauge() {
+            @Override
+            public double get() {
+                return callBackQueue.size();
+            }
+        });
+    }
     public static void pushCallBack(HandleCallbackParam callback){
         // add()添加数据
         getInstance().callBackQueue.add(callback);
         logger.debug(">>>>>>>>>>> xxl-job, push callback request, logId:{}", callback.getLogId());
     }
 
+    /**
+     * callback batch
+     *
+     *      a、批次上限：单批次最多 "batchSize" 条、约 "batchBytes" 字节（按回调内容估算），避免Admin故障恢复后单次请求过大而超时；
+     *      b、攒批等待：取到首条回调后最多等待 "lingerMillis" 毫秒凑批，稳定负载下减少请求次数；
+     *      c、并行发送：最多 "parallel" 个批次同时回调，超出时由回调线程自行发送（背压）；
+     */
+    private int batchSize;
+    private int batchBytes;
+    private int lingerMillis;
+    private ThreadPoolExecutor callbackPool;
+
     /**
      * callback thread
      */
     private Thread triggerCallbackThread;
     private Thread triggerRetryCallbackThread;
     private volatile boolean toStop = false;
-    public void start() {
+    public void start(int batchSize, int batchBytes, int lingerMillis, int parallel, String journalFsync) {
 
         // valid
         if (XxlJobExecutor.getAdminBizList() == null) {
             logger.warn(">>>>>>>>>>> xxl-job, executor callback config fail, adminAddresses is null.");
             return;
         }
+        this.batchSize = batchSize>0?batchSize:100;
+        this.batchBytes = batchBytes>=1024?batchBytes:512*1024;
+        this.lingerMillis = lingerMillis>=0?lingerMillis:20;
+        parallel = parallel>0?parallel:2;
+
+        // fail callback journal
+        callbackJournal = new CallbackJournal(new File(failCallbackFilePath), journalFsync);
+        try {
+            callbackJournal.open();
+        } catch (IOException e) {
+            // keep callback running, fail callback will not be persisted for retry
+            logger.error(">>>>>>>>>>> xxl-job, executor callback journal open fail, callback without retry persistence.", e);
+            callbackJournal.close();
+            callbackJournal = null;
+        }
+
+        // callback pool
+        callbackPool = new ThreadPoolExecutor(
+                parallel,
+                parallel,
+                60L,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(parallel),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "xxl-job, executor TriggerCallbackThread-callbackPool-" + r.hashCode());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
 
         // callback
         triggerCallbackThread = new Thread(new Runnable() {
@@ -62,22 +126,51 @@ public class TriggerCallbackThread {
             public void run() {
 
                 // normal callback
+                HandleCallbackParam carry = null;
                 while(!toStop){
                     try {
-                        // take()取数据
-                        HandleCallbackParam callback = getInstance().callBackQueue.take();
-                        if (callback != null) {
-
-                            // callback list param
-                            List<HandleCallbackParam> callbackParamList = new ArrayList<HandleCallbackParam>();
-                            int drainToNum = getInstance().callBackQueue.drainTo(callbackParamList);
-                            callbackParamList.add(callback);
-
-                            // callback, will retry if error
-                            if (callbackParamList!=null && callbackParamList.size()>0) {
-                                doCallback(callbackParamList);
+                        // take()取数据，超出上一批次的回调留到本批次
+                        HandleCallbackParam callback = carry!=null?carry:getInstance().callBackQueue.take();
+                        carry = null;
+
+                        // callback list param, bounded by size and bytes, linger for more
+                        List<HandleCallbackParam> callbackParamList = new ArrayList<HandleCallbackParam>();
+                        callbackParamList.add(callback);
+                        int callbackBytes = estimateBytes(callback);
+                        long lingerDeadline = System.currentTimeMillis() + getInstance().lingerMillis;
+                        while (callbackParamList.size() < getInstance().batchSize) {
+                            HandleCallbackParam next = getInstance().callBackQueue.poll();
+                            if (next == null) {
+                                long lingerLeft = lingerDeadline - System.currentTimeMillis();
+                                if (lingerLeft <= 0) {
+                                    break;
+                                }
+                                try {
+                                    next = getInstance().callBackQueue.poll(lingerLeft, TimeUnit.MILLISECONDS);
+                                } catch (InterruptedException e) {
+                                    // stopping, send collected batch
+                                    next = null;
+                                }
+                                if (next == null) {
+                                    break;
+                                }
+                            }
+                            if (callbackBytes + estimateBytes(next) > getInstance().batchBytes) {
+                                carry = next;
+                                break;
                             }
+                            callbackParamList.add(next);
+                            callbackBytes += estimateBytes(next);
                         }
+
+                        // callback in pool, will retry if error
+                        final List<HandleCallbackParam> batch = callbackParamList;
+                        callbackPool.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                doCallback(batch);
+                            }
+                        });
                     } catch (Exception e) {
                         if (!toStop) {
                             logger.error(e.getMessage(), e);
@@ -85,14 +178,25 @@ public class TriggerCallbackThread {
                     }
                 }
 
+                // wait in-flight callback
+                callbackPool.shutdown();
+                try {
+                    callbackPool.awaitTermination(RegistryConfig.BEAT_TIMEOUT, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    logger.error(e.getMessage(), e);
+                }
+
                 // last callback
                 try {
                     List<HandleCallbackParam> callbackParamList = new ArrayList<HandleCallbackParam>();
+                    if (carry != null) {
+                        callbackParamList.add(carry);
+                    }
                     // drainTo():一次性从BlockingQueue获取所有可用的数据对象（还可以指定获取数据的个数），
                     // 通过该方法，可以提升获取数据效率；不需要多次分批加锁或释放锁。
                     int drainToNum = getInstance().callBackQueue.drainTo(callbackParamList);
-                    if (callbackParamList!=null && callbackParamList.size()>0) {
-                        doCallback(callbackParamList);
+                    for (List<HandleCallbackParam> batch: splitBatch(callbackParamList)) {
+                        doCallback(batch);
                     }
                 } catch (Exception e) {
                     if (!toStop) {
@@ -108,7 +212,10 @@ public class TriggerCallbackThread {
         triggerCallbackThread.start();
 
 
-        // retry
+        // retry, only with journal
+        if (callbackJournal == null) {
+            return;
+        }
         triggerRetryCallbackThread = new Thread(new Runnable() {
             @Override
             public void run() {
@@ -158,6 +265,42 @@ public class TriggerCallbackThread {
             }
         }
 
+        // close journal, after last append
+        if (callbackJournal != null) {
+            callbackJournal.close();
+        }
+
+    }
+
+    /**
+     * estimate callback bytes, execute msg dominate
+     */
+    private static int estimateBytes(HandleCallbackParam callbackParam) {
+        ReturnT<String> executeResult = callbackParam.getExecuteResult();
+        return 128 + ((executeResult!=null && executeResult.getMsg()!=null)?executeResult.getMsg().length():0);
+    }
+
+    /**
+     * split callback list, bounded by size and bytes
+     */
+    private List<List<HandleCallbackParam>> splitBatch(List<HandleCallbackParam> callbackParamList) {
+        List<List<HandleCallbackParam>> batchList = new ArrayList<List<HandleCallbackParam>>();
+        List<HandleCallbackParam> batch = new ArrayList<HandleCallbackParam>();
+        int callbackBytes = 0;
+        for (HandleCallbackParam callbackParam: callbackParamList) {
+            if (batch.size() > 0
+                    && (batch.size() >= batchSize || callbackBytes + estimateBytes(callbackParam) > batchBytes)) {
+                batchList.add(batch);
+                batch = new ArrayList<HandleCallbackParam>();
+                callbackBytes = 0;
+            }
+            batch.add(callbackParam);
+            callbackBytes += estimateBytes(callbackParam);
+        }
+        if (batch.size() > 0) {
+            batchList.add(batch);
+        }
+        return batchList;
     }
 
     /**
@@ -165,15 +308,22 @@ public class TriggerCallbackThread {
      * @param callbackParamList
      */
     private void doCallback(List<HandleCallbackParam> callbackParamList){
-        boolean callbackRet = false;
-        // callback, will retry if error
+        if (!callback(callbackParamList)) {
+            appendFailCallbackFile(callbackParamList);
+        }
+    }
+
+    /**
+     * callback to admin one by one, until success
+     */
+    private boolean callback(List<HandleCallbackParam> callbackParamList){
         for (AdminBiz adminBiz: XxlJobExecutor.getAdminBizList()) {
             try {
                 ReturnT<String> callbackResult = adminBiz.callback(callbackParamList);
                 if (callbackResult!=null && ReturnT.SUCCESS_CODE == callbackResult.getCode()) {
                     callbackLog(callbackParamList, "<br>----------- xxl-job job callback finish.");
-                    callbackRet = true;
-                    break;
+                    callbackSuccessCounter.inc(callbackParamList.size());
+                    return true;
                 } else {
                     callbackLog(callbackParamList, "<br>----------- xxl-job job callback fail, callbackResult:" + callbackResult);
                 }
@@ -181,9 +331,8 @@ public class TriggerCallbackThread {
                 callbackLog(callbackParamList, "<br>----------- xxl-job job callback error, errorMsg:" + e.getMessage());
             }
         }
-        if (!callbackRet) {
-            appendFailCallbackFile(callbackParamList);
-        }
+        callbackFailCounter.inc(callbackParamList.size());
+        return false;
     }
 
     /**
@@ -202,10 +351,11 @@ public class TriggerCallbackThread {
     }
 
 
-    // ---------------------- fail-callback file ----------------------
+    // ---------------------- fail-callback journal ----------------------
 
     private static String failCallbackFilePath = XxlJobFileAppender.getLogPath().concat(File.separator).concat("callbacklog").concat(File.separator);
-    private static String failCallbackFileName = failCallbackFilePath.concat("xxl-job-callback-{x}").concat(".log");
+    private static String legacyFailCallbackFilePrefix = "xxl-job-callback-";
+    private CallbackJournal callbackJournal;
 
     private void appendFailCallbackFile(List<HandleCallbackParam> callbackParamList){
         // valid
@@ -213,42 +363,48 @@ public class TriggerCallbackThread {
             return;
         }
 
-        // append file
-        byte[] callbackParamList_bytes = JdkSerializeTool.serialize(callbackParamList);
-
-        File callbackLogFile = new File(failCallbackFileName.replace("{x}", String.valueOf(System.currentTimeMillis())));
-        if (callbackLogFile.exists()) {
-            for (int i = 0; i < 100; i++) {
-                callbackLogFile = new File(failCallbackFileName.replace("{x}", String.valueOf(System.currentTimeMillis()).concat("-").concat(String.valueOf(i)) ));
-                if (!callbackLogFile.exists()) {
-                    break;
-                }
-            }
+        // append journal
+        if (callbackJournal == null) {
+            logger.error(">>>>>>>>>>> xxl-job, executor callback journal not open, callback lost:{}", callbackParamList);
+            return;
+        }
+        try {
+            callbackJournal.append(callbackParamList);
+        } catch (Exception e) {
+            logger.error(">>>>>>>>>>> xxl-job, executor callback journal append fail, callback lost:{}", callbackParamList, e);
         }
-        FileUtil.writeFileContent(callbackLogFile, callbackParamList_bytes);
     }
 
-    private void retryFailCallbackFile(){
+    private void retryFailCallbackFile() throws IOException {
 
-        // valid
+        // legacy JDK-serialized file, move into journal
         File callbackLogPath = new File(failCallbackFilePath);
-        if (!callbackLogPath.exists()) {
-            return;
-        }
-        if (callbackLogPath.isFile()) {
-            callbackLogPath.delete();
-        }
-        if (!(callbackLogPath.isDirectory() && callbackLogPath.list()!=null && callbackLogPath.list().length>0)) {
-            return;
+        File[] legacyFiles = callbackLogPath.listFiles();
+        if (legacyFiles != null) {
+            for (File legacyFile: legacyFiles) {
+                if (!legacyFile.getName().startsWith(legacyFailCallbackFilePrefix)) {
+                    continue;
+                }
+                byte[] callbackParamList_bytes = FileUtil.readFileContent(legacyFile);
+                List<HandleCallbackParam> callbackParamList = (List<HandleCallbackParam>) JdkSerializeTool.deserialize(callbackParamList_bytes, List.class);
+                if (callbackParamList != null) {
+                    callbackJournal.append(callbackParamList);
+                }
+                legacyFile.delete();
+            }
         }
 
-        // load and clear file, retry
-        for (File callbaclLogFile: callbackLogPath.listFiles()) {
-            byte[] callbackParamList_bytes = FileUtil.readFileContent(callbaclLogFile);
-            List<HandleCallbackParam> callbackParamList = (List<HandleCallbackParam>) JdkSerializeTool.deserialize(callbackParamList_bytes, List.class);
-
-            callbaclLogFile.delete();
-            doCallback(callbackParamList);
+        // replay journal sequentially, ack only after callback success
+        while (!toStop) {
+            CallbackJournal.Batch batch = callbackJournal.read(batchSize, batchBytes);
+            if (batch.getCallbackParamList().size() == 0) {
+                callbackJournal.ack(batch);     // skip broken
+                break;
+            }
+            if (!callback(batch.getCallbackParamList())) {
+                break;
+            }
+            callbackJournal.ack(batch);
         }
 
     }
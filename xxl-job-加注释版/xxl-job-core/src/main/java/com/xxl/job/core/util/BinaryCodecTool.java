@@ -0,0 +1,348 @@
+package com.xxl.job.core.util;
+
+import com.xxl.job.core.biz.model.*;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * binary codec of admin-executor rpc, hand-written, no reflection
+ *
+ *      a、协商：请求与响应的 "Content-Type" 为 CONTENT_TYPE 时使用，服务端通过响应头 "XXL-JOB-CODEC: binary" 声明支持，客户端此后切换；未声明时保持JSON；
+ *      b、格式："version(1) + tag(1) + fields"，字段按声明顺序定长写入，字符串为 "length(4, -1 为 null) + utf-8"；
+ *      c、版本：新增字段只追加在末尾并升级 VERSION，解码按请求版本读取，低版本数据缺失字段取默认值；
+ *      d、类型：TriggerParam/TriggerParam[]/IdleBeatParam/KillParam/LogParam/RegistryParam/List<HandleCallbackParam>/ReturnT<String|LogResult|List<ReturnT>>；
+ *      e、校验：字符串长度、数组/列表元素个数在分配前按剩余字节数校验，负数或超出剩余数据时拒绝，避免恶意数据触发大内存分配；
+ *      f、嵌套：嵌套位置仅接受约定类型（如 ReturnT 内容仅 String/LogResult/List<ReturnT>/null），且嵌套深度不超过 MAX_DEPTH，避免恶意数据触发栈溢出；
+ */
+public class BinaryCodecTool {
+
+    public static final String CONTENT_TYPE = "application/x-xxl-job-binary";
+    public static final String CODEC_HEADER = "XXL-JOB-CODEC";
+    public static final String CODEC_BINARY = "binary";
+
+    public static final byte VERSION = 1;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_TRIGGER_PARAM = 1;
+    private static final byte TAG_IDLE_BEAT_PARAM = 2;
+    private static final byte TAG_KILL_PARAM = 3;
+    private static final byte TAG_LOG_PARAM = 4;
+    private static final byte TAG_REGISTRY_PARAM = 5;
+    private static final byte TAG_CALLBACK_LIST = 6;
+    private static final byte TAG_RETURN_T = 7;
+    private static final byte TAG_STRING = 8;
+    private static final byte TAG_LOG_RESULT = 9;
+    private static final byte TAG_TRIGGER_PARAM_ARRAY = 10;
+    private static final byte TAG_RETURN_T_LIST = 11;
+
+    private static final int MAX_DEPTH = 4;
+
+    /**
+     * whether obj supported by binary codec
+     */
+    public static boolean support(Object obj) {
+        if (obj == null
+                || obj instanceof TriggerParam
+                || obj instanceof IdleBeatParam
+                || obj instanceof KillParam
+                || obj instanceof LogParam
+                || obj instanceof RegistryParam
+                || obj instanceof TriggerParam[]
+                || obj instanceof ReturnT) {
+            return true;
+        }
+        if (obj instanceof List) {
+            // all callback param, or all return
+            Class<?> itemType = ((List) obj).isEmpty()?HandleCallbackParam.class:((List) obj).get(0).getClass();
+            for (Object item: (List) obj) {
+                if (!(item instanceof HandleCallbackParam || item instanceof ReturnT) || !itemType.isInstance(item)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // ---------------------- encode ----------------------
+
+    public static byte[] encode(Object obj) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        encode(obj, bytes);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * encode to stream, such as ByteBufOutputStream
+     */
+    public static void encode(Object obj, OutputStream outputStream) {
+        try {
+            DataOutputStream output = new DataOutputStream(outputStream);
+            output.writeByte(VERSION);
+            write(output, obj);
+            output.flush();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("xxl-job binary encode fail, obj:" + obj, e);
+        }
+    }
+
+    private static void write(DataOutputStream output, Object obj) throws IOException {
+        if (obj == null) {
+            output.writeByte(TAG_NULL);
+        } else if (obj instanceof TriggerParam) {
+            TriggerParam triggerParam = (TriggerParam) obj;
+            output.writeByte(TAG_TRIGGER_PARAM);
+            output.writeInt(triggerParam.getJobId());
+            writeString(output, triggerParam.getExecutorHandler());
+            writeString(output, triggerParam.getExecutorParams());
+            writeString(output, triggerParam.getExecutorBlockStrategy());
+            output.writeInt(triggerParam.getExecutorTimeout());
+            output.writeLong(triggerParam.getLogId());
+            output.writeLong(triggerParam.getLogDateTime());
+            writeString(output, triggerParam.getGlueType());
+            writeString(output, triggerParam.getGlueSource());
+            output.writeLong(triggerParam.getGlueUpdatetime());
+            output.writeInt(triggerParam.getBroadcastIndex());
+            output.writeInt(triggerParam.getBroadcastTotal());
+        } else if (obj instanceof TriggerParam[]) {
+            TriggerParam[] triggerParams = (TriggerParam[]) obj;
+            output.writeByte(TAG_TRIGGER_PARAM_ARRAY);
+            output.writeInt(triggerParams.length);
+            for (TriggerParam triggerParam: triggerParams) {
+                write(output, triggerParam);
+            }
+        } else if (obj instanceof IdleBeatParam) {
+            output.writeByte(TAG_IDLE_BEAT_PARAM);
+            output.writeInt(((IdleBeatParam) obj).getJobId());
+        } else if (obj instanceof KillParam) {
+            output.writeByte(TAG_KILL_PARAM);
+            output.writeInt(((KillParam) obj).getJobId());
+        } else if (obj instanceof LogParam) {
+            LogParam logParam = (LogParam) obj;
+            output.writeByte(TAG_LOG_PARAM);
+            output.writeLong(logParam.getLogDateTim());
+            output.writeLong(logParam.getLogId());
+            output.writeInt(logParam.getFromLineNum());
+        } else if (obj instanceof RegistryParam) {
+            RegistryParam registryParam = (RegistryParam) obj;
+            output.writeByte(TAG_REGISTRY_PARAM);
+            writeString(output, registryParam.getRegistryGroup());
+            writeString(output, registryParam.getRegistryKey());
+            writeString(output, registryParam.getRegistryValue());
+            output.writeInt(registryParam.getWeight());
+        } else if (obj instanceof List && !((List) obj).isEmpty() && ((List) obj).get(0) instanceof ReturnT) {
+            List<ReturnT> returnTList = (List<ReturnT>) obj;
+            output.writeByte(TAG_RETURN_T_LIST);
+            output.writeInt(returnTList.size());
+            for (ReturnT returnT: returnTList) {
+                write(output, returnT);
+            }
+        } else if (obj instanceof List) {
+            List<HandleCallbackParam> callbackParamList = (List<HandleCallbackParam>) obj;
+            output.writeByte(TAG_CALLBACK_LIST);
+            output.writeInt(callbackParamList.size());
+            for (HandleCallbackParam callbackParam: callbackParamList) {
+                output.writeLong(callbackParam.getLogId());
+                output.writeLong(callbackParam.getLogDateTim());
+                write(output, callbackParam.getExecuteResult());
+            }
+        } else if (obj instanceof ReturnT) {
+            ReturnT returnT = (ReturnT) obj;
+            output.writeByte(TAG_RETURN_T);
+            output.writeInt(returnT.getCode());
+            writeString(output, returnT.getMsg());
+            write(output, returnT.getContent());
+        } else if (obj instanceof String) {
+            output.writeByte(TAG_STRING);
+            writeString(output, (String) obj);
+        } else if (obj instanceof LogResult) {
+            LogResult logResult = (LogResult) obj;
+            output.writeByte(TAG_LOG_RESULT);
+            output.writeInt(logResult.getFromLineNum());
+            output.writeInt(logResult.getToLineNum());
+            writeString(output, logResult.getLogContent());
+            output.writeBoolean(logResult.isEnd());
+        } else {
+            throw new IllegalArgumentException("xxl-job binary codec not support type:" + obj.getClass().getName());
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes("UTF-8");
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    // ---------------------- decode ----------------------
+
+    /**
+     * decode, type checked
+     */
+    public static <T> T decode(byte[] bytes, Class<T> type) {
+        return decode(new ByteArrayInputStream(bytes), type);
+    }
+
+    /**
+     * decode from stream, such as ByteBufInputStream, type checked
+     *
+     * stream should be fully buffered (ByteArrayInputStream/ByteBufInputStream), "available" as remaining bytes
+     */
+    public static <T> T decode(InputStream inputStream, Class<T> type) {
+        Object obj = decode(inputStream);
+        if (obj != null && !type.isInstance(obj)) {
+            throw new IllegalArgumentException("xxl-job binary decode type mismatch, expect " + type.getName() + ", actual " + obj.getClass().getName());
+        }
+        return (T) obj;
+    }
+
+    public static Object decode(byte[] bytes) {
+        return decode(new ByteArrayInputStream(bytes));
+    }
+
+    public static Object decode(InputStream inputStream) {
+        try {
+            DataInputStream input = new DataInputStream(inputStream);
+            byte version = input.readByte();
+            if (version < 1 || version > VERSION) {
+                throw new IllegalArgumentException("xxl-job binary codec version not support:" + version);
+            }
+            return read(input, version, 0);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("xxl-job binary decode fail.", e);
+        }
+    }
+
+    /**
+     * read one value, tag limited to "allowTags" if not empty (nested value)
+     */
+    private static Object read(DataInputStream input, byte version, int depth, byte... allowTags) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("xxl-job binary decode fail, nesting too deep:" + depth);
+        }
+        byte tag = input.readByte();
+        if (allowTags.length > 0 && !contains(allowTags, tag)) {
+            throw new IllegalArgumentException("xxl-job binary decode fail, tag not allowed here:" + tag);
+        }
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_TRIGGER_PARAM: {
+                TriggerParam triggerParam = new TriggerParam();
+                triggerParam.setJobId(input.readInt());
+                triggerParam.setExecutorHandler(readString(input));
+                triggerParam.setExecutorParams(readString(input));
+                triggerParam.setExecutorBlockStrategy(readString(input));
+                triggerParam.setExecutorTimeout(input.readInt());
+                triggerParam.setLogId(input.readLong());
+                triggerParam.setLogDateTime(input.readLong());
+                triggerParam.setGlueType(readString(input));
+                triggerParam.setGlueSource(readString(input));
+                triggerParam.setGlueUpdatetime(input.readLong());
+                triggerParam.setBroadcastIndex(input.readInt());
+                triggerParam.setBroadcastTotal(input.readInt());
+                return triggerParam;
+            }
+            case TAG_TRIGGER_PARAM_ARRAY: {
+                TriggerParam[] triggerParams = new TriggerParam[readSize(input, 1)];
+                for (int i = 0; i < triggerParams.length; i++) {
+                    triggerParams[i] = (TriggerParam) read(input, version, depth+1, TAG_TRIGGER_PARAM, TAG_NULL);
+                }
+                return triggerParams;
+            }
+            case TAG_IDLE_BEAT_PARAM:
+                return new IdleBeatParam(input.readInt());
+            case TAG_KILL_PARAM:
+                return new KillParam(input.readInt());
+            case TAG_LOG_PARAM: {
+                long logDateTim = input.readLong();
+                long logId = input.readLong();
+                int fromLineNum = input.readInt();
+                return new LogParam(logDateTim, logId, fromLineNum);
+            }
+            case TAG_REGISTRY_PARAM: {
+                String registryGroup = readString(input);
+                String registryKey = readString(input);
+                String registryValue = readString(input);
+                int weight = input.readInt();
+                return new RegistryParam(registryGroup, registryKey, registryValue, weight);
+            }
+            case TAG_CALLBACK_LIST: {
+                int size = readSize(input, 8 + 8 + 1);
+                List<HandleCallbackParam> callbackParamList = new ArrayList<HandleCallbackParam>(size);
+                for (int i = 0; i < size; i++) {
+                    long logId = input.readLong();
+                    long logDateTim = input.readLong();
+                    ReturnT<String> executeResult = (ReturnT<String>) read(input, version, depth+1, TAG_RETURN_T, TAG_NULL);
+                    callbackParamList.add(new HandleCallbackParam(logId, logDateTim, executeResult));
+                }
+                return callbackParamList;
+            }
+            case TAG_RETURN_T: {
+                ReturnT<Object> returnT = new ReturnT<Object>();
+                returnT.setCode(input.readInt());
+                returnT.setMsg(readString(input));
+                returnT.setContent(read(input, version, depth+1, TAG_STRING, TAG_LOG_RESULT, TAG_RETURN_T_LIST, TAG_NULL));
+                return returnT;
+            }
+            case TAG_RETURN_T_LIST: {
+                int size = readSize(input, 1);
+                List<ReturnT> returnTList = new ArrayList<ReturnT>(size);
+                for (int i = 0; i < size; i++) {
+                    returnTList.add((ReturnT) read(input, version, depth+1, TAG_RETURN_T, TAG_NULL));
+                }
+                return returnTList;
+            }
+            case TAG_STRING:
+                return readString(input);
+            case TAG_LOG_RESULT: {
+                int fromLineNum = input.readInt();
+                int toLineNum = input.readInt();
+                String logContent = readString(input);
+                boolean isEnd = input.readBoolean();
+                return new LogResult(fromLineNum, toLineNum, logContent, isEnd);
+            }
+            default:
+                throw new IllegalArgumentException("xxl-job binary codec tag not support:" + tag);
+        }
+    }
+
+    private static boolean contains(byte[] tags, byte tag) {
+        for (byte item: tags) {
+            if (item == tag) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > input.available()) {
+            throw new IllegalArgumentException("xxl-job binary decode fail, string length invalid:" + length);
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    /**
+     * item count of array/list, each item at least "minItemBytes" left in input
+     */
+    private static int readSize(DataInputStream input, int minItemBytes) throws IOException {
+        int size = input.readInt();
+        if (size < 0 || size > input.available() / minItemBytes) {
+            throw new IllegalArgumentException("xxl-job binary decode fail, item size invalid:" + size);
+        }
+        return size;
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.xxl.job.core.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * virtual thread util, by reflection so still compiled and run on java 8
+ *
+ *      a、支持：JDK 21 及以上（或开启预览特性的 JDK 19/20）可用，否则 isSupported 返回 false，调用方回退到平台线程；
+ *      b、上下文：虚拟线程默认继承 InheritableThreadLocal，XxlJobContext 可正常传递到任务子线程；
+ */
+public class VirtualThreadUtil {
+    private static Logger logger = LoggerFactory.getLogger(VirtualThreadUtil.class);
+
+    private static Method ofVirtualMethod;
+    private static Method nameMethod;
+    private static Method factoryMethod;
+    private static Method newThreadPerTaskExecutorMethod;
+    private static boolean supported;
+    static {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            ofVirtualMethod = Thread.class.getMethod("ofVirtual");
+            nameMethod = builderClass.getMethod("name", String.class, long.class);
+            factoryMethod = builderClass.getMethod("factory");
+            newThreadPerTaskExecutorMethod = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+
+            // preview on jdk 19/20, throw when not enabled
+            ofVirtualMethod.invoke(null);
+            supported = true;
+        } catch (Throwable e) {
+            supported = false;
+        }
+    }
+
+    public static boolean isSupported() {
+        return supported;
+    }
+
+    /**
+     * virtual thread factory, thread named "namePrefix + index"
+     *
+     * @return null if not supported
+     */
+    public static ThreadFactory newVirtualThreadFactory(String namePrefix) {
+        if (!supported) {
+            return null;
+        }
+        try {
+            Object builder = ofVirtualMethod.invoke(null);
+            builder = nameMethod.invoke(builder, namePrefix, 0L);
+            return (ThreadFactory) factoryMethod.invoke(builder);
+        } catch (Exception e) {
+            logger.error(">>>>>>>>>>> xxl-job, virtual thread factory create fail.", e);
+            return null;
+        }
+    }
+
+    /**
+     * executor starting a new virtual thread for each task
+     *
+     * @return null if not supported
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor(String namePrefix) {
+        ThreadFactory threadFactory = newVirtualThreadFactory(namePrefix);
+        if (threadFactory == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) newThreadPerTaskExecutorMethod.invoke(null, threadFactory);
+        } catch (Exception e) {
+            logger.error(">>>>>>>>>>> xxl-job, virtual thread executor create fail.", e);
+            return null;
+        }
+    }
+
+}
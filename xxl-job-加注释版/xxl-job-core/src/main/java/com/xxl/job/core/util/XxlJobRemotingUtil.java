@@ -5,40 +5,56 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.net.ssl.*;
-import java.io.BufferedReader;
-import java.io.DataOutputStream;
-import java.io.InputStreamReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 /**
+ * connection reuse：不主动 disconnect，响应（含错误响应）完整读取并关闭后，连接归还 JDK 按 "host:port" 维护的 keep-alive 连接池复用；
+ * 每个目标地址的空闲连接上限由 JVM 参数 "-Dhttp.maxConnections" 控制（默认5），高并发调度时可适当调大；
+ *
  * @author xuxueli 2018-11-25 00:55:31
  */
 public class XxlJobRemotingUtil {
     private static Logger logger = LoggerFactory.getLogger(XxlJobRemotingUtil.class);
     public static final String XXL_JOB_ACCESS_TOKEN = "XXL-JOB-ACCESS-TOKEN";
+    public static final String GZIP = "gzip";
+    public static final int GZIP_MIN_LENGTH = 1024;
 
 
-    // trust-https start
+    // trust-https start, ssl socket factory created once and shared
+    private static volatile SSLSocketFactory trustAllSocketFactory;
     private static void trustAllHosts(HttpsURLConnection connection) {
-        try {
-            SSLContext sc = SSLContext.getInstance("TLS");
-            sc.init(null, trustAllCerts, new java.security.SecureRandom());
-            SSLSocketFactory newFactory = sc.getSocketFactory();
-
-            connection.setSSLSocketFactory(newFactory);
-        } catch (Exception e) {
-            logger.error(e.getMessage(), e);
-        }
-        connection.setHostnameVerifier(new HostnameVerifier() {
-            public boolean verify(String hostname, SSLSession session) {
-                return true;
+        if (trustAllSocketFactory == null) {
+            synchronized (XxlJobRemotingUtil.class) {
+                if (trustAllSocketFactory == null) {
+                    try {
+                        SSLContext sc = SSLContext.getInstance("TLS");
+                        sc.init(null, trustAllCerts, new java.security.SecureRandom());
+                        trustAllSocketFactory = sc.getSocketFactory();
+                    } catch (Exception e) {
+                        logger.error(e.getMessage(), e);
+                    }
+                }
             }
-        });
+        }
+        if (trustAllSocketFactory != null) {
+            connection.setSSLSocketFactory(trustAllSocketFactory);
+        }
+        connection.setHostnameVerifier(trustAllHostnameVerifier);
     }
+    private static final HostnameVerifier trustAllHostnameVerifier = new HostnameVerifier() {
+        public boolean verify(String hostname, SSLSession session) {
+            return true;
+        }
+    };
     private static final TrustManager[] trustAllCerts = new TrustManager[]{new X509TrustManager() {
         public java.security.cert.X509Certificate[] getAcceptedIssuers() {
             return new java.security.cert.X509Certificate[]{};
@@ -51,6 +67,24 @@ public class XxlJobRemotingUtil {
     // trust-https end
 
 
+    /**
+     * remote negotiated feature, per remote address, refreshed by each response
+     *
+     *      a、gzip：remote declare by "Accept-Encoding: gzip" response header (RFC 7694), request body less than GZIP_MIN_LENGTH not compressed；
+     *      b、binary：remote declare by "XXL-JOB-CODEC: binary" response header, request and response in BinaryCodecTool instead of json；
+     */
+    public static class Negotiation {
+        private volatile boolean gzip = false;
+        private volatile boolean binary = false;
+
+        public boolean isGzip() {
+            return gzip;
+        }
+        public boolean isBinary() {
+            return binary;
+        }
+    }
+
     /**
      * post
      *
@@ -62,8 +96,23 @@ public class XxlJobRemotingUtil {
      * @return
      */
     public static ReturnT postBody(String url, String accessToken, int timeout, Object requestObj, Class returnTargClassOfT) {
+        return postBody(url, accessToken, 3, timeout, requestObj, returnTargClassOfT, null);
+    }
+
+    /**
+     * post, with connect timeout and negotiated feature
+     *
+     * @param url
+     * @param accessToken
+     * @param connectTimeout        connect timeout, by second
+     * @param timeout               read timeout, by second
+     * @param requestObj
+     * @param returnTargClassOfT
+     * @param negotiation           negotiated feature of remote, refreshed by response; null for plain json
+     * @return
+     */
+    public static ReturnT postBody(String url, String accessToken, int connectTimeout, int timeout, Object requestObj, Class returnTargClassOfT, Negotiation negotiation) {
         HttpURLConnection connection = null;
-        BufferedReader bufferedReader = null;
         try {
             // connection
             URL realUrl = new URL(url);
@@ -82,49 +131,70 @@ public class XxlJobRemotingUtil {
             connection.setDoInput(true);
             connection.setUseCaches(false);
             connection.setReadTimeout(timeout * 1000);
-            connection.setConnectTimeout(3 * 1000);
+            connection.setConnectTimeout(connectTimeout * 1000);
             connection.setRequestProperty("connection", "Keep-Alive");
-            connection.setRequestProperty("Content-Type", "application/json;charset=UTF-8");
-            connection.setRequestProperty("Accept-Charset", "application/json;charset=UTF-8");
 
             if(accessToken!=null && accessToken.trim().length()>0){
                 connection.setRequestProperty(XXL_JOB_ACCESS_TOKEN, accessToken);
             }
 
+            // requestBody, binary or json
+            byte[] requestBodyBytes = new byte[0];
+            if (negotiation!=null && negotiation.binary && BinaryCodecTool.support(requestObj)) {
+                connection.setRequestProperty("Content-Type", BinaryCodecTool.CONTENT_TYPE);
+                connection.setRequestProperty("Accept", BinaryCodecTool.CONTENT_TYPE);
+                requestBodyBytes = BinaryCodecTool.encode(requestObj);
+            } else {
+                connection.setRequestProperty("Content-Type", "application/json;charset=UTF-8");
+                connection.setRequestProperty("Accept-Charset", "application/json;charset=UTF-8");
+                if (requestObj != null) {
+                    String requestBody = GsonTool.toJson(requestObj);
+                    requestBodyBytes = requestBody.getBytes("UTF-8");
+                }
+            }
+
+            // gzip if large
+            if (negotiation!=null && negotiation.gzip && requestBodyBytes.length >= GZIP_MIN_LENGTH) {
+                ByteArrayOutputStream gzipBytes = new ByteArrayOutputStream(requestBodyBytes.length / 4);
+                GZIPOutputStream gzipOutputStream = new GZIPOutputStream(gzipBytes);
+                gzipOutputStream.write(requestBodyBytes);
+                gzipOutputStream.close();
+                requestBodyBytes = gzipBytes.toByteArray();
+                connection.setRequestProperty("Content-Encoding", GZIP);
+            }
+
+            // fixed length, write through without internal buffer copy
+            connection.setFixedLengthStreamingMode(requestBodyBytes.length);
+
             // do connection
             connection.connect();
 
             // write requestBody
-            if (requestObj != null) {
-                String requestBody = GsonTool.toJson(requestObj);
-
-                DataOutputStream dataOutputStream = new DataOutputStream(connection.getOutputStream());
-                dataOutputStream.write(requestBody.getBytes("UTF-8"));
-                dataOutputStream.flush();
-                dataOutputStream.close();
-            }
-
-            /*byte[] requestBodyBytes = requestBody.getBytes("UTF-8");
-            connection.setRequestProperty("Content-Length", String.valueOf(requestBodyBytes.length));
-            OutputStream outwritestream = connection.getOutputStream();
-            outwritestream.write(requestBodyBytes);
-            outwritestream.flush();
-            outwritestream.close();*/
+            OutputStream outputStream = connection.getOutputStream();
+            outputStream.write(requestBodyBytes);
+            outputStream.flush();
+            outputStream.close();
 
             // valid StatusCode
             int statusCode = connection.getResponseCode();
+            if (negotiation != null) {
+                String acceptEncoding = connection.getHeaderField("Accept-Encoding");
+                negotiation.gzip = acceptEncoding!=null && acceptEncoding.toLowerCase().contains(GZIP);
+                negotiation.binary = BinaryCodecTool.CODEC_BINARY.equals(connection.getHeaderField(BinaryCodecTool.CODEC_HEADER));
+            }
             if (statusCode != 200) {
+                // drain error response, keep connection reusable
+                readBytes(connection.getErrorStream(), connection.getContentLength());
                 return new ReturnT<String>(ReturnT.FAIL_CODE, "xxl-rpc remoting fail, StatusCode("+ statusCode +") invalid. for url : " + url);
             }
 
-            // result
-            bufferedReader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-            StringBuilder result = new StringBuilder();
-            String line;
-            while ((line = bufferedReader.readLine()) != null) {
-                result.append(line);
+            // result, read fully as bytes
+            byte[] resultBytes = readBytes(connection.getInputStream(), connection.getContentLength());
+            String contentType = connection.getContentType();
+            if (contentType!=null && contentType.startsWith(BinaryCodecTool.CONTENT_TYPE)) {
+                return BinaryCodecTool.decode(resultBytes, ReturnT.class);
             }
-            String resultJson = result.toString();
+            String resultJson = new String(resultBytes, "UTF-8");
 
             // parse returnT
             try {
@@ -137,18 +207,31 @@ public class XxlJobRemotingUtil {
 
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
+            // connection state unknown, not reuse
+            if (connection != null) {
+                connection.disconnect();
+            }
             return new ReturnT<String>(ReturnT.FAIL_CODE, "xxl-rpc remoting error("+ e.getMessage() +"), for url : " + url);
-        } finally {
-            try {
-                if (bufferedReader != null) {
-                    bufferedReader.close();
-                }
-                if (connection != null) {
-                    connection.disconnect();
-                }
-            } catch (Exception e2) {
-                logger.error(e2.getMessage(), e2);
+        }
+    }
+
+    /**
+     * read stream fully and close, closed stream after EOF returns connection to keep-alive pool
+     */
+    private static byte[] readBytes(InputStream inputStream, int contentLength) throws IOException {
+        if (inputStream == null) {
+            return new byte[0];
+        }
+        try {
+            ByteArrayOutputStream result = new ByteArrayOutputStream(contentLength>0?contentLength:256);
+            byte[] buffer = new byte[4096];
+            int len;
+            while ((len = inputStream.read(buffer)) != -1) {
+                result.write(buffer, 0, len);
             }
+            return result.toByteArray();
+        } finally {
+            inputStream.close();
         }
     }
 
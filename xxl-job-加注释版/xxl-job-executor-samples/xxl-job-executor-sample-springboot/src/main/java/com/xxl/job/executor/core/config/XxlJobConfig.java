@@ -40,6 +40,48 @@ public class XxlJobConfig {
     @Value("${xxl.job.executor.logretentiondays}")
     private int logRetentionDays;
 
+    @Value("${xxl.job.executor.weight:1}")
+    private int weight;
+
+    @Value("${xxl.job.executor.callback.batchsize:100}")
+    private int callbackBatchSize;
+
+    @Value("${xxl.job.executor.callback.batchbytes:524288}")
+    private int callbackBatchBytes;
+
+    @Value("${xxl.job.executor.callback.lingermillis:20}")
+    private int callbackLingerMillis;
+
+    @Value("${xxl.job.executor.callback.parallel:2}")
+    private int callbackParallel;
+
+    @Value("${xxl.job.executor.callback.journal.fsync:interval}")
+    private String callbackJournalFsync;
+
+    @Value("${xxl.job.admin.channel.port:-1}")
+    private int adminChannelPort;
+
+    @Value("${xxl.job.executor.server.iothreads:0}")
+    private int serverIoThreads;
+
+    @Value("${xxl.job.executor.server.bizcorethreads:0}")
+    private int serverBizCoreThreads;
+
+    @Value("${xxl.job.executor.server.bizmaxthreads:200}")
+    private int serverBizMaxThreads;
+
+    @Value("${xxl.job.executor.server.bizqueuesize:2000}")
+    private int serverBizQueueSize;
+
+    @Value("${xxl.job.executor.server.epoll:true}")
+    private boolean serverEpoll;
+
+    @Value("${xxl.job.executor.jobpool.threads:0}")
+    private int jobPoolThreads;
+
+    @Value("${xxl.job.executor.virtualthreads:false}")
+    private boolean virtualThreads;
+
 
     @Bean
     public XxlJobSpringExecutor xxlJobExecutor() {
@@ -53,6 +95,20 @@ public class XxlJobConfig {
         xxlJobSpringExecutor.setAccessToken(accessToken);
         xxlJobSpringExecutor.setLogPath(logPath);
         xxlJobSpringExecutor.setLogRetentionDays(logRetentionDays);
+        xxlJobSpringExecutor.setWeight(weight);
+        xxlJobSpringExecutor.setCallbackBatchSize(callbackBatchSize);
+        xxlJobSpringExecutor.setCallbackBatchBytes(callbackBatchBytes);
+        xxlJobSpringExecutor.setCallbackLingerMillis(callbackLingerMillis);
+        xxlJobSpringExecutor.setCallbackParallel(callbackParallel);
+        xxlJobSpringExecutor.setCallbackJournalFsync(callbackJournalFsync);
+        xxlJobSpringExecutor.setAdminChannelPort(adminChannelPort);
+        xxlJobSpringExecutor.setServerIoThreads(serverIoThreads);
+        xxlJobSpringExecutor.setServerBizCoreThreads(serverBizCoreThreads);
+        xxlJobSpringExecutor.setServerBizMaxThreads(serverBizMaxThreads);
+        xxlJobSpringExecutor.setServerBizQueueSize(serverBizQueueSize);
+        xxlJobSpringExecutor.setServerEpoll(serverEpoll);
+        xxlJobSpringExecutor.setJobPoolThreads(jobPoolThreads);
+        xxlJobSpringExecutor.setVirtualThreads(virtualThreads);
 
         return xxlJobSpringExecutor;
     }